@@ -0,0 +1,108 @@
+package com.example.appointment;
+
+import android.content.Context;
+import android.os.Bundle;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.appointment.core.AppointmentExporter;
+import com.example.appointment.core.AppointmentRecords;
+import com.example.appointment.core.BackgroundExecutors;
+import com.example.appointment.core.Doctor;
+import com.example.appointment.core.ImportReport;
+import com.example.appointment.core.ScheduleImporter;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+// Round trip of an import and an export against the Firestore emulator. Skipped unless run with
+//   -e firebaseEmulatorHost 10.0.2.2 -e firebaseProjectId demo-appointment
+@RunWith(AndroidJUnit4.class)
+public class ScheduleTransferEmulatorTest {
+
+    private static final TimeZone ISTANBUL = TimeZone.getTimeZone("Europe/Istanbul");
+
+    private FirebaseApp app;
+    private FirebaseFirestore firestore;
+    private ExecutorService executor;
+
+    @Before
+    public void connect() {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        String host = arguments.getString("firebaseEmulatorHost");
+        String projectId = arguments.getString("firebaseProjectId");
+        assumeTrue("Firestore emulator not configured", host != null && projectId != null);
+
+        // A separate app, so the emulator settings never leak into the default instance
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        FirebaseOptions options = new FirebaseOptions.Builder()
+                .setProjectId(projectId)
+                .setApplicationId("1:0:android:0")
+                .setApiKey("emulator")
+                .build();
+        app = FirebaseApp.initializeApp(context, options, "emulator-" + UUID.randomUUID());
+        firestore = FirebaseFirestore.getInstance(app);
+        firestore.useEmulator(host, 8080);
+        executor = BackgroundExecutors.fixed("import-test", 3);
+    }
+
+    @After
+    public void disconnect() {
+        if (app != null) {
+            executor.shutdownNow();
+            app.delete();
+        }
+    }
+
+    @Test
+    public void importedAppointmentsAreExportedAndNotImportedTwice() throws Exception {
+        // A doctor ID of its own keeps reruns against the same emulator apart
+        String doctorId = "import-" + UUID.randomUUID();
+        Doctor doctor = new Doctor(doctorId, "Dr Import", null, 8 * 60, 18 * 60 + 30, 30);
+        Map<String, Doctor> doctors = Collections.singletonMap(doctorId, doctor);
+        String csv = "doctorId,start,userId,email\n"
+                + doctorId + ",2031-06-11 09:00,u1,u1@example.com\n"
+                + doctorId + ",2031-06-11 09:30,u2,\n"
+                + doctorId + ",2031-06-11 09:30,u3,\n"
+                + doctorId + ",2031-06-14 09:00,u4,\n";
+
+        ScheduleImporter importer = new ScheduleImporter(new FirestoreImportSink(firestore),
+                new FirestoreImportCheckpoints(firestore), executor, ISTANBUL, 2, 2);
+        ImportReport report = importer.run(doctorId, AppointmentRecords.readCsv(new BufferedReader(new StringReader(csv))), doctors);
+        assertEquals(2, report.getImported());
+        assertEquals(1, report.getDuplicates());
+        assertEquals(1, report.getInvalid());
+
+        // A new import ID starts from the top and finds both slots taken
+        ImportReport again = importer.run(doctorId + "-again", AppointmentRecords.readCsv(new BufferedReader(new StringReader(csv))), doctors);
+        assertEquals(0, again.getImported());
+        assertEquals(2, again.getAlreadyTaken());
+
+        StringWriter out = new StringWriter();
+        long from = AppointmentRecords.parseStart("2031-06-11 00:00", ISTANBUL);
+        int count = new AppointmentExporter(new FirestoreExportSource(firestore, ISTANBUL), 1)
+                .export(doctorId, from, from + 86_400_000L, AppointmentRecords.csvWriter(out, ISTANBUL));
+        assertEquals(2, count);
+        assertEquals("doctorId,start,userId,email\n"
+                + doctorId + ",2031-06-11 09:00,u1,u1@example.com\n"
+                + doctorId + ",2031-06-11 09:30,u2,\n", out.toString());
+    }
+}
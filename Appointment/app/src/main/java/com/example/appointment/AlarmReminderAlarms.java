@@ -0,0 +1,108 @@
+package com.example.appointment;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.net.Uri;
+
+import com.example.appointment.core.Reminder;
+import com.example.appointment.core.ReminderAlarms;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+// ReminderAlarms on AlarmManager. Each reminder is an inexact alarm with a window, so the system can
+// batch it with other wake-ups and no exact alarm permission is needed. What is registered is kept in
+// shared preferences, and the alarm intent carries everything the notification shows.
+public class AlarmReminderAlarms implements ReminderAlarms {
+
+    static final String EXTRA_KEY = "reminderKey";
+    static final String EXTRA_APPOINTMENT_ID = "appointmentId";
+    static final String EXTRA_DOCTOR_ID = "doctorId";
+    static final String EXTRA_APPOINTMENT_MILLIS = "appointmentMillis";
+    static final String EXTRA_LEAD_MILLIS = "leadMillis";
+
+    private static final String PREFERENCES = "reminders";
+    // How late a reminder may fire so the system can batch it
+    private static final long WINDOW_MILLIS = 5 * 60_000L;
+
+    private final Context context;
+    private final AlarmManager alarmManager;
+    private final SharedPreferences registered;
+
+    public AlarmReminderAlarms(Context context) {
+        this.context = context.getApplicationContext();
+        this.alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        this.registered = context.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+    }
+
+    @Override
+    public Map<String, Reminder> getRegistered() {
+        Map<String, Reminder> reminders = new HashMap<>();
+        for (Map.Entry<String, ?> entry : registered.getAll().entrySet()) {
+            Reminder reminder = decode(String.valueOf(entry.getValue()));
+            if (reminder != null) {
+                reminders.put(entry.getKey(), reminder);
+            }
+        }
+        return reminders;
+    }
+
+    @Override
+    public void update(Collection<Reminder> cancelled, Collection<Reminder> added) {
+        // One preferences write for the whole pass
+        SharedPreferences.Editor editor = registered.edit();
+        for (Reminder reminder : cancelled) {
+            alarmManager.cancel(pendingIntent(reminder));
+            editor.remove(reminder.getKey());
+        }
+        for (Reminder reminder : added) {
+            alarmManager.setWindow(AlarmManager.RTC_WAKEUP, reminder.getTriggerAtMillis(), WINDOW_MILLIS, pendingIntent(reminder));
+            editor.putString(reminder.getKey(), encode(reminder));
+        }
+        editor.apply();
+    }
+
+    // Forget a reminder that fired
+    void fired(String key) {
+        registered.edit().remove(key).apply();
+    }
+
+    // Forget every reminder without cancelling, e.g. after a reboot cleared the alarms
+    void forgetAll() {
+        registered.edit().clear().apply();
+    }
+
+    private PendingIntent pendingIntent(Reminder reminder) {
+        // The data URI makes each reminder's intent distinct, so cancelling one leaves the others
+        Intent intent = new Intent(context, ReminderReceiver.class)
+                .setAction(ReminderReceiver.ACTION_REMIND)
+                .setData(Uri.parse("reminder://" + Uri.encode(reminder.getKey())))
+                .putExtra(EXTRA_KEY, reminder.getKey())
+                .putExtra(EXTRA_APPOINTMENT_ID, reminder.getAppointmentId())
+                .putExtra(EXTRA_DOCTOR_ID, reminder.getDoctorId())
+                .putExtra(EXTRA_APPOINTMENT_MILLIS, reminder.getAppointmentMillis())
+                .putExtra(EXTRA_LEAD_MILLIS, reminder.getLeadMillis());
+        return PendingIntent.getBroadcast(context, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    // "appointmentId|doctorId|appointmentMillis|leadMillis"; IDs never contain '|'
+    private static String encode(Reminder reminder) {
+        return reminder.getAppointmentId() + "|" + reminder.getDoctorId() + "|" + reminder.getAppointmentMillis() + "|" + reminder.getLeadMillis();
+    }
+
+    private static Reminder decode(String value) {
+        String[] parts = value.split("\\|");
+        if (parts.length != 4) {
+            return null;
+        }
+        try {
+            return new Reminder(parts[0], parts[1], Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
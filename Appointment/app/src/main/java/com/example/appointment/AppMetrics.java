@@ -0,0 +1,52 @@
+package com.example.appointment;
+
+import androidx.tracing.Trace;
+
+import com.example.appointment.core.Metrics;
+import com.google.android.gms.tasks.Task;
+
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+// Connects the core Metrics to android.os.Trace sections and times Firestore/Auth tasks
+public final class AppMetrics {
+
+    // Completion listeners run on the thread that completes the task, so a busy main thread
+    // does not inflate the recorded latency
+    private static final Executor DIRECT = Runnable::run;
+
+    private AppMetrics() {
+    }
+
+    public static void install(boolean enabled) {
+        Metrics metrics = Metrics.global();
+        metrics.setTracer(new Metrics.Tracer() {
+            @Override
+            public void beginAsyncSection(String name, int cookie) {
+                Trace.beginAsyncSection(name, cookie);
+            }
+
+            @Override
+            public void endAsyncSection(String name, int cookie) {
+                Trace.endAsyncSection(name, cookie);
+            }
+        });
+        metrics.setEnabled(enabled);
+    }
+
+    // Start the task and record how long it takes under the given operation name
+    public static <T> Task<T> timed(String name, Supplier<Task<T>> call) {
+        Metrics.Span span = Metrics.global().start(name);
+        Task<T> task = call.get();
+        if (Metrics.global().isEnabled()) {
+            task.addOnCompleteListener(DIRECT, completed -> {
+                if (completed.isSuccessful()) {
+                    span.end();
+                } else {
+                    span.fail();
+                }
+            });
+        }
+        return task;
+    }
+}
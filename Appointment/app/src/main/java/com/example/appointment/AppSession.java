@@ -0,0 +1,38 @@
+package com.example.appointment;
+
+import android.content.Context;
+
+import com.example.appointment.core.ReminderScheduler;
+import com.example.appointment.core.SessionManager;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+// The signed-in user's session shared by every screen: their cached profile, and sign-out
+public final class AppSession {
+
+    private static SessionManager instance;
+
+    private AppSession() {
+    }
+
+    public static synchronized SessionManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new SessionManager(new PreferencesProfileStore(context), new FirestoreProfileSource(FirebaseFirestore.getInstance()));
+        }
+        return instance;
+    }
+
+    // Sign out and forget the user's profile, appointments, reminders and unsent bookings on this device
+    static void signOut(Context context) {
+        Context app = context.getApplicationContext();
+        FirebaseAuth.getInstance().signOut();
+        getInstance(app).signOut();
+        PendingBookings.getInstance(app).clear();
+        AppointmentDatabase database = AppointmentDatabase.getInstance(app);
+        ReminderScheduler reminders = AppointmentReminders.getInstance(app);
+        BackgroundWork.executor().execute(() -> {
+            reminders.cancelAll();
+            database.clear();
+        });
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.appointment;
+
+import android.app.Application;
+import android.content.SharedPreferences;
+import android.os.Process;
+import android.util.Log;
+
+import com.example.appointment.core.Appointment;
+import com.example.appointment.core.AppointmentMigration;
+import com.example.appointment.core.AppointmentRepository;
+import com.example.appointment.core.DayKeys;
+import com.example.appointment.core.Doctor;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+public class AppointmentApplication extends Application {
+
+    private static final String PREFERENCES = "startup";
+    // Set once the legacy top-level appointments have been moved on this install
+    private static final String KEY_LEGACY_MIGRATED = "legacyAppointmentsMigrated";
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // Latency metrics and trace sections are collected in debug builds only
+        AppMetrics.install(BuildConfig.DEBUG);
+
+        // Benchmark builds may point at the Firebase emulators; this has to happen before any other use
+        if (!BuildConfig.FIREBASE_EMULATOR_HOST.isEmpty()) {
+            FirebaseAuth.getInstance().useEmulator(BuildConfig.FIREBASE_EMULATOR_HOST, 9099);
+            FirebaseFirestore.getInstance().useEmulator(BuildConfig.FIREBASE_EMULATOR_HOST, 8080);
+        }
+
+        // Set up Firestore and load today's availability in the background, so the first
+        // screen draws without waiting for either and the booking screen opens warm
+        Thread warmUp = new Thread(this::warmUp, "startup-warm-up");
+        warmUp.start();
+    }
+
+    private void warmUp() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) {
+            // Signed-out users see the login screen first, which needs no Firestore
+            return;
+        }
+
+        // Before anything below reads or books a day, so legacy bookings are seen and their slots stay taken
+        migrateLegacyAppointments();
+        // Load the cached profile from disk here rather than on the main thread, refreshing it if stale
+        AppSession.getInstance(this).start(user.getUid());
+        // The booking screen checks days against the clinic's rules
+        ClinicRules.getInstance().refresh();
+        // Send bookings left unsent when the app last stopped
+        PendingBookings.getInstance(this).retryNow();
+
+        AppointmentCache.getInstance().fetchDay(Doctor.DEFAULT.getId(), DayKeys.dayKey(Calendar.getInstance()), new AppointmentRepository.OnAppointmentsListener() {
+            @Override
+            public void onSuccess(List<Appointment> appointments) {
+                // Kept in the shared cache for the booking screen
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.w("Startup", "Pre-warming availability failed", e);
+            }
+        });
+    }
+
+    // Move the bookings of the legacy top-level collection into the day subcollections, once per install.
+    // Blocks the warm-up thread; a failed run is tried again on the next start.
+    private void migrateLegacyAppointments() {
+        SharedPreferences preferences = getSharedPreferences(PREFERENCES, MODE_PRIVATE);
+        if (preferences.getBoolean(KEY_LEGACY_MIGRATED, false)) {
+            return;
+        }
+        try {
+            int moved = new AppointmentMigration(new FirestoreLegacyAppointmentStore(FirebaseFirestore.getInstance()),
+                    TimeZone.getDefault()).run();
+            preferences.edit().putBoolean(KEY_LEGACY_MIGRATED, true).apply();
+            Log.i("Startup", "Moved " + moved + " legacy appointments");
+        } catch (Exception e) {
+            Log.w("Startup", "Moving legacy appointments failed", e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.appointment;
+
+import com.example.appointment.core.CachingAppointmentRepository;
+import com.example.appointment.core.Clock;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.TimeZone;
+
+// Process-wide cache of doctor days, shared by every screen that reads availability
+public final class AppointmentCache {
+
+    // Short enough that other patients' bookings show up soon even without a snapshot listener
+    private static final long TTL_MILLIS = 60_000;
+    private static final int MAX_DAYS = 64;
+
+    private static CachingAppointmentRepository instance;
+
+    private AppointmentCache() {
+    }
+
+    public static synchronized CachingAppointmentRepository getInstance() {
+        if (instance == null) {
+            FirestoreAppointmentRepository repository = new FirestoreAppointmentRepository(FirebaseFirestore.getInstance(), TimeZone.getDefault(), BackgroundWork.executor());
+            instance = new CachingAppointmentRepository(repository, Clock.SYSTEM, TTL_MILLIS, MAX_DAYS);
+        }
+        return instance;
+    }
+}
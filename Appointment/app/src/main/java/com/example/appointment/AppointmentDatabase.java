@@ -0,0 +1,156 @@
+package com.example.appointment;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.example.appointment.core.Appointment;
+import com.example.appointment.core.AppointmentPager;
+import com.example.appointment.core.LocalAppointmentStore;
+import com.example.appointment.core.SyncCursor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// SQLite copy of the signed-in user's appointments, keyed by Firestore document ID
+public class AppointmentDatabase extends SQLiteOpenHelper implements LocalAppointmentStore {
+
+    private static final String DATABASE_NAME = "appointments.db";
+    private static final int DATABASE_VERSION = 2;
+    private static final String[] COLUMNS = {"id", "user_id", "email", "doctor_id", "timestamp", "day_key"};
+
+    private static AppointmentDatabase instance;
+
+    public static synchronized AppointmentDatabase getInstance(Context context) {
+        if (instance == null) {
+            instance = new AppointmentDatabase(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private AppointmentDatabase(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE appointments ("
+                + "id TEXT PRIMARY KEY, "
+                + "user_id TEXT NOT NULL, "
+                + "email TEXT, "
+                + "doctor_id TEXT NOT NULL, "
+                + "timestamp INTEGER NOT NULL, "
+                + "day_key INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX appointments_user_time ON appointments (user_id, timestamp)");
+        db.execSQL("CREATE TABLE sync_state ("
+                + "user_id TEXT PRIMARY KEY, "
+                + "updated_at_micros INTEGER NOT NULL, "
+                + "document_path TEXT NOT NULL)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // The table is only a cache of Firestore, so it is rebuilt and re-synced
+        db.execSQL("DROP TABLE IF EXISTS appointments");
+        db.execSQL("DROP TABLE IF EXISTS sync_state");
+        onCreate(db);
+    }
+
+    @Override
+    public List<Appointment> load(String userId) {
+        List<Appointment> appointments = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query("appointments", COLUMNS,
+                "user_id = ?", new String[]{userId}, null, null, "timestamp")) {
+            while (cursor.moveToNext()) {
+                appointments.add(toAppointment(cursor));
+            }
+        }
+        return appointments;
+    }
+
+    @Override
+    public List<Appointment> loadPage(String userId, AppointmentPager.Section section, long boundaryMillis, Appointment after, int limit) {
+        // Keyset pagination on (timestamp, id), served by the (user_id, timestamp) index
+        boolean upcoming = section == AppointmentPager.Section.UPCOMING;
+        StringBuilder selection = new StringBuilder(upcoming ? "user_id = ? AND timestamp >= ?" : "user_id = ? AND timestamp < ?");
+        List<String> args = new ArrayList<>();
+        args.add(userId);
+        args.add(String.valueOf(boundaryMillis));
+        if (after != null) {
+            String compare = upcoming ? ">" : "<";
+            selection.append(" AND (timestamp ").append(compare).append(" ? OR (timestamp = ? AND id ").append(compare).append(" ?))");
+            args.add(String.valueOf(after.getTimestamp()));
+            args.add(String.valueOf(after.getTimestamp()));
+            args.add(after.getId());
+        }
+        String orderBy = upcoming ? "timestamp, id" : "timestamp DESC, id DESC";
+
+        List<Appointment> appointments = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query("appointments", COLUMNS, selection.toString(),
+                args.toArray(new String[0]), null, null, orderBy, String.valueOf(limit))) {
+            while (cursor.moveToNext()) {
+                appointments.add(toAppointment(cursor));
+            }
+        }
+        return appointments;
+    }
+
+    private static Appointment toAppointment(Cursor cursor) {
+        return new Appointment(cursor.getString(0), cursor.getString(1), cursor.getString(2),
+                cursor.getString(3), cursor.getLong(4), cursor.getInt(5));
+    }
+
+    @Override
+    public SyncCursor getCursor(String userId) {
+        try (Cursor cursor = getReadableDatabase().query("sync_state",
+                new String[]{"updated_at_micros", "document_path"},
+                "user_id = ?", new String[]{userId}, null, null, null)) {
+            if (cursor.moveToFirst()) {
+                return new SyncCursor(cursor.getLong(0), cursor.getString(1));
+            }
+        }
+        return SyncCursor.START;
+    }
+
+    @Override
+    public void apply(String userId, Collection<Appointment> upserts, Collection<String> removedIds, SyncCursor cursor) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (Appointment appointment : upserts) {
+                values.clear();
+                values.put("id", appointment.getId());
+                values.put("user_id", appointment.getUserId());
+                values.put("email", appointment.getEmail());
+                values.put("doctor_id", appointment.getDoctorId());
+                values.put("timestamp", appointment.getTimestamp());
+                values.put("day_key", appointment.getDayKey());
+                db.insertWithOnConflict("appointments", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            for (String id : removedIds) {
+                db.delete("appointments", "id = ?", new String[]{id});
+            }
+
+            values.clear();
+            values.put("user_id", userId);
+            values.put("updated_at_micros", cursor.getUpdatedAtMicros());
+            values.put("document_path", cursor.getDocumentPath());
+            db.insertWithOnConflict("sync_state", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    public void clear() {
+        SQLiteDatabase db = getWritableDatabase();
+        db.delete("appointments", null, null);
+        db.delete("sync_state", null, null);
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.appointment;
+
+import com.example.appointment.core.Appointment;
+import com.example.appointment.core.AppointmentSchema;
+import com.google.firebase.firestore.DocumentId;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.IgnoreExtraProperties;
+import com.google.firebase.firestore.ServerTimestamp;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+// Firestore mapping of an appointment document. The document ID comes from the path and is not
+// stored, updatedAt is set by the server, and no display strings are written.
+// Documents of older versions may still carry "formattedDate"; it is ignored.
+@IgnoreExtraProperties
+public class AppointmentDocument {
+
+    @DocumentId
+    private String id;
+    private String userId;
+    private String email;
+    private String doctorId;
+    private long timestamp;
+    private int dayKey;
+    private String seriesId;
+    // See AppointmentSchema.FIELD_PARTICIPANTS
+    private List<String> participants;
+    // Set by queued bookings only, see AppointmentSchema.FIELD_BOOKING_KEY
+    private String bookingKey;
+    @ServerTimestamp
+    private Date updatedAt;
+
+    // Needed by Firestore's class mapper
+    public AppointmentDocument() {
+    }
+
+    static AppointmentDocument from(Appointment appointment) {
+        AppointmentDocument document = new AppointmentDocument();
+        document.userId = appointment.getUserId();
+        document.email = appointment.getEmail();
+        document.doctorId = appointment.getDoctorId();
+        document.timestamp = appointment.getTimestamp();
+        document.dayKey = appointment.getDayKey();
+        document.seriesId = appointment.getSeriesId();
+        document.participants = Collections.singletonList(appointment.getUserId());
+        return document;
+    }
+
+    // The appointment booked over a slot with these stored fields (null if there is no document),
+    // keeping the earlier bookers in participants so their sync sees the slot change hands
+    static AppointmentDocument from(Appointment appointment, Map<String, Object> storedFields) {
+        AppointmentDocument document = from(appointment);
+        document.participants = AppointmentSchema.participantsAfter(storedFields, appointment.getUserId());
+        return document;
+    }
+
+    // The appointment booked in the document, or null if it has no usable timestamp or was cancelled.
+    // Documents in the current schema are mapped directly; older ones, e.g. with a date as timestamp,
+    // and cancelled or held slots go through AppointmentSchema.
+    static Appointment read(DocumentSnapshot snapshot, TimeZone timeZone) {
+        if (snapshot.get(AppointmentSchema.FIELD_STATUS) == null
+                && snapshot.get(AppointmentSchema.FIELD_TIMESTAMP) instanceof Long && snapshot.contains(AppointmentSchema.FIELD_DAY_KEY)) {
+            try {
+                AppointmentDocument document = snapshot.toObject(AppointmentDocument.class);
+                if (document != null && document.doctorId != null) {
+                    return new Appointment(document.id, document.userId, document.email, document.doctorId,
+                            document.timestamp, document.dayKey, document.seriesId);
+                }
+            } catch (RuntimeException e) {
+                // A field of an unexpected type; fall back to the lenient mapping
+            }
+        }
+        return AppointmentSchema.fromFields(snapshot.getId(), FirestoreAppointmentRepository.fieldsOf(snapshot), timeZone);
+    }
+
+    // Like read, but a slot held for a waiting patient or leased while someone confirms counts as theirs,
+    // so it stays taken in day views. Expired leases are read as free; the next booking overwrites them.
+    static Appointment readOccupant(DocumentSnapshot snapshot, TimeZone timeZone) {
+        Object status = snapshot.get(AppointmentSchema.FIELD_STATUS);
+        if (AppointmentSchema.STATUS_HELD.equals(status) || AppointmentSchema.STATUS_LEASED.equals(status)) {
+            return AppointmentSchema.occupantFromFields(snapshot.getId(), FirestoreAppointmentRepository.fieldsOf(snapshot),
+                    timeZone, System.currentTimeMillis());
+        }
+        return read(snapshot, timeZone);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getDoctorId() {
+        return doctorId;
+    }
+
+    public void setDoctorId(String doctorId) {
+        this.doctorId = doctorId;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public int getDayKey() {
+        return dayKey;
+    }
+
+    public void setDayKey(int dayKey) {
+        this.dayKey = dayKey;
+    }
+
+    public String getSeriesId() {
+        return seriesId;
+    }
+
+    public void setSeriesId(String seriesId) {
+        this.seriesId = seriesId;
+    }
+
+    public List<String> getParticipants() {
+        return participants;
+    }
+
+    public void setParticipants(List<String> participants) {
+        this.participants = participants;
+    }
+
+    public String getBookingKey() {
+        return bookingKey;
+    }
+
+    public void setBookingKey(String bookingKey) {
+        this.bookingKey = bookingKey;
+    }
+
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
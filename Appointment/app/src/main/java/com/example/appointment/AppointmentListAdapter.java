@@ -0,0 +1,82 @@
+package com.example.appointment;
+
+import android.graphics.Typeface;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.appointment.core.Appointment;
+import com.example.appointment.core.DateLabels;
+
+import java.time.ZoneId;
+
+// RecyclerView adapter for the appointment history; list changes are diffed off the main thread
+public class AppointmentListAdapter extends ListAdapter<AppointmentListItem, AppointmentListAdapter.ViewHolder> {
+
+    // Looked up once; ZoneId.systemDefault() copies the default TimeZone on every call
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final OnActionClickListener actionListener;
+    private final OnAppointmentClickListener appointmentListener;
+
+    public AppointmentListAdapter(OnActionClickListener actionListener, OnAppointmentClickListener appointmentListener) {
+        super(AppointmentListItem.DIFF_CALLBACK);
+        this.actionListener = actionListener;
+        this.appointmentListener = appointmentListener;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return getItem(position).getType();
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(android.R.layout.simple_list_item_1, parent, false);
+        TextView textView = view.findViewById(android.R.id.text1);
+        if (viewType != AppointmentListItem.TYPE_APPOINTMENT) {
+            textView.setTypeface(textView.getTypeface(), Typeface.BOLD);
+        }
+        return new ViewHolder(view, textView);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        AppointmentListItem item = getItem(position);
+        if (item.getType() == AppointmentListItem.TYPE_APPOINTMENT) {
+            // Dates are formatted only for the rows that are on screen, into the row's own builder
+            StringBuilder text = holder.text;
+            text.setLength(0);
+            holder.textView.setText(DateLabels.appendDateTime(text.append("Date: "), item.getAppointment().getTimestamp(), zone));
+            holder.itemView.setOnClickListener(v -> appointmentListener.onAppointmentClick(item.getAppointment()));
+        } else {
+            holder.textView.setText(item.getText());
+            holder.itemView.setOnClickListener(item.getType() == AppointmentListItem.TYPE_ACTION
+                    ? v -> actionListener.onActionClick(item.getKey())
+                    : null);
+        }
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView textView;
+        final StringBuilder text = new StringBuilder(32);
+
+        ViewHolder(View itemView, TextView textView) {
+            super(itemView);
+            this.textView = textView;
+        }
+    }
+
+    public interface OnActionClickListener {
+        void onActionClick(String key);
+    }
+
+    public interface OnAppointmentClickListener {
+        void onAppointmentClick(Appointment appointment);
+    }
+}
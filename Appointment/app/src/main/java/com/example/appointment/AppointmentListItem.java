@@ -0,0 +1,70 @@
+package com.example.appointment;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.example.appointment.core.Appointment;
+
+// One row of the appointment history: a section header, an appointment or a clickable action
+public final class AppointmentListItem {
+
+    public static final int TYPE_HEADER = 0;
+    public static final int TYPE_APPOINTMENT = 1;
+    public static final int TYPE_ACTION = 2;
+
+    private final int type;
+    private final String key;
+    private final String text;
+    private final Appointment appointment;
+
+    private AppointmentListItem(int type, String key, String text, Appointment appointment) {
+        this.type = type;
+        this.key = key;
+        this.text = text;
+        this.appointment = appointment;
+    }
+
+    public static AppointmentListItem header(String key, String text) {
+        return new AppointmentListItem(TYPE_HEADER, key, text, null);
+    }
+
+    public static AppointmentListItem appointment(Appointment appointment) {
+        return new AppointmentListItem(TYPE_APPOINTMENT, appointment.getId(), null, appointment);
+    }
+
+    public static AppointmentListItem action(String key, String text) {
+        return new AppointmentListItem(TYPE_ACTION, key, text, null);
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public Appointment getAppointment() {
+        return appointment;
+    }
+
+    // Rows are the same item when their keys match, and unchanged when the shown data matches
+    public static final DiffUtil.ItemCallback<AppointmentListItem> DIFF_CALLBACK = new DiffUtil.ItemCallback<AppointmentListItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull AppointmentListItem oldItem, @NonNull AppointmentListItem newItem) {
+            return oldItem.type == newItem.type && oldItem.key.equals(newItem.key);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull AppointmentListItem oldItem, @NonNull AppointmentListItem newItem) {
+            if (oldItem.type == TYPE_APPOINTMENT) {
+                return oldItem.appointment.getTimestamp() == newItem.appointment.getTimestamp();
+            }
+            return oldItem.text.equals(newItem.text);
+        }
+    };
+}
@@ -0,0 +1,42 @@
+package com.example.appointment;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.appointment.core.AppointmentSync;
+import com.example.appointment.core.ReminderScheduler;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.TimeZone;
+
+// Reminders of the signed-in user's appointments, computed from the local store and shown by ReminderReceiver
+public final class AppointmentReminders {
+
+    private static ReminderScheduler instance;
+
+    private AppointmentReminders() {
+    }
+
+    public static synchronized ReminderScheduler getInstance(Context context) {
+        if (instance == null) {
+            Context app = context.getApplicationContext();
+            instance = new ReminderScheduler(AppointmentDatabase.getInstance(app), new AlarmReminderAlarms(app));
+        }
+        return instance;
+    }
+
+    // Pull the user's new booking into the local store and remind them of it, in the background
+    static void syncAndReschedule(Context context, String userId) {
+        Context app = context.getApplicationContext();
+        BackgroundWork.executor().execute(() -> {
+            AppointmentDatabase database = AppointmentDatabase.getInstance(app);
+            try {
+                new AppointmentSync(new FirestoreAppointmentSource(FirebaseFirestore.getInstance(), TimeZone.getDefault()), database)
+                        .sync(userId);
+            } catch (Exception e) {
+                Log.w("Reminders", "Syncing appointments failed", e);
+            }
+            getInstance(app).reschedule(userId);
+        });
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.appointment;
+
+import com.example.appointment.core.BackgroundExecutors;
+
+import java.util.concurrent.ExecutorService;
+
+// Threads that Firestore results are parsed and mapped to UI state on, so the main thread only renders
+public final class BackgroundWork {
+
+    private static final int THREADS = 2;
+
+    private static ExecutorService executor;
+
+    private BackgroundWork() {
+    }
+
+    public static synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = BackgroundExecutors.fixed("firestore-results", THREADS);
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,294 @@
+package com.example.appointment;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModel;
+
+import com.example.appointment.core.Appointment;
+import com.example.appointment.core.CachingAppointmentRepository;
+import com.example.appointment.core.Clinic;
+import com.example.appointment.core.Clock;
+import com.example.appointment.core.DateLabels;
+import com.example.appointment.core.DayKeys;
+import com.example.appointment.core.DaySlots;
+import com.example.appointment.core.DaySlotsLoader;
+import com.example.appointment.core.Doctor;
+import com.example.appointment.core.DoctorRepository;
+import com.example.appointment.core.EarliestSlotFinder;
+import com.example.appointment.core.FreeSlot;
+import com.example.appointment.core.WaitlistEngine;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.time.ZoneId;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+
+// Availability, doctors and earliest slots for the booking screen. Firestore results are parsed
+// and turned into display state on the background executor; only the final state is posted.
+public class BookingViewModel extends ViewModel {
+
+    // How far ahead and how many slots "Earliest Slot" looks for
+    static final int EARLIEST_SEARCH_DAYS = 30;
+    private static final int EARLIEST_SLOT_COUNT = 5;
+    private static final int MAX_CONCURRENT_QUERIES = 8;
+
+    private final ExecutorService worker = BackgroundWork.executor();
+    private final CachingAppointmentRepository appointmentRepository = AppointmentCache.getInstance();
+    private final DoctorRepository doctorRepository = new FirestoreDoctorRepository(FirebaseFirestore.getInstance(), worker);
+    private final EarliestSlotFinder earliestSlotFinder = new EarliestSlotFinder(appointmentRepository, TimeZone.getDefault(), MAX_CONCURRENT_QUERIES,
+            ClinicRules.getInstance());
+    private final DaySlotsLoader daySlotsLoader = new DaySlotsLoader(appointmentRepository, worker, ClinicRules.getInstance(), Clock.SYSTEM);
+    private final LiveAvailability liveAvailability = new LiveAvailability(FirebaseFirestore.getInstance(), TimeZone.getDefault(), worker,
+            ClinicRules.getInstance(), this::onAvailabilityChanged);
+    private final WaitlistEngine waitlistEngine = new WaitlistEngine(new FirestoreWaitlistStore(FirebaseFirestore.getInstance(), TimeZone.getDefault()), TimeZone.getDefault());
+    private final HoldOffers holdOffers = new HoldOffers(FirebaseFirestore.getInstance(), worker, this::onOffer);
+
+    private final MutableLiveData<DaySlots> daySlots = new MutableLiveData<>();
+    private final MutableLiveData<UiEvent<DoctorChoices>> doctors = new MutableLiveData<>();
+    private final MutableLiveData<UiEvent<SlotChoices>> earliestSlots = new MutableLiveData<>();
+    private final MutableLiveData<UiEvent<String>> messages = new MutableLiveData<>();
+    private final MutableLiveData<UiEvent<HoldOffers.Offer>> offers = new MutableLiveData<>();
+
+    // The watched day; updated by the snapshot listener and by loadDay()
+    public LiveData<DaySlots> getDaySlots() {
+        return daySlots;
+    }
+
+    public LiveData<UiEvent<DoctorChoices>> getDoctors() {
+        return doctors;
+    }
+
+    public LiveData<UiEvent<SlotChoices>> getEarliestSlots() {
+        return earliestSlots;
+    }
+
+    public LiveData<UiEvent<String>> getMessages() {
+        return messages;
+    }
+
+    // Slots held for the user after a cancellation, see watchOffers()
+    public LiveData<UiEvent<HoldOffers.Offer>> getOffers() {
+        return offers;
+    }
+
+    // Follow the availability of the doctor's day
+    public void watch(Doctor doctor, Calendar day) {
+        liveAvailability.watch(doctor, day);
+        // Holds nobody claimed in time are passed on when someone looks at the day
+        waitlistEngine.expireHolds(doctor.getId(), DayKeys.dayKey(day), new WaitlistEngine.OnDoneListener() {
+            @Override
+            public void onDone() {
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                // Retried by the next change to the day
+            }
+        });
+    }
+
+    public void startWatching() {
+        liveAvailability.start();
+    }
+
+    // Detach the snapshot listeners while the screen is not visible
+    public void stopWatching() {
+        liveAvailability.stop();
+        holdOffers.stop();
+    }
+
+    // Listen for slots held for the user; call from onStart() with stopWatching() in onStop()
+    public void watchOffers(String userId) {
+        holdOffers.start(userId);
+    }
+
+    // Queue the user for the doctor's day, to be offered the next slot someone cancels
+    public void joinWaitlist(Doctor doctor, Calendar day, String userId, String email) {
+        waitlistEngine.join(doctor.getId(), DayKeys.dayKey(day), userId, email, new WaitlistEngine.OnJoinListener() {
+            @Override
+            public void onJoined(int position) {
+                messages.setValue(new UiEvent<>("You are number " + position + " on the waitlist"));
+            }
+
+            @Override
+            public void onAlreadyWaiting() {
+                messages.setValue(new UiEvent<>("You are already on the waitlist for this day"));
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                messages.setValue(new UiEvent<>("Unable to join the waitlist: " + e.getMessage()));
+            }
+        });
+    }
+
+    public void claimOffer(HoldOffers.Offer offer) {
+        waitlistEngine.claim(offer.getHold(), offer.getDoctorId(), new WaitlistEngine.OnClaimListener() {
+            @Override
+            public void onClaimed(Appointment appointment) {
+                appointmentRepository.invalidate(appointment.getDoctorId(), appointment.getDayKey());
+                messages.setValue(new UiEvent<>("Appointment successfully created!"));
+            }
+
+            @Override
+            public void onHoldLost() {
+                messages.setValue(new UiEvent<>("Sorry, this time is no longer held for you."));
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                messages.setValue(new UiEvent<>("Appointment creation failed: " + e.getMessage()));
+            }
+        });
+    }
+
+    public void declineOffer(HoldOffers.Offer offer) {
+        waitlistEngine.decline(offer.getHold(), offer.getDoctorId(), new WaitlistEngine.OnDoneListener() {
+            @Override
+            public void onDone() {
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                // The hold expires and moves on by itself
+            }
+        });
+    }
+
+    // Read the day once, for when its snapshot has not arrived yet
+    public void loadDay(Doctor doctor, Calendar day) {
+        daySlotsLoader.load(doctor, day, new DaySlotsLoader.OnDaySlotsListener() {
+            @Override
+            public void onSuccess(DaySlots slots) {
+                daySlots.postValue(slots);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                messages.postValue(new UiEvent<>("Unable to fetch appointments: " + e.getMessage()));
+            }
+        });
+    }
+
+    public void loadDoctors() {
+        // Rules change rarely; picking a doctor is a good moment to pick up new ones
+        ClinicRules.getInstance().refresh();
+        doctorRepository.fetchDoctors(new DoctorRepository.OnDoctorsListener() {
+            @Override
+            public void onSuccess(List<Doctor> doctorList, Map<String, Clinic> clinics) {
+                List<Doctor> shown = doctorList.isEmpty() ? Collections.singletonList(Doctor.DEFAULT) : doctorList;
+                doctors.postValue(new UiEvent<>(new DoctorChoices(shown, clinics)));
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                messages.postValue(new UiEvent<>("Unable to fetch doctors: " + e.getMessage()));
+            }
+        });
+    }
+
+    // Search the chosen doctor, or everyone when no doctor has been picked
+    public void findEarliestSlots(Doctor selectedDoctor) {
+        doctorRepository.fetchDoctors(new DoctorRepository.OnDoctorsListener() {
+            @Override
+            public void onSuccess(List<Doctor> doctorList, Map<String, Clinic> clinics) {
+                List<Doctor> searched = selectedDoctor != Doctor.DEFAULT || doctorList.isEmpty()
+                        ? Collections.singletonList(selectedDoctor) : doctorList;
+                // Slots sooner than the minimum lead time cannot be booked any more
+                long from = System.currentTimeMillis() + ClinicRules.getInstance().getRules().getMinLeadMillis();
+                earliestSlotFinder.find(searched, from, EARLIEST_SEARCH_DAYS, EARLIEST_SLOT_COUNT,
+                        new EarliestSlotFinder.OnSlotsFoundListener() {
+                            @Override
+                            public void onSuccess(List<FreeSlot> slots) {
+                                // Finder callbacks arrive on repository threads; format on the worker
+                                worker.execute(() -> earliestSlots.postValue(new UiEvent<>(new SlotChoices(slots))));
+                            }
+
+                            @Override
+                            public void onFailure(Exception e) {
+                                messages.postValue(new UiEvent<>("Unable to fetch appointments: " + e.getMessage()));
+                            }
+                        });
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                messages.postValue(new UiEvent<>("Unable to fetch doctors: " + e.getMessage()));
+            }
+        });
+    }
+
+    // Forget the cached copy of a day that was just booked
+    public void invalidateDay(Doctor doctor, long timestamp) {
+        appointmentRepository.invalidate(doctor.getId(), DayKeys.dayKey(timestamp, TimeZone.getDefault()));
+    }
+
+    private void onAvailabilityChanged(DaySlots slots) {
+        // The snapshot is newer than anything cached for the day
+        appointmentRepository.invalidate(slots.getDoctor().getId(), slots.getDayKey());
+        daySlots.postValue(slots);
+    }
+
+    private void onOffer(HoldOffers.Offer offer) {
+        offers.postValue(new UiEvent<>(offer));
+    }
+
+    @Override
+    protected void onCleared() {
+        liveAvailability.stop();
+        holdOffers.stop();
+    }
+
+    // Doctors with their display names, ready for a picker
+    public static final class DoctorChoices {
+
+        private final List<Doctor> doctors;
+        private final String[] names;
+
+        DoctorChoices(List<Doctor> doctors, Map<String, Clinic> clinics) {
+            this.doctors = doctors;
+            this.names = new String[doctors.size()];
+            for (int i = 0; i < doctors.size(); i++) {
+                Doctor doctor = doctors.get(i);
+                Clinic clinic = doctor.getClinicId() != null ? clinics.get(doctor.getClinicId()) : null;
+                names[i] = clinic != null ? doctor.getName() + " (" + clinic.getName() + ")" : doctor.getName();
+            }
+        }
+
+        public List<Doctor> getDoctors() {
+            return doctors;
+        }
+
+        public String[] getNames() {
+            return names.clone();
+        }
+    }
+
+    // Free slots with their "dd/MM/yyyy HH:mm - doctor" labels, ready for a picker
+    public static final class SlotChoices {
+
+        private final List<FreeSlot> slots;
+        private final String[] labels;
+
+        SlotChoices(List<FreeSlot> slots) {
+            this.slots = slots;
+            this.labels = new String[slots.size()];
+            ZoneId zone = ZoneId.systemDefault();
+            for (int i = 0; i < slots.size(); i++) {
+                labels[i] = DateLabels.dateTime(slots.get(i).getStartMillis(), zone) + " - " + slots.get(i).getDoctor().getName();
+            }
+        }
+
+        public List<FreeSlot> getSlots() {
+            return slots;
+        }
+
+        public String[] getLabels() {
+            return labels.clone();
+        }
+    }
+}
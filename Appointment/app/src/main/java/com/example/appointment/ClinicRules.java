@@ -0,0 +1,51 @@
+package com.example.appointment;
+
+import android.util.Log;
+
+import com.example.appointment.core.AppointmentPaths;
+import com.example.appointment.core.SlotRules;
+import com.example.appointment.core.SlotRulesSource;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+// The clinic's SlotRules as last read from Firestore. Without the document the DEFAULT rules apply;
+// until the first read, or when the document cannot be parsed, the rules stay as they were.
+public final class ClinicRules implements SlotRulesSource {
+
+    private static ClinicRules instance;
+
+    private final FirebaseFirestore firestore;
+    private volatile SlotRules rules = SlotRules.DEFAULT;
+
+    private ClinicRules(FirebaseFirestore firestore) {
+        this.firestore = firestore;
+    }
+
+    public static synchronized ClinicRules getInstance() {
+        if (instance == null) {
+            instance = new ClinicRules(FirebaseFirestore.getInstance());
+        }
+        return instance;
+    }
+
+    @Override
+    public SlotRules getRules() {
+        return rules;
+    }
+
+    // Read the rules again; screens pick them up the next time they check a day
+    public void refresh() {
+        AppMetrics.timed("firestore.fetchSlotRules", () -> firestore.document(AppointmentPaths.SLOT_RULES).get())
+                .addOnSuccessListener(BackgroundWork.executor(), document -> {
+                    if (!document.exists() || document.getData() == null) {
+                        rules = SlotRules.DEFAULT;
+                        return;
+                    }
+                    try {
+                        rules = SlotRules.fromFields(document.getData());
+                    } catch (IllegalArgumentException e) {
+                        Log.w("SlotRules", "Keeping the previous rules", e);
+                    }
+                })
+                .addOnFailureListener(e -> Log.w("SlotRules", "Reading the rules failed", e));
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.appointment;
+
+import android.os.Bundle;
+import android.widget.Button;
+import android.widget.TextView;
+
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.example.appointment.core.Clinic;
+import com.example.appointment.core.DateLabels;
+import com.example.appointment.core.DaySummary;
+import com.example.appointment.core.DaySummaryRepository;
+import com.example.appointment.core.Doctor;
+import com.example.appointment.core.DoctorRepository;
+import com.example.appointment.core.SlotGrid;
+import com.example.appointment.core.UserProfile;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.time.ZoneId;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Staff dashboard with the load of every doctor on one day, read from one summary document per doctor
+public class DaySheetActivity extends AppCompatActivity {
+
+    // Set in the users document, e.g. preferences.role = "staff"
+    static final String PREFERENCE_ROLE = "role";
+    static final String ROLE_STAFF = "staff";
+
+    private final DoctorRepository doctorRepository = new FirestoreDoctorRepository(FirebaseFirestore.getInstance(), BackgroundWork.executor());
+    private final DaySummaryRepository summaryRepository = new FirestoreDaySummaryRepository(FirebaseFirestore.getInstance(), BackgroundWork.executor());
+
+    private TextView dayText;
+    private TextView sheetText;
+    private Calendar day;
+    private List<Doctor> doctors;
+
+    static boolean isStaff(UserProfile profile) {
+        return profile != null && ROLE_STAFF.equals(profile.getPreference(PREFERENCE_ROLE, null));
+    }
+
+    @Override
+    protected void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_day_sheet);
+
+        dayText = findViewById(R.id.daySheetDate);
+        sheetText = findViewById(R.id.daySheetText);
+        Button btnPrevious = findViewById(R.id.btnPreviousDay);
+        Button btnNext = findViewById(R.id.btnNextDay);
+
+        day = Calendar.getInstance();
+        day.set(Calendar.HOUR_OF_DAY, 0);
+        day.set(Calendar.MINUTE, 0);
+        day.set(Calendar.SECOND, 0);
+        day.set(Calendar.MILLISECOND, 0);
+
+        btnPrevious.setOnClickListener(v -> showDay(-1));
+        btnNext.setOnClickListener(v -> showDay(1));
+
+        sheetText.setText("Loading…");
+        doctorRepository.fetchDoctors(new DoctorRepository.OnDoctorsListener() {
+            @Override
+            public void onSuccess(List<Doctor> doctorList, Map<String, Clinic> clinics) {
+                runOnUiThread(() -> {
+                    doctors = doctorList;
+                    showDay(0);
+                });
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                runOnUiThread(() -> sheetText.setText("Loading doctors failed: " + e.getMessage()));
+            }
+        });
+    }
+
+    private void showDay(int offsetDays) {
+        if (doctors == null) {
+            return;
+        }
+        day.add(Calendar.DAY_OF_MONTH, offsetDays);
+        Calendar shown = (Calendar) day.clone();
+        dayText.setText(DateLabels.date(shown.getTimeInMillis(), ZoneId.systemDefault()));
+        summaryRepository.fetchSummaries(doctors, shown, new DaySummaryRepository.OnSummariesListener() {
+            @Override
+            public void onSuccess(List<DaySummary> summaries) {
+                String sheet = describe(summaries);
+                runOnUiThread(() -> {
+                    // Drop results of a day the user already moved away from
+                    if (shown.equals(day)) {
+                        sheetText.setText(sheet);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                runOnUiThread(() -> sheetText.setText("Loading the day failed: " + e.getMessage()));
+            }
+        });
+    }
+
+    // One block per doctor: counts, utilisation and a row with a mark per slot
+    private static String describe(List<DaySummary> summaries) {
+        StringBuilder text = new StringBuilder();
+        int booked = 0;
+        int slots = 0;
+        for (DaySummary summary : summaries) {
+            SlotGrid grid = summary.getDoctor().getSlotGrid();
+            booked += Long.bitCount(summary.getBookedMask());
+            slots += summary.getSlotCount();
+            text.append(summary.getDoctor().getName()).append('\n')
+                    .append(String.format(Locale.ROOT, "%d/%d booked, %.0f%%%n",
+                            Long.bitCount(summary.getBookedMask()), summary.getSlotCount(), summary.getUtilisation() * 100));
+            text.append(grid.label(0)).append(' ');
+            for (int index = 0; index < grid.getSlotCount(); index++) {
+                text.append(grid.isFree(summary.getBookedMask(), index) ? '·' : '■');
+            }
+            text.append(' ').append(grid.label(grid.getSlotCount() - 1)).append("\n\n");
+        }
+        if (slots > 0) {
+            text.append(String.format(Locale.ROOT, "All doctors: %d/%d booked, %.0f%%", booked, slots, 100.0 * booked / slots));
+        }
+        return text.toString();
+    }
+}
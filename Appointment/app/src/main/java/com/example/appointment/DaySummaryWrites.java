@@ -0,0 +1,50 @@
+package com.example.appointment;
+
+import com.example.appointment.core.DaySummary;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Collects the day summary changes of one transaction and writes them as one merged update per day
+// document. Neither the booked map nor the count is read first, so keeping summaries adds no reads,
+// and slot writes of the same day only conflict at commit, not in their reads.
+final class DaySummaryWrites {
+
+    // Day document -> booked map entries to set or delete
+    private final Map<DocumentReference, Map<String, Object>> booked = new LinkedHashMap<>();
+    private final Map<DocumentReference, Long> counts = new HashMap<>();
+
+    // Record how writing the slot document changes its day; null changes are ignored
+    void add(DocumentReference slotRef, DaySummary.Change change) {
+        if (change == null) {
+            return;
+        }
+        // doctors/{doctorId}/days/{dayKey}/appointments/{slotId} -> doctors/{doctorId}/days/{dayKey}
+        DocumentReference dayRef = slotRef.getParent().getParent();
+        if (dayRef == null) {
+            return;
+        }
+        Map<String, Object> entries = booked.get(dayRef);
+        if (entries == null) {
+            entries = new HashMap<>();
+            booked.put(dayRef, entries);
+            counts.put(dayRef, 0L);
+        }
+        entries.put(change.getBookedKey(), change.isBooked() ? Boolean.TRUE : FieldValue.delete());
+        counts.put(dayRef, counts.get(dayRef) + change.getCountDelta());
+    }
+
+    void writeTo(Transaction transaction) {
+        for (Map.Entry<DocumentReference, Map<String, Object>> day : booked.entrySet()) {
+            Map<String, Object> fields = new HashMap<>();
+            fields.put(DaySummary.FIELD_BOOKED, day.getValue());
+            fields.put(DaySummary.FIELD_BOOKED_COUNT, FieldValue.increment(counts.get(day.getKey())));
+            transaction.set(day.getKey(), fields, SetOptions.merge());
+        }
+    }
+}
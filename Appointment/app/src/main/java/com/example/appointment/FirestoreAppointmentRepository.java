@@ -0,0 +1,90 @@
+package com.example.appointment;
+
+import com.example.appointment.core.Appointment;
+import com.example.appointment.core.AppointmentPaths;
+import com.example.appointment.core.AppointmentRangeSource;
+import com.example.appointment.core.AppointmentRepository;
+import com.example.appointment.core.AppointmentSchema;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
+
+// AppointmentRepository backed by the doctors' day subcollections. Bookings of the legacy top-level
+// collection are only seen once AppointmentMigration has moved them, see AppointmentApplication.
+// Documents are parsed and listeners called on the given executor, never on the main thread.
+public class FirestoreAppointmentRepository implements AppointmentRepository, AppointmentRangeSource {
+
+    private final FirebaseFirestore firestore;
+    private final TimeZone timeZone;
+    private final Executor executor;
+
+    public FirestoreAppointmentRepository(FirebaseFirestore firestore, TimeZone timeZone, Executor executor) {
+        this.firestore = firestore;
+        this.timeZone = timeZone;
+        this.executor = executor;
+    }
+
+    @Override
+    public void fetchDay(String doctorId, int dayKey, OnAppointmentsListener listener) {
+        // The subcollection holds exactly this doctor's bookings for the day
+        AppMetrics.timed("firestore.fetchDay", () -> firestore.collection(AppointmentPaths.dayAppointments(doctorId, dayKey)).get())
+                .addOnCompleteListener(executor, task -> {
+                    if (task.isSuccessful() && task.getResult() != null) {
+                        listener.onSuccess(toAppointments(task.getResult()));
+                    } else {
+                        listener.onFailure(task.getException());
+                    }
+                });
+    }
+
+    @Override
+    public void fetchRange(String doctorId, long fromMillis, long toMillis, OnAppointmentsListener listener) {
+        // One collection group query over the doctor's days, served by the doctorId + timestamp index
+        Query query = firestore.collectionGroup(AppointmentPaths.APPOINTMENTS)
+                .whereEqualTo(AppointmentSchema.FIELD_DOCTOR_ID, doctorId)
+                .whereGreaterThanOrEqualTo(AppointmentSchema.FIELD_TIMESTAMP, fromMillis)
+                .whereLessThan(AppointmentSchema.FIELD_TIMESTAMP, toMillis);
+        AppMetrics.timed("firestore.fetchRange", query::get)
+                .addOnCompleteListener(executor, task -> {
+                    if (task.isSuccessful() && task.getResult() != null) {
+                        listener.onSuccess(toAppointments(task.getResult()));
+                    } else {
+                        listener.onFailure(task.getException());
+                    }
+                });
+    }
+
+    private List<Appointment> toAppointments(QuerySnapshot snapshot) {
+        List<Appointment> result = new ArrayList<>(snapshot.size());
+        for (DocumentSnapshot document : snapshot.getDocuments()) {
+            // Held slots are included, so they are not offered to anyone else
+            Appointment appointment = AppointmentDocument.readOccupant(document, timeZone);
+            if (appointment != null) {
+                result.add(appointment);
+            }
+        }
+        return result;
+    }
+
+    // Document fields with Firestore Timestamps converted to Dates, which the schema understands
+    static Map<String, Object> fieldsOf(DocumentSnapshot document) {
+        Map<String, Object> data = document.getData();
+        Map<String, Object> fields = new HashMap<>();
+        if (data != null) {
+            for (Map.Entry<String, Object> entry : data.entrySet()) {
+                Object value = entry.getValue();
+                fields.put(entry.getKey(), value instanceof Timestamp ? ((Timestamp) value).toDate() : value);
+            }
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.appointment;
+
+import com.example.appointment.core.Appointment;
+import com.example.appointment.core.AppointmentChange;
+import com.example.appointment.core.AppointmentPaths;
+import com.example.appointment.core.AppointmentSchema;
+import com.example.appointment.core.RemoteAppointmentSource;
+import com.example.appointment.core.SyncCursor;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+// Reads the changed slots the user ever booked from every doctor's day subcollections, ordered by
+// updatedAt and document ID. A slot booked by someone else since comes back as theirs, which
+// AppointmentSync removes. Needs the collection group index on (participants, updatedAt, __name__)
+// from firestore.indexes.json.
+public class FirestoreAppointmentSource implements RemoteAppointmentSource {
+
+    private final FirebaseFirestore firestore;
+    private final TimeZone timeZone;
+
+    public FirestoreAppointmentSource(FirebaseFirestore firestore, TimeZone timeZone) {
+        this.firestore = firestore;
+        this.timeZone = timeZone;
+    }
+
+    @Override
+    public List<AppointmentChange> fetchChanges(String userId, SyncCursor after, int limit) throws Exception {
+        Query query = firestore.collectionGroup(AppointmentPaths.APPOINTMENTS)
+                .whereArrayContains(AppointmentSchema.FIELD_PARTICIPANTS, userId)
+                .orderBy(AppointmentSchema.FIELD_UPDATED_AT)
+                .orderBy(FieldPath.documentId());
+        if (after != SyncCursor.START) {
+            query = query.startAfter(toTimestamp(after.getUpdatedAtMicros()), after.getDocumentPath());
+        }
+
+        Query page = query.limit(limit);
+        QuerySnapshot snapshot = Tasks.await(AppMetrics.timed("firestore.fetchChanges", page::get));
+        List<AppointmentChange> changes = new ArrayList<>(snapshot.size());
+        for (DocumentSnapshot document : snapshot.getDocuments()) {
+            Appointment appointment = AppointmentDocument.read(document, timeZone);
+            Timestamp updatedAt = document.getTimestamp(AppointmentSchema.FIELD_UPDATED_AT);
+            changes.add(new AppointmentChange(document.getId(), document.getReference().getPath(), appointment, toMicros(updatedAt)));
+        }
+        return changes;
+    }
+
+    static long toMicros(Timestamp timestamp) {
+        return timestamp.getSeconds() * 1_000_000L + timestamp.getNanoseconds() / 1_000;
+    }
+
+    static Timestamp toTimestamp(long micros) {
+        return new Timestamp(Math.floorDiv(micros, 1_000_000L), (int) Math.floorMod(micros, 1_000_000L) * 1_000);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.appointment;
+
+import com.example.appointment.core.AppointmentPaths;
+import com.example.appointment.core.AppointmentSchema;
+import com.example.appointment.core.DayKeys;
+import com.example.appointment.core.DaySummary;
+import com.example.appointment.core.DaySummaryRepository;
+import com.example.appointment.core.Doctor;
+import com.example.appointment.core.SlotGrid;
+import com.example.appointment.core.SlotKeys;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+// Reads one day document per doctor. A day whose summary was never rebuilt is rebuilt once, in a
+// transaction over its slot documents, so bookings made before summaries were kept are counted;
+// a booking racing with the rebuild makes it retry.
+public class FirestoreDaySummaryRepository implements DaySummaryRepository {
+
+    private final FirebaseFirestore firestore;
+    private final Executor executor;
+
+    public FirestoreDaySummaryRepository(FirebaseFirestore firestore, Executor executor) {
+        this.firestore = firestore;
+        this.executor = executor;
+    }
+
+    @Override
+    public void fetchSummaries(List<Doctor> doctors, Calendar day, OnSummariesListener listener) {
+        int dayKey = DayKeys.dayKey(day);
+        List<Task<DaySummary>> tasks = new ArrayList<>(doctors.size());
+        for (Doctor doctor : doctors) {
+            DocumentReference dayRef = firestore.document(AppointmentPaths.day(doctor.getId(), dayKey));
+            tasks.add(AppMetrics.timed("firestore.fetchDaySummary", dayRef::get).continueWithTask(executor, task -> {
+                DaySummary summary = DaySummary.fromFields(doctor, day, task.getResult().getData());
+                return summary.isComplete() ? Tasks.forResult(summary) : rebuild(doctor, day, dayRef);
+            }));
+        }
+
+        // Results come back in the order of the tasks, i.e. of the doctors
+        Tasks.whenAllSuccess(tasks)
+                .addOnSuccessListener(executor, results -> {
+                    List<DaySummary> summaries = new ArrayList<>(results.size());
+                    for (Object result : results) {
+                        summaries.add((DaySummary) result);
+                    }
+                    listener.onSuccess(summaries);
+                })
+                .addOnFailureListener(executor, listener::onFailure);
+    }
+
+    private Task<DaySummary> rebuild(Doctor doctor, Calendar day, DocumentReference dayRef) {
+        SlotGrid grid = doctor.getSlotGrid();
+        long firstSlotMillis = grid.firstSlotMillis(day);
+        int dayKey = DayKeys.dayKey(day);
+        return AppMetrics.timed("firestore.rebuildDaySummary", () -> firestore.runTransaction(transaction -> {
+            List<Long> bookedStarts = new ArrayList<>();
+            for (int index = 0; index < grid.getSlotCount(); index++) {
+                long start = grid.slotStartMillis(firstSlotMillis, index);
+                String slotId = SlotKeys.slotId(doctor.getId(), start, grid.getSlotMillis());
+                DocumentSnapshot slot = transaction.get(firestore.document(AppointmentPaths.appointment(doctor.getId(), dayKey, slotId)));
+                if (slot.exists() && AppointmentSchema.isBooked(FirestoreAppointmentRepository.fieldsOf(slot))) {
+                    bookedStarts.add(start);
+                }
+            }
+            // Replaces the booked map and count left by earlier increments; other fields of the day stay
+            Map<String, Object> fields = DaySummary.fieldsOf(bookedStarts);
+            transaction.set(dayRef, fields, SetOptions.mergeFields(DaySummary.FIELD_BOOKED, DaySummary.FIELD_BOOKED_COUNT, DaySummary.FIELD_COMPLETE));
+            return DaySummary.fromFields(doctor, day, fields);
+        }));
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.appointment;
+
+import com.example.appointment.core.Clinic;
+import com.example.appointment.core.Doctor;
+import com.example.appointment.core.DoctorRepository;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+// DoctorRepository backed by the "doctors" and "clinics" collections.
+// Documents are parsed and listeners called on the given executor.
+public class FirestoreDoctorRepository implements DoctorRepository {
+
+    private final FirebaseFirestore firestore;
+    private final Executor executor;
+
+    public FirestoreDoctorRepository(FirebaseFirestore firestore, Executor executor) {
+        this.firestore = firestore;
+        this.executor = executor;
+    }
+
+    @Override
+    public void fetchDoctors(OnDoctorsListener listener) {
+        // Both collections are small, so they are read in parallel
+        Task<QuerySnapshot> doctorsTask = AppMetrics.timed("firestore.fetchDoctors", () -> firestore.collection("doctors").get());
+        Task<QuerySnapshot> clinicsTask = AppMetrics.timed("firestore.fetchClinics", () -> firestore.collection("clinics").get());
+
+        Tasks.whenAllComplete(doctorsTask, clinicsTask).addOnCompleteListener(executor, task -> {
+            if (!doctorsTask.isSuccessful()) {
+                listener.onFailure(doctorsTask.getException());
+                return;
+            }
+
+            List<Doctor> doctors = new ArrayList<>();
+            for (DocumentSnapshot document : doctorsTask.getResult().getDocuments()) {
+                try {
+                    doctors.add(Doctor.fromFields(document.getId(), document.getData()));
+                } catch (IllegalArgumentException e) {
+                    // Skip doctors whose working hours are misconfigured
+                }
+            }
+
+            // Clinic names are only used for display, so a failed read is not fatal
+            Map<String, Clinic> clinics = new HashMap<>();
+            if (clinicsTask.isSuccessful()) {
+                for (DocumentSnapshot document : clinicsTask.getResult().getDocuments()) {
+                    clinics.put(document.getId(), Clinic.fromFields(document.getId(), document.getData()));
+                }
+            }
+            listener.onSuccess(doctors, clinics);
+        });
+    }
+}
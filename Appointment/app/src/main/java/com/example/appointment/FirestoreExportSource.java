@@ -0,0 +1,62 @@
+package com.example.appointment;
+
+import com.example.appointment.core.Appointment;
+import com.example.appointment.core.AppointmentPaths;
+import com.example.appointment.core.AppointmentSchema;
+import com.example.appointment.core.ExportSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+// Reads booked appointments from every doctor's day subcollections, ordered by timestamp and document ID.
+// Needs the collection group index on (doctorId, timestamp, __name__) from firestore.indexes.json.
+public class FirestoreExportSource implements ExportSource {
+
+    private final FirebaseFirestore firestore;
+    private final TimeZone timeZone;
+
+    public FirestoreExportSource(FirebaseFirestore firestore, TimeZone timeZone) {
+        this.firestore = firestore;
+        this.timeZone = timeZone;
+    }
+
+    @Override
+    public List<Appointment> fetchPage(String doctorId, long fromMillis, long toMillis, Appointment after, int limit) throws Exception {
+        Query query = firestore.collectionGroup(AppointmentPaths.APPOINTMENTS);
+        if (doctorId != null) {
+            query = query.whereEqualTo(AppointmentSchema.FIELD_DOCTOR_ID, doctorId);
+        }
+        query = query.whereGreaterThanOrEqualTo(AppointmentSchema.FIELD_TIMESTAMP, fromMillis)
+                .whereLessThan(AppointmentSchema.FIELD_TIMESTAMP, toMillis)
+                .orderBy(AppointmentSchema.FIELD_TIMESTAMP)
+                .orderBy(FieldPath.documentId())
+                .limit(limit);
+        Object[] cursor = after == null ? null : new Object[]{after.getTimestamp(),
+                AppointmentPaths.appointment(after.getDoctorId(), after.getDayKey(), after.getId())};
+
+        // Cancelled, held and leased slots are skipped, so keep reading until a page has a booking
+        while (true) {
+            Query page = cursor == null ? query : query.startAfter(cursor);
+            QuerySnapshot snapshot = Tasks.await(AppMetrics.timed("firestore.exportPage", page::get));
+            List<Appointment> appointments = new ArrayList<>(snapshot.size());
+            for (DocumentSnapshot document : snapshot.getDocuments()) {
+                Appointment appointment = AppointmentDocument.read(document, timeZone);
+                if (appointment != null) {
+                    appointments.add(appointment);
+                }
+            }
+            if (!appointments.isEmpty() || snapshot.size() < limit) {
+                return appointments;
+            }
+            DocumentSnapshot last = snapshot.getDocuments().get(snapshot.size() - 1);
+            cursor = new Object[]{last.get(AppointmentSchema.FIELD_TIMESTAMP), last.getReference().getPath()};
+        }
+    }
+}
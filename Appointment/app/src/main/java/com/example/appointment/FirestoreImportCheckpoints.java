@@ -0,0 +1,40 @@
+package com.example.appointment;
+
+import com.example.appointment.core.AppointmentPaths;
+import com.example.appointment.core.ImportCheckpoints;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Import checkpoints kept in imports/{importId}, so an import resumes on another device too
+public class FirestoreImportCheckpoints implements ImportCheckpoints {
+
+    static final String FIELD_RECORDS_DONE = "recordsDone";
+
+    private final FirebaseFirestore firestore;
+
+    public FirestoreImportCheckpoints(FirebaseFirestore firestore) {
+        this.firestore = firestore;
+    }
+
+    @Override
+    public long load(String importId) throws Exception {
+        DocumentSnapshot checkpoint = Tasks.await(AppMetrics.timed("firestore.loadImportCheckpoint",
+                () -> firestore.document(AppointmentPaths.importRun(importId)).get()));
+        Long recordsDone = checkpoint.getLong(FIELD_RECORDS_DONE);
+        return recordsDone != null ? recordsDone : 0L;
+    }
+
+    @Override
+    public void save(String importId, long recordsDone) throws Exception {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(FIELD_RECORDS_DONE, recordsDone);
+        fields.put("updatedAt", FieldValue.serverTimestamp());
+        Tasks.await(AppMetrics.timed("firestore.saveImportCheckpoint",
+                () -> firestore.document(AppointmentPaths.importRun(importId)).set(fields)));
+    }
+}
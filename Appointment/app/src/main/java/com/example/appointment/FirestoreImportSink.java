@@ -0,0 +1,62 @@
+package com.example.appointment;
+
+import com.example.appointment.core.Appointment;
+import com.example.appointment.core.AppointmentSchema;
+import com.example.appointment.core.DaySummary;
+import com.example.appointment.core.ImportSink;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// ImportSink writing each chunk in one Firestore transaction. A WriteBatch of creates would fail as a
+// whole on the first existing document, and a cancelled slot keeps its document, so the slots are read
+// first and only the free ones written. Blocks the calling import thread.
+public class FirestoreImportSink implements ImportSink {
+
+    private final FirebaseFirestore firestore;
+
+    public FirestoreImportSink(FirebaseFirestore firestore) {
+        this.firestore = firestore;
+    }
+
+    @Override
+    public Set<String> createAllIfFree(Map<String, Appointment> appointments) throws Exception {
+        List<DocumentReference> slotRefs = new ArrayList<>(appointments.size());
+        List<Appointment> contents = new ArrayList<>(appointments.size());
+        for (Map.Entry<String, Appointment> entry : appointments.entrySet()) {
+            slotRefs.add(firestore.document(entry.getKey()));
+            contents.add(entry.getValue());
+        }
+
+        // All reads happen before any write, as Firestore transactions require
+        return Tasks.await(AppMetrics.timed("firestore.importChunk", () -> firestore.runTransaction(transaction -> {
+            long now = System.currentTimeMillis();
+            Set<String> taken = new HashSet<>();
+            DaySummaryWrites summaries = new DaySummaryWrites();
+            List<DocumentSnapshot> slots = new ArrayList<>(slotRefs.size());
+            for (DocumentReference slotRef : slotRefs) {
+                slots.add(transaction.get(slotRef));
+            }
+            for (int i = 0; i < slotRefs.size(); i++) {
+                DocumentSnapshot slot = slots.get(i);
+                Appointment appointment = contents.get(i);
+                Map<String, Object> stored = slot.exists() ? FirestoreAppointmentRepository.fieldsOf(slot) : null;
+                if (AppointmentSchema.isFreeFor(stored, appointment.getUserId(), now)) {
+                    transaction.set(slotRefs.get(i), AppointmentDocument.from(appointment, stored));
+                    summaries.add(slotRefs.get(i), DaySummary.change(appointment.getTimestamp(), false, true));
+                } else {
+                    taken.add(slotRefs.get(i).getPath());
+                }
+            }
+            summaries.writeTo(transaction);
+            return taken;
+        })));
+    }
+}
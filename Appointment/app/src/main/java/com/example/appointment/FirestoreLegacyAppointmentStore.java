@@ -0,0 +1,67 @@
+package com.example.appointment;
+
+import com.example.appointment.core.AppointmentPaths;
+import com.example.appointment.core.AppointmentSchema;
+import com.example.appointment.core.DaySummary;
+import com.example.appointment.core.LegacyAppointmentStore;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// LegacyAppointmentStore over the top-level "appointments" collection. Each move is a transaction, so
+// a booking made meanwhile for the same slot is never overwritten. Blocks the calling thread.
+public class FirestoreLegacyAppointmentStore implements LegacyAppointmentStore {
+
+    private final FirebaseFirestore firestore;
+
+    public FirestoreLegacyAppointmentStore(FirebaseFirestore firestore) {
+        this.firestore = firestore;
+    }
+
+    @Override
+    public Map<String, Map<String, Object>> fetchPage(String afterId, int limit) throws Exception {
+        Query query = firestore.collection(AppointmentPaths.APPOINTMENTS)
+                .orderBy(FieldPath.documentId())
+                .limit(limit);
+        if (afterId != null) {
+            query = query.startAfter(afterId);
+        }
+        Query page = query;
+        QuerySnapshot snapshot = Tasks.await(AppMetrics.timed("firestore.fetchLegacyPage", page::get));
+        Map<String, Map<String, Object>> documents = new LinkedHashMap<>();
+        for (DocumentSnapshot document : snapshot.getDocuments()) {
+            documents.put(document.getId(), FirestoreAppointmentRepository.fieldsOf(document));
+        }
+        return documents;
+    }
+
+    @Override
+    public String move(String legacyId, Map<String, Object> fields, String slotPath, String fallbackPath, long slotStartMillis) throws Exception {
+        DocumentReference legacyRef = firestore.collection(AppointmentPaths.APPOINTMENTS).document(legacyId);
+        DocumentReference slotRef = firestore.document(slotPath);
+        DocumentReference fallbackRef = firestore.document(fallbackPath);
+        Map<String, Object> moved = new HashMap<>(fields);
+        moved.put(AppointmentSchema.FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+
+        return Tasks.await(AppMetrics.timed("firestore.moveLegacyAppointment", () -> firestore.runTransaction(transaction -> {
+            DocumentReference target = transaction.get(slotRef).exists() ? fallbackRef : slotRef;
+            transaction.set(target, moved);
+            transaction.delete(legacyRef);
+            if (target == slotRef && slotStartMillis != -1) {
+                DaySummaryWrites summaries = new DaySummaryWrites();
+                summaries.add(slotRef, DaySummary.change(slotStartMillis, false, true));
+                summaries.writeTo(transaction);
+            }
+            return target.getPath();
+        })));
+    }
+}
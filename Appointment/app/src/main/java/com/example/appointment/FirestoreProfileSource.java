@@ -0,0 +1,34 @@
+package com.example.appointment;
+
+import com.example.appointment.core.ProfileSource;
+import com.example.appointment.core.UserProfile;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.Collections;
+
+// Reads the users/{uid} document that sign-up writes; one document read per fetch
+public class FirestoreProfileSource implements ProfileSource {
+
+    static final String USERS = "users";
+
+    private final FirebaseFirestore firestore;
+
+    public FirestoreProfileSource(FirebaseFirestore firestore) {
+        this.firestore = firestore;
+    }
+
+    @Override
+    public void fetch(String userId, OnProfileListener listener) {
+        AppMetrics.timed("firestore.fetchProfile", () -> firestore.collection(USERS).document(userId).get())
+                .addOnSuccessListener(BackgroundWork.executor(), (DocumentSnapshot document) -> {
+                    if (document.exists() && document.getData() != null) {
+                        listener.onLoaded(UserProfile.fromFields(userId, document.getData(), 0L));
+                    } else {
+                        // Accounts whose document was never written get an empty profile, so they are not read again
+                        listener.onLoaded(new UserProfile(userId, null, null, Collections.<String, String>emptyMap(), 0L));
+                    }
+                })
+                .addOnFailureListener(BackgroundWork.executor(), listener::onFailure);
+    }
+}
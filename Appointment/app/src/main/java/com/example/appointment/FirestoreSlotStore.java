@@ -0,0 +1,192 @@
+package com.example.appointment;
+
+import android.util.Log;
+
+import com.example.appointment.core.Appointment;
+import com.example.appointment.core.AppointmentSchema;
+import com.example.appointment.core.DaySummary;
+import com.example.appointment.core.SlotStore;
+import com.example.appointment.core.SlotStoreException;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.SetOptions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// SlotStore backed by Firestore, creating slot documents in a transaction.
+// Cancelled slots and expired leases keep their document, which the next booking overwrites,
+// adding its user to the slot's participants.
+// Bookings also mark their slot in the day's DaySummary, in the same transaction.
+public class FirestoreSlotStore implements SlotStore {
+
+    private final FirebaseFirestore firestore;
+
+    public FirestoreSlotStore(FirebaseFirestore firestore) {
+        this.firestore = firestore;
+    }
+
+    @Override
+    public void createIfAbsent(String documentPath, Appointment appointment, String bookingKey, OnCreateListener listener) {
+        DocumentReference slotRef = firestore.document(documentPath);
+        // The transaction retries if another client writes the slot in between, so only one booking wins
+        AppMetrics.timed("firestore.createSlot", () -> firestore.runTransaction(transaction -> {
+                    DocumentSnapshot slot = transaction.get(slotRef);
+                    Map<String, Object> stored = slot.exists() ? FirestoreAppointmentRepository.fieldsOf(slot) : null;
+                    if (AppointmentSchema.isBookedWith(stored, bookingKey)) {
+                        // An earlier attempt of this booking went through; its result was lost
+                        return true;
+                    }
+                    if (isTaken(slot, appointment.getUserId())) {
+                        return false;
+                    }
+                    // updatedAt is left null, so the server sets it
+                    AppointmentDocument document = AppointmentDocument.from(appointment, stored);
+                    document.setBookingKey(bookingKey);
+                    transaction.set(slotRef, document);
+                    DaySummaryWrites summaries = new DaySummaryWrites();
+                    summaries.add(slotRef, DaySummary.change(appointment.getTimestamp(), false, true));
+                    summaries.writeTo(transaction);
+                    return true;
+                }))
+                .addOnSuccessListener(created -> {
+                    if (created) {
+                        listener.onCreated();
+                    } else {
+                        listener.onAlreadyExists();
+                    }
+                })
+                .addOnFailureListener(e -> listener.onFailure(failureOf(e)));
+    }
+
+    @Override
+    public void createAllIfAbsent(Map<String, Appointment> appointments, OnCreateAllListener listener) {
+        List<DocumentReference> slotRefs = new ArrayList<>(appointments.size());
+        List<Appointment> contents = new ArrayList<>(appointments.size());
+        String userId = null;
+        for (Map.Entry<String, Appointment> entry : appointments.entrySet()) {
+            slotRefs.add(firestore.document(entry.getKey()));
+            contents.add(entry.getValue());
+            userId = entry.getValue().getUserId();
+        }
+        String bookingUserId = userId;
+
+        // All reads happen before any write, so the transaction either creates every slot or none
+        AppMetrics.timed("firestore.createSeries", () -> firestore.runTransaction(transaction -> {
+                    Set<String> existingPaths = new LinkedHashSet<>();
+                    List<DocumentSnapshot> slots = new ArrayList<>(slotRefs.size());
+                    for (DocumentReference slotRef : slotRefs) {
+                        DocumentSnapshot slot = transaction.get(slotRef);
+                        slots.add(slot);
+                        if (isTaken(slot, bookingUserId)) {
+                            existingPaths.add(slotRef.getPath());
+                        }
+                    }
+                    if (existingPaths.isEmpty()) {
+                        DaySummaryWrites summaries = new DaySummaryWrites();
+                        for (int i = 0; i < slotRefs.size(); i++) {
+                            DocumentSnapshot slot = slots.get(i);
+                            transaction.set(slotRefs.get(i), AppointmentDocument.from(contents.get(i),
+                                    slot.exists() ? FirestoreAppointmentRepository.fieldsOf(slot) : null));
+                            summaries.add(slotRefs.get(i), DaySummary.change(contents.get(i).getTimestamp(), false, true));
+                        }
+                        summaries.writeTo(transaction);
+                    }
+                    return existingPaths;
+                }))
+                .addOnSuccessListener(existingPaths -> {
+                    if (existingPaths.isEmpty()) {
+                        listener.onCreated();
+                    } else {
+                        listener.onAlreadyExist(existingPaths);
+                    }
+                })
+                .addOnFailureListener(e -> listener.onFailure(failureOf(e)));
+    }
+
+    @Override
+    public void lease(String documentPath, Appointment slot, long expiresAtMillis, OnCreateListener listener) {
+        DocumentReference slotRef = firestore.document(documentPath);
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(AppointmentSchema.FIELD_STATUS, AppointmentSchema.STATUS_LEASED);
+        fields.put(AppointmentSchema.FIELD_LEASED_BY, slot.getUserId());
+        fields.put(AppointmentSchema.FIELD_LEASE_EXPIRES_AT, expiresAtMillis);
+        fields.put(AppointmentSchema.FIELD_DOCTOR_ID, slot.getDoctorId());
+        fields.put(AppointmentSchema.FIELD_TIMESTAMP, slot.getTimestamp());
+        fields.put(AppointmentSchema.FIELD_DAY_KEY, slot.getDayKey());
+        fields.put(AppointmentSchema.FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+
+        // Merged, so a cancelled slot keeps its userId and the participants its cancellation is synced to
+        AppMetrics.timed("firestore.leaseSlot", () -> firestore.runTransaction(transaction -> {
+                    if (isTaken(transaction.get(slotRef), slot.getUserId())) {
+                        return false;
+                    }
+                    transaction.set(slotRef, fields, SetOptions.merge());
+                    return true;
+                }))
+                .addOnSuccessListener(leased -> {
+                    if (leased) {
+                        listener.onCreated();
+                    } else {
+                        listener.onAlreadyExists();
+                    }
+                })
+                .addOnFailureListener(e -> listener.onFailure(failureOf(e)));
+    }
+
+    @Override
+    public void release(String documentPath, String userId) {
+        DocumentReference slotRef = firestore.document(documentPath);
+        AppMetrics.timed("firestore.releaseSlot", () -> firestore.runTransaction(transaction -> {
+                    DocumentSnapshot slot = transaction.get(slotRef);
+                    if (!AppointmentSchema.STATUS_LEASED.equals(slot.get(AppointmentSchema.FIELD_STATUS))
+                            || !userId.equals(slot.get(AppointmentSchema.FIELD_LEASED_BY))) {
+                        return null;
+                    }
+                    if (slot.contains(AppointmentSchema.FIELD_USER_ID)) {
+                        // A cancelled slot goes back to being cancelled
+                        Map<String, Object> fields = new HashMap<>();
+                        fields.put(AppointmentSchema.FIELD_STATUS, AppointmentSchema.STATUS_CANCELLED);
+                        fields.put(AppointmentSchema.FIELD_LEASED_BY, FieldValue.delete());
+                        fields.put(AppointmentSchema.FIELD_LEASE_EXPIRES_AT, FieldValue.delete());
+                        transaction.update(slotRef, fields);
+                    } else {
+                        transaction.delete(slotRef);
+                    }
+                    return null;
+                }))
+                // Best effort: the lease runs out anyway, so a failure is only logged
+                .addOnFailureListener(e -> Log.w("SlotStore", "Releasing the lease on " + documentPath + " failed", e));
+    }
+
+    // The failure as a SlotStoreException, retryable unless Firestore refused the write. Failures that
+    // are not Firestore's, e.g. FirebaseNetworkException, mean there was no network.
+    static SlotStoreException failureOf(Exception e) {
+        boolean retryable = true;
+        if (e instanceof FirebaseFirestoreException) {
+            switch (((FirebaseFirestoreException) e).getCode()) {
+                case UNAVAILABLE:
+                case DEADLINE_EXCEEDED:
+                case ABORTED:
+                    break;
+                default:
+                    // e.g. PERMISSION_DENIED, INVALID_ARGUMENT or FAILED_PRECONDITION
+                    retryable = false;
+            }
+        }
+        return new SlotStoreException(e.getMessage(), e, retryable);
+    }
+
+    // Whether the slot is booked, held or leased to someone else; expired leases are swept here lazily
+    static boolean isTaken(DocumentSnapshot slot, String userId) {
+        return !AppointmentSchema.isFreeFor(slot.exists() ? FirestoreAppointmentRepository.fieldsOf(slot) : null,
+                userId, System.currentTimeMillis());
+    }
+}
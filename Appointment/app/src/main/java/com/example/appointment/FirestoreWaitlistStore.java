@@ -0,0 +1,181 @@
+package com.example.appointment;
+
+import com.example.appointment.core.Appointment;
+import com.example.appointment.core.AppointmentPaths;
+import com.example.appointment.core.AppointmentSchema;
+import com.example.appointment.core.DaySummary;
+import com.example.appointment.core.Hold;
+import com.example.appointment.core.Waitlist;
+import com.example.appointment.core.WaitlistStore;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Transaction;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+// WaitlistStore backed by Firestore. Each update is one transaction over the day's waitlist document
+// and the slot documents it reads, so Firestore retries it if any of them changed meanwhile.
+// Cancelled and held slots keep their document with the original userId, and booking one again adds
+// the new user to its participants; see AppointmentSchema.
+// Slots that become booked or stop being booked update the day's DaySummary in the same transaction.
+public class FirestoreWaitlistStore implements WaitlistStore {
+
+    private final FirebaseFirestore firestore;
+    private final TimeZone timeZone;
+
+    public FirestoreWaitlistStore(FirebaseFirestore firestore, TimeZone timeZone) {
+        this.firestore = firestore;
+        this.timeZone = timeZone;
+    }
+
+    @Override
+    public <T> void update(String doctorId, int dayKey, DayUpdate<T> update, OnUpdateListener<T> listener) {
+        DocumentReference waitlistRef = firestore.document(AppointmentPaths.waitlist(doctorId, dayKey));
+
+        AppMetrics.timed("firestore.waitlist", () -> firestore.runTransaction(transaction -> {
+                    // Every read has to happen before the first write, so writes are collected first
+                    TransactionDay day = new TransactionDay(transaction, doctorId, dayKey,
+                            Waitlist.fromFields(transaction.get(waitlistRef).getData()));
+                    Map<String, Object> stored = day.waitlist.toFields();
+                    T result;
+                    try {
+                        result = update.apply(day);
+                    } catch (SlotReadException e) {
+                        throw e.getCause();
+                    }
+                    day.summaries.writeTo(transaction);
+                    for (Map.Entry<DocumentReference, Object> write : day.writes.entrySet()) {
+                        if (write.getValue() instanceof AppointmentDocument) {
+                            transaction.set(write.getKey(), write.getValue());
+                        } else {
+                            @SuppressWarnings("unchecked")
+                            Map<String, Object> fields = (Map<String, Object>) write.getValue();
+                            transaction.update(write.getKey(), fields);
+                        }
+                    }
+                    // Checks that find nothing to do stay read-only, and create no document for quiet days
+                    Map<String, Object> updated = day.waitlist.toFields();
+                    if (!updated.equals(stored)) {
+                        transaction.set(waitlistRef, updated);
+                    }
+                    return result;
+                }))
+                .addOnSuccessListener(listener::onUpdated)
+                .addOnFailureListener(listener::onFailure);
+    }
+
+    private final class TransactionDay implements Day {
+
+        private final Transaction transaction;
+        private final String doctorId;
+        private final int dayKey;
+        private final Waitlist waitlist;
+        // Slot document -> AppointmentDocument to set, or fields to update
+        private final Map<DocumentReference, Object> writes = new HashMap<>();
+        // Slot ID -> booking read in this transaction, for the summary changes of later writes
+        private final Map<String, Appointment> bookings = new HashMap<>();
+        // Slot ID -> fields read in this transaction (null if there is no document), for participants
+        private final Map<String, Map<String, Object>> stored = new HashMap<>();
+        private final DaySummaryWrites summaries = new DaySummaryWrites();
+
+        TransactionDay(Transaction transaction, String doctorId, int dayKey, Waitlist waitlist) {
+            this.transaction = transaction;
+            this.doctorId = doctorId;
+            this.dayKey = dayKey;
+            this.waitlist = waitlist;
+        }
+
+        @Override
+        public Waitlist getWaitlist() {
+            return waitlist;
+        }
+
+        @Override
+        public Appointment getBooking(String slotId) {
+            try {
+                DocumentSnapshot slot = transaction.get(slotRef(slotId));
+                Appointment booking = slot.exists() ? AppointmentDocument.read(slot, timeZone) : null;
+                bookings.put(slotId, booking);
+                stored.put(slotId, slot.exists() ? FirestoreAppointmentRepository.fieldsOf(slot) : null);
+                return booking;
+            } catch (FirebaseFirestoreException e) {
+                throw new SlotReadException(e);
+            }
+        }
+
+        @Override
+        public void book(Appointment appointment) {
+            // updatedAt is left null, so the server sets it; the status and hold fields are dropped
+            writes.put(slotRef(appointment.getId()), AppointmentDocument.from(appointment, storedFields(appointment.getId())));
+            summaries.add(slotRef(appointment.getId()), DaySummary.change(appointment.getTimestamp(), wasBooked(appointment.getId()), true));
+            bookings.put(appointment.getId(), appointment);
+        }
+
+        @Override
+        public void hold(Hold hold) {
+            Map<String, Object> fields = new HashMap<>();
+            fields.put(AppointmentSchema.FIELD_STATUS, AppointmentSchema.STATUS_HELD);
+            fields.put(AppointmentSchema.FIELD_HELD_FOR, hold.getUserId());
+            fields.put(AppointmentSchema.FIELD_HOLD_EXPIRES_AT, hold.getExpiresAtMillis());
+            fields.put(AppointmentSchema.FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+            writes.put(slotRef(hold.getSlotId()), fields);
+            summaries.add(slotRef(hold.getSlotId()), DaySummary.change(hold.getSlotStartMillis(), wasBooked(hold.getSlotId()), false));
+            bookings.put(hold.getSlotId(), null);
+        }
+
+        @Override
+        public void free(String slotId) {
+            Map<String, Object> fields = new HashMap<>();
+            fields.put(AppointmentSchema.FIELD_STATUS, AppointmentSchema.STATUS_CANCELLED);
+            fields.put(AppointmentSchema.FIELD_HELD_FOR, FieldValue.delete());
+            fields.put(AppointmentSchema.FIELD_HOLD_EXPIRES_AT, FieldValue.delete());
+            fields.put(AppointmentSchema.FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+            writes.put(slotRef(slotId), fields);
+            Appointment booking = bookings.get(slotId);
+            if (booking != null) {
+                summaries.add(slotRef(slotId), DaySummary.change(booking.getTimestamp(), true, false));
+            }
+            bookings.put(slotId, null);
+        }
+
+        // The slot's fields as read in this transaction, reading them now if they were not yet; writes
+        // are only applied once the update returns, so this still comes before them
+        private Map<String, Object> storedFields(String slotId) {
+            if (!stored.containsKey(slotId)) {
+                try {
+                    DocumentSnapshot slot = transaction.get(slotRef(slotId));
+                    stored.put(slotId, slot.exists() ? FirestoreAppointmentRepository.fieldsOf(slot) : null);
+                } catch (FirebaseFirestoreException e) {
+                    throw new SlotReadException(e);
+                }
+            }
+            return stored.get(slotId);
+        }
+
+        // Whether the slot was booked as last read or written in this transaction
+        private boolean wasBooked(String slotId) {
+            return bookings.get(slotId) != null;
+        }
+
+        private DocumentReference slotRef(String slotId) {
+            return firestore.document(AppointmentPaths.appointment(doctorId, dayKey, slotId));
+        }
+    }
+
+    // Carries a failed read out of DayUpdate.apply, which cannot throw checked exceptions
+    private static final class SlotReadException extends RuntimeException {
+        SlotReadException(FirebaseFirestoreException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized FirebaseFirestoreException getCause() {
+            return (FirebaseFirestoreException) super.getCause();
+        }
+    }
+}
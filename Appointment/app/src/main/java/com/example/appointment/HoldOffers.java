@@ -0,0 +1,101 @@
+package com.example.appointment;
+
+import com.example.appointment.core.AppointmentPaths;
+import com.example.appointment.core.AppointmentSchema;
+import com.example.appointment.core.DateLabels;
+import com.example.appointment.core.Hold;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.time.ZoneId;
+import java.util.concurrent.Executor;
+
+// Tells the signed-in patient when a cancelled slot is held for them. Listens to the slot documents
+// whose heldFor is the user, which needs the heldFor collection group index from firestore.indexes.json.
+// Call start()/stop() from onStart()/onStop() on the main thread; the listener is called on the executor.
+public class HoldOffers {
+
+    private final FirebaseFirestore firestore;
+    private final Executor executor;
+    private final OnOfferListener listener;
+
+    private ListenerRegistration registration;
+
+    public HoldOffers(FirebaseFirestore firestore, Executor executor, OnOfferListener listener) {
+        this.firestore = firestore;
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    public void start(String userId) {
+        if (registration != null) {
+            return;
+        }
+        registration = firestore.collectionGroup(AppointmentPaths.APPOINTMENTS)
+                .whereEqualTo(AppointmentSchema.FIELD_HELD_FOR, userId)
+                .addSnapshotListener(executor, (snapshot, e) -> {
+                    if (e != null || snapshot == null) {
+                        return;
+                    }
+                    // Only new holds are offered; a hold moving on shows up as a removal
+                    for (DocumentChange change : snapshot.getDocumentChanges()) {
+                        if (change.getType() == DocumentChange.Type.ADDED) {
+                            Offer offer = toOffer(change.getDocument(), userId);
+                            if (offer != null && !offer.getHold().isExpired(System.currentTimeMillis())) {
+                                listener.onOffer(offer);
+                            }
+                        }
+                    }
+                });
+    }
+
+    public void stop() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+    }
+
+    private static Offer toOffer(DocumentSnapshot slot, String userId) {
+        Long start = AppointmentSchema.timestampMillis(slot.get(AppointmentSchema.FIELD_TIMESTAMP));
+        Long expiresAt = AppointmentSchema.timestampMillis(slot.get(AppointmentSchema.FIELD_HOLD_EXPIRES_AT));
+        String doctorId = slot.getString(AppointmentSchema.FIELD_DOCTOR_ID);
+        if (start == null || expiresAt == null || doctorId == null) {
+            return null;
+        }
+        // The email is taken from the waitlist when the hold is claimed
+        return new Offer(new Hold(slot.getId(), start, userId, null, expiresAt), doctorId);
+    }
+
+    // A slot held for the user, with its "dd/MM/yyyy HH:mm" label
+    public static final class Offer {
+
+        private final Hold hold;
+        private final String doctorId;
+        private final String label;
+
+        Offer(Hold hold, String doctorId) {
+            this.hold = hold;
+            this.doctorId = doctorId;
+            this.label = DateLabels.dateTime(hold.getSlotStartMillis(), ZoneId.systemDefault());
+        }
+
+        public Hold getHold() {
+            return hold;
+        }
+
+        public String getDoctorId() {
+            return doctorId;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    public interface OnOfferListener {
+        void onOffer(Offer offer);
+    }
+}
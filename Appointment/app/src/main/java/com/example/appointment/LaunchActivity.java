@@ -0,0 +1,24 @@
+package com.example.appointment;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.os.Bundle;
+
+import com.google.firebase.auth.FirebaseAuth;
+
+// Entry point that opens the right screen without drawing anything itself.
+// The signed-in user is cached on the device, so the check needs no network round trip.
+public class LaunchActivity extends Activity {
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        boolean signedIn = FirebaseAuth.getInstance().getCurrentUser() != null;
+        Intent intent = new Intent(this, signedIn ? MainActivity.class : LoginActivity.class);
+        startActivity(intent);
+
+        // Theme.NoDisplay requires finishing before onResume
+        finish();
+    }
+}
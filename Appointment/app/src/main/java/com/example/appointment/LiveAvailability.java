@@ -0,0 +1,118 @@
+package com.example.appointment;
+
+import com.example.appointment.core.Appointment;
+import com.example.appointment.core.AppointmentPaths;
+import com.example.appointment.core.BackgroundExecutors;
+import com.example.appointment.core.DayAvailability;
+import com.example.appointment.core.DayKeys;
+import com.example.appointment.core.DaySlots;
+import com.example.appointment.core.Doctor;
+import com.example.appointment.core.Metrics;
+import com.example.appointment.core.SlotRulesSource;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
+
+// Keeps the availability of one doctor's day current with a single snapshot listener.
+// Call watch() when a day is picked, start()/stop() from onStart()/onStop(), all on the main thread.
+// Snapshots are applied on the given executor, one at a time, and the listener is called there.
+// Slots closed under the SlotRules, or too soon to book, are never offered as free.
+public class LiveAvailability {
+
+    private final FirebaseFirestore firestore;
+    private final TimeZone timeZone;
+    private final Executor executor;
+    private final SlotRulesSource rules;
+    private final OnAvailabilityChangedListener listener;
+
+    private Doctor watchedDoctor;
+    private Calendar watchedDay;
+    private volatile DayAvailability availability;
+    private ListenerRegistration registration;
+
+    public LiveAvailability(FirebaseFirestore firestore, TimeZone timeZone, Executor executor, SlotRulesSource rules,
+                            OnAvailabilityChangedListener listener) {
+        this.firestore = firestore;
+        this.timeZone = timeZone;
+        // Snapshot events update one DayAvailability, so they must not run concurrently
+        this.executor = BackgroundExecutors.serial(executor);
+        this.rules = rules;
+        this.listener = listener;
+    }
+
+    // Follow the given doctor's day instead of the previous one
+    public void watch(Doctor doctor, Calendar day) {
+        stop();
+        watchedDoctor = doctor;
+        watchedDay = (Calendar) day.clone();
+        start();
+    }
+
+    public void start() {
+        if (watchedDay == null || registration != null) {
+            return;
+        }
+        // A fresh listener delivers every document as ADDED again, so state is rebuilt from scratch
+        Doctor doctor = watchedDoctor;
+        int dayKey = DayKeys.dayKey(watchedDay);
+        DayAvailability dayAvailability = new DayAvailability(doctor.getSlotGrid(),
+                doctor.getSlotGrid().firstSlotMillis(watchedDay));
+        availability = dayAvailability;
+        Metrics.Span firstSnapshot = Metrics.global().start("firestore.daySnapshot");
+        boolean[] loaded = {false};
+
+        registration = firestore.collection(AppointmentPaths.dayAppointments(doctor.getId(), dayKey))
+                .addSnapshotListener(executor, (snapshot, e) -> {
+                    if (e != null || snapshot == null || dayAvailability != availability) {
+                        if (e != null && !loaded[0]) {
+                            firstSnapshot.fail();
+                        }
+                        return;
+                    }
+
+                    // Apply only the documents that changed since the previous snapshot
+                    long changedSlots = 0L;
+                    for (DocumentChange change : snapshot.getDocumentChanges()) {
+                        String id = change.getDocument().getId();
+                        if (change.getType() == DocumentChange.Type.REMOVED) {
+                            changedSlots |= dayAvailability.apply(id, null);
+                        } else {
+                            Appointment appointment = AppointmentDocument.readOccupant(change.getDocument(), timeZone);
+                            changedSlots |= dayAvailability.apply(id, appointment != null ? appointment.getTimestamp() : null);
+                        }
+                    }
+
+                    // The first snapshot is always delivered, later ones only when a slot changed
+                    if (!loaded[0] || changedSlots != 0L) {
+                        if (!loaded[0]) {
+                            // Time to first paint of the day's availability
+                            firstSnapshot.end();
+                            loaded[0] = true;
+                        }
+                        // Checked against the rules with each snapshot, as the lead time moves on
+                        Calendar day = Calendar.getInstance(timeZone);
+                        day.setTimeInMillis(dayAvailability.getFirstSlotMillis());
+                        long openMask = rules.getRules().bookableMask(doctor, day, System.currentTimeMillis());
+                        listener.onAvailabilityChanged(new DaySlots(doctor, dayKey,
+                                dayAvailability.getFirstSlotMillis(), dayAvailability.getBookedMask(), openMask));
+                    }
+                });
+    }
+
+    public void stop() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+        availability = null;
+    }
+
+    public interface OnAvailabilityChangedListener {
+        // Called with the whole day whenever a slot switches between free and booked (or held)
+        void onAvailabilityChanged(DaySlots daySlots);
+    }
+}
@@ -27,11 +27,17 @@ public class LoginActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_login);
 
         // Get Firebase Auth instance
         firebaseAuth = FirebaseAuth.getInstance();
 
+        // Skip the form when a signed-in user ends up here
+        if (firebaseAuth.getCurrentUser() != null) {
+            updateUI(firebaseAuth.getCurrentUser());
+            return;
+        }
+        setContentView(R.layout.activity_login);
+
         // Find UI elements
         loginUsername = findViewById(R.id.login_username);
         loginPassword = findViewById(R.id.login_password);
@@ -51,12 +57,14 @@ public class LoginActivity extends AppCompatActivity {
             }
 
             // Sign in with Firebase
-            firebaseAuth.signInWithEmailAndPassword(email, password)
+            AppMetrics.timed("auth.signIn", () -> firebaseAuth.signInWithEmailAndPassword(email, password))
                     .addOnCompleteListener(this, task -> {
                         if (task.isSuccessful()) {
                             // Sign-in successful, get user information
                             FirebaseUser user = firebaseAuth.getCurrentUser();
                             Log.d("Login", "signInWithEmail:success");
+                            // Read the profile once in the background; every screen then uses the cached copy
+                            AppSession.getInstance(this).start(user.getUid());
                             Toast.makeText(LoginActivity.this, "Login successful", Toast.LENGTH_SHORT).show();
                             updateUI(user);
                         } else {
@@ -1,43 +1,148 @@
 package com.example.appointment;
 
+import android.Manifest;
 import android.app.DatePickerDialog;
 import android.content.DialogInterface;
 import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.Build;
 import android.os.Bundle;
 import android.util.Log;
+import android.view.View;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
-
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.ViewModelProvider;
+
+import com.example.appointment.core.BookingQueue;
+import com.example.appointment.core.BookingService;
+import com.example.appointment.core.DateLabels;
+import com.example.appointment.core.DayKeys;
+import com.example.appointment.core.DaySlots;
+import com.example.appointment.core.Doctor;
+import com.example.appointment.core.FreeSlot;
+import com.example.appointment.core.Metrics;
+import com.example.appointment.core.OccurrenceConflict;
+import com.example.appointment.core.PendingBooking;
+import com.example.appointment.core.Recurrence;
+import com.example.appointment.core.SessionManager;
+import com.example.appointment.core.SlotGrid;
+import com.example.appointment.core.SlotRules;
+import com.example.appointment.core.UserProfile;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.QuerySnapshot;
 
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Date;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TimeZone;
 
 public class MainActivity extends AppCompatActivity {
 
+    // Series the repeat picker offers
+    private static final String[] REPEAT_LABELS = {"Does not repeat", "Weekly, 6 times", "Weekly, 12 times", "Every 2 weeks, 6 times", "Every 2 weeks, 12 times"};
+    private static final Recurrence[] REPEAT_RECURRENCES = {null, Recurrence.WEEKLY, Recurrence.WEEKLY, Recurrence.BIWEEKLY, Recurrence.BIWEEKLY};
+    private static final int[] REPEAT_OCCURRENCES = {1, 6, 12, 6, 12};
+
+    private Button doctorPickerButton;
     private Button datePickerButton;
+    private Button monthViewButton;
     private Button timePickerButton;
+    private Button earliestSlotButton;
+    private Button repeatButton;
     private Button confirmButton;
     private Button btnAppointment;
     private Button btnLogout;
+    private Button btnDaySheet;
+    private TextView welcomeText;
     private Calendar selectedDate;
     private boolean isDateSelected = false;
     private boolean isTimeSelected = false;
+    private int selectedRepeat = 0;
     private FirebaseAuth firebaseAuth;
     private FirebaseFirestore firestore;
+    private Doctor selectedDoctor = Doctor.DEFAULT;
+    private SlotGrid slotGrid = Doctor.DEFAULT.getSlotGrid();
+    private BookingService bookingService;
+    private BookingQueue bookingQueue;
+    // Round trips of bookings confirmed on this screen, by booking key
+    private final Map<String, Metrics.Span> confirmSpans = new HashMap<>();
+    private BookingViewModel viewModel;
+    private ArrayAdapter<String> timeSlotAdapter;
+    private List<Integer> shownSlots;
+    private long shownUnavailableMask;
+    // Set while the time picker waits for the selected day to load
+    private boolean timeDialogPending = false;
+    private boolean doctorDialogPending = false;
+    private boolean earliestDialogPending = false;
+    // Slot reserved for the user while they confirm, or null
+    private Doctor leasedDoctor;
+    private long leasedSlotStart;
+    // Profile refreshes arrive on a background thread
+    private final SessionManager.OnProfileChangedListener profileListener = profile -> runOnUiThread(() -> showWelcome(profile));
+    // Outcomes of queued bookings arrive on whichever thread the backend answered on
+    private final BookingQueue.OnBookingOutcomeListener bookingOutcomes = new BookingQueue.OnBookingOutcomeListener() {
+        @Override
+        public void onBooked(PendingBooking booking, String appointmentId) {
+            runOnUiThread(() -> {
+                endConfirmSpan(booking, true);
+                Toast.makeText(MainActivity.this, "Appointment successfully created!", Toast.LENGTH_SHORT).show();
+            });
+        }
+
+        @Override
+        public void onSlotTaken(PendingBooking booking) {
+            runOnUiThread(() -> {
+                endConfirmSpan(booking, true);
+                Toast.makeText(MainActivity.this, "There is already an appointment at this date and time.", Toast.LENGTH_SHORT).show();
+            });
+        }
+
+        @Override
+        public void onDeferred(PendingBooking booking, Exception e) {
+            runOnUiThread(() -> {
+                endConfirmSpan(booking, false);
+                // Told once; later retries are quiet
+                if (booking.getAttempts() == 1) {
+                    Toast.makeText(MainActivity.this, "The server could not be reached. The appointment will be booked once it can be sent.", Toast.LENGTH_LONG).show();
+                }
+            });
+        }
+
+        @Override
+        public void onDropped(PendingBooking booking, Exception e) {
+            runOnUiThread(() -> {
+                endConfirmSpan(booking, false);
+                Toast.makeText(MainActivity.this, "Appointment creation failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            });
+        }
+    };
+    // Reminders are only shown once notifications are allowed; nothing to do when the user declines
+    private final ActivityResultLauncher<String> notificationPermission =
+            registerForActivityResult(new ActivityResultContracts.RequestPermission(), granted -> {
+            });
+
+    private final ActivityResultLauncher<Intent> monthCalendar =
+            registerForActivityResult(new ActivityResultContracts.StartActivityForResult(), result -> {
+                Intent data = result.getData();
+                if (result.getResultCode() == RESULT_OK && data != null) {
+                    int dayKey = data.getIntExtra(MonthCalendarActivity.EXTRA_DAY_KEY, 0);
+                    selectDate(dayKey / 10000, dayKey / 100 % 100 - 1, dayKey % 100);
+                }
+            });
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -45,16 +150,69 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.activity_main);
 
         // Find UI elements
+        doctorPickerButton = findViewById(R.id.doctorPickerButton);
         datePickerButton = findViewById(R.id.datePickerButton);
+        monthViewButton = findViewById(R.id.monthViewButton);
         timePickerButton = findViewById(R.id.timePickerButton);
+        earliestSlotButton = findViewById(R.id.earliestSlotButton);
+        repeatButton = findViewById(R.id.repeatButton);
         confirmButton = findViewById(R.id.confirmButton);
         btnAppointment = findViewById(R.id.btnAppointment);
         btnLogout = findViewById(R.id.btnLogout);
+        btnDaySheet = findViewById(R.id.btnDaySheet);
+        welcomeText = findViewById(R.id.welcomeText);
         selectedDate = Calendar.getInstance();
 
         // Get Firebase Auth and Firestore instances
         firebaseAuth = FirebaseAuth.getInstance();
         firestore = FirebaseFirestore.getInstance();
+        bookingService = new BookingService(new FirestoreSlotStore(firestore), TimeZone.getDefault(), ClinicRules.getInstance());
+        bookingQueue = PendingBookings.getInstance(this);
+
+        // Appointment reminders are notifications, which need a runtime permission from Android 13
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
+            notificationPermission.launch(Manifest.permission.POST_NOTIFICATIONS);
+        }
+
+        // Reads run and are parsed in the view model, off the main thread; only their final state is observed here
+        viewModel = new ViewModelProvider(this).get(BookingViewModel.class);
+        viewModel.getDaySlots().observe(this, this::onDaySlots);
+        viewModel.getDoctors().observe(this, event -> {
+            BookingViewModel.DoctorChoices choices = event.take();
+            if (choices != null && doctorDialogPending) {
+                doctorDialogPending = false;
+                showDoctors(choices);
+            }
+        });
+        viewModel.getEarliestSlots().observe(this, event -> {
+            BookingViewModel.SlotChoices choices = event.take();
+            if (choices != null && earliestDialogPending) {
+                earliestDialogPending = false;
+                showEarliestSlots(choices);
+            }
+        });
+        viewModel.getOffers().observe(this, event -> {
+            HoldOffers.Offer offer = event.take();
+            if (offer != null) {
+                showOffer(offer);
+            }
+        });
+        viewModel.getMessages().observe(this, event -> {
+            String message = event.take();
+            if (message != null) {
+                timeDialogPending = false;
+                doctorDialogPending = false;
+                earliestDialogPending = false;
+                Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show();
+            }
+        });
+
+        // DoctorPicker button click listener
+        doctorPickerButton.setOnClickListener(v -> {
+            doctorDialogPending = true;
+            viewModel.loadDoctors();
+        });
 
         // DatePicker button click listener
         datePickerButton.setOnClickListener(v -> {
@@ -63,27 +221,7 @@ public class MainActivity extends AppCompatActivity {
             int day = selectedDate.get(Calendar.DAY_OF_MONTH);
 
             DatePickerDialog datePickerDialog = new DatePickerDialog(MainActivity.this,
-                    (view, year1, month1, dayOfMonth) -> {
-                        selectedDate.set(Calendar.YEAR, year1);
-                        selectedDate.set(Calendar.MONTH, month1);
-                        selectedDate.set(Calendar.DAY_OF_MONTH, dayOfMonth);
-
-                        // Check if the selected date is a weekend
-                        int dayOfWeek = selectedDate.get(Calendar.DAY_OF_WEEK);
-                        if (dayOfWeek == Calendar.SATURDAY || dayOfWeek == Calendar.SUNDAY) {
-                            // Notify the user if the selected date is a weekend
-                            Toast.makeText(MainActivity.this, "Please select only weekdays.", Toast.LENGTH_SHORT).show();
-                            isDateSelected = false;
-                        } else if (selectedDate.getTimeInMillis() < System.currentTimeMillis()) {
-                            // Notify the user if the selected date is in the past
-                            Toast.makeText(MainActivity.this, "You cannot select a past date.", Toast.LENGTH_SHORT).show();
-                            isDateSelected = false;
-                        } else {
-                            // Confirm the selected date if it is valid
-                            Toast.makeText(MainActivity.this, "Selected date: " + dayOfMonth + "/" + (month1 + 1) + "/" + year1, Toast.LENGTH_SHORT).show();
-                            isDateSelected = true;
-                        }
-                    }, year, month, day);
+                    (view, year1, month1, dayOfMonth) -> selectDate(year1, month1, dayOfMonth), year, month, day);
 
             // Prevent the user from selecting past dates
             datePickerDialog.getDatePicker().setMinDate(System.currentTimeMillis() - 1000);
@@ -92,6 +230,9 @@ public class MainActivity extends AppCompatActivity {
             datePickerDialog.show();
         });
 
+        // Month view button click listener; a day picked there is selected like one from the date picker
+        monthViewButton.setOnClickListener(v -> monthCalendar.launch(MonthCalendarActivity.intentFor(MainActivity.this, selectedDoctor)));
+
         // TimePicker button click listener
         timePickerButton.setOnClickListener(v -> {
             if (!isDateSelected) {
@@ -99,61 +240,33 @@ public class MainActivity extends AppCompatActivity {
                 return;
             }
 
-            fetchAppointmentsForDate(selectedDate, new OnFetchAppointmentsListener() {
-                @Override
-                public void onSuccess(QuerySnapshot appointments) {
-                    // Generate time slots for the user to select
-                    String[] timeSlots = generateTimeSlots();
-                    List<String> availableTimeSlots = new ArrayList<>();
-
-                    // Fetch existing appointments and identify unavailable time slots
-                    List<Calendar> unavailableTimes = new ArrayList<>();
-                    for (DocumentSnapshot document : appointments.getDocuments()) {
-                        Date appointmentDate = document.getDate("timestamp");
-                        if (appointmentDate != null) {
-                            Calendar appointmentCalendar = Calendar.getInstance();
-                            appointmentCalendar.setTime(appointmentDate);
-                            unavailableTimes.add(appointmentCalendar);
-                        }
-                    }
+            // Use the live view of the day once it has loaded instead of querying again
+            DaySlots slots = viewModel.getDaySlots().getValue();
+            if (slots != null && slots.isFor(selectedDoctor.getId(), DayKeys.dayKey(selectedDate))) {
+                showTimeSlots(slots);
+                return;
+            }
 
-                    // Filter out unavailable time slots
-                    for (String timeSlot : timeSlots) {
-                        boolean isAvailable = true;
-                        for (Calendar appointmentTime : unavailableTimes) {
-                            if (timeSlot.equals(formatTime(appointmentTime))) {
-                                isAvailable = false;
-                                break;
-                            }
-                        }
-                        if (isAvailable) {
-                            availableTimeSlots.add(timeSlot);
-                        }
-                    }
+            timeDialogPending = true;
+            viewModel.loadDay(selectedDoctor, selectedDate);
+        });
 
-                    // Show available time slots to the user
-                    AlertDialog.Builder builder = new AlertDialog.Builder(MainActivity.this);
-                    builder.setTitle("Select a Time");
-                    builder.setAdapter(new ArrayAdapter<>(MainActivity.this, android.R.layout.simple_list_item_1, availableTimeSlots), new DialogInterface.OnClickListener() {
-                        @Override
-                        public void onClick(DialogInterface dialog, int which) {
-                            String selectedTime = availableTimeSlots.get(which);
-                            int hour = Integer.parseInt(selectedTime.split(":")[0]);
-                            int minute = Integer.parseInt(selectedTime.split(":")[1]);
-                            selectedDate.set(Calendar.HOUR_OF_DAY, hour);
-                            selectedDate.set(Calendar.MINUTE, minute);
-                            isTimeSelected = true;
-                            Toast.makeText(MainActivity.this, "Selected time: " + selectedTime, Toast.LENGTH_SHORT).show();
-                        }
-                    });
-                    builder.show();
-                }
+        // EarliestSlot button click listener
+        earliestSlotButton.setOnClickListener(v -> {
+            earliestDialogPending = true;
+            viewModel.findEarliestSlots(selectedDoctor);
+        });
 
-                @Override
-                public void onFailure(Exception e) {
-                    Toast.makeText(MainActivity.this, "Unable to fetch appointments: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                }
+        // Repeat button click listener
+        repeatButton.setOnClickListener(v -> {
+            AlertDialog.Builder builder = new AlertDialog.Builder(MainActivity.this);
+            builder.setTitle("Repeat");
+            builder.setSingleChoiceItems(REPEAT_LABELS, selectedRepeat, (dialog, which) -> {
+                selectedRepeat = which;
+                repeatButton.setText(which == 0 ? null : REPEAT_LABELS[which]);
+                dialog.dismiss();
             });
+            builder.show();
         });
 
         // Confirm button click listener
@@ -163,7 +276,9 @@ public class MainActivity extends AppCompatActivity {
                 return;
             }
 
+            Metrics.Span authCheck = Metrics.global().start("booking.authCheck");
             FirebaseUser user = firebaseAuth.getCurrentUser();
+            authCheck.end();
             if (user == null) {
                 Toast.makeText(MainActivity.this, "User not logged in.", Toast.LENGTH_SHORT).show();
                 return;
@@ -172,34 +287,29 @@ public class MainActivity extends AppCompatActivity {
             String userId = user.getUid();
             String userEmail = user.getEmail();
             long appointmentTimestamp = selectedDate.getTimeInMillis();
-            String formattedDate = String.format("%02d/%02d/%04d %02d:%02d", selectedDate.get(Calendar.DAY_OF_MONTH), selectedDate.get(Calendar.MONTH) + 1, selectedDate.get(Calendar.YEAR), selectedDate.get(Calendar.HOUR_OF_DAY), selectedDate.get(Calendar.MINUTE));
-
-            // Check if there is already an appointment at the selected date and time
-            firestore.collection("appointments")
-                    .whereEqualTo("timestamp", appointmentTimestamp)
-                    .get()
-                    .addOnCompleteListener(task -> {
-                        if (task.isSuccessful() && !task.getResult().isEmpty()) {
-                            // Notify the user if there is already an appointment at the selected date and time
-                            Toast.makeText(MainActivity.this, "There is already an appointment at this date and time.", Toast.LENGTH_SHORT).show();
-                        } else {
-                            // Create a new appointment if there is no existing appointment at the selected date and time
-                            Map<String, Object> appointment = new HashMap<>();
-                            appointment.put("userId", userId);
-                            appointment.put("timestamp", appointmentTimestamp);
-                            appointment.put("formattedDate", formattedDate);
-                            appointment.put("email", userEmail);
-
-                            firestore.collection("appointments")
-                                    .add(appointment)
-                                    .addOnSuccessListener(documentReference -> {
-                                        Toast.makeText(MainActivity.this, "Appointment successfully created!", Toast.LENGTH_SHORT).show();
-                                    })
-                                    .addOnFailureListener(e -> {
-                                        Toast.makeText(MainActivity.this, "Appointment creation failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                                    });
-                        }
-                    });
+
+            if (REPEAT_RECURRENCES[selectedRepeat] != null) {
+                bookSeries(appointmentTimestamp, userId, userEmail);
+                return;
+            }
+
+            // The booking is kept on the device and sent from the queue, so it is not lost if the network
+            // drops; the outcome arrives in bookingOutcomes. The span covers the round trip up to the UI thread
+            PendingBooking booking = bookingQueue.enqueue(selectedDoctor, appointmentTimestamp, userId, userEmail);
+            if (!confirmSpans.containsKey(booking.getKey())) {
+                confirmSpans.put(booking.getKey(), Metrics.global().start("booking.confirm"));
+            }
+            // The lease becomes the appointment
+            leasedDoctor = null;
+        });
+
+        // Long-pressing the title opens the latency metrics in debug builds
+        welcomeText.setOnLongClickListener(v -> {
+            if (!BuildConfig.DEBUG) {
+                return false;
+            }
+            startActivity(new Intent(MainActivity.this, MetricsActivity.class));
+            return true;
         });
 
         // Appointments button click listener
@@ -208,71 +318,332 @@ public class MainActivity extends AppCompatActivity {
             startActivity(intent);
         });
 
+        // Long-pressing it opens the schedule import and export in debug builds
+        btnAppointment.setOnLongClickListener(v -> {
+            if (!BuildConfig.DEBUG) {
+                return false;
+            }
+            startActivity(new Intent(MainActivity.this, ScheduleTransferActivity.class));
+            return true;
+        });
+
+        // Staff see the load of every doctor's day
+        btnDaySheet.setOnClickListener(v -> startActivity(new Intent(MainActivity.this, DaySheetActivity.class)));
+
         // Logout button click listener
         btnLogout.setOnClickListener(v -> {
-            firebaseAuth.signOut();
+            releaseLease();
+            AppSession.signOut(this);
             Intent intent = new Intent(MainActivity.this, LoginActivity.class);
             startActivity(intent);
             finish();
         });
     }
 
-    // Method to fetch appointments for a specific date
-    private void fetchAppointmentsForDate(Calendar date, OnFetchAppointmentsListener listener) {
-        // Create a time range for the specified date
-        Calendar startOfDay = (Calendar) date.clone();
-        startOfDay.set(Calendar.HOUR_OF_DAY, 0);
-        startOfDay.set(Calendar.MINUTE, 0);
-        startOfDay.set(Calendar.SECOND, 0);
-        startOfDay.set(Calendar.MILLISECOND, 0);
-
-        Calendar endOfDay = (Calendar) date.clone();
-        endOfDay.set(Calendar.HOUR_OF_DAY, 23);
-        endOfDay.set(Calendar.MINUTE, 59);
-        endOfDay.set(Calendar.SECOND, 59);
-        endOfDay.set(Calendar.MILLISECOND, 999);
-
-        // Query Firestore for appointments within the specified time range
-        firestore.collection("appointments")
-                .whereGreaterThanOrEqualTo("timestamp", startOfDay.getTime())
-                .whereLessThanOrEqualTo("timestamp", endOfDay.getTime())
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        QuerySnapshot querySnapshot = task.getResult();
-                        if (querySnapshot != null) {
-                            listener.onSuccess(querySnapshot);
-                        } else {
-                            listener.onFailure(new Exception("No appointments found"));
-                        }
-                    } else {
-                        listener.onFailure(task.getException());
-                    }
-                });
+    @Override
+    protected void onStart() {
+        super.onStart();
+        viewModel.startWatching();
+        FirebaseUser user = firebaseAuth.getCurrentUser();
+        if (user != null) {
+            viewModel.watchOffers(user.getUid());
+        }
+        // The cached profile is shown right away; a refresh, if one is due, updates it
+        SessionManager session = AppSession.getInstance(this);
+        session.addListener(profileListener);
+        showWelcome(session.getProfile());
+        bookingQueue.addListener(bookingOutcomes);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Detach the snapshot listeners while the screen is not visible
+        viewModel.stopWatching();
+        AppSession.getInstance(this).removeListener(profileListener);
+        bookingQueue.removeListener(bookingOutcomes);
+    }
+
+    private void endConfirmSpan(PendingBooking booking, boolean answered) {
+        Metrics.Span span = confirmSpans.remove(booking.getKey());
+        if (span == null) {
+            return;
+        }
+        if (answered) {
+            span.end();
+        } else {
+            span.fail();
+        }
     }
 
-    // Interface for fetching appointments
-    interface OnFetchAppointmentsListener {
-        void onSuccess(QuerySnapshot appointments);
-        void onFailure(Exception e);
+    private void showWelcome(UserProfile profile) {
+        if (profile != null && profile.getUsername() != null) {
+            welcomeText.setText("Welcome, " + profile.getUsername() + "!");
+        } else {
+            welcomeText.setText("Welcome to Healthy Life!");
+        }
+        btnDaySheet.setVisibility(DaySheetActivity.isStaff(profile) ? View.VISIBLE : View.GONE);
     }
 
-    // Method to generate time slots
-    private String[] generateTimeSlots() {
-        List<String> timeSlots = new ArrayList<>();
-        for (int hour = 8; hour <= 18; hour++) {
-            timeSlots.add(String.format("%02d:00", hour));
-            if (hour < 18) {
-                timeSlots.add(String.format("%02d:30", hour));
+    // Method to book the selected series in one transaction; nothing is booked if any occurrence conflicts
+    private void bookSeries(long firstTimestamp, String userId, String email) {
+        Recurrence recurrence = REPEAT_RECURRENCES[selectedRepeat];
+        int occurrences = REPEAT_OCCURRENCES[selectedRepeat];
+        Doctor doctor = selectedDoctor;
+        Metrics.Span booking = Metrics.global().start("booking.series");
+        bookingService.bookSeries(doctor, firstTimestamp, recurrence, occurrences, userId, email, new BookingService.OnSeriesBookingListener() {
+            @Override
+            public void onBooked(List<String> appointmentIds) {
+                booking.end();
+                leasedDoctor = null;
+                for (long start : recurrence.occurrences(firstTimestamp, occurrences, TimeZone.getDefault())) {
+                    viewModel.invalidateDay(doctor, start);
+                }
+                AppointmentReminders.syncAndReschedule(MainActivity.this, userId);
+                Toast.makeText(MainActivity.this, appointmentIds.size() + " appointments successfully created!", Toast.LENGTH_SHORT).show();
             }
+
+            @Override
+            public void onConflicts(List<OccurrenceConflict> conflicts) {
+                booking.end();
+                // List every occurrence that stands in the way so the user can pick another start
+                StringBuilder message = new StringBuilder();
+                ZoneId zone = ZoneId.systemDefault();
+                for (OccurrenceConflict conflict : conflicts) {
+                    String reason = conflict.getReason() == OccurrenceConflict.Reason.TAKEN ? "already booked"
+                            : conflict.getReason() == OccurrenceConflict.Reason.CLOSED ? "closed that day" : "not a bookable time";
+                    DateLabels.appendDateTime(message, conflict.getSlotStartMillis(), zone).append(" - ").append(reason).append('\n');
+                }
+                new AlertDialog.Builder(MainActivity.this)
+                        .setTitle("No appointments were created")
+                        .setMessage(message.toString().trim())
+                        .setPositiveButton(android.R.string.ok, null)
+                        .show();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                booking.fail();
+                Toast.makeText(MainActivity.this, "Appointment creation failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    // Method to let the user pick the doctor to book with
+    private void showDoctors(BookingViewModel.DoctorChoices choices) {
+        List<Doctor> doctors = choices.getDoctors();
+        String[] names = choices.getNames();
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(MainActivity.this);
+        builder.setTitle("Select a Doctor");
+        builder.setItems(names, (dialog, which) -> {
+            selectedDoctor = doctors.get(which);
+            slotGrid = selectedDoctor.getSlotGrid();
+            doctorPickerButton.setText(names[which]);
+
+            // Slots differ between doctors, so the time has to be picked again
+            isTimeSelected = false;
+            releaseLease();
+            if (isDateSelected) {
+                viewModel.watch(selectedDoctor, selectedDate);
+            }
+        });
+        builder.show();
+    }
+
+    // Method to let the user take one of the earliest free slots
+    private void showEarliestSlots(BookingViewModel.SlotChoices choices) {
+        List<FreeSlot> slots = choices.getSlots();
+        if (slots.isEmpty()) {
+            Toast.makeText(MainActivity.this, "No free slots in the next " + BookingViewModel.EARLIEST_SEARCH_DAYS + " days.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        String[] labels = choices.getLabels();
+        AlertDialog.Builder builder = new AlertDialog.Builder(MainActivity.this);
+        builder.setTitle("Earliest Free Slots");
+        builder.setItems(labels, (dialog, which) -> {
+            FreeSlot slot = slots.get(which);
+            selectedDoctor = slot.getDoctor();
+            slotGrid = selectedDoctor.getSlotGrid();
+            doctorPickerButton.setText(selectedDoctor.getName());
+            selectedDate.setTimeInMillis(slot.getStartMillis());
+            isDateSelected = true;
+            viewModel.watch(selectedDoctor, selectedDate);
+            leaseSelectedTime(labels[which]);
+        });
+        builder.show();
+    }
+
+    // Method to select a date (month from 0) if the doctor can be booked on it
+    private void selectDate(int year, int month, int dayOfMonth) {
+        selectedDate.set(Calendar.YEAR, year);
+        selectedDate.set(Calendar.MONTH, month);
+        selectedDate.set(Calendar.DAY_OF_MONTH, dayOfMonth);
+
+        // Check the selected date against the clinic's days, holidays and lead time
+        SlotRules rules = ClinicRules.getInstance().getRules();
+        if (rules.openMask(selectedDoctor, selectedDate) == 0L) {
+            // Notify the user if the clinic or the doctor is closed that day
+            Toast.makeText(MainActivity.this, "No appointments on this day. Please pick another one.", Toast.LENGTH_SHORT).show();
+            isDateSelected = false;
+        } else if (rules.bookableMask(selectedDoctor, selectedDate, System.currentTimeMillis()) == 0L) {
+            // Notify the user if the day is past or too soon to book
+            Toast.makeText(MainActivity.this, "This day can no longer be booked.", Toast.LENGTH_SHORT).show();
+            isDateSelected = false;
+        } else {
+            // Confirm the selected date if it is valid
+            Toast.makeText(MainActivity.this, "Selected date: " + dayOfMonth + "/" + (month + 1) + "/" + year, Toast.LENGTH_SHORT).show();
+            isDateSelected = true;
+            releaseLease();
+
+            // Start following the availability of the selected day
+            viewModel.watch(selectedDoctor, selectedDate);
         }
-        return timeSlots.toArray(new String[0]);
     }
 
-    // Method to format time
-    private String formatTime(Calendar calendar) {
-        int hour = calendar.get(Calendar.HOUR_OF_DAY);
-        int minute = calendar.get(Calendar.MINUTE);
-        return String.format("%02d:%02d", hour, minute);
+    // Method to show the selected day when it arrives or changes
+    private void onDaySlots(DaySlots slots) {
+        if (!isDateSelected || !slots.isFor(selectedDoctor.getId(), DayKeys.dayKey(selectedDate))) {
+            return;
+        }
+        if (timeSlotAdapter != null) {
+            updateTimeSlots(slots);
+        } else if (timeDialogPending) {
+            timeDialogPending = false;
+            showTimeSlots(slots);
+        }
+    }
+
+    // Method to show the free time slots of the selected day
+    private void showTimeSlots(DaySlots slots) {
+        if (slots.getFreeSlots().isEmpty()) {
+            showWaitlist();
+            return;
+        }
+
+        // Free slots and their labels were prepared off the main thread; the adapter needs its own copy
+        List<Integer> freeSlots = new ArrayList<>(slots.getFreeSlots());
+        shownSlots = freeSlots;
+        shownUnavailableMask = slots.getUnavailableMask();
+        timeSlotAdapter = new ArrayAdapter<>(MainActivity.this, android.R.layout.simple_list_item_1, new ArrayList<>(slots.getLabels()));
+
+        // Show available time slots to the user
+        AlertDialog.Builder builder = new AlertDialog.Builder(MainActivity.this);
+        builder.setTitle("Select a Time");
+        builder.setAdapter(timeSlotAdapter, new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                int slot = freeSlots.get(which);
+                selectedDate.set(Calendar.HOUR_OF_DAY, slotGrid.hourOf(slot));
+                selectedDate.set(Calendar.MINUTE, slotGrid.minuteOf(slot));
+                selectedDate.set(Calendar.SECOND, 0);
+                selectedDate.set(Calendar.MILLISECOND, 0);
+                leaseSelectedTime(slotGrid.label(slot));
+            }
+        });
+        builder.setOnDismissListener(dialog -> {
+            timeSlotAdapter = null;
+            shownSlots = null;
+        });
+        builder.show();
+    }
+
+    // Method to reserve the selected time while the user confirms, so nobody else books it meanwhile.
+    // The previously reserved time is given back.
+    private void leaseSelectedTime(String label) {
+        releaseLease();
+        FirebaseUser user = firebaseAuth.getCurrentUser();
+        if (user == null) {
+            // Confirming asks the user to log in
+            isTimeSelected = true;
+            Toast.makeText(MainActivity.this, "Selected time: " + label, Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        Doctor doctor = selectedDoctor;
+        long slotStart = selectedDate.getTimeInMillis();
+        isTimeSelected = false;
+        bookingService.lease(doctor, slotStart, user.getUid(), new BookingService.OnLeaseListener() {
+            @Override
+            public void onLeased(String appointmentId, long expiresAtMillis) {
+                leasedDoctor = doctor;
+                leasedSlotStart = slotStart;
+                if (doctor == selectedDoctor && slotStart == selectedDate.getTimeInMillis()) {
+                    isTimeSelected = true;
+                    long minutes = (expiresAtMillis - System.currentTimeMillis() + 59_999L) / 60_000L;
+                    Toast.makeText(MainActivity.this, "Selected time: " + label + " (held for " + minutes + " minutes)", Toast.LENGTH_SHORT).show();
+                }
+            }
+
+            @Override
+            public void onSlotTaken(String appointmentId) {
+                viewModel.invalidateDay(doctor, slotStart);
+                Toast.makeText(MainActivity.this, "This time was just taken. Please pick another one.", Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                // The booking itself still checks the slot, so the time can be confirmed without a lease
+                isTimeSelected = true;
+                Toast.makeText(MainActivity.this, "Selected time: " + label, Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    // Method to give back the reserved time, if any
+    private void releaseLease() {
+        FirebaseUser user = firebaseAuth.getCurrentUser();
+        if (leasedDoctor != null && user != null) {
+            bookingService.releaseLease(leasedDoctor, leasedSlotStart, user.getUid());
+        }
+        leasedDoctor = null;
+    }
+
+    // Method to offer a place on the waitlist when the selected day is full
+    private void showWaitlist() {
+        new AlertDialog.Builder(MainActivity.this)
+                .setTitle("No free times")
+                .setMessage("Join the waitlist to be offered the first time that is cancelled on this day.")
+                .setPositiveButton("Join waitlist", (dialog, which) -> {
+                    FirebaseUser user = firebaseAuth.getCurrentUser();
+                    if (user == null) {
+                        Toast.makeText(MainActivity.this, "User not logged in.", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    viewModel.joinWaitlist(selectedDoctor, selectedDate, user.getUid(), user.getEmail());
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    // Method to let the user book or pass on a cancelled time held for them
+    private void showOffer(HoldOffers.Offer offer) {
+        new AlertDialog.Builder(MainActivity.this)
+                .setTitle("A time has opened up")
+                .setMessage(offer.getLabel() + " is held for you for a few minutes. Do you want to book it?")
+                .setPositiveButton("Book", (dialog, which) -> viewModel.claimOffer(offer))
+                .setNegativeButton("No thanks", (dialog, which) -> viewModel.declineOffer(offer))
+                .setCancelable(false)
+                .show();
+    }
+
+    // Method to apply live availability changes to the open time slot dialog, one slot at a time
+    private void updateTimeSlots(DaySlots slots) {
+        long changedSlots = shownUnavailableMask ^ slots.getUnavailableMask();
+        shownUnavailableMask = slots.getUnavailableMask();
+        for (long bits = changedSlots; bits != 0L; bits &= bits - 1) {
+            int slot = Long.numberOfTrailingZeros(bits);
+            int position = Collections.binarySearch(shownSlots, slot);
+            if (slotGrid.isFree(slots.getUnavailableMask(), slot)) {
+                if (position < 0) {
+                    shownSlots.add(-position - 1, slot);
+                    timeSlotAdapter.insert(slotGrid.label(slot), -position - 1);
+                }
+            } else if (position >= 0) {
+                shownSlots.remove(position);
+                timeSlotAdapter.remove(slotGrid.label(slot));
+            }
+        }
     }
 }
@@ -0,0 +1,59 @@
+package com.example.appointment;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.widget.Button;
+import android.widget.TextView;
+
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.example.appointment.core.Metrics;
+
+// Debug screen with the latency histograms of every timed operation, exportable as JSON
+public class MetricsActivity extends AppCompatActivity {
+
+    private TextView metricsText;
+    private Button btnToggle;
+
+    @Override
+    protected void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+
+        metricsText = findViewById(R.id.metricsText);
+        btnToggle = findViewById(R.id.btnToggleMetrics);
+        Button btnShare = findViewById(R.id.btnShareMetrics);
+        Button btnReset = findViewById(R.id.btnResetMetrics);
+
+        btnToggle.setOnClickListener(v -> {
+            Metrics.global().setEnabled(!Metrics.global().isEnabled());
+            showMetrics();
+        });
+
+        btnReset.setOnClickListener(v -> {
+            Metrics.global().reset();
+            showMetrics();
+        });
+
+        // Hand the JSON dump to any app that takes text, e.g. mail or a file manager
+        btnShare.setOnClickListener(v -> {
+            Intent intent = new Intent(Intent.ACTION_SEND);
+            intent.setType("application/json");
+            intent.putExtra(Intent.EXTRA_SUBJECT, "Appointment latency metrics");
+            intent.putExtra(Intent.EXTRA_TEXT, Metrics.global().toJson());
+            startActivity(Intent.createChooser(intent, "Export metrics"));
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showMetrics();
+    }
+
+    private void showMetrics() {
+        btnToggle.setText(Metrics.global().isEnabled() ? "Disable" : "Enable");
+        metricsText.setText(Metrics.global().toJson().replace("},", "},\n"));
+    }
+}
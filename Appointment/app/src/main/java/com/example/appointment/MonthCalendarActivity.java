@@ -0,0 +1,84 @@
+package com.example.appointment;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.appointment.core.Doctor;
+
+import java.util.Calendar;
+
+// Month calendar of one doctor's availability, months one below the other from the current one.
+// Every day is shaded by its free slots; picking a day with free slots returns its day key.
+public class MonthCalendarActivity extends AppCompatActivity {
+
+    // yyyymmdd key of the picked day, in the result
+    static final String EXTRA_DAY_KEY = "dayKey";
+    // How far ahead the calendar goes
+    private static final int MONTHS = 12;
+
+    // The doctor's working hours travel with it, as in the booking queue
+    private static final String EXTRA_DOCTOR_ID = "doctorId";
+    private static final String EXTRA_DOCTOR_NAME = "doctorName";
+    private static final String EXTRA_CLINIC_ID = "clinicId";
+    private static final String EXTRA_WORK_START_MINUTE = "workStartMinute";
+    private static final String EXTRA_WORK_END_MINUTE = "workEndMinute";
+    private static final String EXTRA_SLOT_MINUTES = "slotMinutes";
+
+    static Intent intentFor(Context context, Doctor doctor) {
+        return new Intent(context, MonthCalendarActivity.class)
+                .putExtra(EXTRA_DOCTOR_ID, doctor.getId())
+                .putExtra(EXTRA_DOCTOR_NAME, doctor.getName())
+                .putExtra(EXTRA_CLINIC_ID, doctor.getClinicId())
+                .putExtra(EXTRA_WORK_START_MINUTE, doctor.getWorkStartMinute())
+                .putExtra(EXTRA_WORK_END_MINUTE, doctor.getWorkEndMinute())
+                .putExtra(EXTRA_SLOT_MINUTES, doctor.getSlotMinutes());
+    }
+
+    @Override
+    protected void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_month_calendar);
+
+        Intent intent = getIntent();
+        Doctor doctor = intent.hasExtra(EXTRA_DOCTOR_ID)
+                ? new Doctor(intent.getStringExtra(EXTRA_DOCTOR_ID), intent.getStringExtra(EXTRA_DOCTOR_NAME),
+                        intent.getStringExtra(EXTRA_CLINIC_ID), intent.getIntExtra(EXTRA_WORK_START_MINUTE, 0),
+                        intent.getIntExtra(EXTRA_WORK_END_MINUTE, 0), intent.getIntExtra(EXTRA_SLOT_MINUTES, 0))
+                : Doctor.DEFAULT;
+
+        TextView doctorText = findViewById(R.id.monthCalendarDoctor);
+        doctorText.setText(doctor.getName());
+
+        MonthCalendarViewModel viewModel = new ViewModelProvider(this).get(MonthCalendarViewModel.class);
+        viewModel.getMessages().observe(this, event -> {
+            String message = event.take();
+            if (message != null) {
+                Toast.makeText(MonthCalendarActivity.this, message, Toast.LENGTH_SHORT).show();
+            }
+        });
+
+        Calendar today = Calendar.getInstance();
+        RecyclerView months = findViewById(R.id.monthRecyclerView);
+        months.setLayoutManager(new LinearLayoutManager(this));
+        // Every month has the same height, so binding one never relayouts the list
+        months.setHasFixedSize(true);
+        months.setAdapter(new MonthCalendarAdapter(viewModel, doctor, today.get(Calendar.YEAR), today.get(Calendar.MONTH) + 1, MONTHS,
+                (month, index) -> {
+                    if (month.getFreeCount(index) == 0) {
+                        Toast.makeText(MonthCalendarActivity.this, "No free times on this day.", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    setResult(RESULT_OK, new Intent().putExtra(EXTRA_DAY_KEY, month.getDayKey(index)));
+                    finish();
+                }));
+    }
+}
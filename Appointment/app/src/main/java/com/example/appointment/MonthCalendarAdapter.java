@@ -0,0 +1,70 @@
+package com.example.appointment;
+
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.appointment.core.Doctor;
+
+// Consecutive months of one doctor, a MonthCalendarView each. A month in memory is drawn while
+// binding; otherwise it is drawn unshaded and shaded once its read completes.
+public class MonthCalendarAdapter extends RecyclerView.Adapter<MonthCalendarAdapter.ViewHolder> {
+
+    private final MonthCalendarViewModel viewModel;
+    private final Doctor doctor;
+    // Months since year 0 of the first month shown, January being 0
+    private final int firstMonthIndex;
+    private final int monthCount;
+    private final MonthCalendarView.OnDayClickListener dayClickListener;
+
+    // firstMonth 1 = January
+    public MonthCalendarAdapter(MonthCalendarViewModel viewModel, Doctor doctor, int firstYear, int firstMonth, int monthCount,
+                                MonthCalendarView.OnDayClickListener dayClickListener) {
+        this.viewModel = viewModel;
+        this.doctor = doctor;
+        this.firstMonthIndex = firstYear * 12 + firstMonth - 1;
+        this.monthCount = monthCount;
+        this.dayClickListener = dayClickListener;
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        MonthCalendarView view = new MonthCalendarView(parent.getContext());
+        view.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        int padding = (int) (8 * parent.getResources().getDisplayMetrics().density);
+        view.setPadding(0, padding, 0, padding);
+        view.setOnDayClickListener(dayClickListener);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        int monthIndex = firstMonthIndex + position;
+        int year = monthIndex / 12;
+        int month = monthIndex % 12 + 1;
+        holder.view.setMonth(year, month, viewModel.getCached(doctor, year, month));
+        // Also when it is in memory, so the month after it is prefetched
+        viewModel.loadMonth(doctor, year, month, loaded -> {
+            // The view may have been bound to another month meanwhile
+            if (holder.view.isShowing(year, month) && holder.view.getAvailability() != loaded) {
+                holder.view.setMonth(year, month, loaded);
+            }
+        });
+    }
+
+    @Override
+    public int getItemCount() {
+        return monthCount;
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final MonthCalendarView view;
+
+        ViewHolder(MonthCalendarView view) {
+            super(view);
+            this.view = view;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.appointment;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import com.example.appointment.core.MonthAvailability;
+
+import java.time.DayOfWeek;
+import java.time.YearMonth;
+import java.time.format.TextStyle;
+import java.util.Locale;
+
+// One month as a grid of weeks starting on Monday, each day shaded by how many of its slots are free.
+// Drawn straight from a MonthAvailability; nothing is allocated while drawing, so it can be scrolled
+// in a list without dropping frames.
+public class MonthCalendarView extends View {
+
+    // Shades for days with free slots, lightest for few free; days with none are not shaded
+    static final int SHADE_LEVELS = 4;
+    private static final int[] SHADE_ALPHAS = {0, 0x50, 0xA0, 0xFF};
+    private static final String[] DAY_LABELS = new String[31];
+
+    static {
+        for (int i = 0; i < DAY_LABELS.length; i++) {
+            DAY_LABELS[i] = String.valueOf(i + 1);
+        }
+    }
+
+    private final Paint titlePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint weekdayPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint dayPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint shadePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF cell = new RectF();
+    private final String[] weekdayLabels = new String[7];
+
+    private int year;
+    private int month;
+    private int days;
+    // Column of the 1st, 0 = Monday
+    private int firstColumn;
+    private String title = "";
+    private MonthAvailability availability;
+    private OnDayClickListener listener;
+    private int downIndex = -1;
+
+    public MonthCalendarView(Context context) {
+        this(context, null);
+    }
+
+    public MonthCalendarView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().scaledDensity;
+        titlePaint.setTextSize(18 * density);
+        titlePaint.setFakeBoldText(true);
+        titlePaint.setTextAlign(Paint.Align.CENTER);
+        weekdayPaint.setTextSize(12 * density);
+        weekdayPaint.setColor(Color.GRAY);
+        weekdayPaint.setTextAlign(Paint.Align.CENTER);
+        dayPaint.setTextSize(14 * density);
+        dayPaint.setTextAlign(Paint.Align.CENTER);
+        shadePaint.setColor(ContextCompat.getColor(context, R.color.lavender));
+        for (DayOfWeek day : DayOfWeek.values()) {
+            weekdayLabels[day.getValue() - 1] = day.getDisplayName(TextStyle.NARROW, Locale.getDefault());
+        }
+    }
+
+    // Show the month (1 = January); availability is null while it loads, which draws the days unshaded
+    public void setMonth(int year, int month, @Nullable MonthAvailability availability) {
+        if (this.year != year || this.month != month) {
+            YearMonth yearMonth = YearMonth.of(year, month);
+            this.year = year;
+            this.month = month;
+            this.days = yearMonth.lengthOfMonth();
+            this.firstColumn = yearMonth.atDay(1).getDayOfWeek().getValue() - 1;
+            this.title = yearMonth.getMonth().getDisplayName(TextStyle.FULL_STANDALONE, Locale.getDefault()) + " " + year;
+        }
+        this.availability = availability;
+        setContentDescription(title);
+        invalidate();
+    }
+
+    public boolean isShowing(int year, int month) {
+        return this.year == year && this.month == month;
+    }
+
+    @Nullable
+    public MonthAvailability getAvailability() {
+        return availability;
+    }
+
+    public void setOnDayClickListener(OnDayClickListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        // A title row, a weekday row at half height and six weeks of square days
+        int cellSize = width / 7;
+        setMeasuredDimension(width, cellSize * 6 + cellSize * 3 / 2 + getPaddingTop() + getPaddingBottom());
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        float cellSize = getWidth() / 7f;
+        float top = getPaddingTop();
+        canvas.drawText(title, getWidth() / 2f, top + cellSize * 0.65f, titlePaint);
+        top += cellSize;
+        for (int column = 0; column < 7; column++) {
+            canvas.drawText(weekdayLabels[column], (column + 0.5f) * cellSize, top + cellSize * 0.35f, weekdayPaint);
+        }
+        top += cellSize / 2;
+
+        float inset = cellSize * 0.08f;
+        float textOffset = (dayPaint.descent() + dayPaint.ascent()) / 2;
+        for (int index = 0; index < days; index++) {
+            int position = firstColumn + index;
+            cell.set((position % 7) * cellSize + inset, top + (position / 7) * cellSize + inset,
+                    (position % 7 + 1) * cellSize - inset, top + (position / 7 + 1) * cellSize - inset);
+            int shade = availability != null ? availability.shade(index, SHADE_LEVELS) : 0;
+            if (shade > 0) {
+                shadePaint.setAlpha(SHADE_ALPHAS[shade]);
+                canvas.drawRoundRect(cell, inset * 2, inset * 2, shadePaint);
+            }
+            dayPaint.setColor(availability == null || shade > 0 ? Color.BLACK : Color.LTGRAY);
+            canvas.drawText(DAY_LABELS[index], cell.centerX(), cell.centerY() - textOffset, dayPaint);
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                downIndex = dayAt(event.getX(), event.getY());
+                return downIndex >= 0;
+            case MotionEvent.ACTION_UP:
+                int index = dayAt(event.getX(), event.getY());
+                if (index >= 0 && index == downIndex) {
+                    performClick();
+                    if (listener != null && availability != null) {
+                        listener.onDayClick(availability, index);
+                    }
+                }
+                downIndex = -1;
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                downIndex = -1;
+                return true;
+            default:
+                return downIndex >= 0;
+        }
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    // Index of the day under the point, from 0 for the 1st, or -1 outside the days
+    private int dayAt(float x, float y) {
+        float cellSize = getWidth() / 7f;
+        float gridTop = getPaddingTop() + cellSize * 1.5f;
+        if (y < gridTop || x < 0 || x >= getWidth()) {
+            return -1;
+        }
+        int position = (int) ((y - gridTop) / cellSize) * 7 + (int) (x / cellSize);
+        int index = position - firstColumn;
+        return index >= 0 && index < days ? index : -1;
+    }
+
+    public interface OnDayClickListener {
+        // index is the day of the month minus one
+        void onDayClick(MonthAvailability month, int index);
+    }
+}
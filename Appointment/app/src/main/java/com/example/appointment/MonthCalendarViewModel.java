@@ -0,0 +1,60 @@
+package com.example.appointment;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModel;
+
+import com.example.appointment.core.Clock;
+import com.example.appointment.core.Doctor;
+import com.example.appointment.core.MonthAvailability;
+import com.example.appointment.core.MonthAvailabilityLoader;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.TimeZone;
+
+// Months of a doctor's availability for the month calendar. Each month is one range query, turned
+// into bitmaps on the background executor and kept while the screen lives, so paging back and forth
+// reads nothing again and the month after the one shown is already on its way. Survives rotation.
+public class MonthCalendarViewModel extends ViewModel {
+
+    // Short enough that other patients' bookings show up when the calendar is opened again soon
+    private static final long TTL_MILLIS = 60_000;
+    private static final int MAX_MONTHS = 13;
+
+    private final MonthAvailabilityLoader loader = new MonthAvailabilityLoader(
+            new FirestoreAppointmentRepository(FirebaseFirestore.getInstance(), TimeZone.getDefault(), BackgroundWork.executor()),
+            TimeZone.getDefault(), BackgroundWork.executor(), ClinicRules.getInstance(), Clock.SYSTEM, TTL_MILLIS, MAX_MONTHS);
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final MutableLiveData<UiEvent<String>> messages = new MutableLiveData<>();
+
+    public LiveData<UiEvent<String>> getMessages() {
+        return messages;
+    }
+
+    // The month if it is in memory, to draw it at once
+    public MonthAvailability getCached(Doctor doctor, int year, int month) {
+        return loader.getCached(doctor, year, month);
+    }
+
+    // Load the month (1 = January); the listener is called on the main thread
+    public void loadMonth(Doctor doctor, int year, int month, OnMonthLoadedListener listener) {
+        loader.load(doctor, year, month, new MonthAvailabilityLoader.OnMonthListener() {
+            @Override
+            public void onSuccess(MonthAvailability availability) {
+                main.post(() -> listener.onMonthLoaded(availability));
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                messages.postValue(new UiEvent<>("Unable to fetch appointments: " + e.getMessage()));
+            }
+        });
+    }
+
+    public interface OnMonthLoadedListener {
+        void onMonthLoaded(MonthAvailability month);
+    }
+}
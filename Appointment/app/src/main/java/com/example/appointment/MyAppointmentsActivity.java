@@ -2,31 +2,35 @@ package com.example.appointment;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.widget.ArrayAdapter;
 import android.widget.Button;
-import android.widget.ListView;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.appointment.core.Appointment;
+import com.example.appointment.core.DateLabels;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.QuerySnapshot;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.time.ZoneId;
 
 public class MyAppointmentsActivity extends AppCompatActivity {
 
-    private ListView appointmentsListView;
+    // Start loading the next page when this many rows are left below the screen
+    private static final int PREFETCH_DISTANCE = 10;
+
+    private RecyclerView appointmentsRecyclerView;
     private Button btnLogout;
     private FirebaseAuth firebaseAuth;
-    private FirebaseFirestore firestore;
-    private ArrayAdapter<String> adapter;
-    private List<String> appointmentsList;
+    private AppointmentListAdapter adapter;
+    private LinearLayoutManager layoutManager;
+    private MyAppointmentsViewModel viewModel;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -34,61 +38,73 @@ public class MyAppointmentsActivity extends AppCompatActivity {
         setContentView(R.layout.activity_my_appointments);
 
         // Find UI elements
-        appointmentsListView = findViewById(R.id.appointmentsListView);
+        appointmentsRecyclerView = findViewById(R.id.appointmentsRecyclerView);
         btnLogout = findViewById(R.id.btnLogout);
 
-        // Initialize Firebase Auth and Firestore instances
+        // Initialize Firebase Auth
         firebaseAuth = FirebaseAuth.getInstance();
-        firestore = FirebaseFirestore.getInstance();
+
+        // Appointments are loaded and synced in the view model; only the finished rows arrive here
+        viewModel = new ViewModelProvider(this).get(MyAppointmentsViewModel.class);
 
         // Initialize the appointments list and adapter
-        appointmentsList = new ArrayList<>();
-        adapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, appointmentsList);
-        appointmentsListView.setAdapter(adapter);
+        adapter = new AppointmentListAdapter(key -> {
+            if (MyAppointmentsViewModel.ACTION_SHOW_PAST.equals(key)) {
+                viewModel.showPast();
+            }
+        }, this::confirmCancel);
+        layoutManager = new LinearLayoutManager(this);
+        appointmentsRecyclerView.setLayoutManager(layoutManager);
+        appointmentsRecyclerView.setAdapter(adapter);
+        viewModel.getRows().observe(this, adapter::submitList);
+        viewModel.getMessages().observe(this, event -> {
+            String message = event.take();
+            if (message != null) {
+                Toast.makeText(MyAppointmentsActivity.this, message, Toast.LENGTH_SHORT).show();
+            }
+        });
+
+        // Load the next page when the user scrolls close to the end of the list
+        appointmentsRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+                    viewModel.loadMore();
+                }
+            }
+        });
 
-        // Fetch appointments from Firestore
+        // Load appointments from the local store and sync them with Firestore
         fetchAppointments();
 
         // Set up the logout button click listener
         btnLogout.setOnClickListener(v -> {
-            firebaseAuth.signOut();
+            AppSession.signOut(this);
             Intent intent = new Intent(MyAppointmentsActivity.this, LoginActivity.class);
             startActivity(intent);
             finish();
         });
     }
 
+    // Only upcoming appointments can be cancelled
+    private void confirmCancel(Appointment appointment) {
+        if (appointment.getTimestamp() <= System.currentTimeMillis()) {
+            return;
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Cancel appointment")
+                .setMessage("Cancel your appointment on " + DateLabels.dateTime(appointment.getTimestamp(), ZoneId.systemDefault())
+                        + "? The time will be offered to patients on the waitlist.")
+                .setPositiveButton("Cancel appointment", (dialog, which) -> viewModel.cancel(appointment))
+                .setNegativeButton("Keep", null)
+                .show();
+    }
+
     private void fetchAppointments() {
         // Get the current logged-in user
         FirebaseUser currentUser = firebaseAuth.getCurrentUser();
         if (currentUser != null) {
-            String userId = currentUser.getUid();
-            // Query Firestore for appointments with the user's ID
-            firestore.collection("appointments")
-                    .whereEqualTo("userId", userId)
-                    .get()
-                    .addOnCompleteListener(task -> {
-                        if (task.isSuccessful()) {
-                            QuerySnapshot querySnapshot = task.getResult();
-                            if (querySnapshot != null) {
-                                // Clear the current appointments list
-                                appointmentsList.clear();
-                                // Iterate over each document and add the appointment date to the list
-                                for (DocumentSnapshot document : querySnapshot.getDocuments()) {
-                                    String formattedDate = document.getString("formattedDate");
-                                    if (formattedDate != null) {
-                                        appointmentsList.add("Date: " + formattedDate);
-                                    }
-                                }
-                                // Notify the adapter of data changes
-                                adapter.notifyDataSetChanged();
-                            } else {
-                                Toast.makeText(MyAppointmentsActivity.this, "No appointments found", Toast.LENGTH_SHORT).show();
-                            }
-                        } else {
-                            Toast.makeText(MyAppointmentsActivity.this, "Error getting appointments: " + task.getException().getMessage(), Toast.LENGTH_SHORT).show();
-                        }
-                    });
+            viewModel.open(currentUser.getUid());
         } else {
             Toast.makeText(this, "User not logged in", Toast.LENGTH_SHORT).show();
         }
@@ -0,0 +1,203 @@
+package com.example.appointment;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.appointment.core.Appointment;
+import com.example.appointment.core.AppointmentPager;
+import com.example.appointment.core.AppointmentSync;
+import com.example.appointment.core.BackgroundExecutors;
+import com.example.appointment.core.Hold;
+import com.example.appointment.core.LocalAppointmentStore;
+import com.example.appointment.core.ReminderScheduler;
+import com.example.appointment.core.WaitlistEngine;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
+
+// Appointment history of the signed-in user, read from the local copy and kept current by
+// incremental sync. Paging, syncing and building rows run on a background executor; the rows
+// are posted as one list, so the screen only diffs and renders them. Survives rotation.
+public class MyAppointmentsViewModel extends AndroidViewModel {
+
+    private static final int PAGE_SIZE = 30;
+    static final String ACTION_SHOW_PAST = "showPast";
+
+    private final LocalAppointmentStore localStore;
+    private final AppointmentSync appointmentSync;
+    private final WaitlistEngine waitlistEngine;
+    private final ReminderScheduler reminders;
+    // The pagers are not thread-safe, so their work runs one task at a time
+    private final Executor executor = BackgroundExecutors.serial(BackgroundWork.executor());
+
+    private final MutableLiveData<List<AppointmentListItem>> rows = new MutableLiveData<>();
+    private final MutableLiveData<UiEvent<String>> messages = new MutableLiveData<>();
+
+    private String userId;
+    private AppointmentPager upcomingPager;
+    private AppointmentPager pastPager;
+    private volatile boolean showPast = false;
+    private volatile boolean isLoading = false;
+
+    public MyAppointmentsViewModel(@NonNull Application application) {
+        super(application);
+        localStore = AppointmentDatabase.getInstance(application);
+        appointmentSync = new AppointmentSync(new FirestoreAppointmentSource(FirebaseFirestore.getInstance(), TimeZone.getDefault()), localStore);
+        waitlistEngine = new WaitlistEngine(new FirestoreWaitlistStore(FirebaseFirestore.getInstance(), TimeZone.getDefault()), TimeZone.getDefault());
+        reminders = AppointmentReminders.getInstance(application);
+    }
+
+    public LiveData<List<AppointmentListItem>> getRows() {
+        return rows;
+    }
+
+    public LiveData<UiEvent<String>> getMessages() {
+        return messages;
+    }
+
+    // Show the user's first page from the stored copy, then sync; does nothing if already open
+    public void open(String userId) {
+        if (userId.equals(this.userId)) {
+            return;
+        }
+        this.userId = userId;
+        long now = System.currentTimeMillis();
+        AppointmentPager.PageSource pageSource = (section, boundaryMillis, after, limit) ->
+                localStore.loadPage(userId, section, boundaryMillis, after, limit);
+        AppointmentPager upcoming = new AppointmentPager(pageSource, AppointmentPager.Section.UPCOMING, now, PAGE_SIZE);
+        AppointmentPager past = new AppointmentPager(pageSource, AppointmentPager.Section.PAST, now, PAGE_SIZE);
+        upcomingPager = upcoming;
+        pastPager = past;
+        showPast = false;
+
+        isLoading = true;
+        executor.execute(() -> {
+            try {
+                // Show the first page of the stored copy right away
+                upcoming.loadNext();
+                publishRows(upcoming, past);
+
+                // Then pull only the appointments changed since the last sync and refresh the loaded pages
+                syncAndReload(userId, upcoming, past);
+            } catch (Exception e) {
+                isLoading = false;
+                messages.postValue(new UiEvent<>("Error getting appointments: " + e.getMessage()));
+            }
+        });
+    }
+
+    // Cancel one of the user's upcoming appointments; the slot goes to the day's waitlist, if any
+    public void cancel(Appointment appointment) {
+        String userId = this.userId;
+        if (userId == null) {
+            return;
+        }
+        waitlistEngine.cancel(appointment, userId, new WaitlistEngine.OnCancelListener() {
+            @Override
+            public void onCancelled(Hold offeredTo) {
+                messages.setValue(new UiEvent<>("Appointment cancelled"));
+                // The cancelled document reaches the local copy through the next sync
+                AppointmentPager upcoming = upcomingPager;
+                AppointmentPager past = pastPager;
+                executor.execute(() -> {
+                    try {
+                        syncAndReload(userId, upcoming, past);
+                    } catch (Exception e) {
+                        messages.postValue(new UiEvent<>("Error getting appointments: " + e.getMessage()));
+                    }
+                });
+            }
+
+            @Override
+            public void onNotBooked() {
+                messages.setValue(new UiEvent<>("This appointment is no longer booked"));
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                messages.setValue(new UiEvent<>("Cancellation failed: " + e.getMessage()));
+            }
+        });
+    }
+
+    // Load the next page of the section the user is scrolling through
+    public void loadMore() {
+        if (upcomingPager == null) {
+            return;
+        }
+        loadMore(upcomingPager.hasMore() || !showPast ? upcomingPager : pastPager);
+    }
+
+    public void showPast() {
+        if (pastPager == null) {
+            return;
+        }
+        showPast = true;
+        loadMore(pastPager);
+    }
+
+    private void syncAndReload(String userId, AppointmentPager upcoming, AppointmentPager past) throws Exception {
+        int applied = appointmentSync.sync(userId);
+        // Only reminders of changed appointments are touched, so this is cheap when nothing changed
+        reminders.reschedule(userId);
+        if (applied > 0) {
+            upcoming.reload();
+            if (showPast) {
+                past.reload();
+            }
+            publishRows(upcoming, past);
+        }
+    }
+
+    // Load the next page of a section unless a load is already running
+    private void loadMore(AppointmentPager pager) {
+        if (isLoading || !pager.hasMore()) {
+            return;
+        }
+        isLoading = true;
+        AppointmentPager upcoming = upcomingPager;
+        AppointmentPager past = pastPager;
+        executor.execute(() -> {
+            try {
+                pager.loadNext();
+            } catch (Exception e) {
+                messages.postValue(new UiEvent<>("Error getting appointments: " + e.getMessage()));
+            }
+            publishRows(upcoming, past);
+        });
+    }
+
+    // Build the rows of both sections for the adapter to diff against the shown list
+    private void publishRows(AppointmentPager upcomingPager, AppointmentPager pastPager) {
+        List<Appointment> upcoming = upcomingPager.getLoaded();
+        List<AppointmentListItem> list = new ArrayList<>(upcoming.size() + 3);
+
+        list.add(AppointmentListItem.header("upcoming", "Upcoming Appointments"));
+        for (Appointment appointment : upcoming) {
+            list.add(AppointmentListItem.appointment(appointment));
+        }
+        if (upcoming.isEmpty() && !upcomingPager.hasMore()) {
+            list.add(AppointmentListItem.header("noUpcoming", "No upcoming appointments"));
+        }
+
+        if (showPast) {
+            list.add(AppointmentListItem.header("past", "Past Appointments"));
+            for (Appointment appointment : pastPager.getLoaded()) {
+                list.add(AppointmentListItem.appointment(appointment));
+            }
+        } else if (!upcomingPager.hasMore()) {
+            // Past appointments are only loaded on request
+            list.add(AppointmentListItem.action(ACTION_SHOW_PAST, "Show past appointments"));
+        }
+
+        rows.postValue(list);
+        isLoading = false;
+    }
+}
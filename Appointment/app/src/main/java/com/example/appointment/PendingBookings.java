@@ -0,0 +1,76 @@
+package com.example.appointment;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.appointment.core.BookingQueue;
+import com.example.appointment.core.BookingService;
+import com.example.appointment.core.DayKeys;
+import com.example.appointment.core.PendingBooking;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.TimeZone;
+
+// The app's outbound booking queue. Bookings are retried when their backoff is over, while the app
+// runs, and at once when the device gets a network again or the app starts.
+public final class PendingBookings {
+
+    private static BookingQueue instance;
+
+    private PendingBookings() {
+    }
+
+    public static synchronized BookingQueue getInstance(Context context) {
+        if (instance == null) {
+            Context app = context.getApplicationContext();
+            BookingQueue queue = new BookingQueue(new PreferencesPendingBookingStore(app),
+                    new BookingService(new FirestoreSlotStore(FirebaseFirestore.getInstance()), TimeZone.getDefault(),
+                            ClinicRules.getInstance()));
+            Handler main = new Handler(Looper.getMainLooper());
+            Runnable drain = queue::drain;
+            queue.addListener(new BookingQueue.OnBookingOutcomeListener() {
+                @Override
+                public void onBooked(PendingBooking booking, String appointmentId) {
+                    AppointmentCache.getInstance().invalidate(booking.getDoctor().getId(),
+                            DayKeys.dayKey(booking.getSlotStartMillis(), TimeZone.getDefault()));
+                    AppointmentReminders.syncAndReschedule(app, booking.getUserId());
+                }
+
+                @Override
+                public void onSlotTaken(PendingBooking booking) {
+                    AppointmentCache.getInstance().invalidate(booking.getDoctor().getId(),
+                            DayKeys.dayKey(booking.getSlotStartMillis(), TimeZone.getDefault()));
+                }
+
+                @Override
+                public void onDeferred(PendingBooking booking, Exception e) {
+                    // One timer for the earliest booking due; a drain reschedules it for the rest
+                    long next = queue.getNextAttemptAtMillis();
+                    if (next >= 0) {
+                        main.removeCallbacks(drain);
+                        main.postDelayed(drain, Math.max(0, next - System.currentTimeMillis()));
+                    }
+                }
+
+                @Override
+                public void onDropped(PendingBooking booking, Exception e) {
+                    Log.w("BookingQueue", "Dropped booking " + booking.getKey(), e);
+                }
+            });
+
+            ConnectivityManager connectivity = (ConnectivityManager) app.getSystemService(Context.CONNECTIVITY_SERVICE);
+            connectivity.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network network) {
+                    queue.retryNow();
+                }
+            });
+            instance = queue;
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.appointment;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.appointment.core.Doctor;
+import com.example.appointment.core.PendingBooking;
+import com.example.appointment.core.PendingBookingStore;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// PendingBookingStore in shared preferences: one JSON entry per booking, keyed by its idempotency key.
+// The doctor's working hours are kept with the booking, so it can be sent without fetching the doctor.
+public class PreferencesPendingBookingStore implements PendingBookingStore {
+
+    private static final String PREFERENCES = "bookingQueue";
+
+    private final SharedPreferences preferences;
+
+    public PreferencesPendingBookingStore(Context context) {
+        this.preferences = context.getApplicationContext().getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+    }
+
+    @Override
+    public List<PendingBooking> load() {
+        List<PendingBooking> bookings = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            try {
+                bookings.add(decode(entry.getKey(), new JSONObject(String.valueOf(entry.getValue()))));
+            } catch (JSONException | IllegalArgumentException e) {
+                Log.w("BookingQueue", "Dropping unreadable booking " + entry.getKey(), e);
+            }
+        }
+        return bookings;
+    }
+
+    @Override
+    public void save(PendingBooking booking) {
+        try {
+            preferences.edit().putString(booking.getKey(), encode(booking).toString()).apply();
+        } catch (JSONException e) {
+            // Only thrown for non-finite numbers, which a booking has none of
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        preferences.edit().remove(key).apply();
+    }
+
+    @Override
+    public void clear() {
+        preferences.edit().clear().apply();
+    }
+
+    private static JSONObject encode(PendingBooking booking) throws JSONException {
+        Doctor doctor = booking.getDoctor();
+        return new JSONObject()
+                .put("doctorId", doctor.getId())
+                .put("doctorName", doctor.getName())
+                .put("clinicId", doctor.getClinicId())
+                .put("workStartMinute", doctor.getWorkStartMinute())
+                .put("workEndMinute", doctor.getWorkEndMinute())
+                .put("slotMinutes", doctor.getSlotMinutes())
+                .put("slotStart", booking.getSlotStartMillis())
+                .put("userId", booking.getUserId())
+                .put("email", booking.getEmail())
+                .put("createdAt", booking.getCreatedAtMillis())
+                .put("attempts", booking.getAttempts())
+                .put("nextAttemptAt", booking.getNextAttemptAtMillis());
+    }
+
+    private static PendingBooking decode(String key, JSONObject json) throws JSONException {
+        Doctor doctor = new Doctor(json.getString("doctorId"), json.getString("doctorName"), json.optString("clinicId", null),
+                json.getInt("workStartMinute"), json.getInt("workEndMinute"), json.getInt("slotMinutes"));
+        return new PendingBooking(key, doctor, json.getLong("slotStart"), json.getString("userId"), json.optString("email", null),
+                json.getLong("createdAt"), json.getInt("attempts"), json.getLong("nextAttemptAt"));
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.appointment;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.example.appointment.core.ProfileStore;
+import com.example.appointment.core.UserProfile;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// ProfileStore in shared preferences; preferences of the profile are stored as "pref.<key>" entries
+public class PreferencesProfileStore implements ProfileStore {
+
+    private static final String PREFERENCES = "session";
+    private static final String KEY_USER_ID = "userId";
+    private static final String KEY_USERNAME = "username";
+    private static final String KEY_EMAIL = "email";
+    private static final String KEY_FETCHED_AT = "fetchedAt";
+    private static final String PREFERENCE_PREFIX = "pref.";
+
+    private final SharedPreferences preferences;
+
+    public PreferencesProfileStore(Context context) {
+        this.preferences = context.getApplicationContext().getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+    }
+
+    @Override
+    public UserProfile load() {
+        String userId = preferences.getString(KEY_USER_ID, null);
+        if (userId == null) {
+            return null;
+        }
+        Map<String, String> userPreferences = new LinkedHashMap<>();
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            if (entry.getKey().startsWith(PREFERENCE_PREFIX)) {
+                userPreferences.put(entry.getKey().substring(PREFERENCE_PREFIX.length()), String.valueOf(entry.getValue()));
+            }
+        }
+        return new UserProfile(userId, preferences.getString(KEY_USERNAME, null), preferences.getString(KEY_EMAIL, null),
+                userPreferences, preferences.getLong(KEY_FETCHED_AT, 0L));
+    }
+
+    @Override
+    public void save(UserProfile profile) {
+        SharedPreferences.Editor editor = preferences.edit().clear()
+                .putString(KEY_USER_ID, profile.getUserId())
+                .putString(KEY_USERNAME, profile.getUsername())
+                .putString(KEY_EMAIL, profile.getEmail())
+                .putLong(KEY_FETCHED_AT, profile.getFetchedAtMillis());
+        for (Map.Entry<String, String> entry : profile.getPreferences().entrySet()) {
+            editor.putString(PREFERENCE_PREFIX + entry.getKey(), entry.getValue());
+        }
+        editor.apply();
+    }
+
+    @Override
+    public void clear() {
+        preferences.edit().clear().apply();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.appointment;
+
+import android.Manifest;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.Build;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import androidx.core.content.ContextCompat;
+
+import com.example.appointment.core.DateLabels;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.time.ZoneId;
+
+// Shows a due reminder from the alarm's extras, without reading the store or Firestore.
+// After a reboot, which drops every alarm, the reminders are registered again from the local store.
+public class ReminderReceiver extends BroadcastReceiver {
+
+    static final String ACTION_REMIND = "com.example.appointment.action.REMIND";
+    private static final String CHANNEL_ID = "appointment_reminders";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (ACTION_REMIND.equals(intent.getAction())) {
+            String key = intent.getStringExtra(AlarmReminderAlarms.EXTRA_KEY);
+            new AlarmReminderAlarms(context).fired(key);
+            notify(context, key, intent.getLongExtra(AlarmReminderAlarms.EXTRA_APPOINTMENT_MILLIS, 0L),
+                    intent.getLongExtra(AlarmReminderAlarms.EXTRA_LEAD_MILLIS, 0L));
+        } else if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) {
+            new AlarmReminderAlarms(context).forgetAll();
+            FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+            if (user == null) {
+                return;
+            }
+            PendingResult result = goAsync();
+            BackgroundWork.executor().execute(() -> {
+                try {
+                    AppointmentReminders.getInstance(context).reschedule(user.getUid());
+                } finally {
+                    result.finish();
+                }
+            });
+        }
+    }
+
+    private static void notify(Context context, String key, long appointmentMillis, long leadMillis) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(context, Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(CHANNEL_ID, "Appointment reminders", NotificationManager.IMPORTANCE_DEFAULT);
+            context.getSystemService(NotificationManager.class).createNotificationChannel(channel);
+        }
+
+        Intent open = new Intent(context, MyAppointmentsActivity.class);
+        PendingIntent contentIntent = PendingIntent.getActivity(context, 0, open, PendingIntent.FLAG_IMMUTABLE);
+        String when = leadMillis >= 24 * 60 * 60_000L ? "Tomorrow" : "Soon";
+        NotificationCompat.Builder notification = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setContentTitle(when + ": appointment at " + DateLabels.dateTime(appointmentMillis, ZoneId.systemDefault()))
+                .setContentText("Tap to see your appointments")
+                .setContentIntent(contentIntent)
+                .setAutoCancel(true)
+                .setCategory(NotificationCompat.CATEGORY_REMINDER);
+        NotificationManagerCompat.from(context).notify(key, 0, notification.build());
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.appointment;
+
+import android.net.Uri;
+import android.os.Bundle;
+import android.widget.Button;
+import android.widget.TextView;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.example.appointment.core.AppointmentExporter;
+import com.example.appointment.core.AppointmentRecords;
+import com.example.appointment.core.BackgroundExecutors;
+import com.example.appointment.core.Clinic;
+import com.example.appointment.core.Doctor;
+import com.example.appointment.core.DoctorRepository;
+import com.example.appointment.core.ImportRecord;
+import com.example.appointment.core.ImportReport;
+import com.example.appointment.core.ScheduleImporter;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+
+// Debug screen for moving clinic schedules in and out: imports appointments from a CSV or JSON Lines
+// file and exports the coming week's appointments of every doctor as CSV
+public class ScheduleTransferActivity extends AppCompatActivity {
+
+    private static final int EXPORT_DAYS = 7;
+
+    // One thread runs the import, the others write its chunks
+    private final ExecutorService executor = BackgroundExecutors.fixed("schedule-transfer", ScheduleImporter.DEFAULT_CHUNKS_IN_FLIGHT + 1);
+    private final FirebaseFirestore firestore = FirebaseFirestore.getInstance();
+    private final TimeZone timeZone = TimeZone.getDefault();
+
+    private TextView statusText;
+    private Button btnImport;
+    private Button btnExport;
+
+    private final ActivityResultLauncher<String[]> importLauncher =
+            registerForActivityResult(new ActivityResultContracts.OpenDocument(), uri -> {
+                if (uri != null) {
+                    importFrom(uri);
+                }
+            });
+
+    private final ActivityResultLauncher<String> exportLauncher =
+            registerForActivityResult(new ActivityResultContracts.CreateDocument("text/csv"), uri -> {
+                if (uri != null) {
+                    exportTo(uri);
+                }
+            });
+
+    @Override
+    protected void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_schedule_transfer);
+
+        statusText = findViewById(R.id.transferStatusText);
+        btnImport = findViewById(R.id.btnImportSchedule);
+        btnExport = findViewById(R.id.btnExportSchedule);
+
+        btnImport.setOnClickListener(v -> importLauncher.launch(new String[]{"text/*", "application/json", "application/x-ndjson"}));
+        btnExport.setOnClickListener(v -> exportLauncher.launch("appointments.csv"));
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        executor.shutdown();
+    }
+
+    private void importFrom(Uri uri) {
+        setBusy("Importing…");
+        new FirestoreDoctorRepository(firestore, executor).fetchDoctors(new DoctorRepository.OnDoctorsListener() {
+            @Override
+            public void onSuccess(List<Doctor> doctors, Map<String, Clinic> clinics) {
+                Map<String, Doctor> doctorsById = new HashMap<>();
+                for (Doctor doctor : doctors) {
+                    doctorsById.put(doctor.getId(), doctor);
+                }
+                // Named after the file, so picking the same file again resumes an interrupted import
+                String importId = "import-" + Integer.toHexString(uri.toString().hashCode());
+                ScheduleImporter importer = new ScheduleImporter(new FirestoreImportSink(firestore),
+                        new FirestoreImportCheckpoints(firestore), executor, timeZone, ClinicRules.getInstance());
+                try (InputStream input = getContentResolver().openInputStream(uri);
+                     BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+                    Iterator<ImportRecord> records = isJsonLines(uri)
+                            ? AppointmentRecords.readJsonLines(reader)
+                            : AppointmentRecords.readCsv(reader);
+                    ImportReport report = importer.run(importId, records, doctorsById);
+                    setDone(describe(report));
+                } catch (Exception e) {
+                    setDone("Import failed: " + e.getMessage() + "\nPick the same file again to resume.");
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                setDone("Loading doctors failed: " + e.getMessage());
+            }
+        });
+    }
+
+    private void exportTo(Uri uri) {
+        setBusy("Exporting…");
+        executor.execute(() -> {
+            Calendar from = Calendar.getInstance(timeZone);
+            from.set(Calendar.HOUR_OF_DAY, 0);
+            from.set(Calendar.MINUTE, 0);
+            from.set(Calendar.SECOND, 0);
+            from.set(Calendar.MILLISECOND, 0);
+            Calendar to = (Calendar) from.clone();
+            to.add(Calendar.DAY_OF_MONTH, EXPORT_DAYS);
+
+            AppointmentExporter exporter = new AppointmentExporter(new FirestoreExportSource(firestore, timeZone));
+            try (OutputStream output = getContentResolver().openOutputStream(uri);
+                 Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8)) {
+                int count = exporter.export(null, from.getTimeInMillis(), to.getTimeInMillis(),
+                        AppointmentRecords.csvWriter(writer, timeZone));
+                setDone("Exported " + count + " appointments");
+            } catch (Exception e) {
+                setDone("Export failed: " + e.getMessage());
+            }
+        });
+    }
+
+    private boolean isJsonLines(Uri uri) {
+        String type = getContentResolver().getType(uri);
+        String path = uri.getLastPathSegment();
+        return (type != null && type.contains("json")) || (path != null && (path.endsWith(".jsonl") || path.endsWith(".json")));
+    }
+
+    private static String describe(ImportReport report) {
+        StringBuilder text = new StringBuilder();
+        if (report.getResumedAfter() > 0) {
+            text.append("Resumed after record ").append(report.getResumedAfter()).append('\n');
+        }
+        text.append("Read ").append(report.getRecordsRead()).append(" records\n")
+                .append("Imported ").append(report.getImported()).append('\n')
+                .append("Slot already taken ").append(report.getAlreadyTaken()).append('\n')
+                .append("Duplicates ").append(report.getDuplicates()).append('\n')
+                .append("Invalid ").append(report.getInvalid()).append('\n');
+        for (ImportReport.Rejection rejection : report.getRejections()) {
+            text.append("\nLine ").append(rejection.getLineNumber()).append(": ").append(rejection.getReason());
+        }
+        return text.toString();
+    }
+
+    private void setBusy(String status) {
+        btnImport.setEnabled(false);
+        btnExport.setEnabled(false);
+        statusText.setText(status);
+    }
+
+    private void setDone(String status) {
+        runOnUiThread(() -> {
+            btnImport.setEnabled(true);
+            btnExport.setEnabled(true);
+            statusText.setText(status);
+        });
+    }
+}
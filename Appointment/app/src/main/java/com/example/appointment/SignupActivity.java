@@ -10,12 +10,12 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.example.appointment.core.UserProfile;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collections;
 
 public class SignupActivity extends AppCompatActivity {
 
@@ -58,7 +58,7 @@ public class SignupActivity extends AppCompatActivity {
             }
 
             // Create user with Firebase
-            firebaseAuth.createUserWithEmailAndPassword(email, password)
+            AppMetrics.timed("auth.signUp", () -> firebaseAuth.createUserWithEmailAndPassword(email, password))
                     .addOnCompleteListener(this, task -> {
                         if (task.isSuccessful()) {
                             // Signup successful, get user information
@@ -101,16 +101,13 @@ public class SignupActivity extends AppCompatActivity {
         // Get Firestore instance
         FirebaseFirestore db = FirebaseFirestore.getInstance();
 
-        // Create a map of user data
-        Map<String, Object> userData = new HashMap<>();
-        userData.put("userId", user.getUid());
-        userData.put("email", user.getEmail());
-        userData.put("username", username);
+        // The new profile is cached right away, so no screen has to read it back
+        UserProfile profile = new UserProfile(user.getUid(), username, user.getEmail(),
+                Collections.<String, String>emptyMap(), System.currentTimeMillis());
+        AppSession.getInstance(this).signedIn(profile);
 
         // Save user data to Firestore
-        db.collection("users")
-                .document(user.getUid())
-                .set(userData)
+        AppMetrics.timed("firestore.saveUser", () -> db.collection(FirestoreProfileSource.USERS).document(user.getUid()).set(profile.toFields()))
                 .addOnSuccessListener(aVoid -> Log.d("Signup", "User successfully saved to Firestore"))
                 .addOnFailureListener(e -> Log.w("Signup", "Error saving user to Firestore", e));
     }
@@ -0,0 +1,22 @@
+package com.example.appointment;
+
+// LiveData value that is handled once, e.g. a dialog to show or a message to toast,
+// so it is not shown again when an observer re-subscribes after a configuration change
+public final class UiEvent<T> {
+
+    private final T content;
+    private boolean handled;
+
+    public UiEvent(T content) {
+        this.content = content;
+    }
+
+    // The content, or null once an observer has taken it
+    public T take() {
+        if (handled) {
+            return null;
+        }
+        handled = true;
+        return content;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.appointment.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.appointment.core.DateLabels;
+
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Formatting an appointment's "dd/MM/yyyy HH:mm" text: the String.format call of the confirm
+// button, a reused SimpleDateFormat as in the appointment list, and a java.time formatter.
+// The row benchmarks compare binding a history row before and after DateLabels; run them with
+// -Pjmh.includes=DateFormattingBenchmark and "-prof gc" to see the bytes allocated per row.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateFormattingBenchmark {
+
+    private static final long TIMESTAMP = 1_718_172_000_000L;
+
+    private Calendar calendar;
+    private SimpleDateFormat simpleDateFormat;
+    private DateTimeFormatter dateTimeFormatter;
+    private ZoneId zone;
+    private StringBuilder rowText;
+
+    @Setup
+    public void setUp() {
+        calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(TIMESTAMP);
+        simpleDateFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.ROOT);
+        dateTimeFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm", Locale.ROOT).withZone(ZoneId.systemDefault());
+        zone = ZoneId.systemDefault();
+        rowText = new StringBuilder(32);
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        return String.format("%02d/%02d/%04d %02d:%02d", calendar.get(Calendar.DAY_OF_MONTH), calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.YEAR), calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE));
+    }
+
+    @Benchmark
+    public String simpleDateFormat() {
+        return simpleDateFormat.format(new Date(TIMESTAMP));
+    }
+
+    @Benchmark
+    public String dateTimeFormatter() {
+        return dateTimeFormatter.format(Instant.ofEpochMilli(TIMESTAMP));
+    }
+
+    // The history row as bound before: string concatenation around a new Date
+    @Benchmark
+    public String legacyRow() {
+        return "Date: " + simpleDateFormat.format(new Date(TIMESTAMP));
+    }
+
+    // The history row as bound now: the shared formatter appends into the row's reused builder
+    @Benchmark
+    public String dateLabelsRow() {
+        rowText.setLength(0);
+        rowText.append("Date: ");
+        return DateLabels.appendDateTime(rowText, TIMESTAMP, zone).toString();
+    }
+}
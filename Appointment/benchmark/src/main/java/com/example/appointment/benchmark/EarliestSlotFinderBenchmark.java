@@ -0,0 +1,135 @@
+package com.example.appointment.benchmark;
+
+import com.example.appointment.core.Appointment;
+import com.example.appointment.core.AppointmentRepository;
+import com.example.appointment.core.DayKeys;
+import com.example.appointment.core.Doctor;
+import com.example.appointment.core.EarliestSlotFinder;
+import com.example.appointment.core.FreeSlot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Time to the 5 earliest free slots as the number of doctors grows, against a backend that answers
+// each day query after 5 ms: one query at a time, the way the booking screen searched, versus
+// EarliestSlotFinder with 64 queries in flight
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EarliestSlotFinderBenchmark {
+
+    private static final TimeZone ISTANBUL = TimeZone.getTimeZone("Europe/Istanbul");
+    private static final int DAYS = 14;
+    private static final int COUNT = 5;
+    private static final long LATENCY_MILLIS = 5;
+
+    @Param({"1", "16", "256"})
+    public int doctorCount;
+
+    @Param({"1", "64"})
+    public int maxConcurrentQueries;
+
+    private ScheduledExecutorService executor;
+    private List<Doctor> doctors;
+    private EarliestSlotFinder finder;
+    private long from;
+
+    @Setup
+    public void setUp() {
+        executor = Executors.newScheduledThreadPool(16);
+        Calendar calendar = Calendar.getInstance(ISTANBUL);
+        calendar.clear();
+        calendar.set(2024, Calendar.JUNE, 12);
+        from = calendar.getTimeInMillis();
+
+        // Doctors with staggered hours whose first three days are almost fully booked
+        DelayedRepository repository = new DelayedRepository(executor);
+        Random random = new Random(doctorCount);
+        doctors = new ArrayList<>(doctorCount);
+        for (int i = 0; i < doctorCount; i++) {
+            Doctor doctor = new Doctor("dr" + i, "Dr " + i, "c" + (i % 4), (8 + i % 3) * 60, (16 + i % 3) * 60, 30);
+            doctors.add(doctor);
+            Calendar day = (Calendar) calendar.clone();
+            for (int d = 0; d < 3; d++) {
+                long firstSlot = doctor.getSlotGrid().firstSlotMillis(day);
+                for (int slot = 0; slot < doctor.getSlotGrid().getSlotCount(); slot++) {
+                    if (random.nextInt(100) < 98) {
+                        repository.add(doctor.getId(), doctor.getSlotGrid().slotStartMillis(firstSlot, slot));
+                    }
+                }
+                day.add(Calendar.DAY_OF_MONTH, 1);
+            }
+        }
+        finder = new EarliestSlotFinder(repository, ISTANBUL, maxConcurrentQueries);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public List<FreeSlot> earliestFreeSlots() throws Exception {
+        CompletableFuture<List<FreeSlot>> found = new CompletableFuture<>();
+        finder.find(doctors, from, DAYS, COUNT, new EarliestSlotFinder.OnSlotsFoundListener() {
+            @Override
+            public void onSuccess(List<FreeSlot> slots) {
+                found.complete(slots);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                found.completeExceptionally(e);
+            }
+        });
+        return found.get();
+    }
+
+    // Day queries answered after LATENCY_MILLIS on the executor, like a network backend
+    static final class DelayedRepository implements AppointmentRepository {
+        private final Map<String, List<Appointment>> days = new HashMap<>();
+        private final ScheduledExecutorService executor;
+
+        DelayedRepository(ScheduledExecutorService executor) {
+            this.executor = executor;
+        }
+
+        void add(String doctorId, long timestamp) {
+            int dayKey = DayKeys.dayKey(timestamp, ISTANBUL);
+            days.computeIfAbsent(doctorId + "/" + dayKey, key -> new ArrayList<>())
+                    .add(new Appointment(doctorId + "_" + timestamp, "u1", "u1@example.com", doctorId, timestamp, dayKey));
+        }
+
+        @Override
+        public void fetchDay(String doctorId, int dayKey, OnAppointmentsListener listener) {
+            List<Appointment> appointments = days.getOrDefault(doctorId + "/" + dayKey, Collections.emptyList());
+            executor.schedule(() -> listener.onSuccess(appointments), LATENCY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+}
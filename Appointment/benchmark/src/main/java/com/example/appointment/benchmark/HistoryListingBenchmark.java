@@ -0,0 +1,121 @@
+package com.example.appointment.benchmark;
+
+import com.example.appointment.core.Appointment;
+import com.example.appointment.core.AppointmentPager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Getting My Appointments to its first screen: sorting and formatting the whole history, as the
+// screen did before paging, versus loading the first page of the upcoming section from an index
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryListingBenchmark {
+
+    private static final long NOW = 1_718_172_000_000L;
+    private static final int PAGE_SIZE = 30;
+
+    @Param({"500", "5000"})
+    public int historySize;
+
+    private List<Appointment> history;
+    private SortedIndex index;
+
+    @Setup
+    public void setUp() {
+        history = new ArrayList<>(historySize);
+        for (int i = 0; i < historySize; i++) {
+            // Spread around now, stored in no particular order
+            long timestamp = NOW + ((i * 7919L) % historySize - historySize / 2) * 1_800_000L;
+            history.add(new Appointment("a" + i, "u1", "u1@example.com", "default", timestamp, 20240612));
+        }
+        index = new SortedIndex(history);
+    }
+
+    @Benchmark
+    public List<String> wholeHistory() {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.ROOT);
+        List<Appointment> sorted = new ArrayList<>(history);
+        Collections.sort(sorted, AppointmentPager.order(AppointmentPager.Section.UPCOMING));
+        List<String> rows = new ArrayList<>(sorted.size());
+        for (Appointment appointment : sorted) {
+            rows.add("Date: " + dateFormat.format(new Date(appointment.getTimestamp())));
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public List<Appointment> firstPage() throws Exception {
+        AppointmentPager pager = new AppointmentPager(index, AppointmentPager.Section.UPCOMING, NOW, PAGE_SIZE);
+        pager.loadNext();
+        return pager.getLoaded();
+    }
+
+    // PageSource over rows kept in (timestamp, id) order, like the SQLite index the app pages with
+    static final class SortedIndex implements AppointmentPager.PageSource {
+        private final Appointment[] ascending;
+
+        SortedIndex(List<Appointment> appointments) {
+            ascending = appointments.toArray(new Appointment[0]);
+            Arrays.sort(ascending, AppointmentPager.order(AppointmentPager.Section.UPCOMING));
+        }
+
+        @Override
+        public List<Appointment> loadPage(AppointmentPager.Section section, long boundaryMillis, Appointment after, int limit) {
+            List<Appointment> page = new ArrayList<>(limit);
+            if (section == AppointmentPager.Section.UPCOMING) {
+                int from = after != null ? positionAfter(after) : firstAtOrAfter(boundaryMillis);
+                for (int i = from; i < ascending.length && page.size() < limit; i++) {
+                    page.add(ascending[i]);
+                }
+            } else {
+                int from = after != null ? positionAfter(after) - 2 : firstAtOrAfter(boundaryMillis) - 1;
+                for (int i = from; i >= 0 && page.size() < limit; i--) {
+                    page.add(ascending[i]);
+                }
+            }
+            return page;
+        }
+
+        private int firstAtOrAfter(long timestamp) {
+            int low = 0;
+            int high = ascending.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ascending[mid].getTimestamp() < timestamp) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private int positionAfter(Appointment row) {
+            int position = Arrays.binarySearch(ascending, row, AppointmentPager.order(AppointmentPager.Section.UPCOMING));
+            return position + 1;
+        }
+    }
+}
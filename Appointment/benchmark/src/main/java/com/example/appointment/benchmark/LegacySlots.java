@@ -0,0 +1,56 @@
+package com.example.appointment.benchmark;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+// The slot code MainActivity ran before SlotGrid, kept as the baseline to compare against
+final class LegacySlots {
+
+    private LegacySlots() {
+    }
+
+    static String[] generateTimeSlots() {
+        List<String> timeSlots = new ArrayList<>();
+        for (int hour = 8; hour <= 18; hour++) {
+            timeSlots.add(String.format("%02d:00", hour));
+            if (hour < 18) {
+                timeSlots.add(String.format("%02d:30", hour));
+            }
+        }
+        return timeSlots.toArray(new String[0]);
+    }
+
+    static String formatTime(Calendar calendar) {
+        int hour = calendar.get(Calendar.HOUR_OF_DAY);
+        int minute = calendar.get(Calendar.MINUTE);
+        return String.format("%02d:%02d", hour, minute);
+    }
+
+    static List<String> availableTimeSlots(Date[] appointments) {
+        String[] timeSlots = generateTimeSlots();
+        List<String> availableTimeSlots = new ArrayList<>();
+
+        List<Calendar> unavailableTimes = new ArrayList<>();
+        for (Date appointmentDate : appointments) {
+            Calendar appointmentCalendar = Calendar.getInstance();
+            appointmentCalendar.setTime(appointmentDate);
+            unavailableTimes.add(appointmentCalendar);
+        }
+
+        for (String timeSlot : timeSlots) {
+            boolean isAvailable = true;
+            for (Calendar appointmentTime : unavailableTimes) {
+                if (timeSlot.equals(formatTime(appointmentTime))) {
+                    isAvailable = false;
+                    break;
+                }
+            }
+            if (isAvailable) {
+                availableTimeSlots.add(timeSlot);
+            }
+        }
+        return availableTimeSlots;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.appointment.benchmark;
+
+import com.example.appointment.core.Metrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost of timing one operation with Metrics, disabled (release builds) and enabled (debug builds)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    private Metrics disabled;
+    private Metrics enabled;
+
+    @Setup
+    public void setUp() {
+        disabled = new Metrics(System::nanoTime);
+        disabled.setEnabled(false);
+        enabled = new Metrics(System::nanoTime);
+        enabled.setEnabled(true);
+    }
+
+    @Benchmark
+    public void disabledSpan() {
+        disabled.start("firestore.fetchDay").end();
+    }
+
+    @Benchmark
+    public void enabledSpan() {
+        enabled.start("firestore.fetchDay").end();
+    }
+
+    // Four threads recording into the same histogram, as concurrent Firestore callbacks do
+    @Benchmark
+    @Threads(4)
+    public void enabledSpanContended() {
+        enabled.start("firestore.fetchDay").end();
+    }
+}
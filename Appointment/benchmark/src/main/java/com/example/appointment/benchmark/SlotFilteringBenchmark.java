@@ -0,0 +1,74 @@
+package com.example.appointment.benchmark;
+
+import com.example.appointment.core.SlotGrid;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Listing the free slots of a day with the given number of appointments:
+// the legacy nested slot/appointment loop versus the SlotGrid bitmap
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlotFilteringBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int appointmentsPerDay;
+
+    private Date[] appointments;
+    private long[] timestamps;
+    private long firstSlot;
+
+    @Setup
+    public void setUp() {
+        Calendar day = Calendar.getInstance();
+        day.set(2024, Calendar.JUNE, 12);
+        SlotGrid grid = SlotGrid.DEFAULT;
+        firstSlot = grid.firstSlotMillis(day);
+
+        Random random = new Random(appointmentsPerDay);
+        appointments = new Date[appointmentsPerDay];
+        timestamps = new long[appointmentsPerDay];
+        for (int i = 0; i < appointmentsPerDay; i++) {
+            // Leave the last slots free so the result is never empty
+            int slot = random.nextInt(grid.getSlotCount() - 3);
+            timestamps[i] = grid.slotStartMillis(firstSlot, slot);
+            appointments[i] = new Date(timestamps[i]);
+        }
+    }
+
+    @Benchmark
+    public List<String> legacyNestedLoop() {
+        return LegacySlots.availableTimeSlots(appointments);
+    }
+
+    @Benchmark
+    public List<String> slotGridBitmap() {
+        SlotGrid grid = SlotGrid.DEFAULT;
+        long booked = grid.bookedMask(firstSlot, timestamps, timestamps.length);
+        List<String> available = new ArrayList<>(grid.freeCount(booked));
+        for (int i = grid.nextFree(booked, 0); i >= 0; i = grid.nextFree(booked, i + 1)) {
+            available.add(grid.label(i));
+        }
+        return available;
+    }
+}
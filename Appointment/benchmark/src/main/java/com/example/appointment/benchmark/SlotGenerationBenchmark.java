@@ -0,0 +1,43 @@
+package com.example.appointment.benchmark;
+
+import com.example.appointment.core.Doctor;
+import com.example.appointment.core.SlotGrid;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Producing the slot labels of a day: String.format per slot versus a doctor's SlotGrid,
+// which is built once per doctor and then only looked up
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlotGenerationBenchmark {
+
+    @Benchmark
+    public String[] legacyGenerateTimeSlots() {
+        return LegacySlots.generateTimeSlots();
+    }
+
+    @Benchmark
+    public void slotGridLabels(Blackhole blackhole) {
+        SlotGrid grid = Doctor.DEFAULT.getSlotGrid();
+        for (int i = 0; i < grid.getSlotCount(); i++) {
+            blackhole.consume(grid.label(i));
+        }
+    }
+
+    @Benchmark
+    public SlotGrid slotGridConstruction() {
+        return new SlotGrid(8 * 60, 30, 21);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.appointment.core;
+
+// Immutable appointment as stored in a doctor's day subcollection.
+// Display strings are not stored; dates are formatted when a row is shown, see DateLabels.
+public final class Appointment {
+
+    private final String id;
+    private final String userId;
+    private final String email;
+    private final String doctorId;
+    private final long timestamp;
+    private final int dayKey;
+    private final String seriesId;
+
+    public Appointment(String id, String userId, String email, String doctorId, long timestamp, int dayKey) {
+        this(id, userId, email, doctorId, timestamp, dayKey, null);
+    }
+
+    public Appointment(String id, String userId, String email, String doctorId, long timestamp, int dayKey, String seriesId) {
+        this.id = id;
+        this.userId = userId;
+        this.email = email;
+        this.doctorId = doctorId;
+        this.timestamp = timestamp;
+        this.dayKey = dayKey;
+        this.seriesId = seriesId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getDoctorId() {
+        return doctorId;
+    }
+
+    // Start of the appointment in epoch millis
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getDayKey() {
+        return dayKey;
+    }
+
+    // Slot ID of the series' first occurrence, or null if booked on its own
+    public String getSeriesId() {
+        return seriesId;
+    }
+}
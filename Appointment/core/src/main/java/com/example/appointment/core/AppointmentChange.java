@@ -0,0 +1,37 @@
+package com.example.appointment.core;
+
+// A changed appointment document; appointment is null when the document no longer counts as booked
+public final class AppointmentChange {
+
+    private final String id;
+    private final String documentPath;
+    private final Appointment appointment;
+    private final long updatedAtMicros;
+
+    public AppointmentChange(String id, String documentPath, Appointment appointment, long updatedAtMicros) {
+        this.id = id;
+        this.documentPath = documentPath;
+        this.appointment = appointment;
+        this.updatedAtMicros = updatedAtMicros;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getDocumentPath() {
+        return documentPath;
+    }
+
+    public Appointment getAppointment() {
+        return appointment;
+    }
+
+    public boolean isRemoved() {
+        return appointment == null;
+    }
+
+    public long getUpdatedAtMicros() {
+        return updatedAtMicros;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.appointment.core;
+
+import java.util.List;
+
+// Streams booked appointments to a file a page at a time, so only one page is ever held in memory
+public class AppointmentExporter {
+
+    public static final int DEFAULT_PAGE_SIZE = 200;
+
+    private final ExportSource source;
+    private final int pageSize;
+
+    public AppointmentExporter(ExportSource source) {
+        this(source, DEFAULT_PAGE_SIZE);
+    }
+
+    public AppointmentExporter(ExportSource source, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+        }
+        this.source = source;
+        this.pageSize = pageSize;
+    }
+
+    // Write the appointments of the doctor (every doctor if doctorId is null) starting in
+    // [fromMillis, toMillis) in start order; returns how many were written
+    public int export(String doctorId, long fromMillis, long toMillis, AppointmentRecords.RecordWriter writer) throws Exception {
+        int written = 0;
+        Appointment after = null;
+        while (true) {
+            List<Appointment> page = source.fetchPage(doctorId, fromMillis, toMillis, after, pageSize);
+            if (page.isEmpty()) {
+                return written;
+            }
+            for (Appointment appointment : page) {
+                writer.write(appointment);
+            }
+            written += page.size();
+            after = page.get(page.size() - 1);
+        }
+    }
+}
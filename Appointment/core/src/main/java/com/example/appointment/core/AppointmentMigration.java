@@ -0,0 +1,85 @@
+package com.example.appointment.core;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+// Moves every appointment of the legacy top-level "appointments" collection into its doctor's day
+// subcollection, in the current schema (millis timestamp, dayKey, participants and updatedAt). Day
+// views, history sync and bookings only look at the subcollections, so until this has run a legacy
+// booking is invisible and its slot can be booked again.
+// Bookings on the default grid get their slot ID, so new bookings of that slot collide with them; a
+// slot that is already taken, e.g. by a legacy double booking, keeps the original ID instead.
+// Documents without a timestamp are left where they are. Safe to run repeatedly.
+public class AppointmentMigration {
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    // The display string older versions stored; it is formatted when shown now
+    static final String LEGACY_FIELD_FORMATTED_DATE = "formattedDate";
+
+    private final LegacyAppointmentStore store;
+    private final TimeZone zone;
+    private final int pageSize;
+
+    public AppointmentMigration(LegacyAppointmentStore store, TimeZone zone) {
+        this(store, zone, DEFAULT_PAGE_SIZE);
+    }
+
+    public AppointmentMigration(LegacyAppointmentStore store, TimeZone zone, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+        }
+        this.store = store;
+        this.zone = zone;
+        this.pageSize = pageSize;
+    }
+
+    // Move the legacy appointments page by page; returns how many were moved. Blocks until done and
+    // throws the first failure, after which running it again picks up the documents still left.
+    public int run() throws Exception {
+        int moved = 0;
+        String afterId = null;
+        while (true) {
+            Map<String, Map<String, Object>> page = store.fetchPage(afterId, pageSize);
+            for (Map.Entry<String, Map<String, Object>> document : page.entrySet()) {
+                if (move(document.getKey(), document.getValue())) {
+                    moved++;
+                }
+                afterId = document.getKey();
+            }
+            if (page.size() < pageSize) {
+                return moved;
+            }
+        }
+    }
+
+    private boolean move(String legacyId, Map<String, Object> stored) throws Exception {
+        Appointment appointment = AppointmentSchema.fromFields(legacyId, stored, zone);
+        if (appointment == null) {
+            return false;
+        }
+
+        Map<String, Object> fields = new HashMap<>(stored);
+        fields.putAll(AppointmentSchema.migrationUpdate(stored, zone));
+        fields.put(AppointmentSchema.FIELD_DOCTOR_ID, appointment.getDoctorId());
+        fields.put(AppointmentSchema.FIELD_PARTICIPANTS, AppointmentSchema.participantsAfter(stored, appointment.getUserId()));
+        fields.remove(LEGACY_FIELD_FORMATTED_DATE);
+
+        SlotGrid slotGrid = Doctor.DEFAULT.getSlotGrid();
+        Calendar day = Calendar.getInstance(zone);
+        day.setTimeInMillis(appointment.getTimestamp());
+        long firstSlotMillis = slotGrid.firstSlotMillis(day);
+        int slot = slotGrid.slotIndex(firstSlotMillis, appointment.getTimestamp());
+        long slotStartMillis = slot >= 0 ? slotGrid.slotStartMillis(firstSlotMillis, slot) : -1;
+        String slotId = slot >= 0
+                ? SlotKeys.slotId(appointment.getDoctorId(), slotStartMillis, slotGrid.getSlotMillis())
+                : legacyId;
+
+        store.move(legacyId, fields,
+                AppointmentPaths.appointment(appointment.getDoctorId(), appointment.getDayKey(), slotId),
+                AppointmentPaths.appointment(appointment.getDoctorId(), appointment.getDayKey(), legacyId),
+                slotStartMillis);
+        return true;
+    }
+}
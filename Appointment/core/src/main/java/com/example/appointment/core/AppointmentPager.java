@@ -0,0 +1,88 @@
+package com.example.appointment.core;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Loads one section of the appointment history a page at a time, continuing after the last loaded row.
+// The cursor is the (timestamp, id) of the last row, so pages stay stable when rows share a timestamp.
+public class AppointmentPager {
+
+    public enum Section {
+        // From the boundary onwards, soonest first
+        UPCOMING,
+        // Before the boundary, most recent first
+        PAST
+    }
+
+    public interface PageSource {
+        // Up to limit appointments of the section that come after the given row, or from the start if after is null
+        List<Appointment> loadPage(Section section, long boundaryMillis, Appointment after, int limit) throws Exception;
+    }
+
+    private static final Comparator<Appointment> ASCENDING = (a, b) -> a.getTimestamp() != b.getTimestamp()
+            ? Long.compare(a.getTimestamp(), b.getTimestamp())
+            : a.getId().compareTo(b.getId());
+
+    private final PageSource source;
+    private final Section section;
+    private final long boundaryMillis;
+    private final int pageSize;
+    private final List<Appointment> loaded = new ArrayList<>();
+    private boolean hasMore = true;
+
+    public AppointmentPager(PageSource source, Section section, long boundaryMillis, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+        }
+        this.source = source;
+        this.section = section;
+        this.boundaryMillis = boundaryMillis;
+        this.pageSize = pageSize;
+    }
+
+    // Order of the rows within a section
+    public static Comparator<Appointment> order(Section section) {
+        return section == Section.UPCOMING ? ASCENDING : ASCENDING.reversed();
+    }
+
+    // Whether the appointment belongs to the section for the given boundary
+    public static boolean inSection(Section section, long boundaryMillis, Appointment appointment) {
+        return section == Section.UPCOMING
+                ? appointment.getTimestamp() >= boundaryMillis
+                : appointment.getTimestamp() < boundaryMillis;
+    }
+
+    public Section getSection() {
+        return section;
+    }
+
+    // Load the next page; returns the number of rows added
+    public synchronized int loadNext() throws Exception {
+        if (!hasMore) {
+            return 0;
+        }
+        Appointment after = loaded.isEmpty() ? null : loaded.get(loaded.size() - 1);
+        List<Appointment> page = source.loadPage(section, boundaryMillis, after, pageSize);
+        loaded.addAll(page);
+        hasMore = page.size() == pageSize;
+        return page.size();
+    }
+
+    // Reload from the start, keeping at least as many rows as were loaded, e.g. after a sync changed the data
+    public synchronized void reload() throws Exception {
+        int wanted = Math.max(pageSize, loaded.size());
+        List<Appointment> page = source.loadPage(section, boundaryMillis, null, wanted);
+        loaded.clear();
+        loaded.addAll(page);
+        hasMore = page.size() == wanted;
+    }
+
+    public synchronized List<Appointment> getLoaded() {
+        return new ArrayList<>(loaded);
+    }
+
+    public synchronized boolean hasMore() {
+        return hasMore;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.appointment.core;
+
+// Where appointments live in Firestore. Each doctor's day has its own subcollection,
+// doctors/{doctorId}/days/{dayKey}/appointments, so a day's reads and booking contention
+// only involve that doctor's bookings. A user's history is a collection group query.
+public final class AppointmentPaths {
+
+    // Collection ID shared by every day subcollection, and by the legacy top-level collection
+    public static final String APPOINTMENTS = "appointments";
+
+    private AppointmentPaths() {
+    }
+
+    public static String day(String doctorId, int dayKey) {
+        return "doctors/" + doctorId + "/days/" + dayKey;
+    }
+
+    public static String dayAppointments(String doctorId, int dayKey) {
+        return day(doctorId, dayKey) + "/" + APPOINTMENTS;
+    }
+
+    public static String appointment(String doctorId, int dayKey, String appointmentId) {
+        return dayAppointments(doctorId, dayKey) + "/" + appointmentId;
+    }
+
+    // Waitlist of the doctor's day, see Waitlist
+    public static String waitlist(String doctorId, int dayKey) {
+        return "doctors/" + doctorId + "/waitlists/" + dayKey;
+    }
+
+    // The clinic's booking rules, see SlotRules
+    public static final String SLOT_RULES = "config/slotRules";
+
+    // Checkpoint of a bulk import, see ScheduleImporter
+    public static String importRun(String importId) {
+        return "imports/" + importId;
+    }
+}
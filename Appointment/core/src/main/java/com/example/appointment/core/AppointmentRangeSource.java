@@ -0,0 +1,8 @@
+package com.example.appointment.core;
+
+// Appointments of a doctor over a span of days, read with one query instead of one per day
+public interface AppointmentRangeSource {
+
+    // Appointments of the doctor starting at or after fromMillis and before toMillis, held slots included
+    void fetchRange(String doctorId, long fromMillis, long toMillis, AppointmentRepository.OnAppointmentsListener listener);
+}
@@ -0,0 +1,352 @@
+package com.example.appointment.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TimeZone;
+
+// Appointment files for import and export, as CSV with a header row or as JSON Lines (one flat object
+// per line). Columns: doctorId, start ("yyyy-MM-dd HH:mm" in the clinic's time zone), userId, email.
+// Files are read and written a line at a time, so their size does not matter.
+public final class AppointmentRecords {
+
+    public static final String COLUMN_DOCTOR_ID = "doctorId";
+    public static final String COLUMN_START = "start";
+    public static final String COLUMN_USER_ID = "userId";
+    public static final String COLUMN_EMAIL = "email";
+
+    private static final DateTimeFormatter START_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm", Locale.ROOT);
+
+    private AppointmentRecords() {
+    }
+
+    // Epoch millis of a start column in the zone, or null if it is not "yyyy-MM-dd HH:mm"
+    public static Long parseStart(String start, TimeZone zone) {
+        if (start == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(start.trim(), START_FORMAT).atZone(zone.toZoneId()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    public static String formatStart(long millis, TimeZone zone) {
+        return START_FORMAT.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), zone.toZoneId()));
+    }
+
+    // Records of a CSV file whose first line names the columns; email is optional.
+    // Read errors surface as UncheckedIOException from the iterator.
+    public static Iterator<ImportRecord> readCsv(BufferedReader reader) throws IOException {
+        String header = reader.readLine();
+        List<String> columns = header != null ? splitCsvLine(header) : null;
+        if (columns == null || !columns.contains(COLUMN_DOCTOR_ID) || !columns.contains(COLUMN_START) || !columns.contains(COLUMN_USER_ID)) {
+            throw new IllegalArgumentException("CSV header must name " + COLUMN_DOCTOR_ID + ", " + COLUMN_START + " and " + COLUMN_USER_ID);
+        }
+        int doctorIdColumn = columns.indexOf(COLUMN_DOCTOR_ID);
+        int startColumn = columns.indexOf(COLUMN_START);
+        int userIdColumn = columns.indexOf(COLUMN_USER_ID);
+        int emailColumn = columns.indexOf(COLUMN_EMAIL);
+
+        return new LineIterator(reader, 1) {
+            @Override
+            ImportRecord parse(long lineNumber, String line) {
+                List<String> values = splitCsvLine(line);
+                if (values == null) {
+                    return ImportRecord.malformed(lineNumber, "Unterminated quote");
+                }
+                if (values.size() != columns.size()) {
+                    return ImportRecord.malformed(lineNumber, "Expected " + columns.size() + " columns, found " + values.size());
+                }
+                return new ImportRecord(lineNumber, values.get(doctorIdColumn), values.get(startColumn),
+                        values.get(userIdColumn), emailColumn >= 0 ? values.get(emailColumn) : null);
+            }
+        };
+    }
+
+    // Records of a JSON Lines file
+    public static Iterator<ImportRecord> readJsonLines(BufferedReader reader) {
+        return new LineIterator(reader, 0) {
+            @Override
+            ImportRecord parse(long lineNumber, String line) {
+                Map<String, String> fields = parseFlatJson(line);
+                if (fields == null) {
+                    return ImportRecord.malformed(lineNumber, "Not a flat JSON object");
+                }
+                return new ImportRecord(lineNumber, fields.get(COLUMN_DOCTOR_ID), fields.get(COLUMN_START),
+                        fields.get(COLUMN_USER_ID), fields.get(COLUMN_EMAIL));
+            }
+        };
+    }
+
+    // Writes the header row right away
+    public static RecordWriter csvWriter(Writer out, TimeZone zone) throws IOException {
+        out.write(COLUMN_DOCTOR_ID + "," + COLUMN_START + "," + COLUMN_USER_ID + "," + COLUMN_EMAIL + "\n");
+        return appointment -> {
+            out.write(csvValue(appointment.getDoctorId()));
+            out.write(',');
+            out.write(formatStart(appointment.getTimestamp(), zone));
+            out.write(',');
+            out.write(csvValue(appointment.getUserId()));
+            out.write(',');
+            out.write(csvValue(appointment.getEmail()));
+            out.write('\n');
+        };
+    }
+
+    public static RecordWriter jsonLinesWriter(Writer out, TimeZone zone) {
+        return appointment -> {
+            StringBuilder line = new StringBuilder(128).append('{');
+            appendJsonField(line, COLUMN_DOCTOR_ID, appointment.getDoctorId()).append(',');
+            appendJsonField(line, COLUMN_START, formatStart(appointment.getTimestamp(), zone)).append(',');
+            appendJsonField(line, COLUMN_USER_ID, appointment.getUserId()).append(',');
+            appendJsonField(line, COLUMN_EMAIL, appointment.getEmail()).append("}\n");
+            out.write(line.toString());
+        };
+    }
+
+    public interface RecordWriter {
+        void write(Appointment appointment) throws IOException;
+    }
+
+    // Fields of one CSV line; quoted fields may contain commas and doubled quotes. Null if a quote is not closed.
+    static List<String> splitCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    value.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString().trim());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        values.add(value.toString().trim());
+        return values;
+    }
+
+    private static String csvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"").replace('\n', ' ') + '"';
+    }
+
+    // Members of a one-level JSON object as text, with JSON null as null; null if the line is anything else
+    static Map<String, String> parseFlatJson(String line) {
+        JsonCursor json = new JsonCursor(line);
+        Map<String, String> fields = new HashMap<>();
+        if (!json.consume('{')) {
+            return null;
+        }
+        if (json.consume('}')) {
+            return json.atEnd() ? fields : null;
+        }
+        do {
+            String name = json.string();
+            if (name == null || !json.consume(':')) {
+                return null;
+            }
+            String value;
+            if (json.peek() == '"') {
+                value = json.string();
+                if (value == null) {
+                    return null;
+                }
+            } else {
+                String literal = json.literal();
+                if (literal == null) {
+                    return null;
+                }
+                value = literal.equals("null") ? null : literal;
+            }
+            fields.put(name, value);
+        } while (json.consume(','));
+        return json.consume('}') && json.atEnd() ? fields : null;
+    }
+
+    private static StringBuilder appendJsonField(StringBuilder out, String name, String value) {
+        appendJsonString(out, name).append(':');
+        return value != null ? appendJsonString(out, value) : out.append("null");
+    }
+
+    private static StringBuilder appendJsonString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.append('"');
+    }
+
+    private static final class JsonCursor {
+
+        private final String text;
+        private int position;
+
+        JsonCursor(String text) {
+            this.text = text;
+        }
+
+        char peek() {
+            skipWhitespace();
+            return position < text.length() ? text.charAt(position) : 0;
+        }
+
+        boolean consume(char expected) {
+            if (peek() != expected) {
+                return false;
+            }
+            position++;
+            return true;
+        }
+
+        boolean atEnd() {
+            skipWhitespace();
+            return position == text.length();
+        }
+
+        // A quoted string with its escapes resolved, or null if malformed
+        String string() {
+            if (!consume('"')) {
+                return null;
+            }
+            StringBuilder value = new StringBuilder();
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    return null;
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            return null;
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            return null;
+                        }
+                        position += 4;
+                        break;
+                    default: value.append(escaped);
+                }
+            }
+            return null;
+        }
+
+        // A number, true, false or null as written; objects and arrays are not supported
+        String literal() {
+            skipWhitespace();
+            int start = position;
+            while (position < text.length() && ",}: \t".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            return literal.isEmpty() || literal.indexOf('{') >= 0 || literal.indexOf('[') >= 0 ? null : literal;
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+    }
+
+    // Reads one record per non-blank line, counting lines from 1 after the given header lines
+    private abstract static class LineIterator implements Iterator<ImportRecord> {
+
+        private final BufferedReader reader;
+        private long lineNumber;
+        private ImportRecord next;
+
+        LineIterator(BufferedReader reader, long headerLines) {
+            this.reader = reader;
+            this.lineNumber = headerLines;
+        }
+
+        abstract ImportRecord parse(long lineNumber, String line);
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            try {
+                String line;
+                do {
+                    line = reader.readLine();
+                    lineNumber++;
+                } while (line != null && line.trim().isEmpty());
+                if (line == null) {
+                    return false;
+                }
+                next = parse(lineNumber, line);
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public ImportRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ImportRecord record = next;
+            next = null;
+            return record;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.appointment.core;
+
+import java.util.List;
+
+// Typed access to stored appointments
+public interface AppointmentRepository {
+
+    // Fetch all appointments of the doctor on the day with the given yyyymmdd key
+    void fetchDay(String doctorId, int dayKey, OnAppointmentsListener listener);
+
+    interface OnAppointmentsListener {
+        void onSuccess(List<Appointment> appointments);
+        void onFailure(Exception e);
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.appointment.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+// Field names of appointment documents and conversion of stored fields to their canonical types.
+// "timestamp" is always epoch millis stored as a number; "dayKey" is derived from it.
+public final class AppointmentSchema {
+
+    public static final String FIELD_USER_ID = "userId";
+    public static final String FIELD_EMAIL = "email";
+    public static final String FIELD_DOCTOR_ID = "doctorId";
+    public static final String FIELD_TIMESTAMP = "timestamp";
+    public static final String FIELD_DAY_KEY = "dayKey";
+    // Appointments booked together as a series share the slot ID of the first occurrence here
+    public static final String FIELD_SERIES_ID = "seriesId";
+    // Server time of the last write, used to sync only changed documents
+    public static final String FIELD_UPDATED_AT = "updatedAt";
+    // Every user the slot was ever booked by. Incremental sync queries this rather than userId, so a
+    // patient whose cancelled slot is booked by someone else still sees the change and drops it.
+    public static final String FIELD_PARTICIPANTS = "participants";
+    // Absent while the slot is booked by userId. A cancelled slot keeps its document, with userId
+    // and participants still set, so the change reaches that user's incremental sync; see WaitlistEngine.
+    public static final String FIELD_STATUS = "status";
+    public static final String STATUS_CANCELLED = "cancelled";
+    // Still taken, reserved for the waiting patient in heldFor until holdExpiresAt (epoch millis)
+    public static final String STATUS_HELD = "held";
+    public static final String FIELD_HELD_FOR = "heldFor";
+    public static final String FIELD_HOLD_EXPIRES_AT = "holdExpiresAt";
+    // Reserved for leasedBy while they confirm, until leaseExpiresAt (epoch millis); free once it expires
+    public static final String STATUS_LEASED = "leased";
+    public static final String FIELD_LEASED_BY = "leasedBy";
+    public static final String FIELD_LEASE_EXPIRES_AT = "leaseExpiresAt";
+    // Idempotency key of the queued booking that wrote the slot, see BookingQueue; absent otherwise
+    public static final String FIELD_BOOKING_KEY = "bookingKey";
+
+    private AppointmentSchema() {
+    }
+
+    // Epoch millis of a stored timestamp, whether it was written as a number or a date; null if missing
+    public static Long timestampMillis(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        }
+        return null;
+    }
+
+    // Map a stored document to the Appointment booked in it, or null if it has no usable timestamp
+    // or is not booked any more (cancelled, or held for a waiting patient)
+    public static Appointment fromFields(String id, Map<String, Object> fields, TimeZone zone) {
+        if (fields.get(FIELD_STATUS) != null) {
+            return null;
+        }
+        return toAppointment(id, fields, (String) fields.get(FIELD_USER_ID), zone);
+    }
+
+    // Like fromFields, but a slot held for a waiting patient or under an unexpired lease maps to an
+    // appointment of that patient, so views of the day keep showing it as taken
+    public static Appointment occupantFromFields(String id, Map<String, Object> fields, TimeZone zone, long nowMillis) {
+        Object status = fields.get(FIELD_STATUS);
+        if (STATUS_HELD.equals(status)) {
+            return toAppointment(id, fields, (String) fields.get(FIELD_HELD_FOR), zone);
+        }
+        if (STATUS_LEASED.equals(status)) {
+            return isLeaseExpired(fields, nowMillis) ? null : toAppointment(id, fields, (String) fields.get(FIELD_LEASED_BY), zone);
+        }
+        return fromFields(id, fields, zone);
+    }
+
+    // Whether the user may book or lease a slot with these stored fields (null if there is no document):
+    // it is free, cancelled, leased to the user, or its lease has expired
+    public static boolean isFreeFor(Map<String, Object> fields, String userId, long nowMillis) {
+        if (fields == null) {
+            return true;
+        }
+        Object status = fields.get(FIELD_STATUS);
+        if (STATUS_LEASED.equals(status)) {
+            return userId.equals(fields.get(FIELD_LEASED_BY)) || isLeaseExpired(fields, nowMillis);
+        }
+        return STATUS_CANCELLED.equals(status);
+    }
+
+    // Whether a slot with these stored fields (null if there is no document) is booked, as counted in
+    // DaySummary; held and leased slots are not booked yet
+    public static boolean isBooked(Map<String, Object> fields) {
+        return fields != null && fields.get(FIELD_STATUS) == null && fields.get(FIELD_USER_ID) != null;
+    }
+
+    // Whether the slot is booked by the booking with this idempotency key, i.e. a retry of it already went through
+    public static boolean isBookedWith(Map<String, Object> fields, String bookingKey) {
+        return bookingKey != null && isBooked(fields) && bookingKey.equals(fields.get(FIELD_BOOKING_KEY));
+    }
+
+    // Participants to write when the user books a slot with these stored fields (null if there is no
+    // document): the earlier ones, or the earlier userId of documents written before the field, and the user
+    public static List<String> participantsAfter(Map<String, Object> fields, String userId) {
+        List<String> participants = new ArrayList<>();
+        if (fields != null) {
+            Object stored = fields.get(FIELD_PARTICIPANTS);
+            if (stored instanceof List) {
+                for (Object participant : (List<?>) stored) {
+                    if (participant instanceof String && !participants.contains(participant)) {
+                        participants.add((String) participant);
+                    }
+                }
+            }
+            Object earlier = fields.get(FIELD_USER_ID);
+            if (earlier instanceof String && !participants.contains(earlier)) {
+                participants.add((String) earlier);
+            }
+        }
+        if (!participants.contains(userId)) {
+            participants.add(userId);
+        }
+        return participants;
+    }
+
+    private static boolean isLeaseExpired(Map<String, Object> fields, long nowMillis) {
+        Long expiresAt = timestampMillis(fields.get(FIELD_LEASE_EXPIRES_AT));
+        return expiresAt == null || nowMillis >= expiresAt;
+    }
+
+    private static Appointment toAppointment(String id, Map<String, Object> fields, String userId, TimeZone zone) {
+        Long timestamp = timestampMillis(fields.get(FIELD_TIMESTAMP));
+        if (timestamp == null) {
+            return null;
+        }
+        Object doctorId = fields.get(FIELD_DOCTOR_ID);
+        return new Appointment(id,
+                userId,
+                (String) fields.get(FIELD_EMAIL),
+                doctorId != null ? (String) doctorId : SlotKeys.DEFAULT_DOCTOR_ID,
+                timestamp,
+                DayKeys.dayKey(timestamp, zone),
+                (String) fields.get(FIELD_SERIES_ID));
+    }
+
+    // Update that brings a stored document to the current schema; empty if it is already current
+    public static Map<String, Object> migrationUpdate(Map<String, Object> fields, TimeZone zone) {
+        Object storedTimestamp = fields.get(FIELD_TIMESTAMP);
+        Long timestamp = timestampMillis(storedTimestamp);
+        if (timestamp == null) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, Object> update = new HashMap<>();
+        if (!(storedTimestamp instanceof Long)) {
+            update.put(FIELD_TIMESTAMP, timestamp);
+        }
+        int dayKey = DayKeys.dayKey(timestamp, zone);
+        Object storedDayKey = fields.get(FIELD_DAY_KEY);
+        if (!(storedDayKey instanceof Number) || ((Number) storedDayKey).longValue() != dayKey) {
+            update.put(FIELD_DAY_KEY, dayKey);
+        }
+        return update;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.appointment.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Pulls only the appointments changed since the last sync into the local store
+public class AppointmentSync {
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    private final RemoteAppointmentSource remote;
+    private final LocalAppointmentStore local;
+    private final int pageSize;
+
+    public AppointmentSync(RemoteAppointmentSource remote, LocalAppointmentStore local) {
+        this(remote, local, DEFAULT_PAGE_SIZE);
+    }
+
+    public AppointmentSync(RemoteAppointmentSource remote, LocalAppointmentStore local, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+        }
+        this.remote = remote;
+        this.local = local;
+        this.pageSize = pageSize;
+    }
+
+    // Sync the user's appointments page by page; returns the number of changes applied.
+    // Each page is applied together with its cursor, so an interrupted sync resumes where it stopped.
+    public int sync(String userId) throws Exception {
+        SyncCursor cursor = local.getCursor(userId);
+        int applied = 0;
+        while (true) {
+            List<AppointmentChange> changes = remote.fetchChanges(userId, cursor, pageSize);
+            if (changes.isEmpty()) {
+                return applied;
+            }
+
+            List<Appointment> upserts = new ArrayList<>();
+            List<String> removedIds = new ArrayList<>();
+            for (AppointmentChange change : changes) {
+                // A slot the user cancelled may have been booked by someone else since
+                if (change.isRemoved() || !userId.equals(change.getAppointment().getUserId())) {
+                    removedIds.add(change.getId());
+                } else {
+                    upserts.add(change.getAppointment());
+                }
+                if (cursor.isBefore(change.getUpdatedAtMicros(), change.getDocumentPath())) {
+                    cursor = new SyncCursor(change.getUpdatedAtMicros(), change.getDocumentPath());
+                }
+            }
+            local.apply(userId, upserts, removedIds, cursor);
+            applied += changes.size();
+
+            if (changes.size() < pageSize) {
+                return applied;
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.appointment.core;
+
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+// What a patient does without any screen: look at a doctor's free slots, book one and list a day.
+// Built only on core interfaces, so the same flows run in the app and headless, e.g. in a load test.
+// Listeners are called on whatever thread the repository or slot store answers on.
+public class BookingClient {
+
+    private final AppointmentRepository repository;
+    private final BookingService bookingService;
+    private final SlotRulesSource rules;
+    private final Clock clock;
+
+    public BookingClient(AppointmentRepository repository, SlotStore slotStore, TimeZone timeZone, SlotRulesSource rules, Clock clock) {
+        this.repository = repository;
+        this.bookingService = new BookingService(slotStore, timeZone, rules);
+        this.rules = rules;
+        this.clock = clock;
+    }
+
+    // The doctor's day with the slots that are free and can still be booked now
+    public void availability(Doctor doctor, Calendar day, DaySlotsLoader.OnDaySlotsListener listener) {
+        int dayKey = DayKeys.dayKey(day);
+        long firstSlotMillis = doctor.getSlotGrid().firstSlotMillis(day);
+        long openMask = rules.getRules().bookableMask(doctor, day, clock.currentTimeMillis());
+        repository.fetchDay(doctor.getId(), dayKey, new AppointmentRepository.OnAppointmentsListener() {
+            @Override
+            public void onSuccess(List<Appointment> appointments) {
+                listener.onSuccess(DaySlots.of(doctor, dayKey, firstSlotMillis, appointments, openMask));
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                listener.onFailure(e);
+            }
+        });
+    }
+
+    public void book(Doctor doctor, long slotStartMillis, String userId, String email, BookingService.OnBookingListener listener) {
+        bookingService.book(doctor, slotStartMillis, userId, email, listener);
+    }
+
+    // The appointments of the doctor's day with the given yyyymmdd key
+    public void listDay(String doctorId, int dayKey, AppointmentRepository.OnAppointmentsListener listener) {
+        repository.fetchDay(doctorId, dayKey, listener);
+    }
+
+    // Book any free slot of the doctor's day, trying up to maxAttempts slots. A slot that turns out
+    // taken is not picked again even if a stale read still shows it free. random picks among the free
+    // slots, spreading patients over the day; with null the earliest one is picked.
+    public void bookAnyFree(Doctor doctor, Calendar day, String userId, String email, int maxAttempts, Random random,
+                            OnAnyFreeListener listener) {
+        if (maxAttempts <= 0) {
+            listener.onFailure(new IllegalArgumentException("maxAttempts must be positive: " + maxAttempts));
+            return;
+        }
+        attempt(doctor, (Calendar) day.clone(), userId, email, maxAttempts, random, 0L, 0, listener);
+    }
+
+    private void attempt(Doctor doctor, Calendar day, String userId, String email, int attemptsLeft, Random random,
+                         long takenMask, int conflicts, OnAnyFreeListener listener) {
+        availability(doctor, day, new DaySlotsLoader.OnDaySlotsListener() {
+            @Override
+            public void onSuccess(DaySlots daySlots) {
+                SlotGrid grid = doctor.getSlotGrid();
+                long unavailable = daySlots.getUnavailableMask() | takenMask;
+                int slot = pick(grid, unavailable, random);
+                if (slot < 0) {
+                    listener.onNoFreeSlot(conflicts);
+                    return;
+                }
+                long slotStartMillis = grid.slotStartMillis(daySlots.getFirstSlotMillis(), slot);
+                book(doctor, slotStartMillis, userId, email, new BookingService.OnBookingListener() {
+                    @Override
+                    public void onBooked(String appointmentId) {
+                        listener.onBooked(appointmentId, slotStartMillis, conflicts);
+                    }
+
+                    @Override
+                    public void onSlotTaken(String appointmentId) {
+                        if (attemptsLeft == 1) {
+                            listener.onNoFreeSlot(conflicts + 1);
+                        } else {
+                            attempt(doctor, day, userId, email, attemptsLeft - 1, random, takenMask | 1L << slot,
+                                    conflicts + 1, listener);
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        listener.onFailure(e);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                listener.onFailure(e);
+            }
+        });
+    }
+
+    // A free slot, or -1 if there is none
+    private static int pick(SlotGrid grid, long unavailable, Random random) {
+        int free = grid.freeCount(unavailable);
+        if (free == 0) {
+            return -1;
+        }
+        int slot = grid.nextFree(unavailable, 0);
+        for (int skip = random != null ? random.nextInt(free) : 0; skip > 0; skip--) {
+            slot = grid.nextFree(unavailable, slot + 1);
+        }
+        return slot;
+    }
+
+    public interface OnAnyFreeListener {
+        // conflicts counts the slots that were taken by someone else first
+        void onBooked(String appointmentId, long slotStartMillis, int conflicts);
+        // The day has no free slot left, or every attempt found its slot taken
+        void onNoFreeSlot(int conflicts);
+        void onFailure(Exception e);
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.appointment.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Outbound queue of bookings. A booking is accepted and stored on the device at once, then sent in
+// the background, one at a time and oldest first. Each booking has an idempotency key that every
+// attempt sends along, so an attempt whose result was lost can be repeated without booking twice.
+// Failures without an answer are retried with exponential backoff, or sooner through retryNow()
+// when connectivity returns; a booking whose slot has started by then is dropped, and so is one the
+// backend refuses, see SlotStoreException.isRetryable.
+public class BookingQueue {
+
+    public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 2_000L;
+    public static final long DEFAULT_MAX_BACKOFF_MILLIS = 5 * 60_000L;
+
+    private final PendingBookingStore store;
+    private final BookingService bookingService;
+    private final Clock clock;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final List<OnBookingOutcomeListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Key -> booking, oldest first; read from the store on first use
+    private Map<String, PendingBooking> pending;
+    // Key of the booking being sent, or null while the queue is idle
+    private String sending;
+    // retryNow() was called while a booking was being sent
+    private boolean retryRequested;
+
+    public BookingQueue(PendingBookingStore store, BookingService bookingService) {
+        this(store, bookingService, Clock.SYSTEM, DEFAULT_INITIAL_BACKOFF_MILLIS, DEFAULT_MAX_BACKOFF_MILLIS);
+    }
+
+    public BookingQueue(PendingBookingStore store, BookingService bookingService, Clock clock,
+                        long initialBackoffMillis, long maxBackoffMillis) {
+        if (initialBackoffMillis <= 0 || maxBackoffMillis < initialBackoffMillis) {
+            throw new IllegalArgumentException("Backoff must be positive and at most maxBackoffMillis: " + initialBackoffMillis);
+        }
+        this.store = store;
+        this.bookingService = bookingService;
+        this.clock = clock;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    // Accept the booking and start sending it. Booking the same slot again while it is pending,
+    // e.g. by tapping twice, returns the booking already queued.
+    public PendingBooking enqueue(Doctor doctor, long slotStartMillis, String userId, String email) {
+        PendingBooking booking = null;
+        synchronized (this) {
+            for (PendingBooking queued : pending().values()) {
+                if (queued.isSameSlot(doctor, slotStartMillis, userId)) {
+                    booking = queued;
+                    break;
+                }
+            }
+            if (booking == null) {
+                long now = clock.currentTimeMillis();
+                booking = new PendingBooking(UUID.randomUUID().toString(), doctor, slotStartMillis, userId, email, now, 0, now);
+                store.save(booking);
+                pending.put(booking.getKey(), booking);
+            }
+        }
+        drain();
+        return booking;
+    }
+
+    // Bookings not confirmed yet, oldest first
+    public synchronized List<PendingBooking> getPending() {
+        return new ArrayList<>(pending().values());
+    }
+
+    // When the next booking waiting out its backoff is due, or -1 if none is waiting
+    public synchronized long getNextAttemptAtMillis() {
+        long next = -1;
+        for (PendingBooking booking : pending().values()) {
+            if (!booking.getKey().equals(sending) && (next < 0 || booking.getNextAttemptAtMillis() < next)) {
+                next = booking.getNextAttemptAtMillis();
+            }
+        }
+        return next;
+    }
+
+    // Send the bookings that are due, unless a send is already running
+    public void drain() {
+        sendNext(null);
+    }
+
+    // Send every booking now, skipping their backoff, e.g. when connectivity returns
+    public void retryNow() {
+        synchronized (this) {
+            if (sending != null) {
+                retryRequested = true;
+                return;
+            }
+            makeAllDue();
+        }
+        sendNext(null);
+    }
+
+    // Forget every pending booking, e.g. on sign-out; one being sent may still go through
+    public synchronized void clear() {
+        pending = new LinkedHashMap<>();
+        retryRequested = false;
+        store.clear();
+    }
+
+    public void addListener(OnBookingOutcomeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(OnBookingOutcomeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private Map<String, PendingBooking> pending() {
+        if (pending == null) {
+            List<PendingBooking> stored = new ArrayList<>(store.load());
+            Collections.sort(stored, Comparator.comparingLong(PendingBooking::getCreatedAtMillis));
+            pending = new LinkedHashMap<>();
+            for (PendingBooking booking : stored) {
+                pending.put(booking.getKey(), booking);
+            }
+        }
+        return pending;
+    }
+
+    private void makeAllDue() {
+        long now = clock.currentTimeMillis();
+        for (Map.Entry<String, PendingBooking> entry : pending().entrySet()) {
+            PendingBooking booking = entry.getValue();
+            if (booking.getNextAttemptAtMillis() > now) {
+                entry.setValue(booking.withNextAttempt(booking.getAttempts(), now));
+            }
+        }
+    }
+
+    // Send the oldest due booking, and the next one once it has an answer. previous is the booking
+    // that just got its answer, or null to start a pass if none is running.
+    private void sendNext(PendingBooking previous) {
+        long now = clock.currentTimeMillis();
+        List<PendingBooking> passed = new ArrayList<>();
+        PendingBooking next = null;
+        synchronized (this) {
+            if (sending != null && (previous == null || !sending.equals(previous.getKey()))) {
+                return;
+            }
+            for (Iterator<PendingBooking> it = pending().values().iterator(); it.hasNext(); ) {
+                PendingBooking booking = it.next();
+                if (booking.getSlotStartMillis() <= now) {
+                    it.remove();
+                    store.remove(booking.getKey());
+                    passed.add(booking);
+                } else if (next == null && booking.getNextAttemptAtMillis() <= now) {
+                    next = booking;
+                }
+            }
+            sending = next != null ? next.getKey() : null;
+        }
+        for (PendingBooking booking : passed) {
+            notifyDropped(booking, new IllegalStateException("The appointment time has passed"));
+        }
+        if (next == null) {
+            return;
+        }
+
+        PendingBooking booking = next;
+        bookingService.book(booking.getDoctor(), booking.getSlotStartMillis(), booking.getUserId(), booking.getEmail(), booking.getKey(),
+                new BookingService.OnBookingListener() {
+                    @Override
+                    public void onBooked(String appointmentId) {
+                        if (finished(booking)) {
+                            for (OnBookingOutcomeListener listener : listeners) {
+                                listener.onBooked(booking, appointmentId);
+                            }
+                        }
+                        sendNext(booking);
+                    }
+
+                    @Override
+                    public void onSlotTaken(String appointmentId) {
+                        if (finished(booking)) {
+                            for (OnBookingOutcomeListener listener : listeners) {
+                                listener.onSlotTaken(booking);
+                            }
+                        }
+                        sendNext(booking);
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        if (isPermanent(e)) {
+                            // Sending it again cannot help
+                            if (finished(booking)) {
+                                notifyDropped(booking, e);
+                            }
+                            sendNext(booking);
+                        } else {
+                            deferred(booking, e);
+                        }
+                    }
+                });
+    }
+
+    // Remove a booking that got its answer; false if it was cleared meanwhile
+    private synchronized boolean finished(PendingBooking booking) {
+        if (pending().remove(booking.getKey()) == null) {
+            return false;
+        }
+        store.remove(booking.getKey());
+        return true;
+    }
+
+    // Back off after a failure without an answer. The bookings after it would most likely fail the
+    // same way, so the pass ends here unless connectivity came back while it was being sent.
+    private void deferred(PendingBooking booking, Exception e) {
+        PendingBooking retried = null;
+        boolean retry;
+        synchronized (this) {
+            if (pending().containsKey(booking.getKey())) {
+                int attempts = booking.getAttempts() + 1;
+                retried = booking.withNextAttempt(attempts, clock.currentTimeMillis() + backoffMillis(attempts));
+                pending.put(retried.getKey(), retried);
+                store.save(retried);
+            }
+            retry = retryRequested;
+            retryRequested = false;
+            if (retry) {
+                makeAllDue();
+            } else {
+                sending = null;
+            }
+        }
+        if (retried != null) {
+            for (OnBookingOutcomeListener listener : listeners) {
+                listener.onDeferred(retried, e);
+            }
+        }
+        if (retry) {
+            sendNext(booking);
+        }
+    }
+
+    // Not a slot of the doctor, or a write the backend refuses, e.g. for lack of permission
+    private static boolean isPermanent(Exception e) {
+        return e instanceof IllegalArgumentException
+                || e instanceof SlotStoreException && !((SlotStoreException) e).isRetryable();
+    }
+
+    // initialBackoffMillis doubled for every attempt after the first, up to maxBackoffMillis
+    private long backoffMillis(int attempts) {
+        long delay = initialBackoffMillis;
+        for (int i = 1; i < attempts && delay < maxBackoffMillis; i++) {
+            delay *= 2;
+        }
+        return Math.min(delay, maxBackoffMillis);
+    }
+
+    private void notifyDropped(PendingBooking booking, Exception e) {
+        for (OnBookingOutcomeListener listener : listeners) {
+            listener.onDropped(booking, e);
+        }
+    }
+
+    // Called on the thread the backend answered on
+    public interface OnBookingOutcomeListener {
+        void onBooked(PendingBooking booking, String appointmentId);
+        // Someone else booked the slot first; the booking is dropped
+        void onSlotTaken(PendingBooking booking);
+        // The attempt failed without an answer; the booking is sent again from booking.getNextAttemptAtMillis()
+        void onDeferred(PendingBooking booking, Exception e);
+        // The booking cannot be sent any more, e.g. its slot has started or the backend refused it
+        void onDropped(PendingBooking booking, Exception e);
+    }
+}
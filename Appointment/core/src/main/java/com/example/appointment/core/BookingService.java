@@ -0,0 +1,228 @@
+package com.example.appointment.core;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+// Books a slot with a single create-if-absent write on the slot's deterministic document
+// in the doctor's day subcollection. A slot can be leased while the user confirms, so that
+// nobody else takes it between picking a time and booking it. Only slots open under the SlotRules
+// can be booked; how far ahead is up to the screen offering them.
+public class BookingService {
+
+    // Upper bound for a recurring series, well within the write limit of one transaction
+    public static final int MAX_SERIES_OCCURRENCES = 52;
+    // How long a picked slot stays reserved for confirming
+    public static final long DEFAULT_LEASE_MILLIS = 3 * 60 * 1000L;
+
+    private final SlotStore slotStore;
+    private final TimeZone timeZone;
+    private final Clock clock;
+    private final long leaseMillis;
+    private final SlotRulesSource rules;
+
+    public BookingService(SlotStore slotStore, TimeZone timeZone) {
+        this(slotStore, timeZone, SlotRulesSource.DEFAULT);
+    }
+
+    public BookingService(SlotStore slotStore, TimeZone timeZone, SlotRulesSource rules) {
+        this(slotStore, timeZone, Clock.SYSTEM, DEFAULT_LEASE_MILLIS, rules);
+    }
+
+    public BookingService(SlotStore slotStore, TimeZone timeZone, Clock clock, long leaseMillis) {
+        this(slotStore, timeZone, clock, leaseMillis, SlotRulesSource.DEFAULT);
+    }
+
+    public BookingService(SlotStore slotStore, TimeZone timeZone, Clock clock, long leaseMillis, SlotRulesSource rules) {
+        if (leaseMillis <= 0) {
+            throw new IllegalArgumentException("leaseMillis must be positive: " + leaseMillis);
+        }
+        this.slotStore = slotStore;
+        this.timeZone = timeZone;
+        this.clock = clock;
+        this.leaseMillis = leaseMillis;
+        this.rules = rules;
+    }
+
+    // Reserve the slot for the user while they confirm; booking it later converts the lease
+    public void lease(Doctor doctor, long slotStartMillis, String userId, OnLeaseListener listener) {
+        Appointment slot = slotOf(doctor, slotStartMillis, userId, null);
+        if (slot == null) {
+            listener.onFailure(new IllegalArgumentException("Not a bookable slot of " + doctor.getName()));
+            return;
+        }
+
+        long expiresAtMillis = clock.currentTimeMillis() + leaseMillis;
+        slotStore.lease(pathOf(slot), slot, expiresAtMillis, new SlotStore.OnCreateListener() {
+            @Override
+            public void onCreated() {
+                listener.onLeased(slot.getId(), expiresAtMillis);
+            }
+
+            @Override
+            public void onAlreadyExists() {
+                listener.onSlotTaken(slot.getId());
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                listener.onFailure(e);
+            }
+        });
+    }
+
+    // Give the slot back when the user picks another time or leaves
+    public void releaseLease(Doctor doctor, long slotStartMillis, String userId) {
+        Appointment slot = slotOf(doctor, slotStartMillis, userId, null);
+        if (slot != null) {
+            slotStore.release(pathOf(slot), userId);
+        }
+    }
+
+    // Book the slot starting at slotStartMillis with the given doctor for the user
+    public void book(Doctor doctor, long slotStartMillis, String userId, String email, OnBookingListener listener) {
+        book(doctor, slotStartMillis, userId, email, null, listener);
+    }
+
+    // Like book, tagged with an idempotency key: repeating a booking that went through with the same key
+    // reports it as booked again instead of as taken, so a booking can be retried when its result is lost
+    public void book(Doctor doctor, long slotStartMillis, String userId, String email, String bookingKey,
+                     OnBookingListener listener) {
+        Appointment appointment = slotOf(doctor, slotStartMillis, userId, email);
+        if (appointment == null) {
+            listener.onFailure(new IllegalArgumentException("Not a bookable slot of " + doctor.getName()));
+            return;
+        }
+        String slotId = appointment.getId();
+
+        slotStore.createIfAbsent(pathOf(appointment), appointment, bookingKey, new SlotStore.OnCreateListener() {
+            @Override
+            public void onCreated() {
+                listener.onBooked(slotId);
+            }
+
+            @Override
+            public void onAlreadyExists() {
+                listener.onSlotTaken(slotId);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                listener.onFailure(e);
+            }
+        });
+    }
+
+    // Book occurrences appointments with the doctor, repeating from firstSlotStartMillis.
+    // Either every occurrence is booked in one write or none is, and the listener gets every
+    // occurrence that stood in the way.
+    public void bookSeries(Doctor doctor, long firstSlotStartMillis, Recurrence recurrence, int occurrences,
+                           String userId, String email, OnSeriesBookingListener listener) {
+        if (occurrences <= 0 || occurrences > MAX_SERIES_OCCURRENCES) {
+            listener.onFailure(new IllegalArgumentException("A series has 1 to " + MAX_SERIES_OCCURRENCES + " occurrences: " + occurrences));
+            return;
+        }
+
+        long[] starts = recurrence.occurrences(firstSlotStartMillis, occurrences, timeZone);
+        long slotMillis = doctor.getSlotGrid().getSlotMillis();
+        String seriesId = SlotKeys.slotId(doctor.getId(), starts[0], slotMillis);
+
+        // Check every occurrence locally before anything is written
+        SlotRules slotRules = rules.getRules();
+        List<OccurrenceConflict> conflicts = new ArrayList<>();
+        List<String> slotIds = new ArrayList<>(occurrences);
+        Map<String, Appointment> documents = new LinkedHashMap<>();
+        for (int i = 0; i < occurrences; i++) {
+            Calendar day = dayOf(starts[i]);
+            if (slotRules.openMask(doctor, day) == 0L) {
+                conflicts.add(new OccurrenceConflict(i, starts[i], OccurrenceConflict.Reason.CLOSED));
+                continue;
+            }
+            if (!slotRules.isOpenSlot(doctor, day, starts[i])) {
+                conflicts.add(new OccurrenceConflict(i, starts[i], OccurrenceConflict.Reason.NOT_BOOKABLE));
+                continue;
+            }
+
+            String slotId = SlotKeys.slotId(doctor.getId(), starts[i], slotMillis);
+            int dayKey = DayKeys.dayKey(day);
+            slotIds.add(slotId);
+            documents.put(AppointmentPaths.appointment(doctor.getId(), dayKey, slotId),
+                    new Appointment(slotId, userId, email, doctor.getId(), starts[i], dayKey, seriesId));
+        }
+        if (!conflicts.isEmpty()) {
+            listener.onConflicts(conflicts);
+            return;
+        }
+
+        slotStore.createAllIfAbsent(documents, new SlotStore.OnCreateAllListener() {
+            @Override
+            public void onCreated() {
+                listener.onBooked(slotIds);
+            }
+
+            @Override
+            public void onAlreadyExist(Set<String> existingPaths) {
+                // Paths are in occurrence order, as every occurrence passed the local checks
+                List<OccurrenceConflict> taken = new ArrayList<>(existingPaths.size());
+                int i = 0;
+                for (String path : documents.keySet()) {
+                    if (existingPaths.contains(path)) {
+                        taken.add(new OccurrenceConflict(i, starts[i], OccurrenceConflict.Reason.TAKEN));
+                    }
+                    i++;
+                }
+                listener.onConflicts(taken);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                listener.onFailure(e);
+            }
+        });
+    }
+
+    // The user's appointment in the slot, or null if the time is not the start of one of the doctor's open slots
+    private Appointment slotOf(Doctor doctor, long slotStartMillis, String userId, String email) {
+        Calendar day = dayOf(slotStartMillis);
+        if (!rules.getRules().isOpenSlot(doctor, day, slotStartMillis)) {
+            return null;
+        }
+        String slotId = SlotKeys.slotId(doctor.getId(), slotStartMillis, doctor.getSlotGrid().getSlotMillis());
+        return new Appointment(slotId, userId, email, doctor.getId(), slotStartMillis, DayKeys.dayKey(day));
+    }
+
+    private static String pathOf(Appointment slot) {
+        return AppointmentPaths.appointment(slot.getDoctorId(), slot.getDayKey(), slot.getId());
+    }
+
+    private Calendar dayOf(long millis) {
+        Calendar day = Calendar.getInstance(timeZone);
+        day.setTimeInMillis(millis);
+        return day;
+    }
+
+    public interface OnBookingListener {
+        void onBooked(String appointmentId);
+        void onSlotTaken(String appointmentId);
+        void onFailure(Exception e);
+    }
+
+    public interface OnLeaseListener {
+        // The slot is the user's to book until expiresAtMillis
+        void onLeased(String appointmentId, long expiresAtMillis);
+        void onSlotTaken(String appointmentId);
+        void onFailure(Exception e);
+    }
+
+    public interface OnSeriesBookingListener {
+        // IDs of the booked appointments, in occurrence order
+        void onBooked(List<String> appointmentIds);
+        // Nothing was booked; ordered by occurrence
+        void onConflicts(List<OccurrenceConflict> conflicts);
+        void onFailure(Exception e);
+    }
+}
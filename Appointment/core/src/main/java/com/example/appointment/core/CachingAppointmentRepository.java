@@ -0,0 +1,87 @@
+package com.example.appointment.core;
+
+import java.util.Collections;
+import java.util.List;
+
+// Keeps recently fetched doctor days in memory so reopening a day does not query again.
+// Entries expire after ttlMillis and the least recently used one is evicted beyond maxEntries.
+// Call invalidate() when a day is known to have changed, e.g. after a booking or a snapshot event.
+public class CachingAppointmentRepository implements AppointmentRepository {
+
+    private final AppointmentRepository delegate;
+    // Keyed by doctorId/dayKey; a fetch that overlaps an invalidation of any day is not kept
+    private final ExpiringLruCache<String, List<Appointment>> days;
+
+    private long hits;
+    private long misses;
+
+    public CachingAppointmentRepository(AppointmentRepository delegate, Clock clock, long ttlMillis, int maxEntries) {
+        this.delegate = delegate;
+        this.days = new ExpiringLruCache<>(clock, ttlMillis, maxEntries);
+    }
+
+    @Override
+    public void fetchDay(String doctorId, int dayKey, OnAppointmentsListener listener) {
+        String key = key(doctorId, dayKey);
+        List<Appointment> cached = null;
+        long startGeneration;
+        synchronized (this) {
+            cached = days.get(key);
+            if (cached != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+            startGeneration = days.generation();
+        }
+        if (cached != null) {
+            listener.onSuccess(cached);
+            return;
+        }
+
+        delegate.fetchDay(doctorId, dayKey, new OnAppointmentsListener() {
+            @Override
+            public void onSuccess(List<Appointment> appointments) {
+                List<Appointment> cached = Collections.unmodifiableList(appointments);
+                synchronized (CachingAppointmentRepository.this) {
+                    days.putIfCurrent(key, cached, startGeneration);
+                }
+                listener.onSuccess(cached);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                listener.onFailure(e);
+            }
+        });
+    }
+
+    // Forget the doctor's day so the next fetch reads it again
+    public synchronized void invalidate(String doctorId, int dayKey) {
+        days.invalidate(key(doctorId, dayKey));
+    }
+
+    public synchronized void invalidateAll() {
+        days.invalidateAll();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return days.getEvictions();
+    }
+
+    public synchronized int size() {
+        return days.size();
+    }
+
+    private static String key(String doctorId, int dayKey) {
+        return doctorId + "/" + dayKey;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.appointment.core;
+
+import java.util.Map;
+
+// A clinic that doctors work at, stored in the "clinics" collection
+public final class Clinic {
+
+    private final String id;
+    private final String name;
+
+    public Clinic(String id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public static Clinic fromFields(String id, Map<String, Object> fields) {
+        Object name = fields.get("name");
+        return new Clinic(id, name != null ? name.toString() : id);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.appointment.core;
+
+// Source of the current time, replaceable in tests
+public interface Clock {
+
+    Clock SYSTEM = System::currentTimeMillis;
+
+    long currentTimeMillis();
+}
@@ -0,0 +1,31 @@
+package com.example.appointment.core;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+// "dd/MM/yyyy HH:mm" labels of appointment times, formatted when they are shown instead of stored.
+// DateTimeFormatter is immutable and thread-safe, so one instance serves every screen and thread.
+public final class DateLabels {
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm", Locale.ROOT);
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy", Locale.ROOT);
+
+    private DateLabels() {
+    }
+
+    public static String dateTime(long millis, ZoneId zone) {
+        return DATE_TIME.format(Instant.ofEpochMilli(millis).atZone(zone));
+    }
+
+    public static String date(long millis, ZoneId zone) {
+        return DATE.format(Instant.ofEpochMilli(millis).atZone(zone));
+    }
+
+    // Append the label to out, e.g. a builder reused across list rows
+    public static StringBuilder appendDateTime(StringBuilder out, long millis, ZoneId zone) {
+        DATE_TIME.formatTo(Instant.ofEpochMilli(millis).atZone(zone), out);
+        return out;
+    }
+}
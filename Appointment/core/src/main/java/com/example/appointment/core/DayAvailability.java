@@ -0,0 +1,54 @@
+package com.example.appointment.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Booked slots of one day, updated one document change at a time.
+// Not thread-safe; changes are expected to arrive on a single thread, as snapshot events do.
+public class DayAvailability {
+
+    private final SlotGrid slotGrid;
+    private final long firstSlotMillis;
+    private final int[] bookingsPerSlot;
+    private final Map<String, Integer> slotOfDocument = new HashMap<>();
+    private long bookedMask;
+
+    public DayAvailability(SlotGrid slotGrid, long firstSlotMillis) {
+        this.slotGrid = slotGrid;
+        this.firstSlotMillis = firstSlotMillis;
+        this.bookingsPerSlot = new int[slotGrid.getSlotCount()];
+    }
+
+    public SlotGrid getSlotGrid() {
+        return slotGrid;
+    }
+
+    public long getFirstSlotMillis() {
+        return firstSlotMillis;
+    }
+
+    public long getBookedMask() {
+        return bookedMask;
+    }
+
+    // Record that a document now books the slot at timestamp, or books nothing if timestamp is null.
+    // Returns the bits of the slots that switched between free and booked.
+    public long apply(String documentId, Long timestamp) {
+        long before = bookedMask;
+
+        Integer previousSlot = slotOfDocument.remove(documentId);
+        if (previousSlot != null && --bookingsPerSlot[previousSlot] == 0) {
+            bookedMask &= ~(1L << previousSlot);
+        }
+
+        int slot = timestamp != null ? slotGrid.slotIndex(firstSlotMillis, timestamp) : -1;
+        if (slot >= 0) {
+            slotOfDocument.put(documentId, slot);
+            if (bookingsPerSlot[slot]++ == 0) {
+                bookedMask |= 1L << slot;
+            }
+        }
+
+        return before ^ bookedMask;
+    }
+}
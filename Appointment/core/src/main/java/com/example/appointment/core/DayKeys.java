@@ -0,0 +1,29 @@
+package com.example.appointment.core;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+// Day keys are yyyymmdd integers, e.g. 20240612, stored on every appointment for per-day lookups
+public final class DayKeys {
+
+    private DayKeys() {
+    }
+
+    public static int dayKey(Calendar day) {
+        return day.get(Calendar.YEAR) * 10000 + (day.get(Calendar.MONTH) + 1) * 100 + day.get(Calendar.DAY_OF_MONTH);
+    }
+
+    public static int dayKey(long millis, TimeZone zone) {
+        Calendar calendar = Calendar.getInstance(zone);
+        calendar.setTimeInMillis(millis);
+        return dayKey(calendar);
+    }
+
+    // Calendar set to midnight of the day, in the given time zone
+    public static Calendar toCalendar(int dayKey, TimeZone zone) {
+        Calendar calendar = Calendar.getInstance(zone);
+        calendar.clear();
+        calendar.set(dayKey / 10000, dayKey / 100 % 100 - 1, dayKey % 100);
+        return calendar;
+    }
+}
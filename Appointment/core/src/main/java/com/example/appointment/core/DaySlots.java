@@ -0,0 +1,95 @@
+package com.example.appointment.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Immutable state of a doctor's day as the time picker shows it: which slots are booked or closed
+// under the SlotRules, and the labels of the free ones. Built on a background thread so the UI thread only renders it.
+public final class DaySlots {
+
+    private final Doctor doctor;
+    private final int dayKey;
+    private final long firstSlotMillis;
+    private final long bookedMask;
+    private final long openMask;
+    private final List<Integer> freeSlots;
+    private final List<String> labels;
+
+    // Every slot of the doctor's grid open
+    public DaySlots(Doctor doctor, int dayKey, long firstSlotMillis, long bookedMask) {
+        this(doctor, dayKey, firstSlotMillis, bookedMask, -1L);
+    }
+
+    public DaySlots(Doctor doctor, int dayKey, long firstSlotMillis, long bookedMask, long openMask) {
+        this.doctor = doctor;
+        this.dayKey = dayKey;
+        this.firstSlotMillis = firstSlotMillis;
+        this.bookedMask = bookedMask;
+        this.openMask = openMask;
+
+        SlotGrid grid = doctor.getSlotGrid();
+        long unavailable = getUnavailableMask();
+        List<Integer> free = new ArrayList<>(grid.freeCount(unavailable));
+        List<String> freeLabels = new ArrayList<>(grid.freeCount(unavailable));
+        for (int slot = grid.nextFree(unavailable, 0); slot >= 0; slot = grid.nextFree(unavailable, slot + 1)) {
+            free.add(slot);
+            freeLabels.add(grid.label(slot));
+        }
+        this.freeSlots = Collections.unmodifiableList(free);
+        this.labels = Collections.unmodifiableList(freeLabels);
+    }
+
+    // The day as given by its appointments; those outside the doctor's slots are ignored
+    public static DaySlots of(Doctor doctor, int dayKey, long firstSlotMillis, List<Appointment> appointments) {
+        return of(doctor, dayKey, firstSlotMillis, appointments, -1L);
+    }
+
+    public static DaySlots of(Doctor doctor, int dayKey, long firstSlotMillis, List<Appointment> appointments, long openMask) {
+        SlotGrid grid = doctor.getSlotGrid();
+        long booked = 0L;
+        for (Appointment appointment : appointments) {
+            booked |= grid.slotBit(firstSlotMillis, appointment.getTimestamp());
+        }
+        return new DaySlots(doctor, dayKey, firstSlotMillis, booked, openMask);
+    }
+
+    public Doctor getDoctor() {
+        return doctor;
+    }
+
+    public int getDayKey() {
+        return dayKey;
+    }
+
+    public long getFirstSlotMillis() {
+        return firstSlotMillis;
+    }
+
+    public long getBookedMask() {
+        return bookedMask;
+    }
+
+    public long getOpenMask() {
+        return openMask;
+    }
+
+    // Slots that cannot be picked: booked, or not open
+    public long getUnavailableMask() {
+        return bookedMask | ~openMask;
+    }
+
+    // Indexes of the free slots, in ascending order
+    public List<Integer> getFreeSlots() {
+        return freeSlots;
+    }
+
+    // "HH:mm" labels of the free slots, matching getFreeSlots()
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    public boolean isFor(String doctorId, int dayKey) {
+        return this.dayKey == dayKey && doctor.getId().equals(doctorId);
+    }
+}
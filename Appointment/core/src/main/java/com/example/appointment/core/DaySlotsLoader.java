@@ -0,0 +1,66 @@
+package com.example.appointment.core;
+
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+// Loads doctor days into DaySlots on a background executor, whatever thread the repository
+// answers on. Only the newest load is delivered, so quickly switching days never shows a stale one.
+// Slots closed under the SlotRules are not free, nor, given a clock, those too soon to book at the
+// time of the load.
+public class DaySlotsLoader {
+
+    private final AppointmentRepository repository;
+    private final Executor worker;
+    private final SlotRulesSource rules;
+    private final Clock clock;
+
+    private volatile long latestLoad;
+
+    public DaySlotsLoader(AppointmentRepository repository, Executor worker) {
+        this(repository, worker, SlotRulesSource.DEFAULT, null);
+    }
+
+    // clock may be null to offer past slots too
+    public DaySlotsLoader(AppointmentRepository repository, Executor worker, SlotRulesSource rules, Clock clock) {
+        this.repository = repository;
+        this.worker = worker;
+        this.rules = rules;
+        this.clock = clock;
+    }
+
+    // Call from one thread, e.g. the UI thread; the listener is called on the worker executor
+    public void load(Doctor doctor, Calendar day, OnDaySlotsListener listener) {
+        long load = ++latestLoad;
+        int dayKey = DayKeys.dayKey(day);
+        long firstSlotMillis = doctor.getSlotGrid().firstSlotMillis(day);
+        SlotRules slotRules = rules.getRules();
+        long openMask = clock != null ? slotRules.bookableMask(doctor, day, clock.currentTimeMillis()) : slotRules.openMask(doctor, day);
+
+        // Started from the worker too, so a cache hit answering synchronously stays off the caller's thread
+        worker.execute(() -> repository.fetchDay(doctor.getId(), dayKey, new AppointmentRepository.OnAppointmentsListener() {
+            @Override
+            public void onSuccess(List<Appointment> appointments) {
+                worker.execute(() -> {
+                    if (load == latestLoad) {
+                        listener.onSuccess(DaySlots.of(doctor, dayKey, firstSlotMillis, appointments, openMask));
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                worker.execute(() -> {
+                    if (load == latestLoad) {
+                        listener.onFailure(e);
+                    }
+                });
+            }
+        }));
+    }
+
+    public interface OnDaySlotsListener {
+        void onSuccess(DaySlots daySlots);
+        void onFailure(Exception e);
+    }
+}
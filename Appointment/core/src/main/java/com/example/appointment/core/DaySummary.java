@@ -0,0 +1,158 @@
+package com.example.appointment.core;
+
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+// Load of one doctor's day, kept in the day document doctors/{doctorId}/days/{dayKey} so a dashboard
+// reads one small document per doctor-day instead of every appointment.
+// The stored form is a map of booked slot start -> true, i.e. a sparse bitmap that a booking can set
+// and a cancellation clear without reading it, plus a booked count moved by increments. Both change in
+// the same transaction as the slot document, so they stay in line with the slots.
+// Increments alone miss bookings made before a day had a summary, so a summary only counts as
+// complete once it has been rebuilt from the day's slots; the increments keep it so afterwards.
+public final class DaySummary {
+
+    public static final String FIELD_BOOKED = "booked";
+    public static final String FIELD_BOOKED_COUNT = "bookedCount";
+    public static final String FIELD_COMPLETE = "complete";
+
+    private final Doctor doctor;
+    private final int dayKey;
+    private final boolean complete;
+    private final long bookedMask;
+    private final int bookedCount;
+
+    private DaySummary(Doctor doctor, int dayKey, boolean complete, long bookedMask, int bookedCount) {
+        this.doctor = doctor;
+        this.dayKey = dayKey;
+        this.complete = complete;
+        this.bookedMask = bookedMask;
+        this.bookedCount = bookedCount;
+    }
+
+    // The summary in a day document's fields, or an empty incomplete one if it was never rebuilt
+    public static DaySummary fromFields(Doctor doctor, Calendar day, Map<String, Object> fields) {
+        int dayKey = DayKeys.dayKey(day);
+        if (fields == null || !Boolean.TRUE.equals(fields.get(FIELD_COMPLETE))) {
+            return new DaySummary(doctor, dayKey, false, 0L, 0);
+        }
+        SlotGrid grid = doctor.getSlotGrid();
+        long firstSlotMillis = grid.firstSlotMillis(day);
+        long mask = 0L;
+        Object booked = fields.get(FIELD_BOOKED);
+        if (booked instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) booked).entrySet()) {
+                if (Boolean.TRUE.equals(entry.getValue())) {
+                    try {
+                        mask |= grid.slotBit(firstSlotMillis, Long.parseLong(String.valueOf(entry.getKey())));
+                    } catch (NumberFormatException e) {
+                        // Not a slot start; ignored
+                    }
+                }
+            }
+        }
+        Object count = fields.get(FIELD_BOOKED_COUNT);
+        return new DaySummary(doctor, dayKey, true, mask, count instanceof Number ? ((Number) count).intValue() : Long.bitCount(mask));
+    }
+
+    // Fields of a complete summary holding exactly the given bookings, when rebuilding it from the slots
+    public static Map<String, Object> fieldsOf(Collection<Long> bookedStarts) {
+        Map<String, Object> booked = new HashMap<>();
+        for (long start : bookedStarts) {
+            booked.put(bookedKey(start), Boolean.TRUE);
+        }
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(FIELD_BOOKED, booked);
+        fields.put(FIELD_BOOKED_COUNT, (long) booked.size());
+        fields.put(FIELD_COMPLETE, Boolean.TRUE);
+        return fields;
+    }
+
+    // Key of the slot in the booked map
+    public static String bookedKey(long slotStartMillis) {
+        return Long.toString(slotStartMillis);
+    }
+
+    // How writing a slot changes its day's summary, or null if it stays booked or stays unbooked
+    public static Change change(long slotStartMillis, boolean wasBooked, boolean isBooked) {
+        return wasBooked == isBooked ? null : new Change(slotStartMillis, isBooked);
+    }
+
+    public Doctor getDoctor() {
+        return doctor;
+    }
+
+    public int getDayKey() {
+        return dayKey;
+    }
+
+    // False until the summary has been rebuilt from the day's slots
+    public boolean isComplete() {
+        return complete;
+    }
+
+    // Bit i is set when slot i of the doctor's grid is booked
+    public long getBookedMask() {
+        return bookedMask;
+    }
+
+    public int getBookedCount() {
+        return bookedCount;
+    }
+
+    public int getSlotCount() {
+        return doctor.getSlotGrid().getSlotCount();
+    }
+
+    public int getFreeCount() {
+        return doctor.getSlotGrid().freeCount(bookedMask);
+    }
+
+    // Share of the day's slots that are booked, from 0 to 1
+    public double getUtilisation() {
+        return (double) Long.bitCount(bookedMask) / getSlotCount();
+    }
+
+    // Booking (true) or freeing (false) of one slot
+    public static final class Change {
+
+        private final long slotStartMillis;
+        private final boolean booked;
+
+        private Change(long slotStartMillis, boolean booked) {
+            this.slotStartMillis = slotStartMillis;
+            this.booked = booked;
+        }
+
+        public long getSlotStartMillis() {
+            return slotStartMillis;
+        }
+
+        public boolean isBooked() {
+            return booked;
+        }
+
+        public String getBookedKey() {
+            return bookedKey(slotStartMillis);
+        }
+
+        public int getCountDelta() {
+            return booked ? 1 : -1;
+        }
+
+        // Apply to summary fields held in memory, as Firestore applies the merged update and increment
+        public void applyTo(Map<String, Object> fields) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> bookedSlots = (Map<String, Object>) fields.computeIfAbsent(FIELD_BOOKED, key -> new HashMap<String, Object>());
+            if (booked) {
+                bookedSlots.put(getBookedKey(), Boolean.TRUE);
+            } else {
+                bookedSlots.remove(getBookedKey());
+            }
+            Object count = fields.get(FIELD_BOOKED_COUNT);
+            fields.put(FIELD_BOOKED_COUNT, (count instanceof Number ? ((Number) count).longValue() : 0L) + getCountDelta());
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.appointment.core;
+
+import java.util.Calendar;
+import java.util.List;
+
+// Day summaries for the staff dashboard, see DaySummary
+public interface DaySummaryRepository {
+
+    // One summary per doctor, in the same order; days without a stored summary are rebuilt from their slots
+    void fetchSummaries(List<Doctor> doctors, Calendar day, OnSummariesListener listener);
+
+    interface OnSummariesListener {
+        void onSuccess(List<DaySummary> summaries);
+        void onFailure(Exception e);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.appointment.core;
+
+import java.util.Map;
+
+// A doctor and their working hours, stored in the "doctors" collection.
+// Working hours are minutes of the day; the end is when the last slot finishes.
+public final class Doctor {
+
+    // Used when no doctors are configured: the clinic-wide 08:00 - 18:30 day in 30 minute slots
+    public static final Doctor DEFAULT = new Doctor(SlotKeys.DEFAULT_DOCTOR_ID, "Any doctor", null, 8 * 60, 18 * 60 + 30, 30);
+
+    private final String id;
+    private final String name;
+    private final String clinicId;
+    private final int workStartMinute;
+    private final int workEndMinute;
+    private final int slotMinutes;
+    private final SlotGrid slotGrid;
+
+    public Doctor(String id, String name, String clinicId, int workStartMinute, int workEndMinute, int slotMinutes) {
+        if (slotMinutes <= 0 || workEndMinute <= workStartMinute || (workEndMinute - workStartMinute) % slotMinutes != 0) {
+            throw new IllegalArgumentException("Working hours of " + id + " must be a whole number of slots");
+        }
+        this.id = id;
+        this.name = name;
+        this.clinicId = clinicId;
+        this.workStartMinute = workStartMinute;
+        this.workEndMinute = workEndMinute;
+        this.slotMinutes = slotMinutes;
+        this.slotGrid = new SlotGrid(workStartMinute, slotMinutes, (workEndMinute - workStartMinute) / slotMinutes);
+    }
+
+    // Build a doctor from a stored document; missing hours fall back to the default day
+    public static Doctor fromFields(String id, Map<String, Object> fields) {
+        Object name = fields.get("name");
+        Object clinicId = fields.get("clinicId");
+        return new Doctor(id,
+                name != null ? name.toString() : id,
+                clinicId != null ? clinicId.toString() : null,
+                intField(fields, "workStartMinute", DEFAULT.workStartMinute),
+                intField(fields, "workEndMinute", DEFAULT.workEndMinute),
+                intField(fields, "slotMinutes", DEFAULT.slotMinutes));
+    }
+
+    private static int intField(Map<String, Object> fields, String name, int defaultValue) {
+        Object value = fields.get(name);
+        return value instanceof Number ? ((Number) value).intValue() : defaultValue;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getClinicId() {
+        return clinicId;
+    }
+
+    public int getWorkStartMinute() {
+        return workStartMinute;
+    }
+
+    public int getWorkEndMinute() {
+        return workEndMinute;
+    }
+
+    public int getSlotMinutes() {
+        return slotMinutes;
+    }
+
+    public SlotGrid getSlotGrid() {
+        return slotGrid;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.appointment.core;
+
+import java.util.List;
+import java.util.Map;
+
+// Doctors that can be booked and the clinics they work at
+public interface DoctorRepository {
+
+    void fetchDoctors(OnDoctorsListener listener);
+
+    interface OnDoctorsListener {
+        // clinics is keyed by clinic ID
+        void onSuccess(List<Doctor> doctors, Map<String, Clinic> clinics);
+        void onFailure(Exception e);
+    }
+}
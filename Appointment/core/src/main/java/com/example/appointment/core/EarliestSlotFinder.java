@@ -0,0 +1,228 @@
+package com.example.appointment.core;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TimeZone;
+
+// Finds the earliest free slots across several doctors and days.
+// Doctor days are queried in order of their first slot with at most maxConcurrentQueries in flight.
+// The search stops as soon as no unqueried doctor day can start before the latest of the earliest
+// slots found so far, so usually only the first few days are read.
+public class EarliestSlotFinder {
+
+    // Ordered by start time, then by doctor so results are stable
+    static final Comparator<FreeSlot> EARLIEST_FIRST = (a, b) -> {
+        int byTime = Long.compare(a.getStartMillis(), b.getStartMillis());
+        return byTime != 0 ? byTime : a.getDoctor().getId().compareTo(b.getDoctor().getId());
+    };
+
+    private final AppointmentRepository repository;
+    private final TimeZone timeZone;
+    private final int maxConcurrentQueries;
+    private final SlotRulesSource rules;
+
+    public EarliestSlotFinder(AppointmentRepository repository, TimeZone timeZone, int maxConcurrentQueries) {
+        this(repository, timeZone, maxConcurrentQueries, SlotRulesSource.DEFAULT);
+    }
+
+    public EarliestSlotFinder(AppointmentRepository repository, TimeZone timeZone, int maxConcurrentQueries,
+                              SlotRulesSource rules) {
+        if (maxConcurrentQueries <= 0) {
+            throw new IllegalArgumentException("maxConcurrentQueries must be positive: " + maxConcurrentQueries);
+        }
+        this.repository = repository;
+        this.timeZone = timeZone;
+        this.maxConcurrentQueries = maxConcurrentQueries;
+        this.rules = rules;
+    }
+
+    // Find up to count free slots starting at or after fromMillis within the next days days,
+    // earliest first. Only slots open under the SlotRules are offered, as on the booking screen;
+    // pass a fromMillis that allows for the minimum lead time.
+    public void find(List<Doctor> doctors, long fromMillis, int days, int count, OnSlotsFoundListener listener) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("count must be positive: " + count);
+        }
+
+        SlotRules slotRules = rules.getRules();
+        List<DoctorDay> doctorDays = new ArrayList<>();
+        Calendar first = Calendar.getInstance(timeZone);
+        first.setTimeInMillis(fromMillis);
+        int firstDayKey = DayKeys.dayKey(first);
+        for (Doctor doctor : doctors) {
+            SlotGrid slotGrid = doctor.getSlotGrid();
+            long[] openMasks = slotRules.openMasks(doctor, firstDayKey, days);
+            Calendar day = (Calendar) first.clone();
+            for (int i = 0; i < days; i++, day.add(Calendar.DAY_OF_MONTH, 1)) {
+                long openMask = openMasks[i];
+                if (openMask == 0L) {
+                    continue;
+                }
+                long firstSlotMillis = slotGrid.firstSlotMillis(day);
+                // Days that are over before fromMillis cannot contribute
+                int lastOpen = Long.SIZE - 1 - Long.numberOfLeadingZeros(openMask);
+                if (slotGrid.slotStartMillis(firstSlotMillis, lastOpen) >= fromMillis) {
+                    doctorDays.add(new DoctorDay(doctor, DayKeys.dayKey(day), firstSlotMillis, openMask));
+                }
+            }
+        }
+        Collections.sort(doctorDays, (a, b) -> Long.compare(a.firstOpenMillis, b.firstOpenMillis));
+
+        if (doctorDays.isEmpty()) {
+            listener.onSuccess(Collections.<FreeSlot>emptyList());
+            return;
+        }
+        new Search(doctorDays, fromMillis, count, listener).dispatch();
+    }
+
+    // A doctor's working day, the unit that is queried
+    private static final class DoctorDay {
+        final Doctor doctor;
+        final int dayKey;
+        final long firstSlotMillis;
+        final long openMask;
+        // Start of the first open slot, which orders the days
+        final long firstOpenMillis;
+
+        DoctorDay(Doctor doctor, int dayKey, long firstSlotMillis, long openMask) {
+            this.doctor = doctor;
+            this.dayKey = dayKey;
+            this.firstSlotMillis = firstSlotMillis;
+            this.openMask = openMask;
+            this.firstOpenMillis = doctor.getSlotGrid().slotStartMillis(firstSlotMillis, Long.numberOfTrailingZeros(openMask));
+        }
+    }
+
+    // State of one find() call. Query results may arrive on any thread, or synchronously
+    // from within fetchDay(), so all state is guarded by the Search's monitor.
+    private final class Search {
+        private final List<DoctorDay> doctorDays;
+        private final long fromMillis;
+        private final int count;
+        private final OnSlotsFoundListener listener;
+
+        // The earliest count slots found so far, latest at the head
+        private final PriorityQueue<FreeSlot> earliest;
+        private final List<DoctorDay> inFlight = new ArrayList<>();
+        private int next;
+        private boolean dispatching;
+        private boolean finished;
+
+        Search(List<DoctorDay> doctorDays, long fromMillis, int count, OnSlotsFoundListener listener) {
+            this.doctorDays = doctorDays;
+            this.fromMillis = fromMillis;
+            this.count = count;
+            this.listener = listener;
+            this.earliest = new PriorityQueue<>(count, Collections.reverseOrder(EARLIEST_FIRST));
+        }
+
+        // Start queries until the limit is reached. Only one thread runs the loop at a time;
+        // completions during the loop just free a place that the loop then fills.
+        void dispatch() {
+            synchronized (this) {
+                if (dispatching) {
+                    return;
+                }
+                dispatching = true;
+            }
+            while (true) {
+                DoctorDay doctorDay;
+                synchronized (this) {
+                    if (finished || inFlight.size() >= maxConcurrentQueries || next >= doctorDays.size()) {
+                        dispatching = false;
+                        return;
+                    }
+                    doctorDay = doctorDays.get(next++);
+                    inFlight.add(doctorDay);
+                }
+                query(doctorDay);
+            }
+        }
+
+        private void query(DoctorDay doctorDay) {
+            repository.fetchDay(doctorDay.doctor.getId(), doctorDay.dayKey, new AppointmentRepository.OnAppointmentsListener() {
+                @Override
+                public void onSuccess(List<Appointment> appointments) {
+                    onDayLoaded(doctorDay, appointments);
+                    dispatch();
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    synchronized (Search.this) {
+                        if (finished) {
+                            return;
+                        }
+                        finished = true;
+                    }
+                    listener.onFailure(e);
+                }
+            });
+        }
+
+        private void onDayLoaded(DoctorDay doctorDay, List<Appointment> appointments) {
+            SlotGrid slotGrid = doctorDay.doctor.getSlotGrid();
+            // Closed slots count as booked
+            long bookedSlots = ~doctorDay.openMask;
+            for (Appointment appointment : appointments) {
+                bookedSlots |= slotGrid.slotBit(doctorDay.firstSlotMillis, appointment.getTimestamp());
+            }
+
+            List<FreeSlot> result;
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                inFlight.remove(doctorDay);
+
+                for (int slot = slotGrid.nextFree(bookedSlots, 0); slot >= 0; slot = slotGrid.nextFree(bookedSlots, slot + 1)) {
+                    long startMillis = slotGrid.slotStartMillis(doctorDay.firstSlotMillis, slot);
+                    if (startMillis < fromMillis) {
+                        continue;
+                    }
+                    FreeSlot freeSlot = new FreeSlot(doctorDay.doctor, startMillis);
+                    if (earliest.size() < count) {
+                        earliest.add(freeSlot);
+                    } else if (EARLIEST_FIRST.compare(freeSlot, earliest.peek()) < 0) {
+                        earliest.poll();
+                        earliest.add(freeSlot);
+                    } else {
+                        // Later slots of this day cannot beat the current ones either
+                        break;
+                    }
+                }
+
+                if (!isComplete()) {
+                    return;
+                }
+                finished = true;
+                result = new ArrayList<>(earliest);
+            }
+            Collections.sort(result, EARLIEST_FIRST);
+            listener.onSuccess(result);
+        }
+
+        // Complete once every doctor day is read, or when none of the unread ones starts early enough
+        // to hold a slot before the latest slot found so far
+        private boolean isComplete() {
+            long unreadFrom = next < doctorDays.size() ? doctorDays.get(next).firstOpenMillis : Long.MAX_VALUE;
+            for (DoctorDay doctorDay : inFlight) {
+                unreadFrom = Math.min(unreadFrom, doctorDay.firstOpenMillis);
+            }
+            if (unreadFrom == Long.MAX_VALUE) {
+                return true;
+            }
+            return earliest.size() == count && earliest.peek().getStartMillis() < unreadFrom;
+        }
+    }
+
+    public interface OnSlotsFoundListener {
+        // Earliest first; fewer than requested when the searched days do not have enough free slots
+        void onSuccess(List<FreeSlot> slots);
+        void onFailure(Exception e);
+    }
+}
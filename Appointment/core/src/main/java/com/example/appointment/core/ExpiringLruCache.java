@@ -0,0 +1,91 @@
+package com.example.appointment.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Values kept for ttlMillis after they were put, dropping the least recently used one beyond
+// maxEntries. A value loaded asynchronously is put with the generation read when its load started,
+// and is not kept if anything was invalidated meanwhile, as it may predate the change.
+// Not thread-safe; callers guard it with their own lock.
+final class ExpiringLruCache<K, V> {
+
+    private final Clock clock;
+    private final long ttlMillis;
+    private final int maxEntries;
+    // In access order, so the eldest entry is the least recently used one
+    private final LinkedHashMap<K, Stamped<V>> entries;
+    private long generation;
+    private long evictions;
+
+    ExpiringLruCache(Clock clock, long ttlMillis, int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.clock = clock;
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<K, Stamped<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Stamped<V>> eldest) {
+                if (size() > ExpiringLruCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // The value if it has not expired, or null; an expired one is dropped
+    V get(K key) {
+        Stamped<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (clock.currentTimeMillis() - entry.putAtMillis >= ttlMillis) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    // Read before starting a load whose result goes to putIfCurrent
+    long generation() {
+        return generation;
+    }
+
+    // Keep the value unless something was invalidated since the generation was read
+    void putIfCurrent(K key, V value, long startGeneration) {
+        if (generation == startGeneration) {
+            entries.put(key, new Stamped<>(value, clock.currentTimeMillis()));
+        }
+    }
+
+    void invalidate(K key) {
+        entries.remove(key);
+        generation++;
+    }
+
+    void invalidateAll() {
+        entries.clear();
+        generation++;
+    }
+
+    long getEvictions() {
+        return evictions;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private static final class Stamped<V> {
+        final V value;
+        final long putAtMillis;
+
+        Stamped(V value, long putAtMillis) {
+            this.value = value;
+            this.putAtMillis = putAtMillis;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.appointment.core;
+
+import java.util.List;
+
+// Booked appointments in start order, read a page at a time for exporting
+public interface ExportSource {
+
+    // Up to limit appointments of the doctor (or of every doctor if doctorId is null) starting in
+    // [fromMillis, toMillis), ordered by timestamp and then document path, after the given appointment
+    // (null for the first page). An empty page marks the end.
+    List<Appointment> fetchPage(String doctorId, long fromMillis, long toMillis, Appointment after, int limit) throws Exception;
+}
@@ -0,0 +1,21 @@
+package com.example.appointment.core;
+
+// A bookable slot of a doctor, as found by EarliestSlotFinder
+public final class FreeSlot {
+
+    private final Doctor doctor;
+    private final long startMillis;
+
+    public FreeSlot(Doctor doctor, long startMillis) {
+        this.doctor = doctor;
+        this.startMillis = startMillis;
+    }
+
+    public Doctor getDoctor() {
+        return doctor;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+}
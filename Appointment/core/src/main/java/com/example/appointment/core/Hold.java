@@ -0,0 +1,43 @@
+package com.example.appointment.core;
+
+// A freed slot offered to a waiting patient, reserved for them until expiresAtMillis
+public final class Hold {
+
+    private final String slotId;
+    private final long slotStartMillis;
+    private final String userId;
+    private final String email;
+    private final long expiresAtMillis;
+
+    public Hold(String slotId, long slotStartMillis, String userId, String email, long expiresAtMillis) {
+        this.slotId = slotId;
+        this.slotStartMillis = slotStartMillis;
+        this.userId = userId;
+        this.email = email;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public String getSlotId() {
+        return slotId;
+    }
+
+    public long getSlotStartMillis() {
+        return slotStartMillis;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.appointment.core;
+
+// Progress of imports, so an interrupted import resumes after the records it already wrote
+public interface ImportCheckpoints {
+
+    // Number of leading records of the import that are done; 0 for a new import
+    long load(String importId) throws Exception;
+
+    void save(String importId, long recordsDone) throws Exception;
+}
@@ -0,0 +1,56 @@
+package com.example.appointment.core;
+
+// One row of an appointment import file, as read, before validation.
+// start is "yyyy-MM-dd HH:mm" in the clinic's time zone; see AppointmentRecords.
+public final class ImportRecord {
+
+    private final long lineNumber;
+    private final String doctorId;
+    private final String start;
+    private final String userId;
+    private final String email;
+    private final String error;
+
+    public ImportRecord(long lineNumber, String doctorId, String start, String userId, String email) {
+        this(lineNumber, doctorId, start, userId, email, null);
+    }
+
+    private ImportRecord(long lineNumber, String doctorId, String start, String userId, String email, String error) {
+        this.lineNumber = lineNumber;
+        this.doctorId = doctorId;
+        this.start = start;
+        this.userId = userId;
+        this.email = email;
+        this.error = error;
+    }
+
+    // A line that could not be read, reported instead of failing the whole import
+    public static ImportRecord malformed(long lineNumber, String error) {
+        return new ImportRecord(lineNumber, null, null, null, null, error);
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public String getDoctorId() {
+        return doctorId;
+    }
+
+    public String getStart() {
+        return start;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    // Why the line could not be read, or null
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.appointment.core;
+
+import java.util.Collections;
+import java.util.List;
+
+// Outcome of one run of ScheduleImporter
+public final class ImportReport {
+
+    private final long resumedAfter;
+    private final long recordsRead;
+    private final int imported;
+    private final int alreadyTaken;
+    private final int duplicates;
+    private final int invalid;
+    private final List<Rejection> rejections;
+
+    ImportReport(long resumedAfter, long recordsRead, int imported, int alreadyTaken, int duplicates, int invalid,
+                 List<Rejection> rejections) {
+        this.resumedAfter = resumedAfter;
+        this.recordsRead = recordsRead;
+        this.imported = imported;
+        this.alreadyTaken = alreadyTaken;
+        this.duplicates = duplicates;
+        this.invalid = invalid;
+        this.rejections = Collections.unmodifiableList(rejections);
+    }
+
+    // Records skipped because an earlier run already wrote them
+    public long getResumedAfter() {
+        return resumedAfter;
+    }
+
+    // Records in the input, including the skipped ones
+    public long getRecordsRead() {
+        return recordsRead;
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    // Valid records whose slot was already booked, held or leased
+    public int getAlreadyTaken() {
+        return alreadyTaken;
+    }
+
+    // Records for a slot an earlier record of the input already had
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    public int getInvalid() {
+        return invalid;
+    }
+
+    // The first rejected records with the reason, in input order; at most ScheduleImporter.MAX_REJECTIONS
+    public List<Rejection> getRejections() {
+        return rejections;
+    }
+
+    public static final class Rejection {
+
+        private final long lineNumber;
+        private final String reason;
+
+        Rejection(long lineNumber, String reason) {
+            this.lineNumber = lineNumber;
+            this.reason = reason;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + ": " + reason;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.appointment.core;
+
+import java.util.Map;
+import java.util.Set;
+
+// Destination of imported appointments, written a chunk at a time
+public interface ImportSink {
+
+    // Firestore accepts at most 500 writes per batch or transaction
+    int MAX_CHUNK_SIZE = 500;
+
+    // Create every appointment, keyed by path, whose slot is free, in one atomic write that also
+    // updates the DaySummary of each doctor-day among them. Returns the paths that were already taken and left alone. Called from several threads at once.
+    Set<String> createAllIfFree(Map<String, Appointment> appointments) throws Exception;
+}
@@ -0,0 +1,16 @@
+package com.example.appointment.core;
+
+import java.util.Map;
+
+// The legacy top-level "appointments" collection that AppointmentMigration empties. Calls block, so
+// they must not run on the main thread.
+public interface LegacyAppointmentStore {
+
+    // Up to limit legacy documents by ID, in ID order, starting after afterId (null for the first page)
+    Map<String, Map<String, Object>> fetchPage(String afterId, int limit) throws Exception;
+
+    // In one transaction: write the fields to slotPath, or to fallbackPath if slotPath already exists,
+    // stamping updatedAt with the server time, and delete the legacy document. A write to slotPath also
+    // marks slotStartMillis booked in the day's DaySummary, unless it is -1. Returns the path written.
+    String move(String legacyId, Map<String, Object> fields, String slotPath, String fallbackPath, long slotStartMillis) throws Exception;
+}
@@ -0,0 +1,23 @@
+package com.example.appointment.core;
+
+import java.util.Collection;
+import java.util.List;
+
+// On-device copy of the user's appointments. Calls block, so they must not run on the main thread.
+public interface LocalAppointmentStore {
+
+    // All stored appointments of the user, ordered by time
+    List<Appointment> load(String userId);
+
+    // One page of a history section, continuing after the given row; see AppointmentPager
+    List<Appointment> loadPage(String userId, AppointmentPager.Section section, long boundaryMillis, Appointment after, int limit);
+
+    // Where the last sync of this user stopped, or SyncCursor.START
+    SyncCursor getCursor(String userId);
+
+    // Apply one page of changes and move the cursor, all or nothing
+    void apply(String userId, Collection<Appointment> upserts, Collection<String> removedIds, SyncCursor cursor);
+
+    // Forget everything, e.g. on sign-out
+    void clear();
+}
@@ -0,0 +1,147 @@
+package com.example.appointment.core;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+// Latency histograms of named operations, e.g. every Firestore call, plus optional trace sections.
+// Operations may finish on another thread than they started on, so sections are async ones.
+// When disabled, start() returns a shared no-op span and records nothing.
+public final class Metrics {
+
+    // Receives a section per operation, e.g. android.os.Trace on the device
+    public interface Tracer {
+        Tracer NONE = new Tracer() {
+            @Override
+            public void beginAsyncSection(String name, int cookie) {
+            }
+
+            @Override
+            public void endAsyncSection(String name, int cookie) {
+            }
+        };
+
+        void beginAsyncSection(String name, int cookie);
+        void endAsyncSection(String name, int cookie);
+    }
+
+    private static final Metrics GLOBAL = new Metrics(System::nanoTime);
+
+    private final LongSupplier nanoTime;
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final AtomicInteger nextCookie = new AtomicInteger();
+    private volatile boolean enabled;
+    private volatile Tracer tracer = Tracer.NONE;
+
+    public Metrics(LongSupplier nanoTime) {
+        this.nanoTime = nanoTime;
+    }
+
+    // The process-wide instance the app records into
+    public static Metrics global() {
+        return GLOBAL;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setTracer(Tracer tracer) {
+        this.tracer = tracer != null ? tracer : Tracer.NONE;
+    }
+
+    // Start timing an operation; call end() or fail() on the result exactly once
+    public Span start(String name) {
+        if (!enabled) {
+            return Span.DISABLED;
+        }
+        int cookie = nextCookie.incrementAndGet();
+        Tracer currentTracer = tracer;
+        currentTracer.beginAsyncSection(name, cookie);
+        return new Span(this, currentTracer, name, cookie, nanoTime.getAsLong());
+    }
+
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+        }
+        return histogram;
+    }
+
+    public void reset() {
+        histograms.clear();
+    }
+
+    // All histograms as JSON, in milliseconds, ordered by name
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"enabled\":").append(enabled).append(",\"operations\":{");
+        boolean first = true;
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append('"').append(entry.getKey()).append("\":{")
+                    .append("\"count\":").append(histogram.getCount())
+                    .append(",\"errors\":").append(histogram.getErrors())
+                    .append(",\"meanMs\":").append(millis(histogram.getMeanMicros()))
+                    .append(",\"p50Ms\":").append(millis(histogram.percentileMicros(50)))
+                    .append(",\"p95Ms\":").append(millis(histogram.percentileMicros(95)))
+                    .append(",\"p99Ms\":").append(millis(histogram.percentileMicros(99)))
+                    .append(",\"maxMs\":").append(millis(histogram.getMaxMicros()))
+                    .append('}');
+        }
+        return json.append("}}").toString();
+    }
+
+    private static String millis(long micros) {
+        return String.valueOf(micros / 1000) + '.' + String.valueOf(1000 + micros % 1000).substring(1);
+    }
+
+    // One timed run of an operation
+    public static final class Span {
+
+        static final Span DISABLED = new Span(null, null, null, 0, 0);
+
+        private final Metrics metrics;
+        private final Tracer tracer;
+        private final String name;
+        private final int cookie;
+        private final long startNanos;
+
+        private Span(Metrics metrics, Tracer tracer, String name, int cookie, long startNanos) {
+            this.metrics = metrics;
+            this.tracer = tracer;
+            this.name = name;
+            this.cookie = cookie;
+            this.startNanos = startNanos;
+        }
+
+        public void end() {
+            finish(false);
+        }
+
+        // The operation failed; its latency is recorded and counted as an error
+        public void fail() {
+            finish(true);
+        }
+
+        private void finish(boolean failed) {
+            if (metrics == null) {
+                return;
+            }
+            long micros = (metrics.nanoTime.getAsLong() - startNanos) / 1000;
+            metrics.histogram(name).record(micros, failed);
+            tracer.endAsyncSection(name, cookie);
+        }
+    }
+}
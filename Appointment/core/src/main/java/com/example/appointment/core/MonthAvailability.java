@@ -0,0 +1,120 @@
+package com.example.appointment.core;
+
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+// Availability of a doctor's month as two bitmaps per day over the doctor's SlotGrid: the slots that
+// can be booked under the SlotRules and the slots taken. A month is a few hundred bytes, so a
+// calendar can keep the months around it and draw or page through them without reading again.
+public final class MonthAvailability {
+
+    private final Doctor doctor;
+    private final int year;
+    private final int month;
+    // ISO weekday of the 1st, 1 = Monday
+    private final int firstWeekday;
+    private final long[] openMasks;
+    private final long[] bookedMasks;
+
+    private MonthAvailability(Doctor doctor, int year, int month, int firstWeekday, long[] openMasks, long[] bookedMasks) {
+        this.doctor = doctor;
+        this.year = year;
+        this.month = month;
+        this.firstWeekday = firstWeekday;
+        this.openMasks = openMasks;
+        this.bookedMasks = bookedMasks;
+    }
+
+    // The month (1 = January) given its appointments; those of other months or outside the doctor's
+    // slots are ignored. Slots too soon to book at nowMillis are not open.
+    public static MonthAvailability of(Doctor doctor, int year, int month, TimeZone zone, SlotRules rules,
+                                       List<Appointment> appointments, long nowMillis) {
+        SlotGrid grid = doctor.getSlotGrid();
+        long[] openMasks = rules.monthMasks(doctor, year, month);
+        int days = openMasks.length;
+        long[] firstSlotMillis = new long[days];
+        long earliest = nowMillis + rules.getMinLeadMillis();
+
+        Calendar day = DayKeys.toCalendar(year * 10000 + month * 100 + 1, zone);
+        int firstWeekday = (day.get(Calendar.DAY_OF_WEEK) + 5) % 7 + 1;
+        for (int i = 0; i < days; i++, day.add(Calendar.DAY_OF_MONTH, 1)) {
+            firstSlotMillis[i] = grid.firstSlotMillis(day);
+            // Only days that start within the lead time lose slots to it; days that are over lose all
+            long open = openMasks[i];
+            if (open != 0L && firstSlotMillis[i] < earliest) {
+                int lastOpen = Long.SIZE - 1 - Long.numberOfLeadingZeros(open);
+                openMasks[i] = grid.slotStartMillis(firstSlotMillis[i], lastOpen) < earliest
+                        ? 0L : rules.bookableMask(doctor, day, nowMillis);
+            }
+        }
+
+        long[] bookedMasks = new long[days];
+        int monthKey = year * 100 + month;
+        for (Appointment appointment : appointments) {
+            if (appointment.getDayKey() / 100 == monthKey) {
+                int index = appointment.getDayKey() % 100 - 1;
+                bookedMasks[index] |= grid.slotBit(firstSlotMillis[index], appointment.getTimestamp());
+            }
+        }
+        return new MonthAvailability(doctor, year, month, firstWeekday, openMasks, bookedMasks);
+    }
+
+    public Doctor getDoctor() {
+        return doctor;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    // 1 = January
+    public int getMonth() {
+        return month;
+    }
+
+    public int getDays() {
+        return openMasks.length;
+    }
+
+    // ISO weekday of the 1st, 1 = Monday, for laying out the weeks
+    public int getFirstWeekday() {
+        return firstWeekday;
+    }
+
+    // Days are indexed from 0 for the 1st
+    public int getDayKey(int index) {
+        return year * 10000 + month * 100 + index + 1;
+    }
+
+    public long getOpenMask(int index) {
+        return openMasks[index];
+    }
+
+    public long getBookedMask(int index) {
+        return bookedMasks[index];
+    }
+
+    public int getOpenCount(int index) {
+        return Long.bitCount(openMasks[index]);
+    }
+
+    public int getFreeCount(int index) {
+        return Long.bitCount(openMasks[index] & ~bookedMasks[index]);
+    }
+
+    // 0 when nothing can be booked on the day, otherwise 1 to levels - 1 by the share of its open
+    // slots that are free, levels - 1 meaning all of them
+    public int shade(int index, int levels) {
+        int free = getFreeCount(index);
+        if (free == 0) {
+            return 0;
+        }
+        int open = getOpenCount(index);
+        return (free * (levels - 1) + open - 1) / open;
+    }
+
+    public boolean isFor(String doctorId, int year, int month) {
+        return this.year == year && this.month == month && doctor.getId().equals(doctorId);
+    }
+}
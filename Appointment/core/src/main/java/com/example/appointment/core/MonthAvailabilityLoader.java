@@ -0,0 +1,181 @@
+package com.example.appointment.core;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
+
+// Loads doctor months into MonthAvailability with one range query per month and keeps them in
+// memory, so paging through a calendar only reads months it has not seen. Once a month is loaded the
+// next one is prefetched in the background. Months expire after ttlMillis and the least recently
+// used one is dropped beyond maxMonths; loading a month that is already being read waits for that read.
+public class MonthAvailabilityLoader {
+
+    private final AppointmentRangeSource source;
+    private final TimeZone timeZone;
+    private final Executor worker;
+    private final SlotRulesSource rules;
+    private final Clock clock;
+
+    // Keyed by doctorId/yyyymm; a read that overlaps a booking on any month is answered but not kept
+    private final ExpiringLruCache<String, MonthAvailability> months;
+    // Reads in progress by month; a read started before an invalidation is no longer listed
+    private final Map<String, Read> reads = new HashMap<>();
+
+    public MonthAvailabilityLoader(AppointmentRangeSource source, TimeZone timeZone, Executor worker, SlotRulesSource rules,
+                                   Clock clock, long ttlMillis, int maxMonths) {
+        if (maxMonths <= 0) {
+            throw new IllegalArgumentException("maxMonths must be positive: " + maxMonths);
+        }
+        this.source = source;
+        this.timeZone = timeZone;
+        this.worker = worker;
+        this.rules = rules;
+        this.clock = clock;
+        this.months = new ExpiringLruCache<>(clock, ttlMillis, maxMonths);
+    }
+
+    // Load the month (1 = January) and then prefetch the one after it. The listener is called on
+    // the worker executor.
+    public void load(Doctor doctor, int year, int month, OnMonthListener listener) {
+        read(doctor, year, month, listener, true);
+    }
+
+    // Read the month into memory unless it is there already
+    public void prefetch(Doctor doctor, int year, int month) {
+        read(doctor, year, month, null, false);
+    }
+
+    // The month if it is in memory and fresh, e.g. to draw it at once while binding a view
+    public synchronized MonthAvailability getCached(Doctor doctor, int year, int month) {
+        return months.get(key(doctor.getId(), year, month));
+    }
+
+    // Forget the month of the doctor's day, e.g. after a booking on it
+    public synchronized void invalidate(String doctorId, int dayKey) {
+        String key = key(doctorId, dayKey / 10000, dayKey / 100 % 100);
+        reads.remove(key);
+        months.invalidate(key);
+    }
+
+    public synchronized int size() {
+        return months.size();
+    }
+
+    private void read(Doctor doctor, int year, int month, OnMonthListener listener, boolean prefetchNext) {
+        String key = key(doctor.getId(), year, month);
+        MonthAvailability cached;
+        Read read = null;
+        synchronized (this) {
+            cached = months.get(key);
+            if (cached == null) {
+                Read running = reads.get(key);
+                if (running == null) {
+                    read = new Read(months.generation());
+                    reads.put(key, read);
+                    running = read;
+                }
+                if (listener != null) {
+                    running.listeners.add(listener);
+                }
+                if (prefetchNext) {
+                    running.prefetchNext = true;
+                }
+            }
+        }
+
+        if (cached != null) {
+            if (listener != null) {
+                worker.execute(() -> listener.onSuccess(cached));
+            }
+            if (prefetchNext) {
+                prefetchAfter(doctor, year, month);
+            }
+            return;
+        }
+        if (read == null) {
+            // Answered by the read already running
+            return;
+        }
+
+        Read started = read;
+        Calendar from = DayKeys.toCalendar(year * 10000 + month * 100 + 1, timeZone);
+        Calendar to = (Calendar) from.clone();
+        to.add(Calendar.MONTH, 1);
+        source.fetchRange(doctor.getId(), from.getTimeInMillis(), to.getTimeInMillis(), new AppointmentRepository.OnAppointmentsListener() {
+            @Override
+            public void onSuccess(List<Appointment> appointments) {
+                worker.execute(() -> {
+                    MonthAvailability availability = MonthAvailability.of(doctor, year, month, timeZone, rules.getRules(),
+                            appointments, clock.currentTimeMillis());
+                    List<OnMonthListener> listeners;
+                    boolean next;
+                    synchronized (MonthAvailabilityLoader.this) {
+                        finish(key, started);
+                        months.putIfCurrent(key, availability, started.generation);
+                        listeners = new ArrayList<>(started.listeners);
+                        next = started.prefetchNext;
+                    }
+                    for (OnMonthListener waiting : listeners) {
+                        waiting.onSuccess(availability);
+                    }
+                    if (next) {
+                        prefetchAfter(doctor, year, month);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                worker.execute(() -> {
+                    List<OnMonthListener> listeners;
+                    synchronized (MonthAvailabilityLoader.this) {
+                        finish(key, started);
+                        listeners = new ArrayList<>(started.listeners);
+                    }
+                    for (OnMonthListener waiting : listeners) {
+                        waiting.onFailure(e);
+                    }
+                });
+            }
+        });
+    }
+
+    private void prefetchAfter(Doctor doctor, int year, int month) {
+        if (month == 12) {
+            prefetch(doctor, year + 1, 1);
+        } else {
+            prefetch(doctor, year, month + 1);
+        }
+    }
+
+    // Stop listing the read, unless an invalidation has replaced it with a newer one
+    private void finish(String key, Read read) {
+        if (reads.get(key) == read) {
+            reads.remove(key);
+        }
+    }
+
+    private static String key(String doctorId, int year, int month) {
+        return doctorId + "/" + (year * 100 + month);
+    }
+
+    // A range query in progress and who waits for it; guarded by the loader's monitor
+    private static final class Read {
+        final long generation;
+        final List<OnMonthListener> listeners = new ArrayList<>();
+        boolean prefetchNext;
+
+        Read(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    public interface OnMonthListener {
+        void onSuccess(MonthAvailability month);
+        void onFailure(Exception e);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.appointment.core;
+
+// An occurrence of a recurring booking that could not be booked, and why
+public final class OccurrenceConflict {
+
+    public enum Reason {
+        // The doctor does not work that day: a closed weekday, a holiday or a day off, see SlotRules
+        CLOSED,
+        // Outside the doctor's working hours, in a break, or not at the start of a slot
+        NOT_BOOKABLE,
+        // Another appointment already holds the slot
+        TAKEN
+    }
+
+    private final int occurrence;
+    private final long slotStartMillis;
+    private final Reason reason;
+
+    public OccurrenceConflict(int occurrence, long slotStartMillis, Reason reason) {
+        this.occurrence = occurrence;
+        this.slotStartMillis = slotStartMillis;
+        this.reason = reason;
+    }
+
+    // Zero-based position of the occurrence in the series
+    public int getOccurrence() {
+        return occurrence;
+    }
+
+    public long getSlotStartMillis() {
+        return slotStartMillis;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.appointment.core;
+
+// A booking accepted on the device and not yet confirmed by the backend, see BookingQueue.
+// The key is its idempotency key: every attempt to send it uses the same one.
+public final class PendingBooking {
+
+    private final String key;
+    private final Doctor doctor;
+    private final long slotStartMillis;
+    private final String userId;
+    private final String email;
+    private final long createdAtMillis;
+    private final int attempts;
+    private final long nextAttemptAtMillis;
+
+    public PendingBooking(String key, Doctor doctor, long slotStartMillis, String userId, String email,
+                          long createdAtMillis, int attempts, long nextAttemptAtMillis) {
+        this.key = key;
+        this.doctor = doctor;
+        this.slotStartMillis = slotStartMillis;
+        this.userId = userId;
+        this.email = email;
+        this.createdAtMillis = createdAtMillis;
+        this.attempts = attempts;
+        this.nextAttemptAtMillis = nextAttemptAtMillis;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Doctor getDoctor() {
+        return doctor;
+    }
+
+    public long getSlotStartMillis() {
+        return slotStartMillis;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    // When the user booked it, which orders the queue
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    // Attempts that failed without an answer from the backend
+    public int getAttempts() {
+        return attempts;
+    }
+
+    // Not sent again before this time, unless connectivity comes back first
+    public long getNextAttemptAtMillis() {
+        return nextAttemptAtMillis;
+    }
+
+    // Whether this is the same booking of the same slot by the same user
+    boolean isSameSlot(Doctor doctor, long slotStartMillis, String userId) {
+        return this.doctor.getId().equals(doctor.getId()) && this.slotStartMillis == slotStartMillis && this.userId.equals(userId);
+    }
+
+    PendingBooking withNextAttempt(int attempts, long nextAttemptAtMillis) {
+        return new PendingBooking(key, doctor, slotStartMillis, userId, email, createdAtMillis, attempts, nextAttemptAtMillis);
+    }
+}
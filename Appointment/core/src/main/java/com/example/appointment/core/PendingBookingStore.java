@@ -0,0 +1,18 @@
+package com.example.appointment.core;
+
+import java.util.List;
+
+// Durable storage of the booking queue, so bookings survive the app being killed while offline.
+// Calls are synchronous and may touch the disk.
+public interface PendingBookingStore {
+
+    // Every stored booking, in any order
+    List<PendingBooking> load();
+
+    // Add the booking, or replace the one with the same key
+    void save(PendingBooking booking);
+
+    void remove(String key);
+
+    void clear();
+}
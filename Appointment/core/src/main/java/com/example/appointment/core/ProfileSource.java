@@ -0,0 +1,13 @@
+package com.example.appointment.core;
+
+// Reads a user's profile from the backend
+public interface ProfileSource {
+
+    void fetch(String userId, OnProfileListener listener);
+
+    interface OnProfileListener {
+        // fetchedAtMillis of the profile is left for the caller to set
+        void onLoaded(UserProfile profile);
+        void onFailure(Exception e);
+    }
+}
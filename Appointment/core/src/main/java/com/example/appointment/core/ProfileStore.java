@@ -0,0 +1,12 @@
+package com.example.appointment.core;
+
+// On-device copy of the signed-in user's profile. Calls may touch the disk.
+public interface ProfileStore {
+
+    // The stored profile, or null if there is none
+    UserProfile load();
+
+    void save(UserProfile profile);
+
+    void clear();
+}
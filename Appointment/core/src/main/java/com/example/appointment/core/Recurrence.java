@@ -0,0 +1,37 @@
+package com.example.appointment.core;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+// How often a recurring appointment repeats
+public enum Recurrence {
+    WEEKLY(7),
+    BIWEEKLY(14);
+
+    private final int intervalDays;
+
+    Recurrence(int intervalDays) {
+        this.intervalDays = intervalDays;
+    }
+
+    public int getIntervalDays() {
+        return intervalDays;
+    }
+
+    // Start times of count occurrences beginning at firstMillis. Occurrences keep the wall-clock
+    // time of the first one in the given time zone, also across daylight saving changes.
+    public long[] occurrences(long firstMillis, int count, TimeZone zone) {
+        long[] starts = new long[count];
+        Calendar calendar = Calendar.getInstance(zone);
+        calendar.setTimeInMillis(firstMillis);
+        int hour = calendar.get(Calendar.HOUR_OF_DAY);
+        int minute = calendar.get(Calendar.MINUTE);
+        for (int i = 0; i < count; i++) {
+            calendar.set(Calendar.HOUR_OF_DAY, hour);
+            calendar.set(Calendar.MINUTE, minute);
+            starts[i] = calendar.getTimeInMillis();
+            calendar.add(Calendar.DAY_OF_MONTH, intervalDays);
+        }
+        return starts;
+    }
+}
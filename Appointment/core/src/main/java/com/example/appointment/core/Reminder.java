@@ -0,0 +1,72 @@
+package com.example.appointment.core;
+
+// A notification due leadMillis before an appointment. It carries everything the notification shows,
+// so nothing has to be read, locally or from Firestore, when it fires.
+public final class Reminder {
+
+    private final String appointmentId;
+    private final String doctorId;
+    private final long appointmentMillis;
+    private final long leadMillis;
+
+    public Reminder(String appointmentId, String doctorId, long appointmentMillis, long leadMillis) {
+        this.appointmentId = appointmentId;
+        this.doctorId = doctorId;
+        this.appointmentMillis = appointmentMillis;
+        this.leadMillis = leadMillis;
+    }
+
+    // Unique per appointment and lead time, e.g. "dr1_950000@60" for an hour before
+    public String getKey() {
+        return appointmentId + "@" + leadMillis / 60_000L;
+    }
+
+    public String getAppointmentId() {
+        return appointmentId;
+    }
+
+    public String getDoctorId() {
+        return doctorId;
+    }
+
+    public long getAppointmentMillis() {
+        return appointmentMillis;
+    }
+
+    public long getLeadMillis() {
+        return leadMillis;
+    }
+
+    public long getTriggerAtMillis() {
+        return appointmentMillis - leadMillis;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Reminder)) {
+            return false;
+        }
+        Reminder other = (Reminder) o;
+        return appointmentMillis == other.appointmentMillis
+                && leadMillis == other.leadMillis
+                && appointmentId.equals(other.appointmentId)
+                && doctorId.equals(other.doctorId);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = appointmentId.hashCode();
+        result = 31 * result + doctorId.hashCode();
+        result = 31 * result + Long.hashCode(appointmentMillis);
+        result = 31 * result + Long.hashCode(leadMillis);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return getKey() + " at " + getTriggerAtMillis();
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.appointment.core;
+
+import java.util.Collection;
+import java.util.Map;
+
+// Where reminders are registered to fire, e.g. AlarmManager. The platform cannot list what is
+// registered, so implementations keep their own record of it.
+public interface ReminderAlarms {
+
+    // Reminders registered and not yet fired or cancelled, keyed by Reminder.getKey()
+    Map<String, Reminder> getRegistered();
+
+    // Cancel and register reminders in one pass; either collection may be empty
+    void update(Collection<Reminder> cancelled, Collection<Reminder> registered);
+}
@@ -0,0 +1,91 @@
+package com.example.appointment.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Keeps the registered reminders in line with the user's appointments in the local store.
+// Reminder times are computed on the device from the synced copy, so finding them costs no
+// Firestore reads, and each pass only cancels or registers the reminders that changed.
+public class ReminderScheduler {
+
+    public static final long DAY_BEFORE = 24 * 60 * 60_000L;
+    public static final long HOUR_BEFORE = 60 * 60_000L;
+    // Only the soonest appointments get reminders, which keeps the number of alarms bounded
+    public static final int MAX_APPOINTMENTS = 50;
+
+    private final LocalAppointmentStore store;
+    private final ReminderAlarms alarms;
+    private final Clock clock;
+    private final long[] leadsMillis;
+
+    public ReminderScheduler(LocalAppointmentStore store, ReminderAlarms alarms) {
+        this(store, alarms, Clock.SYSTEM, DAY_BEFORE, HOUR_BEFORE);
+    }
+
+    public ReminderScheduler(LocalAppointmentStore store, ReminderAlarms alarms, Clock clock, long... leadsMillis) {
+        for (long leadMillis : leadsMillis) {
+            if (leadMillis < 0) {
+                throw new IllegalArgumentException("Lead times must not be negative: " + leadMillis);
+            }
+        }
+        this.store = store;
+        this.alarms = alarms;
+        this.clock = clock;
+        this.leadsMillis = Arrays.copyOf(leadsMillis, leadsMillis.length);
+    }
+
+    // Bring the registered reminders in line with the user's stored appointments, e.g. after a sync
+    // applied changes. Reads the local store, so it must not run on the main thread.
+    // Returns the number of reminders cancelled or registered.
+    public synchronized int reschedule(String userId) {
+        long now = clock.currentTimeMillis();
+        List<Appointment> upcoming = store.loadPage(userId, AppointmentPager.Section.UPCOMING, now, null, MAX_APPOINTMENTS);
+        return apply(plan(upcoming, now));
+    }
+
+    // Cancel every reminder, e.g. on sign-out
+    public synchronized int cancelAll() {
+        return apply(Collections.<String, Reminder>emptyMap());
+    }
+
+    // Reminders of the appointments that are still due, keyed by Reminder.getKey()
+    Map<String, Reminder> plan(List<Appointment> appointments, long nowMillis) {
+        Map<String, Reminder> planned = new HashMap<>();
+        for (Appointment appointment : appointments) {
+            for (long leadMillis : leadsMillis) {
+                Reminder reminder = new Reminder(appointment.getId(), appointment.getDoctorId(), appointment.getTimestamp(), leadMillis);
+                // A reminder whose time has passed, e.g. for a booking made an hour ahead, is skipped
+                if (reminder.getTriggerAtMillis() > nowMillis) {
+                    planned.put(reminder.getKey(), reminder);
+                }
+            }
+        }
+        return planned;
+    }
+
+    private int apply(Map<String, Reminder> planned) {
+        Map<String, Reminder> registered = alarms.getRegistered();
+        List<Reminder> cancelled = new ArrayList<>();
+        List<Reminder> added = new ArrayList<>();
+        for (Reminder reminder : registered.values()) {
+            Reminder wanted = planned.get(reminder.getKey());
+            if (wanted == null || !wanted.equals(reminder)) {
+                cancelled.add(reminder);
+            }
+        }
+        for (Reminder reminder : planned.values()) {
+            if (!reminder.equals(registered.get(reminder.getKey()))) {
+                added.add(reminder);
+            }
+        }
+        if (cancelled.isEmpty() && added.isEmpty()) {
+            return 0;
+        }
+        alarms.update(cancelled, added);
+        return cancelled.size() + added.size();
+    }
+}
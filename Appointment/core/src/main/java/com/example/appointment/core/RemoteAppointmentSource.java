@@ -0,0 +1,11 @@
+package com.example.appointment.core;
+
+import java.util.List;
+
+// Server side of the appointment sync. Calls block, so they must not run on the main thread.
+public interface RemoteAppointmentSource {
+
+    // Up to limit changes to the slots the user ever booked strictly after the cursor, oldest first;
+    // see AppointmentSchema.FIELD_PARTICIPANTS
+    List<AppointmentChange> fetchChanges(String userId, SyncCursor after, int limit) throws Exception;
+}
@@ -0,0 +1,275 @@
+package com.example.appointment.core;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+// Bulk import of existing appointments. Records are streamed from the input, checked against the
+// doctor's working days and open slots under the SlotRules, deduplicated by slot, and written in chunks of up to
+// chunkSize writes with at most maxChunksInFlight chunks being written at once. A chunk's writes are its
+// slots plus one day summary per doctor-day among them. Slots that are already taken are left alone,
+// so re-running an import is harmless.
+// The checkpoint is the number of leading records whose chunks are all written; a failed or
+// interrupted import resumes after it when run again with the same import ID.
+public class ScheduleImporter {
+
+    public static final int DEFAULT_CHUNKS_IN_FLIGHT = 4;
+    // Rejected records kept for the report; the rest are only counted
+    public static final int MAX_REJECTIONS = 100;
+
+    private final ImportSink sink;
+    private final ImportCheckpoints checkpoints;
+    private final Executor executor;
+    private final TimeZone zone;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+    private final SlotRulesSource rules;
+
+    public ScheduleImporter(ImportSink sink, ImportCheckpoints checkpoints, Executor executor, TimeZone zone) {
+        this(sink, checkpoints, executor, zone, SlotRulesSource.DEFAULT);
+    }
+
+    public ScheduleImporter(ImportSink sink, ImportCheckpoints checkpoints, Executor executor, TimeZone zone,
+                            SlotRulesSource rules) {
+        this(sink, checkpoints, executor, zone, ImportSink.MAX_CHUNK_SIZE, DEFAULT_CHUNKS_IN_FLIGHT, rules);
+    }
+
+    public ScheduleImporter(ImportSink sink, ImportCheckpoints checkpoints, Executor executor, TimeZone zone,
+                            int chunkSize, int maxChunksInFlight) {
+        this(sink, checkpoints, executor, zone, chunkSize, maxChunksInFlight, SlotRulesSource.DEFAULT);
+    }
+
+    public ScheduleImporter(ImportSink sink, ImportCheckpoints checkpoints, Executor executor, TimeZone zone,
+                            int chunkSize, int maxChunksInFlight, SlotRulesSource rules) {
+        // A slot and its day summary have to fit in one chunk
+        if (chunkSize < 2 || chunkSize > ImportSink.MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("chunkSize must be between 2 and " + ImportSink.MAX_CHUNK_SIZE + ": " + chunkSize);
+        }
+        if (maxChunksInFlight <= 0) {
+            throw new IllegalArgumentException("maxChunksInFlight must be positive: " + maxChunksInFlight);
+        }
+        this.sink = sink;
+        this.checkpoints = checkpoints;
+        this.executor = executor;
+        this.zone = zone;
+        this.chunkSize = chunkSize;
+        this.maxChunksInFlight = maxChunksInFlight;
+        this.rules = rules;
+    }
+
+    // Import the records for the given doctors, keyed by ID. Blocks until every chunk is written;
+    // throws the first write or read failure once the chunks in flight have finished.
+    public ImportReport run(String importId, Iterator<ImportRecord> records, Map<String, Doctor> doctors) throws Exception {
+        long resumeAfter = checkpoints.load(importId);
+        Run run = new Run(importId, resumeAfter);
+        // Slots seen in this run; records before the checkpoint are caught by the sink instead
+        Set<String> seenPaths = new HashSet<>();
+        Map<String, Appointment> chunk = new LinkedHashMap<>();
+        // Doctor-days of the chunk, each written a day summary along with its slots
+        Set<String> chunkDays = new HashSet<>();
+        long position = 0;
+        Exception readFailure = null;
+
+        try {
+            while (run.failure == null && records.hasNext()) {
+                ImportRecord record = records.next();
+                position++;
+                if (position <= resumeAfter) {
+                    continue;
+                }
+
+                Appointment appointment;
+                try {
+                    appointment = toAppointment(record, doctors);
+                } catch (IllegalArgumentException e) {
+                    run.reject(record, e.getMessage(), false);
+                    continue;
+                }
+                String path = AppointmentPaths.appointment(appointment.getDoctorId(), appointment.getDayKey(), appointment.getId());
+                if (!seenPaths.add(path)) {
+                    run.reject(record, "Duplicate slot " + appointment.getId(), true);
+                    continue;
+                }
+
+                String day = AppointmentPaths.day(appointment.getDoctorId(), appointment.getDayKey());
+                int writes = chunkDays.contains(day) ? 1 : 2;
+                if (chunk.size() + chunkDays.size() + writes > chunkSize) {
+                    // The chunk ends with the record before this one
+                    run.submit(chunk, position - 1);
+                    chunk = new LinkedHashMap<>();
+                    chunkDays = new HashSet<>();
+                }
+                chunk.put(path, appointment);
+                chunkDays.add(day);
+                if (chunk.size() + chunkDays.size() == chunkSize) {
+                    run.submit(chunk, position);
+                    chunk = new LinkedHashMap<>();
+                    chunkDays = new HashSet<>();
+                }
+            }
+        } catch (UncheckedIOException e) {
+            readFailure = e.getCause();
+        }
+        if (readFailure == null && run.failure == null) {
+            // Also moves the checkpoint past trailing rejected records
+            run.submit(chunk, position);
+        }
+        run.awaitChunks();
+
+        if (run.failure != null) {
+            throw run.failure;
+        }
+        if (readFailure != null) {
+            throw readFailure;
+        }
+        return run.report(position);
+    }
+
+    private Appointment toAppointment(ImportRecord record, Map<String, Doctor> doctors) {
+        if (record.getError() != null) {
+            throw new IllegalArgumentException(record.getError());
+        }
+        if (isBlank(record.getDoctorId())) {
+            throw new IllegalArgumentException("Missing " + AppointmentRecords.COLUMN_DOCTOR_ID);
+        }
+        Doctor doctor = doctors.get(record.getDoctorId());
+        if (doctor == null) {
+            throw new IllegalArgumentException("Unknown doctor " + record.getDoctorId());
+        }
+        if (isBlank(record.getUserId())) {
+            throw new IllegalArgumentException("Missing " + AppointmentRecords.COLUMN_USER_ID);
+        }
+        Long start = AppointmentRecords.parseStart(record.getStart(), zone);
+        if (start == null) {
+            throw new IllegalArgumentException("Start must be yyyy-MM-dd HH:mm: " + record.getStart());
+        }
+
+        Calendar day = Calendar.getInstance(zone);
+        day.setTimeInMillis(start);
+        SlotRules slotRules = rules.getRules();
+        if (slotRules.openMask(doctor, day) == 0L) {
+            throw new IllegalArgumentException("Falls on a day " + doctor.getName() + " does not work: " + record.getStart());
+        }
+        SlotGrid slotGrid = doctor.getSlotGrid();
+        if (!slotRules.isOpenSlot(doctor, day, start)) {
+            throw new IllegalArgumentException("Not a slot of " + doctor.getName() + ": " + record.getStart());
+        }
+
+        String slotId = SlotKeys.slotId(doctor.getId(), start, slotGrid.getSlotMillis());
+        String email = isBlank(record.getEmail()) ? null : record.getEmail();
+        return new Appointment(slotId, record.getUserId(), email, doctor.getId(), start, DayKeys.dayKey(day));
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    // State of one import run, shared with the chunk writers
+    private final class Run {
+
+        private final String importId;
+        private final long resumeAfter;
+        private final Semaphore permits = new Semaphore(maxChunksInFlight);
+        private final List<ImportReport.Rejection> rejections = new ArrayList<>();
+        // Chunk index -> records done once it is written, for chunks that finished ahead of an earlier one
+        private final Map<Integer, Long> finished = new HashMap<>();
+        private int submitted;
+        private int nextToCheckpoint;
+        private long checkpoint;
+        private int imported;
+        private int alreadyTaken;
+        private int duplicates;
+        private int invalid;
+        volatile Exception failure;
+
+        Run(String importId, long resumeAfter) {
+            this.importId = importId;
+            this.resumeAfter = resumeAfter;
+            this.checkpoint = resumeAfter;
+        }
+
+        void reject(ImportRecord record, String reason, boolean duplicate) {
+            synchronized (this) {
+                if (duplicate) {
+                    duplicates++;
+                } else {
+                    invalid++;
+                }
+                if (rejections.size() < MAX_REJECTIONS) {
+                    rejections.add(new ImportReport.Rejection(record.getLineNumber(), reason));
+                }
+            }
+        }
+
+        // Write the chunk, which ends with the recordsDone-th record, once fewer than maxChunksInFlight are running
+        void submit(Map<String, Appointment> chunk, long recordsDone) throws InterruptedException {
+            int index = submitted++;
+            if (chunk.isEmpty()) {
+                written(index, recordsDone);
+                return;
+            }
+            permits.acquire();
+            if (failure != null) {
+                // A chunk failed while this one waited for a permit
+                permits.release();
+                return;
+            }
+            executor.execute(() -> {
+                try {
+                    Set<String> taken = sink.createAllIfFree(chunk);
+                    synchronized (this) {
+                        imported += chunk.size() - taken.size();
+                        alreadyTaken += taken.size();
+                    }
+                    written(index, recordsDone);
+                } catch (Exception e) {
+                    fail(e);
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+
+        // Advance the checkpoint over every chunk written without a gap before it
+        private synchronized void written(int index, long recordsDone) {
+            finished.put(index, recordsDone);
+            long reached = checkpoint;
+            while (finished.containsKey(nextToCheckpoint)) {
+                reached = finished.remove(nextToCheckpoint++);
+            }
+            if (reached != checkpoint && failure == null) {
+                try {
+                    checkpoints.save(importId, reached);
+                    checkpoint = reached;
+                } catch (Exception e) {
+                    fail(e);
+                }
+            }
+        }
+
+        private synchronized void fail(Exception e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+
+        void awaitChunks() throws InterruptedException {
+            permits.acquire(maxChunksInFlight);
+            permits.release(maxChunksInFlight);
+        }
+
+        synchronized ImportReport report(long recordsRead) {
+            return new ImportReport(resumeAfter, recordsRead, imported, alreadyTaken, duplicates, invalid, rejections);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.appointment.core;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// The signed-in user's profile for every screen. It is read from the backend once, kept on disk and
+// in memory, and handed out synchronously; a copy older than maxAgeMillis is refreshed in the
+// background while the old one stays in use.
+public class SessionManager {
+
+    public static final long DEFAULT_MAX_AGE_MILLIS = 24 * 60 * 60_000L;
+
+    private final ProfileStore store;
+    private final ProfileSource source;
+    private final Clock clock;
+    private final long maxAgeMillis;
+    private final List<OnProfileChangedListener> listeners = new CopyOnWriteArrayList<>();
+
+    private boolean loaded;
+    private UserProfile profile;
+    // User whose profile is being fetched, or null
+    private String refreshing;
+
+    public SessionManager(ProfileStore store, ProfileSource source) {
+        this(store, source, Clock.SYSTEM, DEFAULT_MAX_AGE_MILLIS);
+    }
+
+    public SessionManager(ProfileStore store, ProfileSource source, Clock clock, long maxAgeMillis) {
+        this.store = store;
+        this.source = source;
+        this.clock = clock;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    // The cached profile of the signed-in user, or null before the first read.
+    // Only the first call reads the disk; warm it up off the main thread with start().
+    public synchronized UserProfile getProfile() {
+        if (!loaded) {
+            profile = store.load();
+            loaded = true;
+        }
+        return profile;
+    }
+
+    // Use the cached profile of the user signed in on this device, fetching it if it is missing,
+    // stale or belongs to someone else
+    public void start(String userId) {
+        UserProfile cached;
+        synchronized (this) {
+            cached = getProfile();
+            if (cached != null && !cached.getUserId().equals(userId)) {
+                // Left over from a user who was not signed out properly
+                clearLocked();
+                cached = null;
+            }
+        }
+        if (cached == null || isStale(cached)) {
+            refresh(userId);
+        }
+    }
+
+    // Store the profile the app already has, e.g. the one just written at sign-up, without a read
+    public void signedIn(UserProfile profile) {
+        synchronized (this) {
+            this.profile = profile;
+            loaded = true;
+            store.save(profile);
+        }
+        notifyChanged(profile);
+    }
+
+    // Forget the profile, on disk too; a fetch still running for the old user is dropped
+    public void signOut() {
+        synchronized (this) {
+            clearLocked();
+        }
+        notifyChanged(null);
+    }
+
+    public boolean isStale(UserProfile profile) {
+        return clock.currentTimeMillis() - profile.getFetchedAtMillis() >= maxAgeMillis;
+    }
+
+    public void addListener(OnProfileChangedListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(OnProfileChangedListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Fetch the profile unless a fetch for the user is already running
+    private void refresh(String userId) {
+        synchronized (this) {
+            if (userId.equals(refreshing)) {
+                return;
+            }
+            refreshing = userId;
+        }
+        source.fetch(userId, new ProfileSource.OnProfileListener() {
+            @Override
+            public void onLoaded(UserProfile fetched) {
+                UserProfile stamped = new UserProfile(userId, fetched.getUsername(), fetched.getEmail(),
+                        fetched.getPreferences(), clock.currentTimeMillis());
+                synchronized (SessionManager.this) {
+                    if (!userId.equals(refreshing)) {
+                        return;
+                    }
+                    refreshing = null;
+                    profile = stamped;
+                    loaded = true;
+                    store.save(stamped);
+                }
+                notifyChanged(stamped);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                // The cached copy, if any, stays in use; the next start tries again
+                synchronized (SessionManager.this) {
+                    if (userId.equals(refreshing)) {
+                        refreshing = null;
+                    }
+                }
+            }
+        });
+    }
+
+    private void clearLocked() {
+        profile = null;
+        loaded = true;
+        refreshing = null;
+        store.clear();
+    }
+
+    private void notifyChanged(UserProfile profile) {
+        for (OnProfileChangedListener listener : listeners) {
+            listener.onProfileChanged(profile);
+        }
+    }
+
+    public interface OnProfileChangedListener {
+        // profile is null after sign-out. Called on the thread that fetched or changed it.
+        void onProfileChanged(UserProfile profile);
+    }
+}
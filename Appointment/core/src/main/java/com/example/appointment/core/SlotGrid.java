@@ -0,0 +1,148 @@
+package com.example.appointment.core;
+
+import java.util.Calendar;
+
+// Fixed grid of bookable slots within a day; booked slots are tracked as bits of a long
+public final class SlotGrid {
+
+    public static final int MAX_SLOTS = Long.SIZE;
+
+    // 08:00 - 18:00 every 30 minutes, the schedule the booking screen offers
+    public static final SlotGrid DEFAULT = new SlotGrid(8 * 60, 30, 21);
+
+    private static final long MINUTE_MILLIS = 60_000L;
+
+    private final int firstSlotMinute;
+    private final int slotMinutes;
+    private final int slotCount;
+    private final long slotMillis;
+    private final long allSlotsMask;
+    private final String[] labels;
+
+    public SlotGrid(int firstSlotMinute, int slotMinutes, int slotCount) {
+        if (slotMinutes <= 0) {
+            throw new IllegalArgumentException("slotMinutes must be positive: " + slotMinutes);
+        }
+        if (slotCount <= 0 || slotCount > MAX_SLOTS) {
+            throw new IllegalArgumentException("slotCount must be between 1 and " + MAX_SLOTS + ": " + slotCount);
+        }
+        if (firstSlotMinute < 0 || firstSlotMinute + (slotCount - 1) * slotMinutes >= 24 * 60) {
+            throw new IllegalArgumentException("Slots must start and end within one day");
+        }
+        this.firstSlotMinute = firstSlotMinute;
+        this.slotMinutes = slotMinutes;
+        this.slotCount = slotCount;
+        this.slotMillis = slotMinutes * MINUTE_MILLIS;
+        this.allSlotsMask = slotCount == MAX_SLOTS ? -1L : (1L << slotCount) - 1;
+
+        // Labels are built once so listing slots never formats strings
+        this.labels = new String[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            int minuteOfDay = firstSlotMinute + i * slotMinutes;
+            labels[i] = twoDigits(minuteOfDay / 60) + ":" + twoDigits(minuteOfDay % 60);
+        }
+    }
+
+    public int getFirstSlotMinute() {
+        return firstSlotMinute;
+    }
+
+    public int getSlotMinutes() {
+        return slotMinutes;
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    public long getSlotMillis() {
+        return slotMillis;
+    }
+
+    // Millis of the first slot on the calendar's day, in the calendar's time zone
+    public long firstSlotMillis(Calendar day) {
+        Calendar calendar = (Calendar) day.clone();
+        calendar.set(Calendar.HOUR_OF_DAY, firstSlotMinute / 60);
+        calendar.set(Calendar.MINUTE, firstSlotMinute % 60);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    // Index of the slot containing the timestamp, or -1 if it falls outside the grid
+    public int slotIndex(long firstSlotMillis, long timestamp) {
+        long offset = timestamp - firstSlotMillis;
+        if (offset < 0) {
+            return -1;
+        }
+        long index = offset / slotMillis;
+        return index < slotCount ? (int) index : -1;
+    }
+
+    // Bit of the slot containing the timestamp, or 0 if it falls outside the grid
+    public long slotBit(long firstSlotMillis, long timestamp) {
+        int index = slotIndex(firstSlotMillis, timestamp);
+        return index < 0 ? 0L : 1L << index;
+    }
+
+    public long slotStartMillis(long firstSlotMillis, int index) {
+        return firstSlotMillis + index * slotMillis;
+    }
+
+    // Whether the time is exactly the start of one of the slots on the calendar's day
+    public boolean isSlotStart(Calendar day, long millis) {
+        long firstSlotMillis = firstSlotMillis(day);
+        int index = slotIndex(firstSlotMillis, millis);
+        return index >= 0 && slotStartMillis(firstSlotMillis, index) == millis;
+    }
+
+    // Bitmap with a bit set for every slot that holds at least one of the first count timestamps
+    public long bookedMask(long firstSlotMillis, long[] timestamps, int count) {
+        long mask = 0L;
+        for (int i = 0; i < count; i++) {
+            mask |= slotBit(firstSlotMillis, timestamps[i]);
+        }
+        return mask;
+    }
+
+    public long freeMask(long bookedMask) {
+        return allSlotsMask & ~bookedMask;
+    }
+
+    public int freeCount(long bookedMask) {
+        return Long.bitCount(freeMask(bookedMask));
+    }
+
+    public boolean isFree(long bookedMask, int index) {
+        return index >= 0 && index < slotCount && (bookedMask & (1L << index)) == 0;
+    }
+
+    // Index of the first free slot at or after fromIndex, or -1 when there is none.
+    // Iterate with: for (int i = grid.nextFree(mask, 0); i >= 0; i = grid.nextFree(mask, i + 1))
+    public int nextFree(long bookedMask, int fromIndex) {
+        if (fromIndex >= slotCount) {
+            return -1;
+        }
+        long free = freeMask(bookedMask);
+        if (fromIndex > 0) {
+            free &= -1L << fromIndex;
+        }
+        return free == 0 ? -1 : Long.numberOfTrailingZeros(free);
+    }
+
+    public String label(int index) {
+        return labels[index];
+    }
+
+    public int hourOf(int index) {
+        return (firstSlotMinute + index * slotMinutes) / 60;
+    }
+
+    public int minuteOf(int index) {
+        return (firstSlotMinute + index * slotMinutes) % 60;
+    }
+
+    private static String twoDigits(int value) {
+        return value < 10 ? "0" + value : String.valueOf(value);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.appointment.core;
+
+// Deterministic document IDs for bookable slots, so two bookings of one slot hit the same document
+public final class SlotKeys {
+
+    // Doctor used until appointments are made with a specific doctor
+    public static final String DEFAULT_DOCTOR_ID = "default";
+
+    private SlotKeys() {
+    }
+
+    // "<doctorId>_<epoch slot number>", e.g. "default_951336" for 30 minute slots
+    public static String slotId(String doctorId, long slotStartMillis, long slotMillis) {
+        if (doctorId == null || doctorId.isEmpty() || doctorId.indexOf('/') >= 0) {
+            throw new IllegalArgumentException("Invalid doctor ID: " + doctorId);
+        }
+        return doctorId + "_" + Math.floorDiv(slotStartMillis, slotMillis);
+    }
+}
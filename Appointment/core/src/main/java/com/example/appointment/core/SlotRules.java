@@ -0,0 +1,438 @@
+package com.example.appointment.core;
+
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// When the clinic takes bookings, on top of each doctor's working hours and slot length: open
+// weekdays, holidays, breaks and per-doctor exceptions, as stored in the config/slotRules document.
+// Rules are compiled once per doctor into bitmaps over the doctor's SlotGrid, so a day is two
+// lookups and a month is one pass over its days.
+//
+// Precedence on a day: a holiday closes it for everyone; otherwise a doctor's exception for the
+// date, then for the weekday, replaces the open weekdays; breaks always apply. Exceptions can only
+// narrow a doctor's working hours, as slots outside the SlotGrid do not exist.
+public final class SlotRules {
+
+    public static final String FIELD_OPEN_DAYS = "openDays";
+    public static final String FIELD_HOLIDAYS = "holidays";
+    public static final String FIELD_BREAKS = "breaks";
+    public static final String FIELD_EXCEPTIONS = "exceptions";
+    public static final String FIELD_MIN_LEAD_MINUTES = "minLeadMinutes";
+    // Entries of breaks and exceptions
+    public static final String FIELD_DOCTOR_ID = "doctorId";
+    public static final String FIELD_DATE = "date";
+    public static final String FIELD_DAYS = "days";
+    public static final String FIELD_START = "start";
+    public static final String FIELD_END = "end";
+
+    // Bits of ISO weekdays, bit 0 being Monday
+    private static final int MONDAY_TO_FRIDAY = 0b0011111;
+    private static final int ALL_DAYS = 0b1111111;
+
+    // Monday to Friday, no holidays, breaks or exceptions: the schedule before rules were configurable
+    public static final SlotRules DEFAULT = new SlotRules(MONDAY_TO_FRIDAY, new int[0],
+            Collections.<Break>emptyList(), Collections.<DayException>emptyList(), 0);
+
+    private final int openDays;
+    private final int[] holidays;
+    private final List<Break> breaks;
+    private final List<DayException> exceptions;
+    private final long minLeadMillis;
+    // Doctor ID -> the rules compiled for them
+    private final Map<String, Compiled> compiled = new ConcurrentHashMap<>();
+
+    SlotRules(int openDays, int[] holidays, List<Break> breaks, List<DayException> exceptions, long minLeadMillis) {
+        this.openDays = openDays;
+        this.holidays = holidays.clone();
+        Arrays.sort(this.holidays);
+        this.breaks = Collections.unmodifiableList(new ArrayList<>(breaks));
+        this.exceptions = Collections.unmodifiableList(new ArrayList<>(exceptions));
+        this.minLeadMillis = minLeadMillis;
+    }
+
+    // Parse a config/slotRules document; missing fields keep the DEFAULT rules.
+    // Weekdays are ISO numbers (1 = Monday), dates "yyyy-MM-dd" or yyyymmdd numbers, and times
+    // "HH:mm" or minutes of the day. Throws IllegalArgumentException naming the first bad entry.
+    public static SlotRules fromFields(Map<String, Object> fields) {
+        if (fields == null) {
+            return DEFAULT;
+        }
+        int openDays = fields.containsKey(FIELD_OPEN_DAYS) ? parseDays(fields.get(FIELD_OPEN_DAYS), FIELD_OPEN_DAYS) : MONDAY_TO_FRIDAY;
+
+        List<Object> holidayValues = list(fields.get(FIELD_HOLIDAYS), FIELD_HOLIDAYS);
+        int[] holidays = new int[holidayValues.size()];
+        for (int i = 0; i < holidays.length; i++) {
+            holidays[i] = parseDate(holidayValues.get(i), FIELD_HOLIDAYS);
+        }
+
+        List<Break> breaks = new ArrayList<>();
+        for (Object entry : list(fields.get(FIELD_BREAKS), FIELD_BREAKS)) {
+            Map<?, ?> map = map(entry, FIELD_BREAKS);
+            Window window = parseWindow(map, FIELD_BREAKS);
+            if (window == null) {
+                throw new IllegalArgumentException("A break needs a start and an end: " + entry);
+            }
+            breaks.add(new Break(optionalString(map.get(FIELD_DOCTOR_ID)),
+                    map.containsKey(FIELD_DAYS) ? parseDays(map.get(FIELD_DAYS), FIELD_BREAKS) : ALL_DAYS, window));
+        }
+
+        List<DayException> exceptions = new ArrayList<>();
+        for (Object entry : list(fields.get(FIELD_EXCEPTIONS), FIELD_EXCEPTIONS)) {
+            Map<?, ?> map = map(entry, FIELD_EXCEPTIONS);
+            String doctorId = optionalString(map.get(FIELD_DOCTOR_ID));
+            if (doctorId == null) {
+                throw new IllegalArgumentException("An exception needs a doctorId: " + entry);
+            }
+            int date = map.containsKey(FIELD_DATE) ? parseDate(map.get(FIELD_DATE), FIELD_EXCEPTIONS) : 0;
+            if (date == 0 && !map.containsKey(FIELD_DAYS)) {
+                throw new IllegalArgumentException("An exception needs a date or days: " + entry);
+            }
+            int days = date == 0 ? parseDays(map.get(FIELD_DAYS), FIELD_EXCEPTIONS) : 0;
+            exceptions.add(new DayException(doctorId, date, days, parseWindow(map, FIELD_EXCEPTIONS)));
+        }
+
+        Object lead = fields.get(FIELD_MIN_LEAD_MINUTES);
+        if (lead != null && !(lead instanceof Number && ((Number) lead).longValue() >= 0)) {
+            throw new IllegalArgumentException(FIELD_MIN_LEAD_MINUTES + " must be a number of minutes: " + lead);
+        }
+        long minLeadMillis = lead != null ? ((Number) lead).longValue() * 60_000L : 0;
+        return new SlotRules(openDays, holidays, breaks, exceptions, minLeadMillis);
+    }
+
+    // How long before its start a slot can still be booked
+    public long getMinLeadMillis() {
+        return minLeadMillis;
+    }
+
+    // Bitmap over the doctor's SlotGrid of the slots open on the day
+    public long openMask(Doctor doctor, int dayKey) {
+        Compiled rules = compiled(doctor);
+        if (Arrays.binarySearch(holidays, dayKey) >= 0) {
+            return 0L;
+        }
+        int exception = Arrays.binarySearch(rules.exceptionDays, dayKey);
+        return exception >= 0 ? rules.exceptionMasks[exception] : rules.weekdayMasks[isoWeekday(dayKey) - 1];
+    }
+
+    public long openMask(Doctor doctor, Calendar day) {
+        return openMask(doctor, DayKeys.dayKey(day));
+    }
+
+    // Open slots of days consecutive days from firstDayKey, in one pass that walks the weekdays and
+    // merges in the sorted holidays and exceptions
+    public long[] openMasks(Doctor doctor, int firstDayKey, int days) {
+        Compiled rules = compiled(doctor);
+        long[] masks = new long[days];
+        LocalDate date = toDate(firstDayKey);
+        int weekday = date.getDayOfWeek().getValue() - 1;
+        int holiday = insertionPoint(holidays, firstDayKey);
+        int exception = insertionPoint(rules.exceptionDays, firstDayKey);
+        for (int i = 0; i < days; i++) {
+            int dayKey = dayKey(date);
+            while (holiday < holidays.length && holidays[holiday] < dayKey) {
+                holiday++;
+            }
+            while (exception < rules.exceptionDays.length && rules.exceptionDays[exception] < dayKey) {
+                exception++;
+            }
+            if (holiday < holidays.length && holidays[holiday] == dayKey) {
+                masks[i] = 0L;
+            } else if (exception < rules.exceptionDays.length && rules.exceptionDays[exception] == dayKey) {
+                masks[i] = rules.exceptionMasks[exception];
+            } else {
+                masks[i] = rules.weekdayMasks[weekday];
+            }
+            date = date.plusDays(1);
+            weekday = weekday == 6 ? 0 : weekday + 1;
+        }
+        return masks;
+    }
+
+    // Open slots of every day of the month (1 = January), the first day at index 0
+    public long[] monthMasks(Doctor doctor, int year, int month) {
+        LocalDate first = LocalDate.of(year, month, 1);
+        return openMasks(doctor, dayKey(first), first.lengthOfMonth());
+    }
+
+    // Open slots of the day that can still be booked at nowMillis, given the minimum lead time
+    public long bookableMask(Doctor doctor, Calendar day, long nowMillis) {
+        long open = openMask(doctor, day);
+        if (open == 0L) {
+            return 0L;
+        }
+        SlotGrid grid = doctor.getSlotGrid();
+        long firstSlotMillis = grid.firstSlotMillis(day);
+        long earliest = nowMillis + minLeadMillis;
+        if (earliest <= firstSlotMillis) {
+            return open;
+        }
+        // Slots from the first one starting at or after earliest
+        long first = (earliest - firstSlotMillis + grid.getSlotMillis() - 1) / grid.getSlotMillis();
+        return first >= grid.getSlotCount() ? 0L : open & (-1L << first);
+    }
+
+    // Whether millis is the start of an open slot of the doctor on the calendar's day
+    public boolean isOpenSlot(Doctor doctor, Calendar day, long millis) {
+        SlotGrid grid = doctor.getSlotGrid();
+        if (!grid.isSlotStart(day, millis)) {
+            return false;
+        }
+        int index = grid.slotIndex(grid.firstSlotMillis(day), millis);
+        return (openMask(doctor, day) & (1L << index)) != 0;
+    }
+
+    // Compiled per doctor on first use; a doctor whose hours changed since is compiled again
+    private Compiled compiled(Doctor doctor) {
+        Compiled rules = compiled.get(doctor.getId());
+        if (rules == null || !rules.isFor(doctor.getSlotGrid())) {
+            rules = new Compiled(doctor.getId(), doctor.getSlotGrid());
+            compiled.put(doctor.getId(), rules);
+        }
+        return rules;
+    }
+
+    // The rules for one doctor as bitmaps over their SlotGrid
+    private final class Compiled {
+        final SlotGrid grid;
+        // Open slots on an ordinary Monday .. Sunday
+        final long[] weekdayMasks = new long[7];
+        // Days with an exception for the doctor, sorted, and their open slots
+        final int[] exceptionDays;
+        final long[] exceptionMasks;
+
+        Compiled(String doctorId, SlotGrid grid) {
+            this.grid = grid;
+            long all = grid.freeMask(0L);
+            long[] breakMasks = new long[7];
+            for (Break slotBreak : breaks) {
+                if (slotBreak.doctorId == null || slotBreak.doctorId.equals(doctorId)) {
+                    long overlapping = slotBreak.window.overlapMask(grid);
+                    for (int weekday = 0; weekday < 7; weekday++) {
+                        if ((slotBreak.days & (1 << weekday)) != 0) {
+                            breakMasks[weekday] |= overlapping;
+                        }
+                    }
+                }
+            }
+
+            for (int weekday = 0; weekday < 7; weekday++) {
+                weekdayMasks[weekday] = (openDays & (1 << weekday)) != 0 ? all : 0L;
+            }
+            // Later exceptions win over earlier ones for the same day
+            List<DayException> dated = new ArrayList<>();
+            for (DayException exception : exceptions) {
+                if (!exception.doctorId.equals(doctorId)) {
+                    continue;
+                }
+                if (exception.date != 0) {
+                    dated.add(exception);
+                    continue;
+                }
+                for (int weekday = 0; weekday < 7; weekday++) {
+                    if ((exception.days & (1 << weekday)) != 0) {
+                        weekdayMasks[weekday] = exception.openMask(grid);
+                    }
+                }
+            }
+            for (int weekday = 0; weekday < 7; weekday++) {
+                weekdayMasks[weekday] &= ~breakMasks[weekday];
+            }
+
+            // Stable, so the later of two exceptions for a date ends up last
+            Collections.sort(dated, (a, b) -> Integer.compare(a.date, b.date));
+            int[] days = new int[dated.size()];
+            long[] masks = new long[dated.size()];
+            int count = 0;
+            for (DayException exception : dated) {
+                if (count > 0 && days[count - 1] == exception.date) {
+                    count--;
+                }
+                days[count] = exception.date;
+                masks[count] = exception.openMask(grid) & ~breakMasks[isoWeekday(exception.date) - 1];
+                count++;
+            }
+            this.exceptionDays = Arrays.copyOf(days, count);
+            this.exceptionMasks = Arrays.copyOf(masks, count);
+        }
+
+        boolean isFor(SlotGrid grid) {
+            return this.grid == grid || (this.grid.getFirstSlotMinute() == grid.getFirstSlotMinute()
+                    && this.grid.getSlotMinutes() == grid.getSlotMinutes() && this.grid.getSlotCount() == grid.getSlotCount());
+        }
+    }
+
+    // Minutes of the day from start (inclusive) to end (exclusive)
+    static final class Window {
+        final int startMinute;
+        final int endMinute;
+
+        Window(int startMinute, int endMinute) {
+            this.startMinute = startMinute;
+            this.endMinute = endMinute;
+        }
+
+        // Slots that lie completely within the window
+        long containedMask(SlotGrid grid) {
+            long mask = 0L;
+            for (int slot = 0; slot < grid.getSlotCount(); slot++) {
+                int start = grid.getFirstSlotMinute() + slot * grid.getSlotMinutes();
+                if (start >= startMinute && start + grid.getSlotMinutes() <= endMinute) {
+                    mask |= 1L << slot;
+                }
+            }
+            return mask;
+        }
+
+        // Slots that overlap the window at all
+        long overlapMask(SlotGrid grid) {
+            long mask = 0L;
+            for (int slot = 0; slot < grid.getSlotCount(); slot++) {
+                int start = grid.getFirstSlotMinute() + slot * grid.getSlotMinutes();
+                if (start < endMinute && start + grid.getSlotMinutes() > startMinute) {
+                    mask |= 1L << slot;
+                }
+            }
+            return mask;
+        }
+    }
+
+    // No bookings during the window on the given weekdays, for one doctor or, without doctorId, everyone
+    static final class Break {
+        final String doctorId;
+        final int days;
+        final Window window;
+
+        Break(String doctorId, int days, Window window) {
+            this.doctorId = doctorId;
+            this.days = days;
+            this.window = window;
+        }
+    }
+
+    // A doctor's different hours on a date (yyyymmdd) or, with date 0, on the given weekdays;
+    // closed all day without a window
+    static final class DayException {
+        final String doctorId;
+        final int date;
+        final int days;
+        final Window window;
+
+        DayException(String doctorId, int date, int days, Window window) {
+            this.doctorId = doctorId;
+            this.date = date;
+            this.days = days;
+            this.window = window;
+        }
+
+        long openMask(SlotGrid grid) {
+            return window != null ? window.containedMask(grid) : 0L;
+        }
+    }
+
+    private static int isoWeekday(int dayKey) {
+        return toDate(dayKey).getDayOfWeek().getValue();
+    }
+
+    private static LocalDate toDate(int dayKey) {
+        return LocalDate.of(dayKey / 10000, dayKey / 100 % 100, dayKey % 100);
+    }
+
+    private static int dayKey(LocalDate date) {
+        return date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth();
+    }
+
+    // Index of the first element not less than key
+    private static int insertionPoint(int[] sorted, int key) {
+        int index = Arrays.binarySearch(sorted, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private static List<Object> list(Object value, String field) {
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        if (!(value instanceof Collection)) {
+            throw new IllegalArgumentException(field + " must be a list: " + value);
+        }
+        return new ArrayList<Object>((Collection<?>) value);
+    }
+
+    private static Map<?, ?> map(Object value, String field) {
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("Entries of " + field + " must be maps: " + value);
+        }
+        return (Map<?, ?>) value;
+    }
+
+    private static String optionalString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static int parseDays(Object value, String field) {
+        int days = 0;
+        for (Object day : list(value, field)) {
+            if (!(day instanceof Number) || ((Number) day).intValue() < DayOfWeek.MONDAY.getValue()
+                    || ((Number) day).intValue() > DayOfWeek.SUNDAY.getValue()) {
+                throw new IllegalArgumentException("Weekdays in " + field + " are 1 (Monday) to 7 (Sunday): " + day);
+            }
+            days |= 1 << (((Number) day).intValue() - 1);
+        }
+        return days;
+    }
+
+    private static int parseDate(Object value, String field) {
+        try {
+            LocalDate date = value instanceof Number ? toDate(((Number) value).intValue()) : LocalDate.parse(String.valueOf(value));
+            return dayKey(date);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Dates in " + field + " are yyyy-MM-dd: " + value);
+        }
+    }
+
+    // The start-end window of a break or exception, or null if it has neither
+    private static Window parseWindow(Map<?, ?> entry, String field) {
+        Object start = entry.get(FIELD_START);
+        Object end = entry.get(FIELD_END);
+        if (start == null && end == null) {
+            return null;
+        }
+        int startMinute = parseMinute(start, field);
+        int endMinute = parseMinute(end, field);
+        if (endMinute <= startMinute) {
+            throw new IllegalArgumentException("The end of a window in " + field + " must be after its start: " + entry);
+        }
+        return new Window(startMinute, endMinute);
+    }
+
+    private static int parseMinute(Object value, String field) {
+        if (value instanceof Number) {
+            int minute = ((Number) value).intValue();
+            if (minute >= 0 && minute <= 24 * 60) {
+                return minute;
+            }
+        } else if (value != null) {
+            String[] parts = value.toString().split(":");
+            if (parts.length == 2) {
+                try {
+                    int hour = Integer.parseInt(parts[0]);
+                    int minute = Integer.parseInt(parts[1]);
+                    if (hour >= 0 && hour <= 24 && minute >= 0 && minute < 60 && hour * 60 + minute <= 24 * 60) {
+                        return hour * 60 + minute;
+                    }
+                } catch (NumberFormatException e) {
+                    // Reported below
+                }
+            }
+        }
+        throw new IllegalArgumentException("Times in " + field + " are HH:mm or minutes of the day: " + value);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.appointment.core;
+
+// Source of the slot rules in force, which an app can replace when the config document changes
+public interface SlotRulesSource {
+
+    SlotRulesSource DEFAULT = () -> SlotRules.DEFAULT;
+
+    SlotRules getRules();
+}
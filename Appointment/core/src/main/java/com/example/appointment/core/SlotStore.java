@@ -0,0 +1,37 @@
+package com.example.appointment.core;
+
+import java.util.Map;
+import java.util.Set;
+
+// Storage for slot documents that can create a document only if the slot is not taken yet.
+// A slot is taken unless it has no document, was cancelled, or is leased to the same user or under
+// an expired lease; see AppointmentSchema.isFreeFor.
+public interface SlotStore {
+
+    // Create the appointment's document at documentPath atomically; exactly one concurrent caller per path may succeed.
+    // bookingKey, if not null, is stored with it: a slot already booked under the same key was written by an
+    // earlier attempt whose result got lost, and is reported as created without writing again.
+    void createIfAbsent(String documentPath, Appointment appointment, String bookingKey, OnCreateListener listener);
+
+    // Create all appointments, keyed by path, in one atomic write, or none of them if any is taken
+    void createAllIfAbsent(Map<String, Appointment> appointments, OnCreateAllListener listener);
+
+    // Reserve the slot for slot.getUserId() until expiresAtMillis, unless it is taken; renews the user's own lease
+    void lease(String documentPath, Appointment slot, long expiresAtMillis, OnCreateListener listener);
+
+    // Give up the user's lease on the slot, if they still have it. Best effort: leases expire anyway
+    void release(String documentPath, String userId);
+
+    interface OnCreateListener {
+        void onCreated();
+        void onAlreadyExists();
+        void onFailure(Exception e);
+    }
+
+    interface OnCreateAllListener {
+        void onCreated();
+        // Nothing was written; existingPaths are the requested paths that are already taken
+        void onAlreadyExist(Set<String> existingPaths);
+        void onFailure(Exception e);
+    }
+}
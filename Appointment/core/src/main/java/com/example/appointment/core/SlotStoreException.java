@@ -0,0 +1,19 @@
+package com.example.appointment.core;
+
+// Failure of a SlotStore call that says whether sending it again can help: a timeout, a lost
+// connection or an aborted transaction may go through later, a write the backend refuses never will
+public class SlotStoreException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean retryable;
+
+    public SlotStoreException(String message, Throwable cause, boolean retryable) {
+        super(message, cause);
+        this.retryable = retryable;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.appointment.core;
+
+// Position in the stream of changed appointments, ordered by update time and then document path.
+// Update times are kept in microseconds, the precision Firestore stores them with.
+public final class SyncCursor {
+
+    public static final SyncCursor START = new SyncCursor(0L, "");
+
+    private final long updatedAtMicros;
+    private final String documentPath;
+
+    public SyncCursor(long updatedAtMicros, String documentPath) {
+        this.updatedAtMicros = updatedAtMicros;
+        this.documentPath = documentPath;
+    }
+
+    public long getUpdatedAtMicros() {
+        return updatedAtMicros;
+    }
+
+    public String getDocumentPath() {
+        return documentPath;
+    }
+
+    public boolean isBefore(long otherUpdatedAtMicros, String otherDocumentPath) {
+        if (updatedAtMicros != otherUpdatedAtMicros) {
+            return updatedAtMicros < otherUpdatedAtMicros;
+        }
+        return documentPath.compareTo(otherDocumentPath) < 0;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.appointment.core;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// The signed-in user's profile from their users/{uid} document, with when it was read
+public final class UserProfile {
+
+    public static final String FIELD_USER_ID = "userId";
+    public static final String FIELD_EMAIL = "email";
+    public static final String FIELD_USERNAME = "username";
+    public static final String FIELD_PREFERENCES = "preferences";
+
+    private final String userId;
+    private final String username;
+    private final String email;
+    private final Map<String, String> preferences;
+    private final long fetchedAtMillis;
+
+    public UserProfile(String userId, String username, String email, Map<String, String> preferences, long fetchedAtMillis) {
+        this.userId = userId;
+        this.username = username;
+        this.email = email;
+        this.preferences = Collections.unmodifiableMap(new LinkedHashMap<>(preferences));
+        this.fetchedAtMillis = fetchedAtMillis;
+    }
+
+    // The profile in a users document; preference values are kept as strings
+    public static UserProfile fromFields(String userId, Map<String, Object> fields, long fetchedAtMillis) {
+        Map<String, String> preferences = new LinkedHashMap<>();
+        Object stored = fields.get(FIELD_PREFERENCES);
+        if (stored instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) stored).entrySet()) {
+                if (entry.getValue() != null) {
+                    preferences.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
+                }
+            }
+        }
+        return new UserProfile(userId, stringOrNull(fields.get(FIELD_USERNAME)), stringOrNull(fields.get(FIELD_EMAIL)),
+                preferences, fetchedAtMillis);
+    }
+
+    public Map<String, Object> toFields() {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put(FIELD_USER_ID, userId);
+        fields.put(FIELD_EMAIL, email);
+        fields.put(FIELD_USERNAME, username);
+        fields.put(FIELD_PREFERENCES, new LinkedHashMap<>(preferences));
+        return fields;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    // Null for accounts created before usernames were stored
+    public String getUsername() {
+        return username;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public Map<String, String> getPreferences() {
+        return preferences;
+    }
+
+    public String getPreference(String key, String defaultValue) {
+        String value = preferences.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public long getFetchedAtMillis() {
+        return fetchedAtMillis;
+    }
+
+    private static String stringOrNull(Object value) {
+        return value != null ? value.toString() : null;
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.appointment.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// One doctor's day: patients waiting for a slot in the order they joined, and the freed slots
+// currently held for one of them. Not thread-safe; WaitlistStore serializes updates per day.
+public final class Waitlist {
+
+    static final String FIELD_QUEUE = "queue";
+    static final String FIELD_HOLDS = "holds";
+    private static final String FIELD_USER_ID = "userId";
+    private static final String FIELD_EMAIL = "email";
+    private static final String FIELD_SLOT_ID = "slotId";
+    private static final String FIELD_SLOT_START = "slotStart";
+    private static final String FIELD_EXPIRES_AT = "expiresAt";
+
+    // userId -> email, in joining order
+    private final LinkedHashMap<String, String> waiting = new LinkedHashMap<>();
+    // slotId -> hold, in the order the slots were offered
+    private final LinkedHashMap<String, Hold> holds = new LinkedHashMap<>();
+
+    // Add the user to the end of the queue; false if they are already waiting or holding a slot
+    public boolean join(String userId, String email) {
+        if (waiting.containsKey(userId) || holdOf(userId) != null) {
+            return false;
+        }
+        waiting.put(userId, email);
+        return true;
+    }
+
+    public boolean leave(String userId) {
+        return waiting.remove(userId) != null;
+    }
+
+    // 1-based place in the queue, or 0 if the user is not waiting
+    public int position(String userId) {
+        int position = 1;
+        for (String waitingUserId : waiting.keySet()) {
+            if (waitingUserId.equals(userId)) {
+                return position;
+            }
+            position++;
+        }
+        return 0;
+    }
+
+    public int size() {
+        return waiting.size();
+    }
+
+    // Hold the slot for the first waiting patient and take them off the queue; null if nobody is waiting
+    public Hold offer(String slotId, long slotStartMillis, long nowMillis, long holdMillis) {
+        if (holds.containsKey(slotId)) {
+            throw new IllegalStateException("Slot is already held: " + slotId);
+        }
+        Iterator<Map.Entry<String, String>> head = waiting.entrySet().iterator();
+        if (!head.hasNext()) {
+            return null;
+        }
+        Map.Entry<String, String> next = head.next();
+        head.remove();
+        Hold hold = new Hold(slotId, slotStartMillis, next.getKey(), next.getValue(), nowMillis + holdMillis);
+        holds.put(slotId, hold);
+        return hold;
+    }
+
+    // Remove and return the user's unexpired hold on the slot, or null if they do not hold it
+    public Hold take(String slotId, String userId, long nowMillis) {
+        Hold hold = holds.get(slotId);
+        if (hold == null || !hold.getUserId().equals(userId) || hold.isExpired(nowMillis)) {
+            return null;
+        }
+        holds.remove(slotId);
+        return hold;
+    }
+
+    // Remove and return the user's hold on the slot, expired or not, or null if they do not hold it
+    public Hold release(String slotId, String userId) {
+        Hold hold = holds.get(slotId);
+        if (hold == null || !hold.getUserId().equals(userId)) {
+            return null;
+        }
+        holds.remove(slotId);
+        return hold;
+    }
+
+    // Remove and return the holds that have run out, oldest offer first
+    public List<Hold> removeExpired(long nowMillis) {
+        List<Hold> expired = null;
+        for (Iterator<Hold> it = holds.values().iterator(); it.hasNext(); ) {
+            Hold hold = it.next();
+            if (hold.isExpired(nowMillis)) {
+                if (expired == null) {
+                    expired = new ArrayList<>();
+                }
+                expired.add(hold);
+                it.remove();
+            }
+        }
+        return expired != null ? expired : Collections.<Hold>emptyList();
+    }
+
+    public Hold holdOf(String userId) {
+        for (Hold hold : holds.values()) {
+            if (hold.getUserId().equals(userId)) {
+                return hold;
+            }
+        }
+        return null;
+    }
+
+    public List<Hold> getHolds() {
+        return Collections.unmodifiableList(new ArrayList<>(holds.values()));
+    }
+
+    public Map<String, Object> toFields() {
+        List<Map<String, Object>> queue = new ArrayList<>(waiting.size());
+        for (Map.Entry<String, String> entry : waiting.entrySet()) {
+            Map<String, Object> patient = new HashMap<>();
+            patient.put(FIELD_USER_ID, entry.getKey());
+            patient.put(FIELD_EMAIL, entry.getValue());
+            queue.add(patient);
+        }
+        List<Map<String, Object>> storedHolds = new ArrayList<>(holds.size());
+        for (Hold hold : holds.values()) {
+            Map<String, Object> stored = new HashMap<>();
+            stored.put(FIELD_SLOT_ID, hold.getSlotId());
+            stored.put(FIELD_SLOT_START, hold.getSlotStartMillis());
+            stored.put(FIELD_USER_ID, hold.getUserId());
+            stored.put(FIELD_EMAIL, hold.getEmail());
+            stored.put(FIELD_EXPIRES_AT, hold.getExpiresAtMillis());
+            storedHolds.add(stored);
+        }
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(FIELD_QUEUE, queue);
+        fields.put(FIELD_HOLDS, storedHolds);
+        return fields;
+    }
+
+    // Read a stored waitlist; a missing document (null fields) is an empty waitlist
+    @SuppressWarnings("unchecked")
+    public static Waitlist fromFields(Map<String, Object> fields) {
+        Waitlist waitlist = new Waitlist();
+        if (fields == null) {
+            return waitlist;
+        }
+        Object queue = fields.get(FIELD_QUEUE);
+        if (queue instanceof List) {
+            for (Object item : (List<Object>) queue) {
+                Map<String, Object> patient = (Map<String, Object>) item;
+                waitlist.waiting.put((String) patient.get(FIELD_USER_ID), (String) patient.get(FIELD_EMAIL));
+            }
+        }
+        Object storedHolds = fields.get(FIELD_HOLDS);
+        if (storedHolds instanceof List) {
+            for (Object item : (List<Object>) storedHolds) {
+                Map<String, Object> stored = (Map<String, Object>) item;
+                Hold hold = new Hold((String) stored.get(FIELD_SLOT_ID),
+                        ((Number) stored.get(FIELD_SLOT_START)).longValue(),
+                        (String) stored.get(FIELD_USER_ID),
+                        (String) stored.get(FIELD_EMAIL),
+                        ((Number) stored.get(FIELD_EXPIRES_AT)).longValue());
+                waitlist.holds.put(hold.getSlotId(), hold);
+            }
+        }
+        return waitlist;
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.appointment.core;
+
+import java.util.TimeZone;
+
+// Cancellation and per-doctor-day waitlists. A cancelled slot is held for the first waiting
+// patient for holdMillis; if they decline or let it expire it moves on to the next one, and
+// once nobody is waiting the slot is freed for anyone to book. Every change runs as a single
+// WaitlistStore update, so concurrent cancels and claims cannot hand one slot to two patients.
+// Expired holds are passed on lazily by whichever update touches the day next.
+public class WaitlistEngine {
+
+    public static final long DEFAULT_HOLD_MILLIS = 15 * 60 * 1000L;
+
+    private final WaitlistStore store;
+    private final Clock clock;
+    private final long holdMillis;
+    private final TimeZone zone;
+
+    public WaitlistEngine(WaitlistStore store, TimeZone zone) {
+        this(store, Clock.SYSTEM, DEFAULT_HOLD_MILLIS, zone);
+    }
+
+    public WaitlistEngine(WaitlistStore store, Clock clock, long holdMillis, TimeZone zone) {
+        if (holdMillis <= 0) {
+            throw new IllegalArgumentException("holdMillis must be positive: " + holdMillis);
+        }
+        this.store = store;
+        this.clock = clock;
+        this.holdMillis = holdMillis;
+        this.zone = zone;
+    }
+
+    // Queue the user for the doctor's day; reports their 1-based position
+    public void join(String doctorId, int dayKey, final String userId, final String email, final OnJoinListener listener) {
+        final long now = clock.currentTimeMillis();
+        store.update(doctorId, dayKey, day -> {
+            passOnExpired(day, now);
+            Waitlist waitlist = day.getWaitlist();
+            return waitlist.join(userId, email) ? waitlist.position(userId) : 0;
+        }, new WaitlistStore.OnUpdateListener<Integer>() {
+            @Override
+            public void onUpdated(Integer position) {
+                if (position > 0) {
+                    listener.onJoined(position);
+                } else {
+                    listener.onAlreadyWaiting();
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                listener.onFailure(e);
+            }
+        });
+    }
+
+    public void leave(String doctorId, int dayKey, final String userId, OnDoneListener listener) {
+        final long now = clock.currentTimeMillis();
+        store.update(doctorId, dayKey, day -> {
+            passOnExpired(day, now);
+            day.getWaitlist().leave(userId);
+            return null;
+        }, done(listener));
+    }
+
+    // Cancel the user's booking in the slot and offer it to the day's waitlist
+    public void cancel(final Appointment appointment, final String userId, final OnCancelListener listener) {
+        final long now = clock.currentTimeMillis();
+        store.update(appointment.getDoctorId(), appointment.getDayKey(), day -> {
+            Appointment booked = day.getBooking(appointment.getId());
+            if (booked == null || !userId.equals(booked.getUserId())) {
+                return CancelOutcome.NOT_BOOKED;
+            }
+            passOnExpired(day, now);
+            Hold hold = reallocate(day, booked.getId(), booked.getTimestamp(), now);
+            return hold != null ? new CancelOutcome(hold) : CancelOutcome.FREED;
+        }, new WaitlistStore.OnUpdateListener<CancelOutcome>() {
+            @Override
+            public void onUpdated(CancelOutcome outcome) {
+                if (outcome == CancelOutcome.NOT_BOOKED) {
+                    listener.onNotBooked();
+                } else {
+                    listener.onCancelled(outcome.offeredTo);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                listener.onFailure(e);
+            }
+        });
+    }
+
+    // Book the slot held for the user, if the hold has not expired or moved on
+    public void claim(final Hold hold, String doctorId, final OnClaimListener listener) {
+        final long now = clock.currentTimeMillis();
+        final int dayKey = DayKeys.dayKey(hold.getSlotStartMillis(), zone);
+        store.update(doctorId, dayKey, day -> {
+            Hold taken = day.getWaitlist().take(hold.getSlotId(), hold.getUserId(), now);
+            passOnExpired(day, now);
+            if (taken == null) {
+                return null;
+            }
+            Appointment appointment = new Appointment(taken.getSlotId(), taken.getUserId(), taken.getEmail(),
+                    doctorId, taken.getSlotStartMillis(), dayKey);
+            day.book(appointment);
+            return appointment;
+        }, new WaitlistStore.OnUpdateListener<Appointment>() {
+            @Override
+            public void onUpdated(Appointment appointment) {
+                if (appointment != null) {
+                    listener.onClaimed(appointment);
+                } else {
+                    listener.onHoldLost();
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                listener.onFailure(e);
+            }
+        });
+    }
+
+    // Turn down the held slot so it goes to the next waiting patient
+    public void decline(final Hold hold, String doctorId, OnDoneListener listener) {
+        final long now = clock.currentTimeMillis();
+        store.update(doctorId, DayKeys.dayKey(hold.getSlotStartMillis(), zone), day -> {
+            Hold released = day.getWaitlist().release(hold.getSlotId(), hold.getUserId());
+            passOnExpired(day, now);
+            if (released != null) {
+                reallocate(day, released.getSlotId(), released.getSlotStartMillis(), now);
+            }
+            return null;
+        }, done(listener));
+    }
+
+    // Pass on the day's expired holds now rather than on the next change
+    public void expireHolds(String doctorId, int dayKey, OnDoneListener listener) {
+        final long now = clock.currentTimeMillis();
+        store.update(doctorId, dayKey, day -> {
+            passOnExpired(day, now);
+            return null;
+        }, done(listener));
+    }
+
+    private void passOnExpired(WaitlistStore.Day day, long now) {
+        for (Hold expired : day.getWaitlist().removeExpired(now)) {
+            reallocate(day, expired.getSlotId(), expired.getSlotStartMillis(), now);
+        }
+    }
+
+    // Hold the slot for the next waiting patient, or free it if nobody is waiting
+    private Hold reallocate(WaitlistStore.Day day, String slotId, long slotStartMillis, long now) {
+        Hold hold = day.getWaitlist().offer(slotId, slotStartMillis, now, holdMillis);
+        if (hold != null) {
+            day.hold(hold);
+        } else {
+            day.free(slotId);
+        }
+        return hold;
+    }
+
+    private static WaitlistStore.OnUpdateListener<Void> done(final OnDoneListener listener) {
+        return new WaitlistStore.OnUpdateListener<Void>() {
+            @Override
+            public void onUpdated(Void result) {
+                listener.onDone();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                listener.onFailure(e);
+            }
+        };
+    }
+
+    private static final class CancelOutcome {
+        static final CancelOutcome NOT_BOOKED = new CancelOutcome(null);
+        static final CancelOutcome FREED = new CancelOutcome(null);
+
+        final Hold offeredTo;
+
+        CancelOutcome(Hold offeredTo) {
+            this.offeredTo = offeredTo;
+        }
+    }
+
+    public interface OnJoinListener {
+        void onJoined(int position);
+        void onAlreadyWaiting();
+        void onFailure(Exception e);
+    }
+
+    public interface OnCancelListener {
+        // offeredTo is the hold given to the next waiting patient, or null if the slot was freed
+        void onCancelled(Hold offeredTo);
+        void onNotBooked();
+        void onFailure(Exception e);
+    }
+
+    public interface OnClaimListener {
+        void onClaimed(Appointment appointment);
+        // The hold expired or was passed on before the claim arrived
+        void onHoldLost();
+        void onFailure(Exception e);
+    }
+
+    public interface OnDoneListener {
+        void onDone();
+        void onFailure(Exception e);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.appointment.core;
+
+// Storage for a doctor's day waitlist and the slot documents it hands out.
+// An update sees the day's waitlist and slots at one point in time and is committed atomically.
+public interface WaitlistStore {
+
+    // Apply the update to the doctor's day. It may be run again on fresh state if another update
+    // got there first, so it must not change anything outside the Day it is given.
+    <T> void update(String doctorId, int dayKey, DayUpdate<T> update, OnUpdateListener<T> listener);
+
+    interface DayUpdate<T> {
+        T apply(Day day);
+    }
+
+    // The day as seen by one update; changes are written when the update returns
+    interface Day {
+        // Changes to the returned waitlist are saved with the update
+        Waitlist getWaitlist();
+
+        // The appointment booked in the slot, or null if it is free, cancelled or held
+        Appointment getBooking(String slotId);
+
+        void book(Appointment appointment);
+
+        // Keep the slot taken, reserved for the hold's patient
+        void hold(Hold hold);
+
+        // Mark the slot cancelled, so anyone can book it again
+        void free(String slotId);
+    }
+
+    interface OnUpdateListener<T> {
+        void onUpdated(T result);
+        void onFailure(Exception e);
+    }
+}
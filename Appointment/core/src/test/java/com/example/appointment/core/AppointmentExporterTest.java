@@ -0,0 +1,76 @@
+package com.example.appointment.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AppointmentExporterTest {
+
+    private static final long START = 1_718_172_000_000L;
+    private static final long SLOT = 30 * 60_000L;
+
+    @Test
+    public void export_pagesThroughTheRangeInStartOrder() throws Exception {
+        List<Appointment> stored = new ArrayList<>();
+        for (int i = 24; i >= 0; i--) {
+            stored.add(new Appointment("dr1_" + i, "u" + i, null, "dr1", START + i * SLOT, 20240612));
+            stored.add(new Appointment("dr2_" + i, "v" + i, null, "dr2", START + i * SLOT, 20240612));
+        }
+        PagedSource source = new PagedSource(stored);
+        List<Appointment> written = new ArrayList<>();
+
+        int count = new AppointmentExporter(source, 4).export("dr1", START + SLOT, START + 21 * SLOT, written::add);
+
+        assertEquals(20, count);
+        assertEquals(20, written.size());
+        for (int i = 0; i < written.size(); i++) {
+            assertEquals("dr1_" + (i + 1), written.get(i).getId());
+        }
+        assertEquals("5 full pages and the empty one that ends the export", 6, source.pages.get());
+        assertEquals(4, source.largestPage);
+
+        List<Appointment> everyone = new ArrayList<>();
+        new AppointmentExporter(source, 7).export(null, START, START + 2 * SLOT, everyone::add);
+        assertEquals(4, everyone.size());
+        assertEquals("dr1_0", everyone.get(0).getId());
+        assertEquals("dr2_0", everyone.get(1).getId());
+    }
+
+    // ExportSource over a list, keyed by (timestamp, id) as Firestore orders by (timestamp, path)
+    private static class PagedSource implements ExportSource {
+        private static final Comparator<Appointment> ORDER =
+                Comparator.comparingLong(Appointment::getTimestamp).thenComparing(Appointment::getId);
+
+        private final List<Appointment> appointments;
+        final AtomicInteger pages = new AtomicInteger();
+        int largestPage;
+
+        PagedSource(List<Appointment> appointments) {
+            this.appointments = new ArrayList<>(appointments);
+            this.appointments.sort(ORDER);
+        }
+
+        @Override
+        public List<Appointment> fetchPage(String doctorId, long fromMillis, long toMillis, Appointment after, int limit) {
+            pages.incrementAndGet();
+            List<Appointment> page = new ArrayList<>();
+            for (Appointment appointment : appointments) {
+                if ((doctorId == null || doctorId.equals(appointment.getDoctorId()))
+                        && appointment.getTimestamp() >= fromMillis && appointment.getTimestamp() < toMillis
+                        && (after == null || ORDER.compare(appointment, after) > 0)) {
+                    page.add(appointment);
+                    if (page.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            largestPage = Math.max(largestPage, page.size());
+            return page;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.appointment.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class AppointmentMigrationTest {
+
+    private static final TimeZone ISTANBUL = TimeZone.getTimeZone("Europe/Istanbul");
+    private static final long NINE_AM = 1_718_172_000_000L;
+    private static final long HALF_HOUR = 30 * 60_000L;
+    private static final String DAY = AppointmentPaths.dayAppointments(SlotKeys.DEFAULT_DOCTOR_ID, 20240612);
+
+    private final InMemoryLegacyStore store = new InMemoryLegacyStore();
+
+    private static Map<String, Object> legacy(String userId, Object timestamp) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(AppointmentSchema.FIELD_USER_ID, userId);
+        fields.put(AppointmentSchema.FIELD_EMAIL, userId + "@example.com");
+        fields.put(AppointmentSchema.FIELD_TIMESTAMP, timestamp);
+        fields.put(AppointmentMigration.LEGACY_FIELD_FORMATTED_DATE, "12 June 2024, 09:00");
+        return fields;
+    }
+
+    private static String slotPath(long slotStartMillis) {
+        return DAY + "/" + SlotKeys.slotId(SlotKeys.DEFAULT_DOCTOR_ID, slotStartMillis, HALF_HOUR);
+    }
+
+    @Test
+    public void run_movesLegacyBookingsIntoTheirSlotInTheCurrentSchema() throws Exception {
+        store.legacy.put("old1", legacy("u1", new Date(NINE_AM)));
+
+        assertEquals(1, new AppointmentMigration(store, ISTANBUL).run());
+
+        assertTrue(store.legacy.isEmpty());
+        Map<String, Object> moved = store.days.get(slotPath(NINE_AM));
+        assertEquals(NINE_AM, moved.get(AppointmentSchema.FIELD_TIMESTAMP));
+        assertEquals(20240612, moved.get(AppointmentSchema.FIELD_DAY_KEY));
+        assertEquals(SlotKeys.DEFAULT_DOCTOR_ID, moved.get(AppointmentSchema.FIELD_DOCTOR_ID));
+        assertEquals(Collections.singletonList("u1"), moved.get(AppointmentSchema.FIELD_PARTICIPANTS));
+        assertFalse(moved.containsKey(AppointmentMigration.LEGACY_FIELD_FORMATTED_DATE));
+        assertEquals(Collections.singletonList(NINE_AM), store.summarised);
+    }
+
+    @Test
+    public void run_keepsTheLegacyIdWhenTheSlotIsAlreadyTaken() throws Exception {
+        store.days.put(slotPath(NINE_AM), legacy("u2", NINE_AM));
+        store.legacy.put("old1", legacy("u1", NINE_AM));
+        // Before the first slot, so it has no slot ID
+        store.legacy.put("old2", legacy("u3", NINE_AM - 2 * 3_600_000L));
+
+        assertEquals(2, new AppointmentMigration(store, ISTANBUL).run());
+
+        assertEquals("u1", store.days.get(DAY + "/old1").get(AppointmentSchema.FIELD_USER_ID));
+        assertEquals("u2", store.days.get(slotPath(NINE_AM)).get(AppointmentSchema.FIELD_USER_ID));
+        assertEquals("u3", store.days.get(DAY + "/old2").get(AppointmentSchema.FIELD_USER_ID));
+        assertTrue(store.summarised.isEmpty());
+    }
+
+    @Test
+    public void run_pagesThroughTheCollectionAndSkipsDocumentsWithoutTimestamp() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            store.legacy.put("old" + i, legacy("u" + i, NINE_AM + i * HALF_HOUR));
+        }
+        store.legacy.put("old2b", legacy("u9", null));
+
+        assertEquals(5, new AppointmentMigration(store, ISTANBUL, 2).run());
+
+        assertEquals(Collections.singleton("old2b"), store.legacy.keySet());
+        assertEquals(5, store.days.size());
+        assertEquals(4, store.pages);
+        assertEquals(0, new AppointmentMigration(store, ISTANBUL, 2).run());
+    }
+
+    @Test
+    public void interruptedRun_movesTheRestWhenRunAgain() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            store.legacy.put("old" + i, legacy("u" + i, NINE_AM + i * HALF_HOUR));
+        }
+        store.failOnMove = 3;
+
+        try {
+            new AppointmentMigration(store, ISTANBUL, 2).run();
+            fail("Expected the third move to fail");
+        } catch (IllegalStateException expected) {
+            // Network dropped mid-migration
+        }
+        assertEquals(2, store.days.size());
+
+        store.failOnMove = -1;
+        assertEquals(2, new AppointmentMigration(store, ISTANBUL, 2).run());
+        assertTrue(store.legacy.isEmpty());
+        assertEquals(4, store.days.size());
+    }
+
+    // Legacy and day subcollection documents by path, moved like the Firestore transaction does
+    private static class InMemoryLegacyStore implements LegacyAppointmentStore {
+
+        final TreeMap<String, Map<String, Object>> legacy = new TreeMap<>();
+        final Map<String, Map<String, Object>> days = new HashMap<>();
+        final List<Long> summarised = new ArrayList<>();
+        int pages;
+        int moves;
+        int failOnMove = -1;
+
+        @Override
+        public Map<String, Map<String, Object>> fetchPage(String afterId, int limit) {
+            pages++;
+            Map<String, Map<String, Object>> page = new LinkedHashMap<>();
+            for (Map.Entry<String, Map<String, Object>> document
+                    : (afterId == null ? legacy : legacy.tailMap(afterId, false)).entrySet()) {
+                if (page.size() == limit) {
+                    break;
+                }
+                page.put(document.getKey(), new HashMap<>(document.getValue()));
+            }
+            return page;
+        }
+
+        @Override
+        public String move(String legacyId, Map<String, Object> fields, String slotPath, String fallbackPath, long slotStartMillis) {
+            if (++moves == failOnMove) {
+                throw new IllegalStateException("offline");
+            }
+            String target = days.containsKey(slotPath) ? fallbackPath : slotPath;
+            days.put(target, new HashMap<>(fields));
+            legacy.remove(legacyId);
+            if (target.equals(slotPath) && slotStartMillis != -1) {
+                summarised.add(slotStartMillis);
+            }
+            return target;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.appointment.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AppointmentPagerTest {
+
+    private static final long NOW = 1_718_172_000_000L;
+    private static final long HOUR = 3_600_000L;
+
+    private InMemoryPageSource source;
+
+    @Before
+    public void setUp() {
+        source = new InMemoryPageSource();
+        for (int i = -500; i < 500; i++) {
+            source.add(appointment("a" + (i + 500), NOW + i * HOUR));
+        }
+    }
+
+    private static Appointment appointment(String id, long timestamp) {
+        return new Appointment(id, "u1", null, SlotKeys.DEFAULT_DOCTOR_ID, timestamp, 20240612);
+    }
+
+    @Test
+    public void upcoming_pagesForwardFromTheBoundary() throws Exception {
+        AppointmentPager pager = new AppointmentPager(source, AppointmentPager.Section.UPCOMING, NOW, 50);
+
+        assertEquals(50, pager.loadNext());
+        List<Appointment> loaded = pager.getLoaded();
+        assertEquals(NOW, loaded.get(0).getTimestamp());
+        assertEquals(NOW + 49 * HOUR, loaded.get(49).getTimestamp());
+
+        int pages = 1;
+        while (pager.hasMore()) {
+            pager.loadNext();
+            pages++;
+        }
+        assertEquals(500, pager.getLoaded().size());
+        // The tenth page was full, so one more empty page confirms the end
+        assertEquals(11, pages);
+        assertEquals(11, source.calls);
+    }
+
+    @Test
+    public void past_pagesBackwardFromTheBoundary() throws Exception {
+        AppointmentPager pager = new AppointmentPager(source, AppointmentPager.Section.PAST, NOW, 30);
+
+        pager.loadNext();
+        pager.loadNext();
+        List<Appointment> loaded = pager.getLoaded();
+        assertEquals(60, loaded.size());
+        assertEquals(NOW - HOUR, loaded.get(0).getTimestamp());
+        assertEquals(NOW - 60 * HOUR, loaded.get(59).getTimestamp());
+    }
+
+    @Test
+    public void rowsSharingATimestamp_areNeitherSkippedNorRepeated() throws Exception {
+        source = new InMemoryPageSource();
+        for (int i = 0; i < 25; i++) {
+            source.add(appointment(String.format("same%02d", i), NOW + HOUR));
+        }
+        AppointmentPager pager = new AppointmentPager(source, AppointmentPager.Section.UPCOMING, NOW, 10);
+        while (pager.hasMore()) {
+            pager.loadNext();
+        }
+
+        List<Appointment> loaded = pager.getLoaded();
+        assertEquals(25, loaded.size());
+        for (int i = 0; i < 25; i++) {
+            assertEquals(String.format("same%02d", i), loaded.get(i).getId());
+        }
+    }
+
+    @Test
+    public void reload_keepsTheLoadedDepthAndPicksUpChanges() throws Exception {
+        AppointmentPager pager = new AppointmentPager(source, AppointmentPager.Section.UPCOMING, NOW, 20);
+        pager.loadNext();
+        pager.loadNext();
+
+        source.add(appointment("new", NOW + 30 * 60_000L));
+        pager.reload();
+
+        List<Appointment> loaded = pager.getLoaded();
+        assertEquals(40, loaded.size());
+        assertEquals("new", loaded.get(1).getId());
+        assertTrue(pager.hasMore());
+    }
+
+    // Page source over a list, answering the same keyset queries the SQLite store runs
+    static class InMemoryPageSource implements AppointmentPager.PageSource {
+
+        final List<Appointment> appointments = new ArrayList<>();
+        int calls;
+
+        void add(Appointment appointment) {
+            appointments.add(appointment);
+        }
+
+        @Override
+        public List<Appointment> loadPage(AppointmentPager.Section section, long boundaryMillis, Appointment after, int limit) {
+            calls++;
+            List<Appointment> matching = new ArrayList<>();
+            for (Appointment appointment : appointments) {
+                if (AppointmentPager.inSection(section, boundaryMillis, appointment)
+                        && (after == null || AppointmentPager.order(section).compare(appointment, after) > 0)) {
+                    matching.add(appointment);
+                }
+            }
+            Collections.sort(matching, AppointmentPager.order(section));
+            return new ArrayList<>(matching.subList(0, Math.min(limit, matching.size())));
+        }
+    }
+}
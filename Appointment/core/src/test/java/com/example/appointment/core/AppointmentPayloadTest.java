@@ -0,0 +1,75 @@
+package com.example.appointment.core;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+// The typed appointment document against the one the confirm button used to store, by Firestore's
+// storage size rules. How long binding a history row takes before and after DateLabels is measured by
+// DateFormattingBenchmark in :benchmark.
+public class AppointmentPayloadTest {
+
+    private static final long TIMESTAMP = 1_718_172_000_000L;
+    private static final String PATH = "doctors/default/days/20240612/appointments/default_954540";
+
+    @Test
+    public void typedDocument_isSmallerThanTheLegacyOne() {
+        // The confirm button stored a display string and had no series field
+        Map<String, Object> legacy = typedDocument();
+        legacy.remove("seriesId");
+        legacy.put("formattedDate", "12/06/2024 09:00");
+
+        assertEquals(267, documentSize(PATH, legacy));
+        assertEquals(246, documentSize(PATH, typedDocument()));
+    }
+
+    @Test
+    public void dateLabelsRow_readsLikeTheLegacyRow() {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.ROOT);
+        StringBuilder rowText = new StringBuilder(32).append("Date: ");
+
+        assertEquals("Date: " + dateFormat.format(new Date(TIMESTAMP)),
+                DateLabels.appendDateTime(rowText, TIMESTAMP, ZoneId.systemDefault()).toString());
+    }
+
+    private static Map<String, Object> typedDocument() {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("userId", "Xq3vR7kL2mNpT8wY5zBc1dEfGh45");
+        fields.put("email", "patient@example.com");
+        fields.put("doctorId", "default");
+        fields.put("timestamp", TIMESTAMP);
+        fields.put("dayKey", 20240612);
+        fields.put("seriesId", null);
+        fields.put("updatedAt", new Date(TIMESTAMP));
+        return fields;
+    }
+
+    // Document name plus fields plus 32 bytes, as Firestore computes storage size
+    private static int documentSize(String path, Map<String, Object> fields) {
+        int size = 16;
+        for (String segment : path.split("/")) {
+            size += segment.getBytes(StandardCharsets.UTF_8).length + 1;
+        }
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            size += field.getKey().getBytes(StandardCharsets.UTF_8).length + 1;
+            Object value = field.getValue();
+            if (value == null) {
+                size += 1;
+            } else if (value instanceof String) {
+                size += ((String) value).getBytes(StandardCharsets.UTF_8).length + 1;
+            } else {
+                // Numbers and timestamps
+                size += 8;
+            }
+        }
+        return size + 32;
+    }
+}
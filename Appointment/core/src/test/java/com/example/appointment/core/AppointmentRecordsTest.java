@@ -0,0 +1,122 @@
+package com.example.appointment.core;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class AppointmentRecordsTest {
+
+    private static final TimeZone ISTANBUL = TimeZone.getTimeZone("Europe/Istanbul");
+    private static final long NINE_THIRTY = 1_718_173_800_000L; // 2024-06-12 09:30 Istanbul
+
+    @Test
+    public void start_isLocalTimeOfTheZone() {
+        assertEquals(Long.valueOf(NINE_THIRTY), AppointmentRecords.parseStart("2024-06-12 09:30", ISTANBUL));
+        assertEquals("2024-06-12 09:30", AppointmentRecords.formatStart(NINE_THIRTY, ISTANBUL));
+        assertNull(AppointmentRecords.parseStart("12/06/2024 09:30", ISTANBUL));
+        assertNull(AppointmentRecords.parseStart(null, ISTANBUL));
+    }
+
+    @Test
+    public void readCsv_mapsColumnsByHeaderAndReportsBrokenLines() throws Exception {
+        String csv = "userId,start,doctorId\n"
+                + "u1,2024-06-12 09:30,dr1\n"
+                + "\n"
+                + "\"u,2\",2024-06-12 10:00,\"dr \"\"1\"\"\"\n"
+                + "u3,2024-06-12 10:30\n"
+                + "\"u4,2024-06-12 11:00,dr1\n";
+
+        List<ImportRecord> records = toList(AppointmentRecords.readCsv(reader(csv)));
+
+        assertEquals(4, records.size());
+        assertEquals("u1", records.get(0).getUserId());
+        assertEquals("dr1", records.get(0).getDoctorId());
+        assertEquals("2024-06-12 09:30", records.get(0).getStart());
+        assertNull(records.get(0).getEmail());
+        assertEquals(2, records.get(0).getLineNumber());
+        assertEquals("u,2", records.get(1).getUserId());
+        assertEquals("dr \"1\"", records.get(1).getDoctorId());
+        assertEquals(4, records.get(1).getLineNumber());
+        assertNotNull(records.get(2).getError());
+        assertEquals("Unterminated quote", records.get(3).getError());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readCsv_requiresTheColumnsInTheHeader() throws Exception {
+        AppointmentRecords.readCsv(reader("doctorId,when,userId\n"));
+    }
+
+    @Test
+    public void readJsonLines_readsFlatObjects() {
+        String json = "{\"doctorId\": \"dr1\", \"start\": \"2024-06-12 09:30\", \"userId\": \"u\\\"1\", \"email\": null, \"extra\": 3}\n"
+                + "{\"doctorId\": {\"nested\": 1}}\n"
+                + "not json\n";
+
+        List<ImportRecord> records = toList(AppointmentRecords.readJsonLines(reader(json)));
+
+        assertEquals(3, records.size());
+        assertEquals("dr1", records.get(0).getDoctorId());
+        assertEquals("u\"1", records.get(0).getUserId());
+        assertNull(records.get(0).getEmail());
+        assertNotNull(records.get(1).getError());
+        assertEquals(3, records.get(2).getLineNumber());
+        assertNotNull(records.get(2).getError());
+    }
+
+    @Test
+    public void parseFlatJson_handlesEscapesAndRejectsTrailingText() {
+        Map<String, String> fields = AppointmentRecords.parseFlatJson("{\"a\":\"x\\u0041\\n\",\"b\":true}");
+        assertEquals("xA\n", fields.get("a"));
+        assertEquals("true", fields.get("b"));
+        assertTrue(AppointmentRecords.parseFlatJson(" { } ").isEmpty());
+        assertNull(AppointmentRecords.parseFlatJson("{\"a\":\"x\"} trailing"));
+        assertNull(AppointmentRecords.parseFlatJson("{\"a\":[1]}"));
+        assertNull(AppointmentRecords.parseFlatJson("{\"a\":\"unterminated}"));
+    }
+
+    @Test
+    public void writers_produceFilesTheReadersAccept() throws Exception {
+        Appointment plain = new Appointment("dr1_1", "u1", "u1@example.com", "dr1", NINE_THIRTY, 20240612);
+        Appointment awkward = new Appointment("dr1_2", "u,\"2\"", null, "dr1", NINE_THIRTY + 1_800_000L, 20240612);
+
+        StringWriter csv = new StringWriter();
+        AppointmentRecords.RecordWriter csvWriter = AppointmentRecords.csvWriter(csv, ISTANBUL);
+        StringWriter json = new StringWriter();
+        AppointmentRecords.RecordWriter jsonWriter = AppointmentRecords.jsonLinesWriter(json, ISTANBUL);
+        for (Appointment appointment : Arrays.asList(plain, awkward)) {
+            csvWriter.write(appointment);
+            jsonWriter.write(appointment);
+        }
+
+        assertTrue(csv.toString().startsWith("doctorId,start,userId,email\ndr1,2024-06-12 09:30,u1,u1@example.com\n"));
+        for (List<ImportRecord> records : Arrays.asList(
+                toList(AppointmentRecords.readCsv(reader(csv.toString()))),
+                toList(AppointmentRecords.readJsonLines(reader(json.toString()))))) {
+            assertEquals(2, records.size());
+            assertEquals("u1@example.com", records.get(0).getEmail());
+            assertEquals("u,\"2\"", records.get(1).getUserId());
+            assertEquals("2024-06-12 10:00", records.get(1).getStart());
+            assertNull(records.get(1).getError());
+        }
+    }
+
+    private static BufferedReader reader(String text) {
+        return new BufferedReader(new StringReader(text));
+    }
+
+    private static List<ImportRecord> toList(Iterator<ImportRecord> records) {
+        List<ImportRecord> list = new ArrayList<>();
+        records.forEachRemaining(list::add);
+        return list;
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.appointment.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class AppointmentSchemaTest {
+
+    private static final TimeZone ISTANBUL = TimeZone.getTimeZone("Europe/Istanbul");
+
+    private static long at(int year, int month, int day, int hour, int minute, int second, int millis) {
+        Calendar calendar = Calendar.getInstance(ISTANBUL);
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute, second);
+        calendar.set(Calendar.MILLISECOND, millis);
+        return calendar.getTimeInMillis();
+    }
+
+    private static Map<String, Object> document(Object timestamp) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("userId", "u1");
+        fields.put("timestamp", timestamp);
+        return fields;
+    }
+
+    @Test
+    public void dayKey_followsTheTimeZone() {
+        long utcMidnight = 1_718_150_400_000L; // 2024-06-12T00:00:00Z
+        assertEquals(20240612, DayKeys.dayKey(utcMidnight, TimeZone.getTimeZone("UTC")));
+        assertEquals(20240611, DayKeys.dayKey(utcMidnight - 1, TimeZone.getTimeZone("UTC")));
+        assertEquals(20240612, DayKeys.dayKey(utcMidnight - 1, ISTANBUL));
+    }
+
+    @Test
+    public void toCalendar_isMidnightOfTheDay() {
+        Calendar calendar = DayKeys.toCalendar(20241231, ISTANBUL);
+        assertEquals(at(2024, Calendar.DECEMBER, 31, 0, 0, 0, 0), calendar.getTimeInMillis());
+        assertEquals(20241231, DayKeys.dayKey(calendar));
+    }
+
+    @Test
+    public void timestampMillis_acceptsNumbersAndDates() {
+        assertEquals(Long.valueOf(42L), AppointmentSchema.timestampMillis(42L));
+        assertEquals(Long.valueOf(42L), AppointmentSchema.timestampMillis(42));
+        assertEquals(Long.valueOf(42L), AppointmentSchema.timestampMillis(new Date(42L)));
+        assertNull(AppointmentSchema.timestampMillis("42"));
+        assertNull(AppointmentSchema.timestampMillis(null));
+    }
+
+    @Test
+    public void migrationUpdate_normalisesDatesAndAddsDayKey() {
+        long millis = at(2024, Calendar.JUNE, 12, 9, 30, 0, 0);
+
+        Map<String, Object> update = AppointmentSchema.migrationUpdate(document(new Date(millis)), ISTANBUL);
+        assertEquals(millis, update.get("timestamp"));
+        assertEquals(20240612, update.get("dayKey"));
+
+        Map<String, Object> missingDayKey = AppointmentSchema.migrationUpdate(document(millis), ISTANBUL);
+        assertFalse(missingDayKey.containsKey("timestamp"));
+        assertEquals(20240612, missingDayKey.get("dayKey"));
+
+        Map<String, Object> current = document(millis);
+        current.put("dayKey", 20240612L);
+        assertTrue(AppointmentSchema.migrationUpdate(current, ISTANBUL).isEmpty());
+        assertTrue(AppointmentSchema.migrationUpdate(document(null), ISTANBUL).isEmpty());
+    }
+
+    @Test
+    public void dayQuery_returnsExactlyTheRowsOfTheDay() {
+        // A mix of legacy Date timestamps and millis timestamps around the day's edges
+        List<Object> stored = new ArrayList<>();
+        stored.add(at(2024, Calendar.JUNE, 11, 23, 59, 59, 999));
+        stored.add(new Date(at(2024, Calendar.JUNE, 12, 0, 0, 0, 0)));
+        stored.add(at(2024, Calendar.JUNE, 12, 8, 0, 0, 0));
+        stored.add(new Date(at(2024, Calendar.JUNE, 12, 18, 0, 0, 0)));
+        stored.add(at(2024, Calendar.JUNE, 12, 23, 59, 59, 999));
+        stored.add(at(2024, Calendar.JUNE, 13, 0, 0, 0, 0));
+
+        // Migrate every document, then select by the equality-indexed day key
+        List<Appointment> day = new ArrayList<>();
+        for (int i = 0; i < stored.size(); i++) {
+            Map<String, Object> fields = document(stored.get(i));
+            fields.putAll(AppointmentSchema.migrationUpdate(fields, ISTANBUL));
+            assertTrue(fields.get("timestamp") instanceof Long);
+
+            Appointment appointment = AppointmentSchema.fromFields("a" + i, fields, ISTANBUL);
+            if (((Number) fields.get("dayKey")).intValue() == 20240612) {
+                assertEquals(20240612, appointment.getDayKey());
+                day.add(appointment);
+            }
+        }
+
+        assertEquals(4, day.size());
+        assertEquals("a1", day.get(0).getId());
+        assertEquals("a4", day.get(3).getId());
+    }
+
+    @Test
+    public void fromFields_defaultsDoctorAndSkipsDocumentsWithoutTimestamp() {
+        long millis = at(2024, Calendar.JUNE, 12, 9, 30, 0, 0);
+        Appointment appointment = AppointmentSchema.fromFields("a1", document(millis), ISTANBUL);
+        assertEquals(SlotKeys.DEFAULT_DOCTOR_ID, appointment.getDoctorId());
+        assertEquals("u1", appointment.getUserId());
+        assertEquals(millis, appointment.getTimestamp());
+
+        assertNull(AppointmentSchema.fromFields("a2", document(null), ISTANBUL));
+    }
+
+    @Test
+    public void fromFields_readsSeriesAndIgnoresLegacyDisplayStrings() {
+        long millis = at(2024, Calendar.JUNE, 12, 9, 30, 0, 0);
+        Map<String, Object> fields = document(millis);
+        fields.put("formattedDate", "12/06/2024 09:30");
+        fields.put(AppointmentSchema.FIELD_SERIES_ID, "dr1_956762");
+
+        Appointment appointment = AppointmentSchema.fromFields("a1", fields, ISTANBUL);
+
+        assertEquals("dr1_956762", appointment.getSeriesId());
+        assertEquals("12/06/2024 09:30", DateLabels.dateTime(appointment.getTimestamp(), ISTANBUL.toZoneId()));
+        assertEquals("Date: 12/06/2024 09:30",
+                DateLabels.appendDateTime(new StringBuilder("Date: "), appointment.getTimestamp(), ISTANBUL.toZoneId()).toString());
+    }
+
+    @Test
+    public void cancelledAndHeldSlots_areNoLongerTheBookersAppointment() {
+        long millis = at(2024, Calendar.JUNE, 12, 9, 30, 0, 0);
+        Map<String, Object> cancelled = document(millis);
+        cancelled.put(AppointmentSchema.FIELD_STATUS, AppointmentSchema.STATUS_CANCELLED);
+        Map<String, Object> held = document(millis);
+        held.put(AppointmentSchema.FIELD_STATUS, AppointmentSchema.STATUS_HELD);
+        held.put(AppointmentSchema.FIELD_HELD_FOR, "u2");
+
+        assertNull(AppointmentSchema.fromFields("a1", cancelled, ISTANBUL));
+        assertNull(AppointmentSchema.occupantFromFields("a1", cancelled, ISTANBUL, millis));
+        assertNull(AppointmentSchema.fromFields("a1", held, ISTANBUL));
+        Appointment occupant = AppointmentSchema.occupantFromFields("a1", held, ISTANBUL, millis);
+        assertEquals("u2", occupant.getUserId());
+        assertEquals(millis, occupant.getTimestamp());
+        assertEquals("u1", AppointmentSchema.occupantFromFields("a1", document(millis), ISTANBUL, millis).getUserId());
+        assertTrue(AppointmentSchema.isFreeFor(cancelled, "u3", millis));
+        assertFalse(AppointmentSchema.isFreeFor(held, "u2", millis));
+        assertFalse(AppointmentSchema.isFreeFor(document(millis), "u1", millis));
+        assertTrue(AppointmentSchema.isFreeFor(null, "u1", millis));
+    }
+
+    @Test
+    public void leasedSlots_areTakenUntilTheLeaseExpires() {
+        long millis = at(2024, Calendar.JUNE, 12, 9, 30, 0, 0);
+        long expiresAt = millis - 60_000L;
+        Map<String, Object> leased = document(millis);
+        leased.remove("userId");
+        leased.put(AppointmentSchema.FIELD_STATUS, AppointmentSchema.STATUS_LEASED);
+        leased.put(AppointmentSchema.FIELD_LEASED_BY, "u2");
+        leased.put(AppointmentSchema.FIELD_LEASE_EXPIRES_AT, expiresAt);
+
+        assertNull(AppointmentSchema.fromFields("a1", leased, ISTANBUL));
+        assertEquals("u2", AppointmentSchema.occupantFromFields("a1", leased, ISTANBUL, expiresAt - 1).getUserId());
+        assertNull(AppointmentSchema.occupantFromFields("a1", leased, ISTANBUL, expiresAt));
+        assertTrue(AppointmentSchema.isFreeFor(leased, "u2", expiresAt - 1));
+        assertFalse(AppointmentSchema.isFreeFor(leased, "u3", expiresAt - 1));
+        assertTrue(AppointmentSchema.isFreeFor(leased, "u3", expiresAt));
+    }
+
+    @Test
+    public void participantsAfter_keepsEveryEarlierBooker() {
+        long millis = at(2024, Calendar.JUNE, 12, 9, 30, 0, 0);
+        Map<String, Object> legacy = document(millis);
+        legacy.put(AppointmentSchema.FIELD_STATUS, AppointmentSchema.STATUS_CANCELLED);
+        Map<String, Object> rebooked = document(millis);
+        rebooked.put("userId", "u2");
+        rebooked.put(AppointmentSchema.FIELD_PARTICIPANTS, Arrays.asList("u1", "u2"));
+
+        assertEquals(Collections.singletonList("u1"), AppointmentSchema.participantsAfter(null, "u1"));
+        assertEquals(Arrays.asList("u1", "u2"), AppointmentSchema.participantsAfter(legacy, "u2"));
+        assertEquals(Arrays.asList("u1", "u2"), AppointmentSchema.participantsAfter(rebooked, "u1"));
+        assertEquals(Arrays.asList("u1", "u2", "u3"), AppointmentSchema.participantsAfter(rebooked, "u3"));
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.appointment.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class AppointmentSyncTest {
+
+    private static final String USER = "u1";
+
+    private FakeRemote remote;
+    private InMemoryLocalStore local;
+    private AppointmentSync sync;
+    private long clockMicros;
+
+    @Before
+    public void setUp() {
+        remote = new FakeRemote();
+        local = new InMemoryLocalStore();
+        sync = new AppointmentSync(remote, local, 100);
+        clockMicros = 1_000_000L;
+    }
+
+    private void book(String id, String userId, long timestamp) {
+        remote.put(id, new Appointment(id, userId, userId + "@example.com", SlotKeys.DEFAULT_DOCTOR_ID, timestamp, 20240612), ++clockMicros);
+    }
+
+    @Test
+    public void firstSync_pullsEverythingInPages() throws Exception {
+        for (int i = 0; i < 250; i++) {
+            book(String.format("a%03d", i), USER, i);
+        }
+        book("other", "u2", 0);
+
+        assertEquals(250, sync.sync(USER));
+        assertEquals(250, local.load(USER).size());
+        assertEquals(3, remote.calls);
+        assertEquals(250, remote.returned);
+    }
+
+    @Test
+    public void laterSync_pullsOnlyChangedDocuments() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            book("a" + i, USER, i);
+        }
+        sync.sync(USER);
+        remote.resetCounters();
+
+        assertEquals(0, sync.sync(USER));
+        assertEquals(0, remote.returned);
+
+        book("a3", USER, 1000);
+        book("a51", USER, 51);
+        remote.remove("a7", ++clockMicros);
+
+        assertEquals(3, sync.sync(USER));
+        assertEquals(3, remote.returned);
+        List<Appointment> stored = local.load(USER);
+        assertEquals(50, stored.size());
+        assertEquals(1000, local.byId.get("a3").getTimestamp());
+        assertTrue(local.byId.containsKey("a51"));
+        assertFalse(local.byId.containsKey("a7"));
+    }
+
+    @Test
+    public void changesWithTheSameUpdateTime_areNotSkippedAcrossPages() throws Exception {
+        long sameTime = ++clockMicros;
+        for (int i = 0; i < 150; i++) {
+            String id = String.format("t%03d", i);
+            remote.put(id, new Appointment(id, USER, null, SlotKeys.DEFAULT_DOCTOR_ID, i, 20240612), sameTime);
+        }
+
+        assertEquals(150, sync.sync(USER));
+        assertEquals(150, local.load(USER).size());
+        assertEquals(0, sync.sync(USER));
+    }
+
+    @Test
+    public void interruptedSync_resumesAfterTheLastAppliedPage() throws Exception {
+        for (int i = 0; i < 250; i++) {
+            book(String.format("a%03d", i), USER, i);
+        }
+        remote.failOnCall = 2;
+
+        try {
+            sync.sync(USER);
+            fail("Expected the second page to fail");
+        } catch (IllegalStateException expected) {
+            // Network dropped mid-sync
+        }
+        assertEquals(100, local.load(USER).size());
+
+        remote.failOnCall = -1;
+        remote.resetCounters();
+        assertEquals(150, sync.sync(USER));
+        assertEquals(150, remote.returned);
+        assertEquals(250, local.load(USER).size());
+    }
+
+    @Test
+    public void cancelledSlotBookedByAnotherUser_isRemovedOnTheNextSync() throws Exception {
+        book("a1", USER, 1);
+        book("a2", USER, 2);
+        sync.sync(USER);
+
+        // Cancelled and booked again by someone else before this device synced
+        remote.remove("a1", ++clockMicros);
+        book("a1", "u2", 1);
+
+        assertEquals(1, sync.sync(USER));
+        assertFalse(local.byId.containsKey("a1"));
+        assertTrue(local.byId.containsKey("a2"));
+        assertEquals(1, sync.sync("u2"));
+        assertEquals("u2", local.byId.get("a1").getUserId());
+    }
+
+    // Slot documents queried by participant, as FirestoreAppointmentSource does
+    private static class FakeRemote implements RemoteAppointmentSource {
+
+        private static class Document {
+            final List<String> participants;
+            final Appointment appointment;
+            final long updatedAtMicros;
+
+            Document(List<String> participants, Appointment appointment, long updatedAtMicros) {
+                this.participants = participants;
+                this.appointment = appointment;
+                this.updatedAtMicros = updatedAtMicros;
+            }
+        }
+
+        final Map<String, Document> documents = new HashMap<>();
+        int calls;
+        int returned;
+        int failOnCall = -1;
+
+        void put(String id, Appointment appointment, long updatedAtMicros) {
+            Document earlier = documents.get(id);
+            Map<String, Object> fields = new HashMap<>();
+            if (earlier != null) {
+                fields.put(AppointmentSchema.FIELD_PARTICIPANTS, earlier.participants);
+            }
+            documents.put(id, new Document(AppointmentSchema.participantsAfter(fields, appointment.getUserId()),
+                    appointment, updatedAtMicros));
+        }
+
+        void remove(String id, long updatedAtMicros) {
+            documents.put(id, new Document(documents.get(id).participants, null, updatedAtMicros));
+        }
+
+        void resetCounters() {
+            calls = 0;
+            returned = 0;
+        }
+
+        @Override
+        public List<AppointmentChange> fetchChanges(String userId, SyncCursor after, int limit) {
+            calls++;
+            if (calls == failOnCall) {
+                throw new IllegalStateException("offline");
+            }
+            List<AppointmentChange> changes = new ArrayList<>();
+            for (Map.Entry<String, Document> entry : documents.entrySet()) {
+                Document document = entry.getValue();
+                if (document.participants.contains(userId) && after.isBefore(document.updatedAtMicros, "appointments/" + entry.getKey())) {
+                    changes.add(new AppointmentChange(entry.getKey(), "appointments/" + entry.getKey(), document.appointment, document.updatedAtMicros));
+                }
+            }
+            Collections.sort(changes, (a, b) -> a.getUpdatedAtMicros() != b.getUpdatedAtMicros()
+                    ? Long.compare(a.getUpdatedAtMicros(), b.getUpdatedAtMicros())
+                    : a.getId().compareTo(b.getId()));
+            List<AppointmentChange> page = new ArrayList<>(changes.subList(0, Math.min(limit, changes.size())));
+            returned += page.size();
+            return page;
+        }
+    }
+
+    private static class InMemoryLocalStore implements LocalAppointmentStore {
+
+        final Map<String, Appointment> byId = new TreeMap<>();
+        final Map<String, SyncCursor> cursors = new HashMap<>();
+
+        @Override
+        public List<Appointment> load(String userId) {
+            List<Appointment> result = new ArrayList<>();
+            for (Appointment appointment : byId.values()) {
+                if (appointment.getUserId().equals(userId)) {
+                    result.add(appointment);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public List<Appointment> loadPage(String userId, AppointmentPager.Section section, long boundaryMillis, Appointment after, int limit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SyncCursor getCursor(String userId) {
+            SyncCursor cursor = cursors.get(userId);
+            return cursor != null ? cursor : SyncCursor.START;
+        }
+
+        @Override
+        public void apply(String userId, Collection<Appointment> upserts, Collection<String> removedIds, SyncCursor cursor) {
+            for (Appointment appointment : upserts) {
+                byId.put(appointment.getId(), appointment);
+            }
+            for (String id : removedIds) {
+                byId.remove(id);
+            }
+            cursors.put(userId, cursor);
+        }
+
+        @Override
+        public void clear() {
+            byId.clear();
+            cursors.clear();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.appointment.core;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class BookingClientTest {
+
+    private static final TimeZone ISTANBUL = TimeZone.getTimeZone("Europe/Istanbul");
+    private static final Doctor DOCTOR = new Doctor("dr1", "Dr One", "c1", 8 * 60, 18 * 60 + 30, 30);
+    private static final long SLOT_MILLIS = DOCTOR.getSlotGrid().getSlotMillis();
+    // Wednesday 12 June 2024, 08:00
+    private static final long FIRST_SLOT = 1_718_168_400_000L;
+    private static final Clock DAY_BEFORE = () -> FIRST_SLOT - 24 * 60 * 60 * 1000L;
+
+    @Test
+    public void availability_offersFreeSlotsThatCanStillBeBooked() {
+        InMemoryAppointmentRepository repository = new InMemoryAppointmentRepository(ISTANBUL);
+        repository.add("dr1", FIRST_SLOT + 2 * SLOT_MILLIS);
+        // Just after the second slot started
+        BookingClient client = new BookingClient(repository, new InMemorySlotStore(), ISTANBUL, SlotRulesSource.DEFAULT,
+                () -> FIRST_SLOT + SLOT_MILLIS + 1);
+
+        AtomicReference<DaySlots> result = new AtomicReference<>();
+        client.availability(DOCTOR, day(FIRST_SLOT), new DaySlotsLoader.OnDaySlotsListener() {
+            @Override
+            public void onSuccess(DaySlots daySlots) {
+                result.set(daySlots);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                fail(e.toString());
+            }
+        });
+
+        DaySlots daySlots = result.get();
+        assertEquals(20240612, daySlots.getDayKey());
+        assertEquals(DOCTOR.getSlotGrid().getSlotCount() - 3, daySlots.getFreeSlots().size());
+        assertEquals(Integer.valueOf(3), daySlots.getFreeSlots().get(0));
+    }
+
+    @Test
+    public void bookAnyFree_skipsSlotsFoundTakenOnStaleReads() {
+        InMemorySlotStore store = new InMemorySlotStore();
+        // Booked behind the repository's back, so availability still shows them free
+        BookingService other = new BookingService(store, ISTANBUL);
+        other.book(DOCTOR, FIRST_SLOT, "u2", null, new RecordingBooking());
+        other.book(DOCTOR, FIRST_SLOT + SLOT_MILLIS, "u2", null, new RecordingBooking());
+        BookingClient client = new BookingClient(new InMemoryAppointmentRepository(ISTANBUL), store, ISTANBUL,
+                SlotRulesSource.DEFAULT, DAY_BEFORE);
+
+        RecordingAnyFree listener = new RecordingAnyFree();
+        client.bookAnyFree(DOCTOR, day(FIRST_SLOT), "u1", "u1@example.com", 5, null, listener);
+
+        assertEquals(FIRST_SLOT + 2 * SLOT_MILLIS, listener.slotStartMillis);
+        assertEquals(2, listener.conflicts);
+        assertEquals("u1", store.documents.get(AppointmentPaths.appointment("dr1", 20240612, listener.appointmentId)).getUserId());
+    }
+
+    @Test
+    public void bookAnyFree_givesUpAfterMaxAttempts() {
+        InMemorySlotStore store = new InMemorySlotStore();
+        BookingService other = new BookingService(store, ISTANBUL);
+        other.book(DOCTOR, FIRST_SLOT, "u2", null, new RecordingBooking());
+        other.book(DOCTOR, FIRST_SLOT + SLOT_MILLIS, "u2", null, new RecordingBooking());
+        BookingClient client = new BookingClient(new InMemoryAppointmentRepository(ISTANBUL), store, ISTANBUL,
+                SlotRulesSource.DEFAULT, DAY_BEFORE);
+
+        RecordingAnyFree listener = new RecordingAnyFree();
+        client.bookAnyFree(DOCTOR, day(FIRST_SLOT), "u1", null, 2, null, listener);
+
+        assertTrue(listener.noFreeSlot);
+        assertEquals(2, listener.conflicts);
+        assertEquals(2, store.documents.size());
+    }
+
+    @Test
+    public void bookAnyFree_findsNoFreeSlotOnAClosedDay() {
+        InMemorySlotStore store = new InMemorySlotStore();
+        BookingClient client = new BookingClient(new InMemoryAppointmentRepository(ISTANBUL), store, ISTANBUL,
+                SlotRulesSource.DEFAULT, DAY_BEFORE);
+
+        // Saturday 15 June 2024
+        RecordingAnyFree listener = new RecordingAnyFree();
+        client.bookAnyFree(DOCTOR, day(FIRST_SLOT + 3 * 24 * 60 * 60 * 1000L), "u1", null, 3, null, listener);
+
+        assertTrue(listener.noFreeSlot);
+        assertEquals(0, listener.conflicts);
+        assertTrue(store.documents.isEmpty());
+    }
+
+    @Test
+    public void bookAnyFree_concurrentPatientsNeverShareASlot() throws Exception {
+        InMemorySlotStore store = new InMemorySlotStore();
+        // The repository never sees the bookings, as if every read were stale
+        BookingClient client = new BookingClient(new InMemoryAppointmentRepository(ISTANBUL), store, ISTANBUL,
+                SlotRulesSource.DEFAULT, DAY_BEFORE);
+        int slots = DOCTOR.getSlotGrid().getSlotCount();
+        int patients = 3 * slots;
+
+        Set<Long> bookedStarts = ConcurrentHashMap.newKeySet();
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger turnedAway = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(patients);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int i = 0; i < patients; i++) {
+                String userId = "u" + i;
+                Random random = new Random(i);
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    client.bookAnyFree(DOCTOR, day(FIRST_SLOT), userId, null, slots, random, new BookingClient.OnAnyFreeListener() {
+                        @Override
+                        public void onBooked(String appointmentId, long slotStartMillis, int conflicts) {
+                            booked.incrementAndGet();
+                            bookedStarts.add(slotStartMillis);
+                            done.countDown();
+                        }
+
+                        @Override
+                        public void onNoFreeSlot(int conflicts) {
+                            turnedAway.incrementAndGet();
+                            done.countDown();
+                        }
+
+                        @Override
+                        public void onFailure(Exception e) {
+                            done.countDown();
+                        }
+                    });
+                });
+            }
+            start.countDown();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(slots, booked.get());
+        assertEquals(slots, bookedStarts.size());
+        assertEquals(patients - slots, turnedAway.get());
+        assertEquals(slots, store.documents.size());
+    }
+
+    private static Calendar day(long millis) {
+        Calendar day = Calendar.getInstance(ISTANBUL);
+        day.setTimeInMillis(millis);
+        return day;
+    }
+
+    private static final class RecordingBooking implements BookingService.OnBookingListener {
+        @Override
+        public void onBooked(String appointmentId) {
+        }
+
+        @Override
+        public void onSlotTaken(String appointmentId) {
+            fail("taken: " + appointmentId);
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            fail(e.toString());
+        }
+    }
+
+    private static final class RecordingAnyFree implements BookingClient.OnAnyFreeListener {
+        String appointmentId;
+        long slotStartMillis = -1;
+        int conflicts = -1;
+        boolean noFreeSlot;
+
+        @Override
+        public void onBooked(String appointmentId, long slotStartMillis, int conflicts) {
+            this.appointmentId = appointmentId;
+            this.slotStartMillis = slotStartMillis;
+            this.conflicts = conflicts;
+        }
+
+        @Override
+        public void onNoFreeSlot(int conflicts) {
+            this.noFreeSlot = true;
+            this.conflicts = conflicts;
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            fail(e.toString());
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package com.example.appointment.core;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class BookingQueueTest {
+
+    private static final long SLOT_MILLIS = SlotGrid.DEFAULT.getSlotMillis();
+    private static final long DAY_MILLIS = 24 * 3_600_000L;
+    // Wednesday 12 June 2024, 09:00 in Istanbul, and a day before it
+    private static final long FIRST_SLOT = 1_718_172_000_000L;
+    private static final long NOW = FIRST_SLOT - DAY_MILLIS;
+    private static final TimeZone ISTANBUL = TimeZone.getTimeZone("Europe/Istanbul");
+    private static final Doctor DOCTOR = new Doctor("dr1", "Dr One", "c1", 8 * 60, 18 * 60 + 30, 30);
+
+    private final AtomicLong now = new AtomicLong(NOW);
+    private final Clock clock = now::get;
+    private final FlakySlotStore backend = new FlakySlotStore(clock);
+    private final InMemoryPendingBookings store = new InMemoryPendingBookings();
+    private final RecordingOutcomes outcomes = new RecordingOutcomes();
+    private ExecutorService executor;
+
+    @After
+    public void shutDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void enqueue_sendsTheBookingAtOnceWithItsKey() {
+        BookingQueue queue = queue();
+
+        PendingBooking booking = queue.enqueue(DOCTOR, FIRST_SLOT, "u1", "u1@example.com");
+
+        assertEquals(Collections.singletonList(booking.getKey()), outcomes.booked);
+        assertTrue(queue.getPending().isEmpty());
+        assertTrue(store.bookings.isEmpty());
+        String path = pathOf(FIRST_SLOT);
+        assertEquals("u1", backend.slots.documents.get(path).getUserId());
+        assertEquals(booking.getKey(), backend.slots.bookingKeys.get(path));
+    }
+
+    @Test
+    public void enqueue_whileOfflineKeepsTheBookingAndBacksOffExponentially() {
+        backend.online = false;
+        BookingQueue queue = queue();
+
+        PendingBooking booking = queue.enqueue(DOCTOR, FIRST_SLOT, "u1", null);
+
+        assertEquals(1, backend.calls.get());
+        assertEquals(Collections.singletonList(booking.getKey()), outcomes.deferred);
+        assertEquals(1, store.bookings.get(booking.getKey()).getAttempts());
+        assertEquals(NOW + 1_000, queue.getNextAttemptAtMillis());
+
+        // Not due yet: nothing is sent
+        queue.drain();
+        assertEquals(1, backend.calls.get());
+
+        long[] delays = {2_000, 4_000, 8_000, 8_000};
+        for (long delay : delays) {
+            now.set(queue.getNextAttemptAtMillis());
+            queue.drain();
+            assertEquals(now.get() + delay, queue.getNextAttemptAtMillis());
+        }
+        assertEquals(5, backend.calls.get());
+        assertEquals(5, store.bookings.get(booking.getKey()).getAttempts());
+
+        // Connectivity returns before the backoff is over
+        backend.online = true;
+        queue.retryNow();
+
+        assertEquals(Collections.singletonList(booking.getKey()), outcomes.booked);
+        assertTrue(store.bookings.isEmpty());
+        assertEquals(-1, queue.getNextAttemptAtMillis());
+    }
+
+    @Test
+    public void lostAnswer_isRetriedWithoutBookingTwice() {
+        backend.answersToLose.set(1);
+        BookingQueue queue = queue();
+
+        PendingBooking booking = queue.enqueue(DOCTOR, FIRST_SLOT, "u1", null);
+        // The slot was written, but the device never heard back
+        assertEquals(1, backend.slots.documents.size());
+        assertEquals(Collections.singletonList(booking.getKey()), outcomes.deferred);
+
+        queue.retryNow();
+
+        assertEquals(Collections.singletonList(booking.getKey()), outcomes.booked);
+        assertTrue(outcomes.taken.isEmpty());
+        assertEquals(1, backend.slots.documents.size());
+        assertEquals(1L, backend.slots.summaries.fields("dr1", 20240612).get(DaySummary.FIELD_BOOKED_COUNT));
+    }
+
+    @Test
+    public void slotBookedByOthersWhileOffline_isReportedAsTaken() {
+        backend.online = false;
+        BookingQueue queue = queue();
+        PendingBooking booking = queue.enqueue(DOCTOR, FIRST_SLOT, "u1", null);
+
+        new BookingService(backend.slots, ISTANBUL).book(DOCTOR, FIRST_SLOT, "u2", null, "other-key", new IgnoringListener());
+        backend.online = true;
+        queue.retryNow();
+
+        assertEquals(Collections.singletonList(booking.getKey()), outcomes.taken);
+        assertTrue(outcomes.booked.isEmpty());
+        assertTrue(store.bookings.isEmpty());
+        assertEquals("u2", backend.slots.documents.get(pathOf(FIRST_SLOT)).getUserId());
+    }
+
+    @Test
+    public void sameSlotBookedTwice_isQueuedOnce() {
+        backend.online = false;
+        BookingQueue queue = queue();
+
+        PendingBooking first = queue.enqueue(DOCTOR, FIRST_SLOT, "u1", null);
+        PendingBooking second = queue.enqueue(DOCTOR, FIRST_SLOT, "u1", null);
+        PendingBooking other = queue.enqueue(DOCTOR, FIRST_SLOT + SLOT_MILLIS, "u1", null);
+
+        assertEquals(first.getKey(), second.getKey());
+        assertNotEquals(first.getKey(), other.getKey());
+        assertEquals(2, store.bookings.size());
+    }
+
+    @Test
+    public void pendingBookings_surviveARestartAndAreSentInOrder() {
+        backend.online = false;
+        BookingQueue before = queue();
+        PendingBooking first = before.enqueue(DOCTOR, FIRST_SLOT + SLOT_MILLIS, "u1", null);
+        now.addAndGet(10);
+        PendingBooking second = before.enqueue(DOCTOR, FIRST_SLOT, "u2", null);
+
+        backend.online = true;
+        BookingQueue after = queue();
+        assertEquals(2, after.getPending().size());
+        after.retryNow();
+
+        assertEquals(Arrays.asList(first.getKey(), second.getKey()), outcomes.booked);
+        assertTrue(store.bookings.isEmpty());
+        assertEquals(2, backend.slots.documents.size());
+    }
+
+    @Test
+    public void bookingWhoseSlotHasStarted_isDropped() {
+        backend.online = false;
+        BookingQueue queue = queue();
+        PendingBooking booking = queue.enqueue(DOCTOR, FIRST_SLOT, "u1", null);
+
+        backend.online = true;
+        now.set(FIRST_SLOT);
+        queue.retryNow();
+
+        assertEquals(Collections.singletonList(booking.getKey()), outcomes.dropped);
+        assertTrue(backend.slots.documents.isEmpty());
+        assertTrue(store.bookings.isEmpty());
+    }
+
+    @Test
+    public void refusedBooking_isDroppedWithoutRetrying() {
+        backend.failure = new SlotStoreException("permission denied", null, false);
+        BookingQueue queue = queue();
+
+        PendingBooking refused = queue.enqueue(DOCTOR, FIRST_SLOT, "u1", null);
+
+        assertEquals(Collections.singletonList(refused.getKey()), outcomes.dropped);
+        assertTrue(outcomes.deferred.isEmpty());
+        assertTrue(store.bookings.isEmpty());
+        assertEquals(-1, queue.getNextAttemptAtMillis());
+
+        // Retrying does not send it again, and the queue goes on with the next booking
+        queue.retryNow();
+        assertEquals(1, backend.calls.get());
+        backend.failure = null;
+        PendingBooking next = queue.enqueue(DOCTOR, FIRST_SLOT + SLOT_MILLIS, "u1", null);
+        assertEquals(Collections.singletonList(next.getKey()), outcomes.booked);
+        assertTrue(backend.slots.documents.containsKey(pathOf(FIRST_SLOT + SLOT_MILLIS)));
+        assertFalse(backend.slots.documents.containsKey(pathOf(FIRST_SLOT)));
+    }
+
+    @Test
+    public void flappingConnectivity_bookingsEndUpBookedExactlyOnce() throws Exception {
+        executor = Executors.newFixedThreadPool(4);
+        backend.executor = executor;
+        BookingQueue queue = queue();
+        Random random = new Random(22);
+
+        // 30 slots over two days, and a second user on each of the first 10. A double tap that comes
+        // after the first tap was confirmed is a booking of its own, which finds the slot taken.
+        Map<String, PendingBooking> bookings = new ConcurrentHashMap<>();
+        for (int i = 0; i < 40; i++) {
+            int slot = i % 30;
+            long start = FIRST_SLOT + (slot % 15) * SLOT_MILLIS + (slot / 15) * DAY_MILLIS;
+            for (int tap = 0; tap < 2; tap++) {
+                PendingBooking booking = queue.enqueue(DOCTOR, start, "u" + i, null);
+                bookings.put(booking.getKey(), booking);
+            }
+            if (random.nextInt(3) == 0) {
+                backend.online = !backend.online;
+                if (backend.online) {
+                    queue.retryNow();
+                }
+            }
+            backend.answersToLose.set(random.nextInt(2));
+        }
+        for (int flap = 0; flap < 200; flap++) {
+            backend.online = random.nextBoolean();
+            backend.answersToLose.set(random.nextInt(3));
+            if (backend.online) {
+                queue.retryNow();
+            }
+            Thread.sleep(1);
+        }
+
+        backend.online = true;
+        backend.answersToLose.set(0);
+        long deadline = System.currentTimeMillis() + 10_000;
+        // Outcomes are reported just after a booking leaves the queue
+        while ((!queue.getPending().isEmpty() || outcomes.booked.size() + outcomes.taken.size() < bookings.size())
+                && System.currentTimeMillis() < deadline) {
+            queue.retryNow();
+            Thread.sleep(5);
+        }
+
+        assertTrue(queue.getPending().isEmpty());
+        assertTrue(store.bookings.isEmpty());
+        assertTrue(outcomes.dropped.isEmpty());
+        // Every booking got exactly one answer, and every slot exactly one patient
+        Set<String> answered = new HashSet<>(outcomes.booked);
+        answered.addAll(outcomes.taken);
+        assertEquals(bookings.size(), outcomes.booked.size() + outcomes.taken.size());
+        assertEquals(bookings.keySet(), answered);
+        assertEquals(30, outcomes.booked.size());
+        assertEquals(30, backend.slots.documents.size());
+        for (PendingBooking booking : bookings.values()) {
+            String path = pathOf(booking.getSlotStartMillis());
+            boolean won = outcomes.booked.contains(booking.getKey());
+            assertEquals(won, booking.getKey().equals(backend.slots.bookingKeys.get(path)));
+            // A late double tap loses to its own user's first tap, so only winners say whose slot it is
+            if (won) {
+                assertEquals(booking.getUserId(), backend.slots.documents.get(path).getUserId());
+            }
+        }
+        assertEquals(15L, backend.slots.summaries.fields("dr1", 20240612).get(DaySummary.FIELD_BOOKED_COUNT));
+        assertEquals(15L, backend.slots.summaries.fields("dr1", 20240613).get(DaySummary.FIELD_BOOKED_COUNT));
+    }
+
+    private BookingQueue queue() {
+        BookingQueue queue = new BookingQueue(store, new BookingService(backend, ISTANBUL), clock, 1_000, 8_000);
+        queue.addListener(outcomes);
+        return queue;
+    }
+
+    private static String pathOf(long start) {
+        return AppointmentPaths.appointment("dr1", DayKeys.dayKey(start, ISTANBUL), SlotKeys.slotId("dr1", start, SLOT_MILLIS));
+    }
+
+    // Backend that can be offline, when calls fail before reaching it, or lose answers, when the write
+    // goes through but the caller gets a failure. Answers arrive on the executor, if there is one.
+    private static class FlakySlotStore implements SlotStore {
+        final InMemorySlotStore slots;
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger answersToLose = new AtomicInteger();
+        volatile boolean online = true;
+        // Answered to every call while set, e.g. a write the security rules deny
+        volatile Exception failure;
+        volatile ExecutorService executor;
+
+        FlakySlotStore(Clock clock) {
+            this.slots = new InMemorySlotStore(clock);
+        }
+
+        @Override
+        public void createIfAbsent(String documentPath, Appointment appointment, String bookingKey, OnCreateListener listener) {
+            calls.incrementAndGet();
+            boolean reachable = online;
+            Exception refused = failure;
+            Runnable call = () -> {
+                if (!reachable) {
+                    listener.onFailure(new SlotStoreException("offline", null, true));
+                    return;
+                }
+                if (refused != null) {
+                    listener.onFailure(refused);
+                    return;
+                }
+                boolean lose = answersToLose.getAndUpdate(n -> Math.max(0, n - 1)) > 0;
+                slots.createIfAbsent(documentPath, appointment, bookingKey, lose ? new LostAnswer(listener) : listener);
+            };
+            if (executor != null) {
+                executor.execute(call);
+            } else {
+                call.run();
+            }
+        }
+
+        @Override
+        public void createAllIfAbsent(Map<String, Appointment> appointments, OnCreateAllListener listener) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void lease(String documentPath, Appointment slot, long expiresAtMillis, OnCreateListener listener) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void release(String documentPath, String userId) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class LostAnswer implements SlotStore.OnCreateListener {
+        private final SlotStore.OnCreateListener listener;
+
+        LostAnswer(SlotStore.OnCreateListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onCreated() {
+            listener.onFailure(new SlotStoreException("deadline exceeded", null, true));
+        }
+
+        @Override
+        public void onAlreadyExists() {
+            listener.onFailure(new SlotStoreException("deadline exceeded", null, true));
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            listener.onFailure(e);
+        }
+    }
+
+    private static class InMemoryPendingBookings implements PendingBookingStore {
+        final Map<String, PendingBooking> bookings = new ConcurrentHashMap<>();
+
+        @Override
+        public List<PendingBooking> load() {
+            return new ArrayList<>(bookings.values());
+        }
+
+        @Override
+        public void save(PendingBooking booking) {
+            bookings.put(booking.getKey(), booking);
+        }
+
+        @Override
+        public void remove(String key) {
+            bookings.remove(key);
+        }
+
+        @Override
+        public void clear() {
+            bookings.clear();
+        }
+    }
+
+    private static class RecordingOutcomes implements BookingQueue.OnBookingOutcomeListener {
+        final List<String> booked = Collections.synchronizedList(new ArrayList<>());
+        final List<String> taken = Collections.synchronizedList(new ArrayList<>());
+        final List<String> deferred = Collections.synchronizedList(new ArrayList<>());
+        final List<String> dropped = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void onBooked(PendingBooking booking, String appointmentId) {
+            booked.add(booking.getKey());
+        }
+
+        @Override
+        public void onSlotTaken(PendingBooking booking) {
+            taken.add(booking.getKey());
+        }
+
+        @Override
+        public void onDeferred(PendingBooking booking, Exception e) {
+            deferred.add(booking.getKey());
+        }
+
+        @Override
+        public void onDropped(PendingBooking booking, Exception e) {
+            dropped.add(booking.getKey());
+        }
+    }
+
+    private static class IgnoringListener implements BookingService.OnBookingListener {
+        @Override
+        public void onBooked(String appointmentId) {
+        }
+
+        @Override
+        public void onSlotTaken(String appointmentId) {
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+        }
+    }
+}
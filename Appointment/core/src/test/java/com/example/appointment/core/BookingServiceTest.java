@@ -0,0 +1,447 @@
+package com.example.appointment.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class BookingServiceTest {
+
+    private static final long SLOT_MILLIS = SlotGrid.DEFAULT.getSlotMillis();
+    private static final long FIRST_SLOT = 1_718_172_000_000L;
+    private static final TimeZone ISTANBUL = TimeZone.getTimeZone("Europe/Istanbul");
+    private static final Doctor DOCTOR = new Doctor("dr1", "Dr One", "c1", 8 * 60, 18 * 60 + 30, 30);
+
+    @Test
+    public void slotId_isDeterministicPerDoctorAndSlot() {
+        assertEquals(SlotKeys.slotId("dr1", FIRST_SLOT, SLOT_MILLIS), SlotKeys.slotId("dr1", FIRST_SLOT, SLOT_MILLIS));
+        assertNotEquals(SlotKeys.slotId("dr1", FIRST_SLOT, SLOT_MILLIS), SlotKeys.slotId("dr2", FIRST_SLOT, SLOT_MILLIS));
+        assertNotEquals(SlotKeys.slotId("dr1", FIRST_SLOT, SLOT_MILLIS), SlotKeys.slotId("dr1", FIRST_SLOT + SLOT_MILLIS, SLOT_MILLIS));
+        assertEquals("dr1_" + (FIRST_SLOT / SLOT_MILLIS), SlotKeys.slotId("dr1", FIRST_SLOT, SLOT_MILLIS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void slotId_rejectsPathSeparators() {
+        SlotKeys.slotId("a/b", FIRST_SLOT, SLOT_MILLIS);
+    }
+
+    @Test
+    public void book_storesAppointmentUnderSlotId() {
+        InMemorySlotStore store = new InMemorySlotStore();
+        BookingService service = new BookingService(store, ISTANBUL);
+        RecordingListener listener = new RecordingListener();
+
+        service.book(DOCTOR, FIRST_SLOT, "u1", "u1@example.com", listener);
+
+        String slotId = SlotKeys.slotId("dr1", FIRST_SLOT, SLOT_MILLIS);
+        assertEquals(1, listener.booked.get());
+        Appointment stored = store.documents.get("doctors/dr1/days/20240612/appointments/" + slotId);
+        assertEquals(slotId, stored.getId());
+        assertEquals("u1", stored.getUserId());
+        assertEquals("u1@example.com", stored.getEmail());
+        assertEquals("dr1", stored.getDoctorId());
+        assertEquals(FIRST_SLOT, stored.getTimestamp());
+        assertEquals(20240612, stored.getDayKey());
+        assertNull(stored.getSeriesId());
+    }
+
+    @Test
+    public void book_rejectsTimesOffTheDoctorsGrid() {
+        InMemorySlotStore store = new InMemorySlotStore();
+        BookingService service = new BookingService(store, ISTANBUL);
+        Doctor afternoons = new Doctor("dr2", "Dr Two", "c1", 13 * 60, 17 * 60, 20);
+
+        RecordingListener misaligned = new RecordingListener();
+        service.book(DOCTOR, FIRST_SLOT + 60_000, "u1", null, misaligned);
+        assertEquals(1, misaligned.failed.get());
+
+        RecordingListener beforeHours = new RecordingListener();
+        service.book(afternoons, FIRST_SLOT, "u1", null, beforeHours);
+        assertEquals(1, beforeHours.failed.get());
+
+        RecordingListener inHours = new RecordingListener();
+        service.book(afternoons, FIRST_SLOT + 4 * 3_600_000L + 20 * 60_000L, "u1", null, inHours);
+        assertEquals(1, inHours.booked.get());
+        assertEquals(1, store.documents.size());
+    }
+
+    @Test
+    public void bookSeries_booksEveryOccurrenceTogether() {
+        InMemorySlotStore store = new InMemorySlotStore();
+        BookingService service = new BookingService(store, ISTANBUL);
+        RecordingSeriesListener listener = new RecordingSeriesListener();
+
+        service.bookSeries(DOCTOR, FIRST_SLOT, Recurrence.BIWEEKLY, 6, "u1", "u1@example.com", listener);
+
+        assertNull(listener.conflicts);
+        assertEquals(6, listener.booked.size());
+        assertEquals(6, store.documents.size());
+        String seriesId = SlotKeys.slotId("dr1", FIRST_SLOT, SLOT_MILLIS);
+        long last = FIRST_SLOT + 5 * 14 * 86_400_000L;
+        Appointment lastStored = store.documents.get("doctors/dr1/days/20240821/appointments/" + SlotKeys.slotId("dr1", last, SLOT_MILLIS));
+        assertEquals(last, lastStored.getTimestamp());
+        assertEquals(seriesId, lastStored.getSeriesId());
+        assertEquals("u1", lastStored.getUserId());
+    }
+
+    @Test
+    public void bookSeries_writesNothingWhenAnOccurrenceIsTaken() {
+        InMemorySlotStore store = new InMemorySlotStore();
+        BookingService service = new BookingService(store, ISTANBUL);
+        long week = 7 * 86_400_000L;
+        service.book(DOCTOR, FIRST_SLOT + 2 * week, "u1", null, new RecordingListener());
+        service.book(DOCTOR, FIRST_SLOT + 4 * week, "u1", null, new RecordingListener());
+        RecordingSeriesListener listener = new RecordingSeriesListener();
+
+        service.bookSeries(DOCTOR, FIRST_SLOT, Recurrence.WEEKLY, 8, "u1", null, listener);
+
+        assertNull(listener.booked);
+        assertEquals(2, listener.conflicts.size());
+        assertEquals(2, listener.conflicts.get(0).getOccurrence());
+        assertEquals(FIRST_SLOT + 2 * week, listener.conflicts.get(0).getSlotStartMillis());
+        assertEquals(OccurrenceConflict.Reason.TAKEN, listener.conflicts.get(0).getReason());
+        assertEquals(4, listener.conflicts.get(1).getOccurrence());
+        assertEquals(2, store.documents.size());
+    }
+
+    @Test
+    public void bookSeries_followsTheSlotRules() {
+        InMemorySlotStore store = new InMemorySlotStore();
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(SlotRules.FIELD_HOLIDAYS, Collections.singletonList("2024-06-19"));
+        SlotRules rules = SlotRules.fromFields(fields);
+        BookingService service = new BookingService(store, ISTANBUL, () -> rules);
+
+        RecordingSeriesListener holiday = new RecordingSeriesListener();
+        service.bookSeries(DOCTOR, FIRST_SLOT, Recurrence.WEEKLY, 3, "u1", null, holiday);
+        assertEquals(1, holiday.conflicts.size());
+        assertEquals(OccurrenceConflict.Reason.CLOSED, holiday.conflicts.get(0).getReason());
+        assertEquals(FIRST_SLOT + 7 * 86_400_000L, holiday.conflicts.get(0).getSlotStartMillis());
+        assertTrue(store.documents.isEmpty());
+
+        RecordingListener onHoliday = new RecordingListener();
+        service.book(DOCTOR, FIRST_SLOT + 7 * 86_400_000L, "u1", null, onHoliday);
+        assertEquals(1, onHoliday.failed.get());
+    }
+
+    @Test
+    public void bookSeries_reportsOccurrencesThatCannotBeBooked() {
+        InMemorySlotStore store = new InMemorySlotStore();
+        BookingService service = new BookingService(store, ISTANBUL);
+        RecordingSeriesListener weekend = new RecordingSeriesListener();
+
+        // Saturday 15 June
+        service.bookSeries(DOCTOR, FIRST_SLOT + 3 * 86_400_000L, Recurrence.WEEKLY, 3, "u1", null, weekend);
+        assertEquals(3, weekend.conflicts.size());
+        assertEquals(OccurrenceConflict.Reason.CLOSED, weekend.conflicts.get(2).getReason());
+
+        RecordingSeriesListener offGrid = new RecordingSeriesListener();
+        service.bookSeries(DOCTOR, FIRST_SLOT + 60_000, Recurrence.WEEKLY, 2, "u1", null, offGrid);
+        assertEquals(OccurrenceConflict.Reason.NOT_BOOKABLE, offGrid.conflicts.get(0).getReason());
+
+        RecordingSeriesListener tooLong = new RecordingSeriesListener();
+        service.bookSeries(DOCTOR, FIRST_SLOT, Recurrence.WEEKLY, BookingService.MAX_SERIES_OCCURRENCES + 1, "u1", null, tooLong);
+        assertTrue(tooLong.failure instanceof IllegalArgumentException);
+        assertTrue(store.documents.isEmpty());
+    }
+
+    @Test
+    public void recurrence_keepsTheWallClockTimeAcrossDaylightSaving() {
+        TimeZone berlin = TimeZone.getTimeZone("Europe/Berlin");
+        Calendar first = Calendar.getInstance(berlin);
+        first.clear();
+        first.set(2024, Calendar.MARCH, 20, 9, 30);
+
+        long[] starts = Recurrence.WEEKLY.occurrences(first.getTimeInMillis(), 3, berlin);
+
+        Calendar third = Calendar.getInstance(berlin);
+        third.setTimeInMillis(starts[2]);
+        assertEquals(3, third.get(Calendar.DAY_OF_MONTH));
+        assertEquals(Calendar.APRIL, third.get(Calendar.MONTH));
+        assertEquals(9, third.get(Calendar.HOUR_OF_DAY));
+        assertEquals(30, third.get(Calendar.MINUTE));
+    }
+
+    @Test
+    public void parallelBookings_haveExactlyOneWinnerPerSlot() throws InterruptedException {
+        InMemorySlotStore store = new InMemorySlotStore();
+        BookingService service = new BookingService(store, ISTANBUL);
+        int slots = 8;
+        int bookingsPerSlot = 100;
+
+        ConcurrentHashMap<String, AtomicInteger> winners = new ConcurrentHashMap<>();
+        AtomicInteger taken = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(slots * bookingsPerSlot);
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+
+        for (int i = 0; i < slots * bookingsPerSlot; i++) {
+            long slotStart = FIRST_SLOT + (i % slots) * SLOT_MILLIS;
+            String userId = "patient-" + i;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                service.book(DOCTOR, slotStart, userId, null, new BookingService.OnBookingListener() {
+                    @Override
+                    public void onBooked(String appointmentId) {
+                        winners.computeIfAbsent(appointmentId, id -> new AtomicInteger()).incrementAndGet();
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onSlotTaken(String appointmentId) {
+                        taken.incrementAndGet();
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        failed.incrementAndGet();
+                        done.countDown();
+                    }
+                });
+            });
+        }
+
+        start.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(slots, winners.size());
+        for (AtomicInteger count : winners.values()) {
+            assertEquals(1, count.get());
+        }
+        assertEquals(slots * (bookingsPerSlot - 1), taken.get());
+        assertEquals(0, failed.get());
+        assertEquals(slots, store.documents.size());
+    }
+
+    @Test
+    public void lease_keepsTheSlotForTheUserUntilItExpires() {
+        AtomicLong now = new AtomicLong(FIRST_SLOT - 86_400_000L);
+        InMemorySlotStore store = new InMemorySlotStore(now::get);
+        BookingService service = new BookingService(store, ISTANBUL, now::get, 60_000L);
+        RecordingLeaseListener leased = new RecordingLeaseListener();
+
+        service.lease(DOCTOR, FIRST_SLOT, "u1", leased);
+        assertEquals(now.get() + 60_000L, leased.expiresAt);
+
+        RecordingListener other = new RecordingListener();
+        service.book(DOCTOR, FIRST_SLOT, "u2", null, other);
+        assertEquals(1, other.slotTaken.get());
+        RecordingLeaseListener otherLease = new RecordingLeaseListener();
+        service.lease(DOCTOR, FIRST_SLOT, "u2", otherLease);
+        assertEquals(1, otherLease.taken);
+
+        now.addAndGet(60_000L);
+        RecordingLeaseListener afterExpiry = new RecordingLeaseListener();
+        service.lease(DOCTOR, FIRST_SLOT, "u2", afterExpiry);
+        assertEquals(now.get() + 60_000L, afterExpiry.expiresAt);
+
+        RecordingListener owner = new RecordingListener();
+        service.book(DOCTOR, FIRST_SLOT, "u2", null, owner);
+        assertEquals(1, owner.booked.get());
+        assertTrue(store.leases.isEmpty());
+        RecordingLeaseListener booked = new RecordingLeaseListener();
+        service.lease(DOCTOR, FIRST_SLOT, "u1", booked);
+        assertEquals(1, booked.taken);
+    }
+
+    @Test
+    public void releaseLease_freesTheSlotForOthers() {
+        InMemorySlotStore store = new InMemorySlotStore();
+        BookingService service = new BookingService(store, ISTANBUL);
+        service.lease(DOCTOR, FIRST_SLOT, "u1", new RecordingLeaseListener());
+
+        service.releaseLease(DOCTOR, FIRST_SLOT, "u2");
+        RecordingListener blocked = new RecordingListener();
+        service.book(DOCTOR, FIRST_SLOT, "u2", null, blocked);
+        assertEquals(1, blocked.slotTaken.get());
+
+        service.releaseLease(DOCTOR, FIRST_SLOT, "u1");
+        RecordingListener free = new RecordingListener();
+        service.book(DOCTOR, FIRST_SLOT, "u2", null, free);
+        assertEquals(1, free.booked.get());
+    }
+
+    // Parallel users look at the day at the same moment, pick a time, think, then confirm.
+    // Without leases, users who picked the same time find out only at confirm and start over;
+    // with leases, the clash shows up when picking and the confirm always succeeds. Either way a
+    // clash makes the user pick again, so both count as retries.
+    @Test
+    public void leases_lowerTheEndToEndRetryRateOfParallelUsers() {
+        int users = 20;
+        Retries withoutLeases = simulateRetries(users, false);
+        Retries withLeases = simulateRetries(users, true);
+
+        assertEquals(0, withoutLeases.atPick);
+        assertTrue("expected clashes at confirm without leases: " + withoutLeases.atConfirm, withoutLeases.atConfirm > users / 4);
+        assertEquals(0, withLeases.atConfirm);
+        assertTrue("expected clashes when picking with leases", withLeases.atPick > 0);
+        assertTrue("with leases " + withLeases.total() + ", without " + withoutLeases.total(),
+                withLeases.total() < withoutLeases.total());
+    }
+
+    // How often users had to pick again, until every user has booked
+    private static Retries simulateRetries(int users, boolean leasing) {
+        InMemorySlotStore store = new InMemorySlotStore();
+        BookingService service = new BookingService(store, ISTANBUL);
+        Random random = new Random(42);
+        List<String> pending = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            pending.add("u" + i);
+        }
+
+        Retries retries = new Retries();
+        while (!pending.isEmpty()) {
+            // Everyone still booking sees the day as it is at the start of the round
+            List<Long> view = freeSlots(store, null);
+            assertFalse("more users than slots", view.isEmpty());
+            List<String> picked = new ArrayList<>();
+            List<Long> pickedStarts = new ArrayList<>();
+            for (String userId : pending) {
+                long start = view.get(random.nextInt(view.size()));
+                if (leasing) {
+                    // A clash is reported right away; pick again from the current day
+                    RecordingLeaseListener lease = new RecordingLeaseListener();
+                    service.lease(DOCTOR, start, userId, lease);
+                    while (lease.taken > 0) {
+                        retries.atPick++;
+                        List<Long> current = freeSlots(store, userId);
+                        start = current.get(random.nextInt(current.size()));
+                        lease = new RecordingLeaseListener();
+                        service.lease(DOCTOR, start, userId, lease);
+                    }
+                }
+                picked.add(userId);
+                pickedStarts.add(start);
+            }
+
+            // Confirms arrive in any order after everyone has thought about it
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < picked.size(); i++) {
+                order.add(i);
+            }
+            Collections.shuffle(order, random);
+            for (int i : order) {
+                RecordingListener confirm = new RecordingListener();
+                service.book(DOCTOR, pickedStarts.get(i), picked.get(i), null, confirm);
+                if (confirm.booked.get() == 1) {
+                    pending.remove(picked.get(i));
+                } else {
+                    retries.atConfirm++;
+                }
+            }
+        }
+        return retries;
+    }
+
+    private static class Retries {
+        // A lease found the picked time taken
+        int atPick;
+        // A confirm found the picked time taken
+        int atConfirm;
+
+        int total() {
+            return atPick + atConfirm;
+        }
+    }
+
+    private static List<Long> freeSlots(InMemorySlotStore store, String userId) {
+        Calendar day = Calendar.getInstance(ISTANBUL);
+        day.setTimeInMillis(FIRST_SLOT);
+        SlotGrid slotGrid = DOCTOR.getSlotGrid();
+        long firstSlotMillis = slotGrid.firstSlotMillis(day);
+        List<Long> free = new ArrayList<>();
+        for (int slot = 0; slot < slotGrid.getSlotCount(); slot++) {
+            long start = slotGrid.slotStartMillis(firstSlotMillis, slot);
+            String path = AppointmentPaths.appointment("dr1", 20240612, SlotKeys.slotId("dr1", start, SLOT_MILLIS));
+            if (store.isFreeFor(path, userId != null ? userId : "")) {
+                free.add(start);
+            }
+        }
+        return free;
+    }
+
+    private static class RecordingLeaseListener implements BookingService.OnLeaseListener {
+        long expiresAt;
+        int taken;
+
+        @Override
+        public void onLeased(String appointmentId, long expiresAtMillis) {
+            expiresAt = expiresAtMillis;
+        }
+
+        @Override
+        public void onSlotTaken(String appointmentId) {
+            taken++;
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static class RecordingSeriesListener implements BookingService.OnSeriesBookingListener {
+        List<String> booked;
+        List<OccurrenceConflict> conflicts;
+        Exception failure;
+
+        @Override
+        public void onBooked(List<String> appointmentIds) {
+            booked = appointmentIds;
+        }
+
+        @Override
+        public void onConflicts(List<OccurrenceConflict> conflicts) {
+            this.conflicts = conflicts;
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            failure = e;
+        }
+    }
+
+    private static class RecordingListener implements BookingService.OnBookingListener {
+        final AtomicInteger booked = new AtomicInteger();
+        final AtomicInteger slotTaken = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+
+        @Override
+        public void onBooked(String appointmentId) {
+            booked.incrementAndGet();
+        }
+
+        @Override
+        public void onSlotTaken(String appointmentId) {
+            slotTaken.incrementAndGet();
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            failed.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.appointment.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class CachingAppointmentRepositoryTest {
+
+    private static final TimeZone ISTANBUL = TimeZone.getTimeZone("Europe/Istanbul");
+    private static final long TTL_MILLIS = 30_000;
+    private static final long NINE_AM = 1_718_172_000_000L;
+
+    private InMemoryAppointmentRepository backend;
+    private FakeClock clock;
+    private CachingAppointmentRepository cache;
+
+    @Before
+    public void setUp() {
+        backend = new InMemoryAppointmentRepository(ISTANBUL);
+        backend.add("dr1", NINE_AM);
+        clock = new FakeClock();
+        cache = new CachingAppointmentRepository(backend, clock, TTL_MILLIS, 2);
+    }
+
+    @Test
+    public void fetchDay_servesRepeatedReadsFromMemory() {
+        assertEquals(1, fetch("dr1", 20240612).size());
+        assertEquals(1, fetch("dr1", 20240612).size());
+
+        assertEquals(1, backend.queries.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void fetchDay_readsAgainAfterTheTtl() {
+        fetch("dr1", 20240612);
+        clock.now += TTL_MILLIS - 1;
+        fetch("dr1", 20240612);
+        clock.now += 1;
+        fetch("dr1", 20240612);
+
+        assertEquals(2, backend.queries.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void fetchDay_evictsTheLeastRecentlyUsedDay() {
+        fetch("dr1", 20240612);
+        fetch("dr1", 20240613);
+        // Touch the first day so the second one is the least recently used
+        fetch("dr1", 20240612);
+        fetch("dr2", 20240612);
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.size());
+        fetch("dr1", 20240612);
+        assertEquals(3, backend.queries.get());
+        fetch("dr1", 20240613);
+        assertEquals(4, backend.queries.get());
+    }
+
+    @Test
+    public void invalidate_forcesTheNextFetch() {
+        fetch("dr1", 20240612);
+        backend.add("dr1", NINE_AM + 1_800_000L);
+        cache.invalidate("dr1", 20240612);
+
+        assertEquals(2, fetch("dr1", 20240612).size());
+        assertEquals(2, backend.queries.get());
+    }
+
+    @Test
+    public void invalidate_dropsResultsOfFetchesStartedBefore() {
+        List<AppointmentRepository.OnAppointmentsListener> pending = new ArrayList<>();
+        CachingAppointmentRepository slowCache = new CachingAppointmentRepository(
+                (doctorId, dayKey, listener) -> pending.add(listener), clock, TTL_MILLIS, 2);
+
+        slowCache.fetchDay("dr1", 20240612, new RecordingListener());
+        slowCache.invalidate("dr1", 20240612);
+        pending.get(0).onSuccess(new ArrayList<Appointment>());
+
+        assertEquals(0, slowCache.size());
+    }
+
+    @Test
+    public void failures_areNotCached() {
+        backend.failures.put("dr1/20240612", new IllegalStateException("offline"));
+        RecordingListener first = new RecordingListener();
+        cache.fetchDay("dr1", 20240612, first);
+        assertNotNull(first.failure);
+
+        backend.failures.clear();
+        assertEquals(1, fetch("dr1", 20240612).size());
+        assertEquals(2, backend.queries.get());
+    }
+
+    private List<Appointment> fetch(String doctorId, int dayKey) {
+        RecordingListener listener = new RecordingListener();
+        cache.fetchDay(doctorId, dayKey, listener);
+        assertNull(listener.failure);
+        return listener.appointments;
+    }
+
+    static class FakeClock implements Clock {
+        long now = NINE_AM;
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    private static class RecordingListener implements AppointmentRepository.OnAppointmentsListener {
+        List<Appointment> appointments;
+        Exception failure;
+
+        @Override
+        public void onSuccess(List<Appointment> appointments) {
+            this.appointments = appointments;
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            failure = e;
+        }
+    }
+}
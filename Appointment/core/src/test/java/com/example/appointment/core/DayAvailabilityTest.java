@@ -0,0 +1,55 @@
+package com.example.appointment.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DayAvailabilityTest {
+
+    private static final long FIRST_SLOT = 1_718_172_000_000L;
+    private static final long SLOT = SlotGrid.DEFAULT.getSlotMillis();
+
+    private DayAvailability day;
+
+    @Before
+    public void setUp() {
+        day = new DayAvailability(SlotGrid.DEFAULT, FIRST_SLOT);
+    }
+
+    @Test
+    public void added_booksTheSlotOnce() {
+        assertEquals(1L << 2, day.apply("a", FIRST_SLOT + 2 * SLOT));
+        assertEquals(1L << 2, day.getBookedMask());
+
+        // Re-delivering the same document changes nothing
+        assertEquals(0L, day.apply("a", FIRST_SLOT + 2 * SLOT));
+    }
+
+    @Test
+    public void removed_freesTheSlotOnlyWhenNoOtherDocumentBooksIt() {
+        day.apply("a", FIRST_SLOT);
+        assertEquals(0L, day.apply("legacy", FIRST_SLOT + 60_000));
+
+        assertEquals(0L, day.apply("a", null));
+        assertEquals(1L, day.getBookedMask());
+        assertEquals(1L, day.apply("legacy", null));
+        assertEquals(0L, day.getBookedMask());
+    }
+
+    @Test
+    public void modified_movesTheBooking() {
+        day.apply("a", FIRST_SLOT + SLOT);
+        long changed = day.apply("a", FIRST_SLOT + 4 * SLOT);
+        assertEquals((1L << 1) | (1L << 4), changed);
+        assertEquals(1L << 4, day.getBookedMask());
+    }
+
+    @Test
+    public void documentsOutsideTheGrid_areIgnored() {
+        assertEquals(0L, day.apply("early", FIRST_SLOT - 1));
+        assertEquals(0L, day.apply("late", FIRST_SLOT + 21 * SLOT));
+        assertEquals(0L, day.apply("unknown", null));
+        assertEquals(0L, day.getBookedMask());
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.appointment.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DaySlotsLoaderTest {
+
+    private static final TimeZone ISTANBUL = TimeZone.getTimeZone("Europe/Istanbul");
+    private static final long NINE_AM = 1_718_172_000_000L;
+
+    // Stands in for the UI thread; the repository answers on it like a main-thread Task listener would
+    private ScheduledExecutorService main;
+    private ExecutorService worker;
+
+    @Before
+    public void setUp() {
+        main = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "main"));
+        worker = BackgroundExecutors.fixed("results", 2);
+    }
+
+    @After
+    public void tearDown() {
+        main.shutdownNow();
+        worker.shutdownNow();
+    }
+
+    private static Calendar day(int dayOfMonth) {
+        Calendar day = Calendar.getInstance(ISTANBUL);
+        day.clear();
+        day.set(2024, Calendar.JUNE, dayOfMonth);
+        return day;
+    }
+
+    @Test
+    public void load_mapsResultsOffTheAnsweringThread() throws Exception {
+        InMemoryAppointmentRepository repository = new InMemoryAppointmentRepository(ISTANBUL, main, 5);
+        repository.add(Doctor.DEFAULT.getId(), NINE_AM);
+        DaySlotsLoader loader = new DaySlotsLoader(repository, worker);
+
+        Recorder recorder = new Recorder(1);
+        loader.load(Doctor.DEFAULT, day(12), recorder);
+        recorder.await();
+
+        DaySlots slots = recorder.slots.get(0);
+        assertTrue(recorder.threads.get(0), recorder.threads.get(0).startsWith("results-"));
+        assertTrue(slots.isFor(Doctor.DEFAULT.getId(), 20240612));
+        assertEquals(20, slots.getFreeSlots().size());
+        assertFalse(slots.getLabels().contains("09:00"));
+        assertEquals(slots.getFreeSlots().size(), slots.getLabels().size());
+    }
+
+    @Test
+    public void load_keepsSynchronousAnswersOffTheCallingThread() throws Exception {
+        // A cache hit answers on the thread that asked
+        InMemoryAppointmentRepository repository = new InMemoryAppointmentRepository(ISTANBUL);
+        DaySlotsLoader loader = new DaySlotsLoader(repository, worker);
+
+        Recorder recorder = new Recorder(1);
+        main.execute(() -> loader.load(Doctor.DEFAULT, day(12), recorder));
+        recorder.await();
+
+        assertTrue(recorder.threads.get(0).startsWith("results-"));
+        assertEquals(21, recorder.slots.get(0).getFreeSlots().size());
+    }
+
+    @Test
+    public void load_deliversOnlyTheNewestDay() throws Exception {
+        InMemoryAppointmentRepository repository = new InMemoryAppointmentRepository(ISTANBUL, main, 20);
+        DaySlotsLoader loader = new DaySlotsLoader(repository, worker);
+
+        Recorder recorder = new Recorder(1);
+        loader.load(Doctor.DEFAULT, day(12), recorder);
+        loader.load(Doctor.DEFAULT, day(13), recorder);
+        recorder.await();
+        Thread.sleep(50);
+
+        assertEquals(1, recorder.slots.size());
+        assertEquals(20240613, recorder.slots.get(0).getDayKey());
+    }
+
+    @Test
+    public void load_reportsFailuresOnTheWorker() throws Exception {
+        InMemoryAppointmentRepository repository = new InMemoryAppointmentRepository(ISTANBUL, main, 1);
+        repository.failures.put(Doctor.DEFAULT.getId() + "/20240612", new IllegalStateException("offline"));
+        DaySlotsLoader loader = new DaySlotsLoader(repository, worker);
+
+        Recorder recorder = new Recorder(1);
+        loader.load(Doctor.DEFAULT, day(12), recorder);
+        recorder.await();
+
+        assertTrue(recorder.slots.isEmpty());
+        assertEquals("offline", recorder.failure.getMessage());
+        assertTrue(recorder.threads.get(0).startsWith("results-"));
+    }
+
+    @Test
+    public void serial_runsTasksInOrderOneAtATime() throws Exception {
+        Executor serial = BackgroundExecutors.serial(worker);
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        int[] running = {0};
+        boolean[] overlapped = {false};
+        CountDownLatch done = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            int task = i;
+            serial.execute(() -> {
+                synchronized (running) {
+                    overlapped[0] |= ++running[0] > 1;
+                }
+                order.add(task);
+                synchronized (running) {
+                    running[0]--;
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        assertFalse(overlapped[0]);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+    }
+
+    private static final class Recorder implements DaySlotsLoader.OnDaySlotsListener {
+
+        final List<DaySlots> slots = new CopyOnWriteArrayList<>();
+        final List<String> threads = new CopyOnWriteArrayList<>();
+        volatile Exception failure;
+        private final CountDownLatch latch;
+
+        Recorder(int expected) {
+            latch = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onSuccess(DaySlots daySlots) {
+            threads.add(Thread.currentThread().getName());
+            slots.add(daySlots);
+            latch.countDown();
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            threads.add(Thread.currentThread().getName());
+            failure = e;
+            latch.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue("no result within 5 s", latch.await(5, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.appointment.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DaySummaryTest {
+
+    private static final TimeZone ISTANBUL = TimeZone.getTimeZone("Europe/Istanbul");
+    private static final Doctor DOCTOR = new Doctor("dr1", "Dr One", "c1", 8 * 60, 18 * 60 + 30, 30);
+    private static final int DAY = 20240612;
+
+    @Test
+    public void fromFields_mapsBookedStartsOntoTheDoctorsGrid() {
+        Calendar day = DayKeys.toCalendar(DAY, ISTANBUL);
+        long first = DOCTOR.getSlotGrid().firstSlotMillis(day);
+        long slot = DOCTOR.getSlotGrid().getSlotMillis();
+
+        DaySummary summary = DaySummary.fromFields(DOCTOR, day, DaySummary.fieldsOf(Arrays.asList(first, first + 2 * slot, first + 20 * slot)));
+
+        assertTrue(summary.isComplete());
+        assertEquals(0b100000000000000000101L, summary.getBookedMask());
+        assertEquals(3, summary.getBookedCount());
+        assertEquals(21, summary.getSlotCount());
+        assertEquals(18, summary.getFreeCount());
+        assertEquals(3.0 / 21, summary.getUtilisation(), 1e-9);
+    }
+
+    @Test
+    public void fromFields_ofASummaryNeverRebuilt_isEmptyAndIncomplete() {
+        Map<String, Object> incremented = new HashMap<>();
+        DaySummary.change(5L, false, true).applyTo(incremented);
+
+        DaySummary summary = DaySummary.fromFields(DOCTOR, DayKeys.toCalendar(DAY, ISTANBUL), incremented);
+
+        assertFalse(summary.isComplete());
+        assertFalse(DaySummary.fromFields(DOCTOR, DayKeys.toCalendar(DAY, ISTANBUL), null).isComplete());
+        assertEquals(0L, summary.getBookedMask());
+        assertEquals(0.0, summary.getUtilisation(), 0.0);
+    }
+
+    @Test
+    public void change_isOnlyMadeWhenASlotBecomesBookedOrFree() {
+        assertNull(DaySummary.change(5L, true, true));
+        assertNull(DaySummary.change(5L, false, false));
+        Map<String, Object> fields = new HashMap<>();
+
+        DaySummary.change(5L, false, true).applyTo(fields);
+        DaySummary.change(7L, false, true).applyTo(fields);
+        DaySummary.change(5L, true, false).applyTo(fields);
+
+        assertEquals(1L, fields.get(DaySummary.FIELD_BOOKED_COUNT));
+        assertSummarizes(Arrays.asList(7L), fields);
+    }
+
+    @Test
+    public void isBooked_countsOnlyConfirmedBookings() {
+        Map<String, Object> booked = new HashMap<>();
+        booked.put(AppointmentSchema.FIELD_USER_ID, "u1");
+        Map<String, Object> held = new HashMap<>(booked);
+        held.put(AppointmentSchema.FIELD_STATUS, AppointmentSchema.STATUS_HELD);
+        Map<String, Object> leased = new HashMap<>();
+        leased.put(AppointmentSchema.FIELD_STATUS, AppointmentSchema.STATUS_LEASED);
+
+        assertTrue(AppointmentSchema.isBooked(booked));
+        assertFalse(AppointmentSchema.isBooked(held));
+        assertFalse(AppointmentSchema.isBooked(leased));
+        assertFalse(AppointmentSchema.isBooked(null));
+    }
+
+    // Many patients racing for the same slots: the summary counts exactly the bookings that won
+    @Test
+    public void concurrentBookings_keepTheSummaryInLineWithTheSlots() throws Exception {
+        InMemorySlotStore store = new InMemorySlotStore();
+        BookingService service = new BookingService(store, ISTANBUL);
+        Calendar day = DayKeys.toCalendar(DAY, ISTANBUL);
+        long first = DOCTOR.getSlotGrid().firstSlotMillis(day);
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            pool.execute(() -> {
+                Random random = new Random(seed);
+                try {
+                    for (int i = 0; i < 200; i++) {
+                        long start = DOCTOR.getSlotGrid().slotStartMillis(first, random.nextInt(DOCTOR.getSlotGrid().getSlotCount()));
+                        service.book(DOCTOR, start, "u" + seed + "_" + i, null, new BookingService.OnBookingListener() {
+                            @Override
+                            public void onBooked(String appointmentId) {
+                            }
+
+                            @Override
+                            public void onSlotTaken(String appointmentId) {
+                            }
+
+                            @Override
+                            public void onFailure(Exception e) {
+                                throw new AssertionError(e);
+                            }
+                        });
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        assertEquals(DOCTOR.getSlotGrid().getSlotCount(), store.documents.size());
+        Map<String, Object> fields = store.summaries.fields("dr1", DAY);
+        assertSummarizes(startsOf(store.documents.values()), fields);
+        fields.put(DaySummary.FIELD_COMPLETE, Boolean.TRUE);
+        DaySummary summary = DaySummary.fromFields(DOCTOR, day, fields);
+        assertEquals(1.0, summary.getUtilisation(), 0.0);
+        assertEquals(0, summary.getFreeCount());
+    }
+
+    // The summary fields hold exactly the given booked starts and count them
+    static void assertSummarizes(Collection<Long> starts, Map<String, Object> fields) {
+        Map<String, Object> expected = DaySummary.fieldsOf(starts);
+        assertEquals(expected.get(DaySummary.FIELD_BOOKED), fields.get(DaySummary.FIELD_BOOKED));
+        assertEquals(expected.get(DaySummary.FIELD_BOOKED_COUNT), fields.get(DaySummary.FIELD_BOOKED_COUNT));
+    }
+
+    static Set<Long> startsOf(Collection<Appointment> bookings) {
+        Set<Long> starts = new HashSet<>();
+        for (Appointment booking : bookings) {
+            starts.add(booking.getTimestamp());
+        }
+        return starts;
+    }
+}
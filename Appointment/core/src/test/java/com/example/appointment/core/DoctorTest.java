@@ -0,0 +1,54 @@
+package com.example.appointment.core;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DoctorTest {
+
+    @Test
+    public void defaultDoctor_keepsTheClinicWideDay() {
+        SlotGrid grid = Doctor.DEFAULT.getSlotGrid();
+        assertEquals(21, grid.getSlotCount());
+        assertEquals("08:00", grid.label(0));
+        assertEquals("18:00", grid.label(20));
+    }
+
+    @Test
+    public void fromFields_readsWorkingHours() {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("name", "Dr Yilmaz");
+        fields.put("clinicId", "kadikoy");
+        fields.put("workStartMinute", 9L * 60);
+        fields.put("workEndMinute", 12L * 60);
+        fields.put("slotMinutes", 15L);
+
+        Doctor doctor = Doctor.fromFields("yilmaz", fields);
+        assertEquals("Dr Yilmaz", doctor.getName());
+        assertEquals("kadikoy", doctor.getClinicId());
+        assertEquals(12, doctor.getSlotGrid().getSlotCount());
+        assertEquals("11:45", doctor.getSlotGrid().label(11));
+    }
+
+    @Test
+    public void fromFields_fallsBackToTheDefaultDay() {
+        Doctor doctor = Doctor.fromFields("x", new HashMap<String, Object>());
+        assertEquals("x", doctor.getName());
+        assertNull(doctor.getClinicId());
+        assertEquals(21, doctor.getSlotGrid().getSlotCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsPartialSlots() {
+        new Doctor("x", "X", null, 9 * 60, 10 * 60 + 10, 30);
+    }
+
+    @Test
+    public void paths_nestDaysUnderTheDoctor() {
+        assertEquals("doctors/dr1/days/20240612/appointments", AppointmentPaths.dayAppointments("dr1", 20240612));
+        assertEquals("doctors/dr1/days/20240612/appointments/a1", AppointmentPaths.appointment("dr1", 20240612, "a1"));
+    }
+}
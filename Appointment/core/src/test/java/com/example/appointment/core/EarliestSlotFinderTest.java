@@ -0,0 +1,200 @@
+package com.example.appointment.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class EarliestSlotFinderTest {
+
+    private static final TimeZone ISTANBUL = TimeZone.getTimeZone("Europe/Istanbul");
+    private static final Doctor MORNINGS = new Doctor("mornings", "Dr Mornings", "c1", 8 * 60, 12 * 60, 30);
+    private static final Doctor AFTERNOONS = new Doctor("afternoons", "Dr Afternoons", "c1", 13 * 60, 17 * 60, 60);
+
+    // Wednesday 12 June 2024 in Istanbul
+    private static long at(int dayOfMonth, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(ISTANBUL);
+        calendar.clear();
+        calendar.set(2024, Calendar.JUNE, dayOfMonth, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+
+    @Test
+    public void find_returnsEarliestFreeSlotsAcrossDoctors() {
+        InMemoryAppointmentRepository repository = new InMemoryAppointmentRepository(ISTANBUL);
+        repository.add("mornings", at(12, 10, 0));
+        repository.add("mornings", at(12, 10, 30));
+        repository.add("afternoons", at(12, 13, 0));
+        EarliestSlotFinder finder = new EarliestSlotFinder(repository, ISTANBUL, 4);
+
+        List<FreeSlot> slots = find(finder, Arrays.asList(AFTERNOONS, MORNINGS), at(12, 9, 45), 14, 5);
+
+        assertEquals(5, slots.size());
+        assertSlot(slots.get(0), "mornings", at(12, 11, 0));
+        assertSlot(slots.get(1), "mornings", at(12, 11, 30));
+        assertSlot(slots.get(2), "afternoons", at(12, 14, 0));
+        assertSlot(slots.get(3), "afternoons", at(12, 15, 0));
+        assertSlot(slots.get(4), "afternoons", at(12, 16, 0));
+        // Nothing on the following days can be earlier, so they are never read
+        assertEquals(2, repository.queries.get());
+    }
+
+    @Test
+    public void find_movesOnToLaterDaysAndSkipsWeekends() {
+        InMemoryAppointmentRepository repository = new InMemoryAppointmentRepository(ISTANBUL);
+        EarliestSlotFinder finder = new EarliestSlotFinder(repository, ISTANBUL, 2);
+
+        // Friday afternoon: the next free slot is on Monday
+        List<FreeSlot> slots = find(finder, Collections.singletonList(MORNINGS), at(14, 15, 0), 7, 2);
+
+        assertEquals(2, slots.size());
+        assertSlot(slots.get(0), "mornings", at(17, 8, 0));
+        assertSlot(slots.get(1), "mornings", at(17, 8, 30));
+    }
+
+    @Test
+    public void find_returnsWhatExistsWhenTheDaysAreFull() {
+        InMemoryAppointmentRepository repository = new InMemoryAppointmentRepository(ISTANBUL);
+        for (int slot = 0; slot < 7; slot++) {
+            repository.add("mornings", at(12, 8, 0) + slot * 30 * 60_000L);
+        }
+        EarliestSlotFinder finder = new EarliestSlotFinder(repository, ISTANBUL, 2);
+
+        List<FreeSlot> slots = find(finder, Collections.singletonList(MORNINGS), at(12, 0, 0), 1, 3);
+
+        assertEquals(1, slots.size());
+        assertSlot(slots.get(0), "mornings", at(12, 11, 30));
+    }
+
+    @Test
+    public void find_keepsQueriesWithinTheConcurrencyLimit() throws InterruptedException {
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(8);
+        InMemoryAppointmentRepository repository = new InMemoryAppointmentRepository(ISTANBUL, executor, 2);
+        List<Doctor> doctors = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            String id = String.format("dr%02d", i);
+            doctors.add(new Doctor(id, id, "c1", 8 * 60, 12 * 60, 30));
+            // Every doctor is fully booked on the first day
+            for (int slot = 0; slot < 8; slot++) {
+                repository.add(id, at(12, 8, 0) + slot * 30 * 60_000L);
+            }
+        }
+        EarliestSlotFinder finder = new EarliestSlotFinder(repository, ISTANBUL, 3);
+
+        List<FreeSlot> slots = find(finder, doctors, at(12, 0, 0), 14, 3);
+        executor.shutdown();
+
+        assertEquals(3, slots.size());
+        assertSlot(slots.get(0), "dr00", at(13, 8, 0));
+        assertSlot(slots.get(1), "dr01", at(13, 8, 0));
+        assertSlot(slots.get(2), "dr02", at(13, 8, 0));
+        assertTrue(repository.maxInFlight.get() <= 3);
+        assertTrue(repository.queries.get() < doctors.size() * 10);
+    }
+
+    @Test
+    public void find_reportsTheFirstFailureOnce() {
+        InMemoryAppointmentRepository repository = new InMemoryAppointmentRepository(ISTANBUL);
+        repository.failures.put("mornings/20240612", new IllegalStateException("offline"));
+        repository.failures.put("afternoons/20240612", new IllegalStateException("offline"));
+        EarliestSlotFinder finder = new EarliestSlotFinder(repository, ISTANBUL, 4);
+
+        AtomicInteger failures = new AtomicInteger();
+        AtomicInteger successes = new AtomicInteger();
+        finder.find(Arrays.asList(MORNINGS, AFTERNOONS), at(12, 0, 0), 3, 1, new EarliestSlotFinder.OnSlotsFoundListener() {
+            @Override
+            public void onSuccess(List<FreeSlot> slots) {
+                successes.incrementAndGet();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                failures.incrementAndGet();
+            }
+        });
+
+        assertEquals(1, failures.get());
+        assertEquals(0, successes.get());
+    }
+
+    @Test
+    public void find_returnsTheSameSlotsWhetherQueriesRunOneAtATimeOrTogether() {
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(8);
+        try {
+            List<Doctor> doctors = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                doctors.add(new Doctor("dr" + i, "Dr " + i, "c" + (i % 4), (8 + i % 3) * 60, (16 + i % 3) * 60, 30));
+            }
+            InMemoryAppointmentRepository repository = new InMemoryAppointmentRepository(ISTANBUL, executor, 1);
+            // The first three days almost fully booked
+            Random random = new Random(16);
+            Calendar day = Calendar.getInstance(ISTANBUL);
+            for (Doctor doctor : doctors) {
+                day.setTimeInMillis(at(12, 0, 0));
+                for (int d = 0; d < 3; d++) {
+                    long firstSlot = doctor.getSlotGrid().firstSlotMillis(day);
+                    for (int slot = 0; slot < doctor.getSlotGrid().getSlotCount(); slot++) {
+                        if (random.nextInt(100) < 98) {
+                            repository.add(doctor.getId(), doctor.getSlotGrid().slotStartMillis(firstSlot, slot));
+                        }
+                    }
+                    day.add(Calendar.DAY_OF_MONTH, 1);
+                }
+            }
+
+            List<FreeSlot> sequential = find(new EarliestSlotFinder(repository, ISTANBUL, 1), doctors, at(12, 0, 0), 14, 5);
+            List<FreeSlot> concurrent = find(new EarliestSlotFinder(repository, ISTANBUL, 64), doctors, at(12, 0, 0), 14, 5);
+
+            assertEquals(5, concurrent.size());
+            for (int i = 0; i < 5; i++) {
+                assertSlot(concurrent.get(i), sequential.get(i).getDoctor().getId(), sequential.get(i).getStartMillis());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    static List<FreeSlot> find(EarliestSlotFinder finder, List<Doctor> doctors, long fromMillis, int days, int count) {
+        AtomicReference<List<FreeSlot>> result = new AtomicReference<>();
+        AtomicReference<Exception> error = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        finder.find(doctors, fromMillis, days, count, new EarliestSlotFinder.OnSlotsFoundListener() {
+            @Override
+            public void onSuccess(List<FreeSlot> slots) {
+                result.set(slots);
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                error.set(e);
+                done.countDown();
+            }
+        });
+        try {
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+        assertNull(error.get());
+        return result.get();
+    }
+
+    private static void assertSlot(FreeSlot slot, String doctorId, long startMillis) {
+        assertEquals(doctorId, slot.getDoctor().getId());
+        assertEquals(startMillis, slot.getStartMillis());
+    }
+}
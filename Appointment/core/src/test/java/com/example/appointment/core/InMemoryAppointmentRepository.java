@@ -0,0 +1,98 @@
+package com.example.appointment.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// AppointmentRepository stand-in for tests. Answers synchronously, or after latencyMillis on the
+// given executor to behave like a network backend, and counts the queries it serves.
+class InMemoryAppointmentRepository implements AppointmentRepository, AppointmentRangeSource {
+
+    final AtomicInteger queries = new AtomicInteger();
+    final AtomicInteger rangeQueries = new AtomicInteger();
+    final AtomicInteger maxInFlight = new AtomicInteger();
+    final Map<String, Exception> failures = new ConcurrentHashMap<>();
+
+    private final Map<String, List<Appointment>> days = new ConcurrentHashMap<>();
+    private final TimeZone timeZone;
+    private final ScheduledExecutorService executor;
+    private final long latencyMillis;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    InMemoryAppointmentRepository(TimeZone timeZone) {
+        this(timeZone, null, 0);
+    }
+
+    InMemoryAppointmentRepository(TimeZone timeZone, ScheduledExecutorService executor, long latencyMillis) {
+        this.timeZone = timeZone;
+        this.executor = executor;
+        this.latencyMillis = latencyMillis;
+    }
+
+    void add(String doctorId, long timestamp) {
+        int dayKey = DayKeys.dayKey(timestamp, timeZone);
+        days.computeIfAbsent(doctorId + "/" + dayKey, key -> Collections.synchronizedList(new ArrayList<>()))
+                .add(new Appointment(doctorId + "_" + timestamp, "u1", "u1@example.com", doctorId, timestamp, dayKey));
+    }
+
+    @Override
+    public void fetchDay(String doctorId, int dayKey, OnAppointmentsListener listener) {
+        queries.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        String key = doctorId + "/" + dayKey;
+        Runnable answer = () -> {
+            inFlight.decrementAndGet();
+            Exception failure = failures.get(key);
+            if (failure != null) {
+                listener.onFailure(failure);
+                return;
+            }
+            List<Appointment> appointments = days.get(key);
+            listener.onSuccess(appointments != null ? new ArrayList<>(appointments) : Collections.<Appointment>emptyList());
+        };
+        answer(answer);
+    }
+
+    // Failures are looked up by doctorId + "/" + the yyyymmdd key of fromMillis
+    @Override
+    public void fetchRange(String doctorId, long fromMillis, long toMillis, OnAppointmentsListener listener) {
+        rangeQueries.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        Runnable answer = () -> {
+            inFlight.decrementAndGet();
+            Exception failure = failures.get(doctorId + "/" + DayKeys.dayKey(fromMillis, timeZone));
+            if (failure != null) {
+                listener.onFailure(failure);
+                return;
+            }
+            List<Appointment> appointments = new ArrayList<>();
+            for (Map.Entry<String, List<Appointment>> day : days.entrySet()) {
+                if (day.getKey().startsWith(doctorId + "/")) {
+                    synchronized (day.getValue()) {
+                        for (Appointment appointment : day.getValue()) {
+                            if (appointment.getTimestamp() >= fromMillis && appointment.getTimestamp() < toMillis) {
+                                appointments.add(appointment);
+                            }
+                        }
+                    }
+                }
+            }
+            listener.onSuccess(appointments);
+        };
+        answer(answer);
+    }
+
+    private void answer(Runnable answer) {
+        if (executor == null) {
+            answer.run();
+        } else {
+            executor.schedule(answer, latencyMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.appointment.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Day summary documents for the in-memory stores; each change is applied atomically, like Firestore's
+// merged update with an increment
+class InMemoryDaySummaries {
+
+    private final ConcurrentHashMap<String, Map<String, Object>> days = new ConcurrentHashMap<>();
+
+    void apply(String doctorId, int dayKey, DaySummary.Change change) {
+        if (change == null) {
+            return;
+        }
+        days.compute(AppointmentPaths.day(doctorId, dayKey), (path, fields) -> {
+            Map<String, Object> updated = new HashMap<>();
+            if (fields != null) {
+                updated.put(DaySummary.FIELD_BOOKED, new HashMap<>((Map<?, ?>) fields.get(DaySummary.FIELD_BOOKED)));
+                updated.put(DaySummary.FIELD_BOOKED_COUNT, fields.get(DaySummary.FIELD_BOOKED_COUNT));
+            }
+            change.applyTo(updated);
+            return updated;
+        });
+    }
+
+    // Fields of the day document, or null if nothing was ever booked that day
+    Map<String, Object> fields(String doctorId, int dayKey) {
+        return days.get(AppointmentPaths.day(doctorId, dayKey));
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.appointment.core;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// SlotStore stand-in for tests, with the same create-if-absent guarantee as a Firestore transaction
+class InMemorySlotStore implements SlotStore {
+
+    final ConcurrentHashMap<String, Appointment> documents = new ConcurrentHashMap<>();
+    // Path -> slot leased to its userId, with the lease expiry
+    final ConcurrentHashMap<String, Lease> leases = new ConcurrentHashMap<>();
+    // Path -> idempotency key of the booking that wrote it, if it had one
+    final ConcurrentHashMap<String, String> bookingKeys = new ConcurrentHashMap<>();
+    final InMemoryDaySummaries summaries = new InMemoryDaySummaries();
+    private final Clock clock;
+
+    static final class Lease {
+        final String userId;
+        final long expiresAtMillis;
+
+        Lease(String userId, long expiresAtMillis) {
+            this.userId = userId;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    InMemorySlotStore() {
+        this(Clock.SYSTEM);
+    }
+
+    InMemorySlotStore(Clock clock) {
+        this.clock = clock;
+    }
+
+    // Whether the slot can be booked or leased by the user, as in AppointmentSchema.isFreeFor
+    synchronized boolean isFreeFor(String path, String userId) {
+        if (documents.containsKey(path)) {
+            return false;
+        }
+        Lease lease = leases.get(path);
+        return lease == null || lease.userId.equals(userId) || clock.currentTimeMillis() >= lease.expiresAtMillis;
+    }
+
+    @Override
+    public synchronized void createIfAbsent(String documentPath, Appointment appointment, String bookingKey,
+                                            OnCreateListener listener) {
+        if (bookingKey != null && bookingKey.equals(bookingKeys.get(documentPath))) {
+            // A retry of a booking that went through
+            listener.onCreated();
+        } else if (isFreeFor(documentPath, appointment.getUserId())) {
+            leases.remove(documentPath);
+            documents.put(documentPath, appointment);
+            if (bookingKey != null) {
+                bookingKeys.put(documentPath, bookingKey);
+            }
+            summarize(appointment);
+            listener.onCreated();
+        } else {
+            listener.onAlreadyExists();
+        }
+    }
+
+    @Override
+    public synchronized void createAllIfAbsent(Map<String, Appointment> batch, OnCreateAllListener listener) {
+        Set<String> existing = new LinkedHashSet<>();
+        for (Map.Entry<String, Appointment> entry : batch.entrySet()) {
+            if (!isFreeFor(entry.getKey(), entry.getValue().getUserId())) {
+                existing.add(entry.getKey());
+            }
+        }
+        if (!existing.isEmpty()) {
+            listener.onAlreadyExist(existing);
+            return;
+        }
+        for (String path : batch.keySet()) {
+            leases.remove(path);
+        }
+        documents.putAll(batch);
+        for (Appointment appointment : batch.values()) {
+            summarize(appointment);
+        }
+        listener.onCreated();
+    }
+
+    // A free slot was booked; leases do not count as booked
+    private void summarize(Appointment appointment) {
+        summaries.apply(appointment.getDoctorId(), appointment.getDayKey(),
+                DaySummary.change(appointment.getTimestamp(), false, true));
+    }
+
+    @Override
+    public synchronized void lease(String documentPath, Appointment slot, long expiresAtMillis, OnCreateListener listener) {
+        if (isFreeFor(documentPath, slot.getUserId())) {
+            leases.put(documentPath, new Lease(slot.getUserId(), expiresAtMillis));
+            listener.onCreated();
+        } else {
+            listener.onAlreadyExists();
+        }
+    }
+
+    @Override
+    public synchronized void release(String documentPath, String userId) {
+        Lease lease = leases.get(documentPath);
+        if (lease != null && lease.userId.equals(userId)) {
+            leases.remove(documentPath);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.appointment.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// WaitlistStore stand-in for tests. Updates of one day are serialized like Firestore transactions,
+// and run on a copy so an update that throws leaves the day unchanged.
+class InMemoryWaitlistStore implements WaitlistStore {
+
+    final ConcurrentHashMap<String, Slot> slots = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Map<String, Object>> waitlists = new ConcurrentHashMap<>();
+    final InMemoryDaySummaries summaries = new InMemoryDaySummaries();
+
+    static final class Slot {
+        final Appointment booking;
+        final Hold hold;
+
+        Slot(Appointment booking, Hold hold) {
+            this.booking = booking;
+            this.hold = hold;
+        }
+    }
+
+    void put(Appointment booking) {
+        slots.put(booking.getId(), new Slot(booking, null));
+        summaries.apply(booking.getDoctorId(), booking.getDayKey(), DaySummary.change(booking.getTimestamp(), false, true));
+    }
+
+    Waitlist waitlist(String doctorId, int dayKey) {
+        return Waitlist.fromFields(waitlists.get(AppointmentPaths.waitlist(doctorId, dayKey)));
+    }
+
+    @Override
+    public <T> void update(String doctorId, int dayKey, DayUpdate<T> update, OnUpdateListener<T> listener) {
+        String path = AppointmentPaths.waitlist(doctorId, dayKey);
+        T result;
+        synchronized (path.intern()) {
+            final Waitlist waitlist = Waitlist.fromFields(waitlists.get(path));
+            final Map<String, Slot> writes = new HashMap<>();
+            try {
+                result = update.apply(new Day() {
+                    @Override
+                    public Waitlist getWaitlist() {
+                        return waitlist;
+                    }
+
+                    @Override
+                    public Appointment getBooking(String slotId) {
+                        Slot slot = writes.containsKey(slotId) ? writes.get(slotId) : slots.get(slotId);
+                        return slot != null ? slot.booking : null;
+                    }
+
+                    @Override
+                    public void book(Appointment appointment) {
+                        writes.put(appointment.getId(), new Slot(appointment, null));
+                    }
+
+                    @Override
+                    public void hold(Hold hold) {
+                        writes.put(hold.getSlotId(), new Slot(null, hold));
+                    }
+
+                    @Override
+                    public void free(String slotId) {
+                        writes.put(slotId, new Slot(null, null));
+                    }
+                });
+            } catch (RuntimeException e) {
+                listener.onFailure(e);
+                return;
+            }
+            waitlists.put(path, waitlist.toFields());
+            for (Map.Entry<String, Slot> write : writes.entrySet()) {
+                Slot before = slots.get(write.getKey());
+                Slot after = write.getValue();
+                Appointment booking = after.booking != null ? after.booking : before != null ? before.booking : null;
+                long start = booking != null ? booking.getTimestamp() : after.hold != null ? after.hold.getSlotStartMillis() : 0L;
+                summaries.apply(doctorId, dayKey, DaySummary.change(start, before != null && before.booking != null, after.booking != null));
+            }
+            slots.putAll(writes);
+        }
+        listener.onUpdated(result);
+    }
+}
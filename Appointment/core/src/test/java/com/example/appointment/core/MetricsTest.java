@@ -0,0 +1,87 @@
+package com.example.appointment.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Metrics metrics = new Metrics(nanos::get);
+
+    @Test
+    public void histogram_reportsPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 100; millis++) {
+            histogram.record(millis * 1000L, false);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertWithin(50_000, histogram.percentileMicros(50));
+        assertWithin(95_000, histogram.percentileMicros(95));
+        assertWithin(99_000, histogram.percentileMicros(99));
+        assertEquals(100_000, histogram.percentileMicros(100));
+        assertEquals(100_000, histogram.getMaxMicros());
+        assertEquals(50_500, histogram.getMeanMicros());
+    }
+
+    @Test
+    public void histogram_bucketsCoverEveryValue() {
+        for (long value : new long[]{0, 1, 7, 8, 15, 16, 1000, 123_456_789L, 1L << 40}) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(value <= LatencyHistogram.upperBoundOf(bucket));
+            assertTrue(bucket == 0 || value > LatencyHistogram.upperBoundOf(bucket - 1));
+        }
+    }
+
+    @Test
+    public void start_recordsNothingWhileDisabled() {
+        Metrics.Span span = metrics.start("firestore.fetchDay");
+        nanos.addAndGet(5_000_000);
+        span.end();
+
+        assertSame(metrics.start("other"), span);
+        assertEquals("{\"enabled\":false,\"operations\":{}}", metrics.toJson());
+    }
+
+    @Test
+    public void spans_recordLatencyErrorsAndTraceSections() {
+        List<String> sections = new ArrayList<>();
+        metrics.setTracer(new Metrics.Tracer() {
+            @Override
+            public void beginAsyncSection(String name, int cookie) {
+                sections.add("begin " + name + " " + cookie);
+            }
+
+            @Override
+            public void endAsyncSection(String name, int cookie) {
+                sections.add("end " + name + " " + cookie);
+            }
+        });
+        metrics.setEnabled(true);
+
+        Metrics.Span first = metrics.start("firestore.createSlot");
+        Metrics.Span second = metrics.start("firestore.createSlot");
+        nanos.addAndGet(2_000_000);
+        second.end();
+        nanos.addAndGet(2_000_000);
+        first.fail();
+
+        LatencyHistogram histogram = metrics.histogram("firestore.createSlot");
+        assertEquals(2, histogram.getCount());
+        assertEquals(1, histogram.getErrors());
+        assertEquals(4_000, histogram.getMaxMicros());
+        assertEquals("[begin firestore.createSlot 1, begin firestore.createSlot 2, end firestore.createSlot 2, end firestore.createSlot 1]", sections.toString());
+        assertEquals("{\"enabled\":true,\"operations\":{\"firestore.createSlot\":{\"count\":2,\"errors\":1,"
+                + "\"meanMs\":3.000,\"p50Ms\":2.047,\"p95Ms\":4.000,\"p99Ms\":4.000,\"maxMs\":4.000}}}", metrics.toJson());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual + " is below " + expected, actual >= expected);
+        assertTrue(actual + " is too far above " + expected, actual <= expected * 1.125);
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.appointment.core;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class MonthAvailabilityLoaderTest {
+
+    private static final TimeZone ISTANBUL = TimeZone.getTimeZone("Europe/Istanbul");
+    private static final Doctor DOCTOR = new Doctor("dr1", "Dr One", "c1", 8 * 60, 18 * 60 + 30, 30);
+    private static final long TTL_MILLIS = 60_000;
+    // Wednesday 12 June 2024, 09:00 in Istanbul
+    private static final long NINE_AM = 1_718_172_000_000L;
+
+    private final AtomicLong now = new AtomicLong(0);
+    private ScheduledExecutorService backend;
+    private ExecutorService worker;
+
+    @After
+    public void tearDown() {
+        if (backend != null) {
+            backend.shutdownNow();
+        }
+        if (worker != null) {
+            worker.shutdownNow();
+        }
+    }
+
+    // Answers and delivers on the calling thread, so every step is done when load() returns
+    private MonthAvailabilityLoader directLoader(InMemoryAppointmentRepository repository, int maxMonths) {
+        return new MonthAvailabilityLoader(repository, ISTANBUL, Runnable::run, SlotRulesSource.DEFAULT, now::get, TTL_MILLIS, maxMonths);
+    }
+
+    @Test
+    public void load_readsAMonthWithOneQueryAndPrefetchesTheNext() {
+        InMemoryAppointmentRepository repository = new InMemoryAppointmentRepository(ISTANBUL);
+        repository.add("dr1", NINE_AM);
+        repository.add("dr1", NINE_AM + 30L * 86_400_000L);
+        MonthAvailabilityLoader loader = directLoader(repository, 6);
+
+        Recorder june = new Recorder(1);
+        loader.load(DOCTOR, 2024, 6, june);
+        assertEquals(1L << 2, june.months.get(0).getBookedMask(11));
+        // June, then July in the background
+        assertEquals(2, repository.rangeQueries.get());
+        assertEquals(0, repository.queries.get());
+        MonthAvailability july = loader.getCached(DOCTOR, 2024, 7);
+        assertEquals(1L << 2, july.getBookedMask(11));
+
+        // Paging on reads only the month after
+        Recorder next = new Recorder(1);
+        loader.load(DOCTOR, 2024, 7, next);
+        assertSame(july, next.months.get(0));
+        assertEquals(3, repository.rangeQueries.get());
+        assertNotNull(loader.getCached(DOCTOR, 2024, 8));
+
+        // And going back reads nothing
+        loader.load(DOCTOR, 2024, 6, new Recorder(1));
+        assertEquals(3, repository.rangeQueries.get());
+    }
+
+    @Test
+    public void load_prefetchesAcrossTheYearEnd() {
+        InMemoryAppointmentRepository repository = new InMemoryAppointmentRepository(ISTANBUL);
+        MonthAvailabilityLoader loader = directLoader(repository, 6);
+        loader.load(DOCTOR, 2024, 12, new Recorder(1));
+        MonthAvailability january = loader.getCached(DOCTOR, 2025, 1);
+        assertTrue(january.isFor("dr1", 2025, 1));
+    }
+
+    @Test
+    public void loadsOfTheSameMonth_shareOneRead() throws Exception {
+        backend = Executors.newSingleThreadScheduledExecutor();
+        worker = BackgroundExecutors.fixed("months", 2);
+        InMemoryAppointmentRepository repository = new InMemoryAppointmentRepository(ISTANBUL, backend, 50);
+        MonthAvailabilityLoader loader = new MonthAvailabilityLoader(repository, ISTANBUL, worker, SlotRulesSource.DEFAULT,
+                now::get, TTL_MILLIS, 6);
+
+        Recorder recorder = new Recorder(2);
+        loader.prefetch(DOCTOR, 2024, 6);
+        loader.load(DOCTOR, 2024, 6, recorder);
+        loader.load(DOCTOR, 2024, 6, recorder);
+        recorder.await();
+
+        assertSame(recorder.months.get(0), recorder.months.get(1));
+        // Wait for July, prefetched after June
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (loader.getCached(DOCTOR, 2024, 7) == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNotNull(loader.getCached(DOCTOR, 2024, 7));
+        assertEquals(2, repository.rangeQueries.get());
+    }
+
+    @Test
+    public void invalidate_andExpiry_makeTheMonthReadAgain() {
+        InMemoryAppointmentRepository repository = new InMemoryAppointmentRepository(ISTANBUL);
+        MonthAvailabilityLoader loader = directLoader(repository, 6);
+        loader.load(DOCTOR, 2024, 6, new Recorder(1));
+        assertEquals(2, repository.rangeQueries.get());
+
+        repository.add("dr1", NINE_AM);
+        loader.invalidate("dr1", 20240612);
+        assertNull(loader.getCached(DOCTOR, 2024, 6));
+        assertNotNull(loader.getCached(DOCTOR, 2024, 7));
+        Recorder reloaded = new Recorder(1);
+        loader.load(DOCTOR, 2024, 6, reloaded);
+        assertEquals(3, repository.rangeQueries.get());
+        assertEquals(1, Long.bitCount(reloaded.months.get(0).getBookedMask(11)));
+
+        now.addAndGet(TTL_MILLIS);
+        assertNull(loader.getCached(DOCTOR, 2024, 7));
+        loader.load(DOCTOR, 2024, 6, new Recorder(1));
+        assertEquals(5, repository.rangeQueries.get());
+    }
+
+    @Test
+    public void load_keepsAtMostMaxMonths() {
+        InMemoryAppointmentRepository repository = new InMemoryAppointmentRepository(ISTANBUL);
+        MonthAvailabilityLoader loader = directLoader(repository, 2);
+        loader.load(DOCTOR, 2024, 6, new Recorder(1));
+        loader.load(DOCTOR, 2024, 7, new Recorder(1));
+        assertEquals(2, loader.size());
+        assertNull(loader.getCached(DOCTOR, 2024, 6));
+        assertNotNull(loader.getCached(DOCTOR, 2024, 8));
+    }
+
+    @Test
+    public void load_reportsFailuresAndRetriesNextTime() {
+        InMemoryAppointmentRepository repository = new InMemoryAppointmentRepository(ISTANBUL);
+        repository.failures.put("dr1/20240601", new IllegalStateException("offline"));
+        MonthAvailabilityLoader loader = directLoader(repository, 6);
+
+        Recorder failed = new Recorder(1);
+        loader.load(DOCTOR, 2024, 6, failed);
+        assertEquals("offline", failed.failure.getMessage());
+        assertTrue(failed.months.isEmpty());
+        assertEquals(0, loader.size());
+
+        repository.failures.clear();
+        Recorder retried = new Recorder(1);
+        loader.load(DOCTOR, 2024, 6, retried);
+        assertEquals(1, retried.months.size());
+    }
+
+    private static class Recorder implements MonthAvailabilityLoader.OnMonthListener {
+        final List<MonthAvailability> months = new CopyOnWriteArrayList<>();
+        final CountDownLatch answered;
+        volatile Exception failure;
+
+        Recorder(int expected) {
+            answered = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onSuccess(MonthAvailability month) {
+            months.add(month);
+            answered.countDown();
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            failure = e;
+            answered.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue(answered.await(5, TimeUnit.SECONDS));
+        }
+    }
+}
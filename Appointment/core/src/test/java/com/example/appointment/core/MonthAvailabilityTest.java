@@ -0,0 +1,122 @@
+package com.example.appointment.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class MonthAvailabilityTest {
+
+    private static final TimeZone ISTANBUL = TimeZone.getTimeZone("Europe/Istanbul");
+    private static final Doctor DOCTOR = new Doctor("dr1", "Dr One", "c1", 8 * 60, 18 * 60 + 30, 30);
+    // 1 June 2024, midnight in Istanbul
+    private static final long JUNE = DayKeys.toCalendar(20240601, ISTANBUL).getTimeInMillis();
+
+    private static SlotRules rules(long minLeadMinutes) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(SlotRules.FIELD_HOLIDAYS, Collections.singletonList("2024-06-20"));
+        fields.put(SlotRules.FIELD_MIN_LEAD_MINUTES, minLeadMinutes);
+        return SlotRules.fromFields(fields);
+    }
+
+    private static Appointment appointment(long timestamp) {
+        return new Appointment("a" + timestamp, "u1", null, DOCTOR.getId(), timestamp, DayKeys.dayKey(timestamp, ISTANBUL));
+    }
+
+    @Test
+    public void of_matchesTheDaySlotsOfEveryDay() {
+        SlotRules rules = rules(0);
+        SlotGrid grid = DOCTOR.getSlotGrid();
+        Random random = new Random(24);
+        List<Appointment> appointments = new ArrayList<>();
+        Map<Integer, List<Appointment>> byDay = new HashMap<>();
+        Calendar day = DayKeys.toCalendar(20240601, ISTANBUL);
+        for (int i = 0; i < 30; i++, day.add(Calendar.DAY_OF_MONTH, 1)) {
+            List<Appointment> ofDay = new ArrayList<>();
+            for (int slot = 0; slot < grid.getSlotCount(); slot++) {
+                if (random.nextInt(3) == 0) {
+                    ofDay.add(appointment(grid.slotStartMillis(grid.firstSlotMillis(day), slot)));
+                }
+            }
+            appointments.addAll(ofDay);
+            byDay.put(DayKeys.dayKey(day), ofDay);
+        }
+        // Neighbouring months are ignored
+        appointments.add(appointment(JUNE - 86_400_000L + 9 * 3_600_000L));
+        appointments.add(appointment(JUNE + 30 * 86_400_000L + 9 * 3_600_000L));
+
+        MonthAvailability month = MonthAvailability.of(DOCTOR, 2024, 6, ISTANBUL, rules, appointments, JUNE - 1);
+        assertEquals(30, month.getDays());
+        assertTrue(month.isFor("dr1", 2024, 6));
+        day = DayKeys.toCalendar(20240601, ISTANBUL);
+        for (int i = 0; i < month.getDays(); i++, day.add(Calendar.DAY_OF_MONTH, 1)) {
+            int dayKey = DayKeys.dayKey(day);
+            assertEquals(dayKey, month.getDayKey(i));
+            assertEquals(rules.openMask(DOCTOR, dayKey), month.getOpenMask(i));
+            DaySlots expected = DaySlots.of(DOCTOR, dayKey, grid.firstSlotMillis(day), byDay.get(dayKey), rules.openMask(DOCTOR, dayKey));
+            DaySlots slots = new DaySlots(DOCTOR, dayKey, grid.firstSlotMillis(day), month.getBookedMask(i), month.getOpenMask(i));
+            assertEquals(expected.getFreeSlots(), slots.getFreeSlots());
+            assertEquals(expected.getFreeSlots().size(), month.getFreeCount(i));
+        }
+        // Saturday 1 June, and the holiday
+        assertEquals(0, month.getOpenCount(0));
+        assertEquals(0, month.getOpenCount(19));
+    }
+
+    @Test
+    public void of_leavesOutPastDaysAndTheLeadTime() {
+        // Wednesday 12 June at 09:10, an hour's lead time
+        long now = JUNE + 11 * 86_400_000L + (9 * 60 + 10) * 60_000L;
+        MonthAvailability month = MonthAvailability.of(DOCTOR, 2024, 6, ISTANBUL, rules(60), Collections.<Appointment>emptyList(), now);
+        long all = DOCTOR.getSlotGrid().freeMask(0L);
+
+        for (int i = 0; i < 11; i++) {
+            assertEquals(0L, month.getOpenMask(i));
+        }
+        // From 10:30
+        assertEquals(all & (-1L << 5), month.getOpenMask(11));
+        assertEquals(all, month.getOpenMask(12));
+    }
+
+    @Test
+    public void shade_followsTheShareOfFreeSlots() {
+        SlotGrid grid = DOCTOR.getSlotGrid();
+        Calendar monday = DayKeys.toCalendar(20240603, ISTANBUL);
+        Calendar tuesday = DayKeys.toCalendar(20240604, ISTANBUL);
+        List<Appointment> appointments = new ArrayList<>();
+        // Monday full but one slot, Tuesday full
+        for (int slot = 0; slot < grid.getSlotCount(); slot++) {
+            if (slot > 0) {
+                appointments.add(appointment(grid.slotStartMillis(grid.firstSlotMillis(monday), slot)));
+            }
+            appointments.add(appointment(grid.slotStartMillis(grid.firstSlotMillis(tuesday), slot)));
+        }
+        MonthAvailability month = MonthAvailability.of(DOCTOR, 2024, 6, ISTANBUL, rules(0), appointments, JUNE - 1);
+
+        assertEquals(0, month.shade(0, 4));
+        assertEquals(1, month.shade(2, 4));
+        assertEquals(0, month.shade(3, 4));
+        assertEquals(3, month.shade(4, 4));
+        assertEquals(0, month.shade(19, 4));
+    }
+
+    @Test
+    public void firstWeekday_isIso() {
+        assertEquals(6, MonthAvailability.of(DOCTOR, 2024, 6, ISTANBUL, SlotRules.DEFAULT,
+                Collections.<Appointment>emptyList(), 0).getFirstWeekday());
+        MonthAvailability february = MonthAvailability.of(DOCTOR, 2024, 2, ISTANBUL, SlotRules.DEFAULT,
+                Collections.<Appointment>emptyList(), 0);
+        assertEquals(4, february.getFirstWeekday());
+        assertEquals(29, february.getDays());
+        assertEquals(7, MonthAvailability.of(DOCTOR, 2024, 9, ISTANBUL, SlotRules.DEFAULT,
+                Collections.<Appointment>emptyList(), 0).getFirstWeekday());
+    }
+}
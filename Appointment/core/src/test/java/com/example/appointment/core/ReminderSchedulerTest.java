@@ -0,0 +1,229 @@
+package com.example.appointment.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class ReminderSchedulerTest {
+
+    private static final long HOUR = 60 * 60_000L;
+    private static final long NOW = 1_718_172_000_000L;
+
+    private final FakeClock clock = new FakeClock(NOW);
+    private final InMemoryLocalStore store = new InMemoryLocalStore();
+    private final RecordingAlarms alarms = new RecordingAlarms();
+    private ReminderScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = new ReminderScheduler(store, alarms, clock, ReminderScheduler.DAY_BEFORE, ReminderScheduler.HOUR_BEFORE);
+    }
+
+    @Test
+    public void reschedule_registersEveryDueReminderInOnePass() {
+        store.put(appointment("a1", "u1", NOW + 48 * HOUR));
+        store.put(appointment("a2", "u1", NOW + 3 * HOUR));
+        store.put(appointment("a3", "u1", NOW + HOUR / 2));
+        store.put(appointment("a4", "u1", NOW - HOUR));
+        store.put(appointment("b1", "u2", NOW + 48 * HOUR));
+
+        assertEquals(3, scheduler.reschedule("u1"));
+
+        assertEquals(1, alarms.updates);
+        Map<String, Long> expected = new HashMap<>();
+        expected.put("a1@1440", NOW + 24 * HOUR);
+        expected.put("a1@60", NOW + 47 * HOUR);
+        expected.put("a2@60", NOW + 2 * HOUR);
+        assertEquals(expected, alarms.triggerTimes());
+    }
+
+    @Test
+    public void reschedule_onlyTouchesRemindersOfChangedAppointments() {
+        store.put(appointment("a1", "u1", NOW + 48 * HOUR));
+        store.put(appointment("a2", "u1", NOW + 72 * HOUR));
+        scheduler.reschedule("u1");
+        alarms.cancelled.clear();
+        alarms.added.clear();
+
+        assertEquals("nothing changed", 0, scheduler.reschedule("u1"));
+        assertEquals(1, alarms.updates);
+
+        // a2 was cancelled and a new appointment booked
+        store.remove("a2");
+        store.put(appointment("a5", "u1", NOW + 30 * HOUR));
+        assertEquals(4, scheduler.reschedule("u1"));
+
+        assertEquals(2, alarms.updates);
+        assertEquals(keys("a2@1440", "a2@60"), keysOf(alarms.cancelled));
+        assertEquals(keys("a5@1440", "a5@60"), keysOf(alarms.added));
+        assertTrue(alarms.registered.containsKey("a1@1440"));
+    }
+
+    @Test
+    public void reschedule_dropsRemindersWhoseTimeHasPassed() {
+        store.put(appointment("a1", "u1", NOW + 25 * HOUR));
+        scheduler.reschedule("u1");
+
+        // The day-before reminder fired; the implementation forgets it, so the next pass has nothing to do
+        clock.now = NOW + 2 * HOUR;
+        alarms.registered.remove("a1@1440");
+        assertEquals(0, scheduler.reschedule("u1"));
+
+        // One that was never reported as fired is cancelled
+        clock.now = NOW + 23 * HOUR;
+        alarms.registered.put("stale@60", new Reminder("stale", "dr1", NOW + HOUR, HOUR));
+        assertEquals(1, scheduler.reschedule("u1"));
+        assertEquals(keys("stale@60"), keysOf(alarms.cancelled));
+        assertEquals(keys("a1@60"), alarms.registered.keySet());
+    }
+
+    @Test
+    public void reschedule_remindsOnlyTheSoonestAppointments() {
+        for (int i = 0; i < ReminderScheduler.MAX_APPOINTMENTS + 10; i++) {
+            store.put(appointment("a" + (1000 + i), "u1", NOW + (48 + i) * HOUR));
+        }
+
+        scheduler.reschedule("u1");
+
+        assertEquals(2 * ReminderScheduler.MAX_APPOINTMENTS, alarms.registered.size());
+        assertTrue(alarms.registered.containsKey("a1000@60"));
+        assertFalse(alarms.registered.containsKey("a" + (1000 + ReminderScheduler.MAX_APPOINTMENTS) + "@60"));
+    }
+
+    @Test
+    public void cancelAll_cancelsEveryRegisteredReminder() {
+        store.put(appointment("a1", "u1", NOW + 48 * HOUR));
+        scheduler.reschedule("u1");
+
+        assertEquals(2, scheduler.cancelAll());
+
+        assertTrue(alarms.registered.isEmpty());
+        assertEquals(0, scheduler.cancelAll());
+    }
+
+    private static Appointment appointment(String id, String userId, long start) {
+        return new Appointment(id, userId, null, "dr1", start, 20240612);
+    }
+
+    private static Set<String> keys(String... keys) {
+        return new TreeSet<>(Arrays.asList(keys));
+    }
+
+    private static Set<String> keysOf(Collection<Reminder> reminders) {
+        Set<String> keys = new TreeSet<>();
+        for (Reminder reminder : reminders) {
+            keys.add(reminder.getKey());
+        }
+        return keys;
+    }
+
+    private static class FakeClock implements Clock {
+        long now;
+
+        FakeClock(long now) {
+            this.now = now;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    private static class RecordingAlarms implements ReminderAlarms {
+        final Map<String, Reminder> registered = new TreeMap<>();
+        final List<Reminder> cancelled = new ArrayList<>();
+        final List<Reminder> added = new ArrayList<>();
+        int updates;
+
+        @Override
+        public Map<String, Reminder> getRegistered() {
+            return new HashMap<>(registered);
+        }
+
+        @Override
+        public void update(Collection<Reminder> cancelled, Collection<Reminder> registered) {
+            updates++;
+            for (Reminder reminder : cancelled) {
+                this.registered.remove(reminder.getKey());
+                this.cancelled.add(reminder);
+            }
+            for (Reminder reminder : registered) {
+                this.registered.put(reminder.getKey(), reminder);
+                this.added.add(reminder);
+            }
+        }
+
+        Map<String, Long> triggerTimes() {
+            Map<String, Long> times = new HashMap<>();
+            for (Reminder reminder : registered.values()) {
+                times.put(reminder.getKey(), reminder.getTriggerAtMillis());
+            }
+            return times;
+        }
+    }
+
+    // Only what ReminderScheduler reads: upcoming appointments, soonest first
+    private static class InMemoryLocalStore implements LocalAppointmentStore {
+        private final Map<String, Appointment> byId = new HashMap<>();
+
+        void put(Appointment appointment) {
+            byId.put(appointment.getId(), appointment);
+        }
+
+        void remove(String id) {
+            byId.remove(id);
+        }
+
+        @Override
+        public List<Appointment> load(String userId) {
+            List<Appointment> result = new ArrayList<>();
+            for (Appointment appointment : byId.values()) {
+                if (appointment.getUserId().equals(userId)) {
+                    result.add(appointment);
+                }
+            }
+            result.sort((a, b) -> Long.compare(a.getTimestamp(), b.getTimestamp()));
+            return result;
+        }
+
+        @Override
+        public List<Appointment> loadPage(String userId, AppointmentPager.Section section, long boundaryMillis, Appointment after, int limit) {
+            assertEquals(AppointmentPager.Section.UPCOMING, section);
+            assertNull(after);
+            List<Appointment> page = new ArrayList<>();
+            for (Appointment appointment : load(userId)) {
+                if (appointment.getTimestamp() >= boundaryMillis && page.size() < limit) {
+                    page.add(appointment);
+                }
+            }
+            return page;
+        }
+
+        @Override
+        public SyncCursor getCursor(String userId) {
+            return SyncCursor.START;
+        }
+
+        @Override
+        public void apply(String userId, Collection<Appointment> upserts, Collection<String> removedIds, SyncCursor cursor) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void clear() {
+            byId.clear();
+        }
+    }
+}
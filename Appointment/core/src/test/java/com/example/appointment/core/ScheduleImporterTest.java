@@ -0,0 +1,265 @@
+package com.example.appointment.core;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ScheduleImporterTest {
+
+    private static final TimeZone ISTANBUL = TimeZone.getTimeZone("Europe/Istanbul");
+    private static final Doctor DOCTOR = new Doctor("dr1", "Dr One", "c1", 8 * 60, 18 * 60 + 30, 30);
+    private static final Map<String, Doctor> DOCTORS = Collections.singletonMap("dr1", DOCTOR);
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+    private final InMemorySink sink = new InMemorySink();
+    private final InMemoryCheckpoints checkpoints = new InMemoryCheckpoints();
+
+    @After
+    public void shutDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void run_rejectsRecordsOutsideTheDoctorsSchedule() throws Exception {
+        List<ImportRecord> records = new ArrayList<>();
+        records.add(record(1, "dr1", "2024-06-12 09:30", "u1"));
+        records.add(record(2, "dr1", "2024-06-15 09:30", "u2"));
+        records.add(record(3, "dr1", "2024-06-12 07:30", "u3"));
+        records.add(record(4, "dr1", "2024-06-12 09:45", "u4"));
+        records.add(record(5, "dr9", "2024-06-12 10:00", "u5"));
+        records.add(record(6, "dr1", "12/06/2024 10:00", "u6"));
+        records.add(record(7, "dr1", "2024-06-12 10:00", " "));
+        records.add(ImportRecord.malformed(8, "Unterminated quote"));
+
+        ImportReport report = importer(10, 2).run("import-1", records.iterator(), DOCTORS);
+
+        assertEquals(1, report.getImported());
+        assertEquals(7, report.getInvalid());
+        assertEquals(8, report.getRecordsRead());
+        List<ImportReport.Rejection> rejections = report.getRejections();
+        assertEquals(2, rejections.get(0).getLineNumber());
+        assertTrue(rejections.get(0).getReason().contains("does not work"));
+        assertTrue(rejections.get(1).getReason().startsWith("Not a slot of Dr One"));
+        assertTrue(rejections.get(2).getReason().startsWith("Not a slot of Dr One"));
+        assertEquals("Unknown doctor dr9", rejections.get(3).getReason());
+        assertTrue(rejections.get(4).getReason().startsWith("Start must be"));
+        assertEquals("Missing userId", rejections.get(5).getReason());
+        assertEquals("Unterminated quote", rejections.get(6).getReason());
+
+        String slotId = SlotKeys.slotId("dr1", AppointmentRecords.parseStart("2024-06-12 09:30", ISTANBUL), DOCTOR.getSlotGrid().getSlotMillis());
+        Appointment stored = sink.documents.get(AppointmentPaths.appointment("dr1", 20240612, slotId));
+        assertEquals("u1", stored.getUserId());
+        assertEquals("u1@example.com", stored.getEmail());
+        assertEquals(20240612, stored.getDayKey());
+    }
+
+    @Test
+    public void run_keepsTheFirstRecordOfASlotAndLeavesTakenSlotsAlone() throws Exception {
+        List<ImportRecord> first = new ArrayList<>();
+        first.add(record(1, "dr1", "2024-06-12 09:30", "u1"));
+        importer(10, 2).run("earlier", first.iterator(), DOCTORS);
+
+        List<ImportRecord> records = new ArrayList<>();
+        records.add(record(1, "dr1", "2024-06-12 10:00", "u2"));
+        records.add(record(2, "dr1", "2024-06-12 10:00", "u3"));
+        records.add(record(3, "dr1", "2024-06-12 09:30", "u4"));
+
+        ImportReport report = importer(10, 2).run("import-1", records.iterator(), DOCTORS);
+
+        assertEquals(1, report.getImported());
+        assertEquals(1, report.getDuplicates());
+        assertEquals(1, report.getAlreadyTaken());
+        assertEquals(2, report.getRejections().get(0).getLineNumber());
+        assertEquals(2, sink.documents.size());
+        for (Appointment appointment : sink.documents.values()) {
+            assertTrue(appointment.getUserId().equals("u1") || appointment.getUserId().equals("u2"));
+        }
+    }
+
+    @Test
+    public void run_writesChunksWithBoundedParallelism() throws Exception {
+        sink.writeMillis = 5;
+        List<ImportRecord> records = weekdayRecords(1000);
+
+        ImportReport report = importer(40, 3).run("import-1", records.iterator(), DOCTORS);
+
+        assertEquals(1000, report.getImported());
+        assertEquals(1000, sink.documents.size());
+        // Chunks finish in any order; only the last one read may be short, and a chunk closes one write
+        // early when the next slot would also bring its day summary
+        int shortChunks = 0;
+        for (int writes : sink.chunkWrites) {
+            assertTrue("writes per chunk: " + writes, writes <= 40);
+            if (writes < 39) {
+                shortChunks++;
+            }
+        }
+        assertTrue("short chunks: " + shortChunks, shortChunks <= 1);
+        assertTrue("at most 3 chunks at once: " + sink.maxConcurrent.get(), sink.maxConcurrent.get() <= 3);
+        assertTrue("chunks should overlap: " + sink.maxConcurrent.get(), sink.maxConcurrent.get() > 1);
+        assertEquals(Long.valueOf(1000), checkpoints.saved.get("import-1"));
+    }
+
+    @Test
+    public void run_resumesAfterTheLastCheckpoint() throws Exception {
+        List<ImportRecord> records = weekdayRecords(100);
+        sink.failOnChunk = 4;
+
+        try {
+            importer(10, 1).run("import-1", records.iterator(), DOCTORS);
+            fail("the fourth chunk fails");
+        } catch (IllegalStateException expected) {
+            assertEquals("write failed", expected.getMessage());
+        }
+        // Chunks of 9, 9 and 8 slots, the last spanning two days
+        assertEquals(Long.valueOf(26), checkpoints.saved.get("import-1"));
+        assertEquals(26, sink.documents.size());
+
+        sink.failOnChunk = -1;
+        sink.chunkSizes.clear();
+        ImportReport report = importer(10, 1).run("import-1", records.iterator(), DOCTORS);
+
+        assertEquals(26, report.getResumedAfter());
+        assertEquals(74, report.getImported());
+        assertEquals(0, report.getAlreadyTaken());
+        assertEquals(9, sink.chunkSizes.size());
+        assertEquals(100, sink.documents.size());
+        assertEquals(Long.valueOf(100), checkpoints.saved.get("import-1"));
+    }
+
+    @Test
+    public void run_countsDaySummariesTowardsTheWriteLimit() throws Exception {
+        // 22 full days of 21 slots and 15 slots of the 23rd come to 477 slots and 23 day summaries
+        List<ImportRecord> records = weekdayRecords(478);
+
+        ImportReport report = importer(ImportSink.MAX_CHUNK_SIZE, 1).run("import-1", records.iterator(), DOCTORS);
+
+        assertEquals(478, report.getImported());
+        assertEquals(Arrays.asList(477, 1), sink.chunkSizes);
+        assertEquals(Arrays.asList(ImportSink.MAX_CHUNK_SIZE, 2), sink.chunkWrites);
+        assertEquals(Long.valueOf(478), checkpoints.saved.get("import-1"));
+    }
+
+    @Test
+    public void run_checkpointsOnlyPastChunksWrittenWithoutAGap() throws Exception {
+        // Later chunks finish first; the checkpoint must not move past the slow first chunk until it is written
+        List<ImportRecord> records = weekdayRecords(50);
+        sink.slowChunkStart = AppointmentRecords.parseStart(records.get(0).getStart(), ISTANBUL);
+        sink.slowChunkMillis = 100;
+
+        importer(10, 5).run("import-1", records.iterator(), DOCTORS);
+
+        assertEquals(Collections.singletonList(50L), checkpoints.history.get("import-1"));
+    }
+
+    private ScheduleImporter importer(int chunkSize, int chunksInFlight) {
+        return new ScheduleImporter(sink, checkpoints, executor, ISTANBUL, chunkSize, chunksInFlight);
+    }
+
+    private static ImportRecord record(long line, String doctorId, String start, String userId) {
+        return new ImportRecord(line, doctorId, start, userId, userId.trim().isEmpty() ? null : userId + "@example.com");
+    }
+
+    // One record per slot of consecutive weekdays from 10 June 2024
+    private static List<ImportRecord> weekdayRecords(int count) {
+        List<ImportRecord> records = new ArrayList<>(count);
+        Calendar day = DayKeys.toCalendar(20240610, ISTANBUL);
+        SlotGrid slotGrid = DOCTOR.getSlotGrid();
+        while (records.size() < count) {
+            int dayOfWeek = day.get(Calendar.DAY_OF_WEEK);
+            if (dayOfWeek != Calendar.SATURDAY && dayOfWeek != Calendar.SUNDAY) {
+                long first = slotGrid.firstSlotMillis(day);
+                for (int slot = 0; slot < slotGrid.getSlotCount() && records.size() < count; slot++) {
+                    String start = AppointmentRecords.formatStart(slotGrid.slotStartMillis(first, slot), ISTANBUL);
+                    records.add(record(records.size() + 1, "dr1", start, "u" + records.size()));
+                }
+            }
+            day.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        return records;
+    }
+
+    // ImportSink with create-if-free chunks that records how it was called
+    private static class InMemorySink implements ImportSink {
+        final Map<String, Appointment> documents = new ConcurrentHashMap<>();
+        final List<Integer> chunkSizes = Collections.synchronizedList(new ArrayList<>());
+        // Slots plus distinct doctor-days, as a Firestore sink writes a day summary for each
+        final List<Integer> chunkWrites = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger concurrent = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        final AtomicInteger calls = new AtomicInteger();
+        volatile long writeMillis;
+        // The chunk whose first appointment starts at slowChunkStart takes slowChunkMillis
+        volatile long slowChunkStart = -1;
+        volatile long slowChunkMillis;
+        volatile int failOnChunk = -1;
+
+        @Override
+        public Set<String> createAllIfFree(Map<String, Appointment> appointments) throws Exception {
+            int call = calls.incrementAndGet();
+            int running = concurrent.incrementAndGet();
+            maxConcurrent.accumulateAndGet(running, Math::max);
+            try {
+                boolean slow = appointments.values().iterator().next().getTimestamp() == slowChunkStart;
+                Thread.sleep(slow ? slowChunkMillis : writeMillis);
+                if (call == failOnChunk) {
+                    throw new IllegalStateException("write failed");
+                }
+                chunkSizes.add(appointments.size());
+                Set<String> days = new HashSet<>();
+                for (Appointment appointment : appointments.values()) {
+                    days.add(appointment.getDoctorId() + "/" + appointment.getDayKey());
+                }
+                chunkWrites.add(appointments.size() + days.size());
+                Set<String> taken = new HashSet<>();
+                synchronized (documents) {
+                    for (Map.Entry<String, Appointment> entry : appointments.entrySet()) {
+                        if (documents.containsKey(entry.getKey())) {
+                            taken.add(entry.getKey());
+                        }
+                    }
+                    for (Map.Entry<String, Appointment> entry : appointments.entrySet()) {
+                        if (!taken.contains(entry.getKey())) {
+                            documents.put(entry.getKey(), entry.getValue());
+                        }
+                    }
+                }
+                return taken;
+            } finally {
+                concurrent.decrementAndGet();
+            }
+        }
+    }
+
+    private static class InMemoryCheckpoints implements ImportCheckpoints {
+        final Map<String, Long> saved = new ConcurrentHashMap<>();
+        final Map<String, List<Long>> history = new ConcurrentHashMap<>();
+
+        @Override
+        public long load(String importId) {
+            Long done = saved.get(importId);
+            return done != null ? done : 0L;
+        }
+
+        @Override
+        public void save(String importId, long recordsDone) {
+            saved.put(importId, recordsDone);
+            history.computeIfAbsent(importId, id -> Collections.synchronizedList(new ArrayList<>())).add(recordsDone);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.appointment.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SessionManagerTest {
+
+    private static final long HOUR = 60 * 60_000L;
+
+    private final FakeClock clock = new FakeClock(1_718_172_000_000L);
+    private final MemoryProfileStore store = new MemoryProfileStore();
+    private final PendingProfileSource source = new PendingProfileSource();
+    private final SessionManager session = new SessionManager(store, source, clock, 24 * HOUR);
+
+    @Test
+    public void start_fetchesTheProfileOnceAndKeepsItOnDisk() {
+        List<UserProfile> changes = new ArrayList<>();
+        session.addListener(changes::add);
+
+        session.start("u1");
+        session.start("u1");
+        assertEquals("one read while the first is running", 1, source.pending.size());
+        assertNull(session.getProfile());
+
+        source.complete(0, profile("u1", "ayse", 0));
+
+        UserProfile profile = session.getProfile();
+        assertEquals("ayse", profile.getUsername());
+        assertEquals(clock.now, profile.getFetchedAtMillis());
+        assertSame(profile, store.stored);
+        assertEquals(Collections.singletonList(profile), changes);
+
+        // A fresh copy needs no read, even in a new process
+        SessionManager restarted = new SessionManager(store, source, clock, 24 * HOUR);
+        restarted.start("u1");
+        assertEquals(1, source.pending.size());
+        assertEquals("ayse", restarted.getProfile().getUsername());
+        assertEquals("one disk read per manager", 2, store.loads);
+    }
+
+    @Test
+    public void start_refreshesAStaleProfileWhileStillServingIt() {
+        store.stored = profile("u1", "old", clock.now);
+        clock.now += 25 * HOUR;
+
+        session.start("u1");
+
+        assertEquals(1, source.pending.size());
+        assertEquals("old", session.getProfile().getUsername());
+        source.complete(0, profile("u1", "new", 0));
+        assertEquals("new", session.getProfile().getUsername());
+        assertFalse(session.isStale(session.getProfile()));
+    }
+
+    @Test
+    public void start_keepsTheCachedProfileWhenTheRefreshFails() {
+        store.stored = profile("u1", "old", clock.now);
+        clock.now += 25 * HOUR;
+
+        session.start("u1");
+        source.fail(0);
+        assertEquals("old", session.getProfile().getUsername());
+
+        session.start("u1");
+        assertEquals("tries again", 2, source.pending.size());
+    }
+
+    @Test
+    public void start_dropsAnotherUsersProfile() {
+        store.stored = profile("u1", "ayse", clock.now);
+
+        session.start("u2");
+
+        assertNull(session.getProfile());
+        assertNull(store.stored);
+        assertEquals("u2", source.pending.get(0).userId);
+    }
+
+    @Test
+    public void signOut_clearsTheProfileAndIgnoresAFetchStillRunning() {
+        List<UserProfile> changes = new ArrayList<>();
+        session.addListener(changes::add);
+        session.signedIn(profile("u1", "ayse", clock.now));
+        session.start("u1");
+        assertTrue("fresh profile from sign-up needs no read", source.pending.isEmpty());
+
+        clock.now += 25 * HOUR;
+        session.start("u1");
+        session.signOut();
+        source.complete(0, profile("u1", "late", 0));
+
+        assertNull(session.getProfile());
+        assertNull(store.stored);
+        assertEquals(2, changes.size());
+        assertNull(changes.get(1));
+    }
+
+    @Test
+    public void fromFields_readsPreferencesAsStrings() {
+        Map<String, Object> preferences = new HashMap<>();
+        preferences.put("reminders", true);
+        preferences.put("language", "tr");
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(UserProfile.FIELD_USERNAME, "ayse");
+        fields.put(UserProfile.FIELD_EMAIL, "ayse@example.com");
+        fields.put(UserProfile.FIELD_PREFERENCES, preferences);
+
+        UserProfile profile = UserProfile.fromFields("u1", fields, 5L);
+
+        assertEquals("true", profile.getPreference("reminders", "false"));
+        assertEquals("tr", profile.getPreference("language", "en"));
+        assertEquals("x", profile.getPreference("missing", "x"));
+        assertEquals("ayse@example.com", profile.toFields().get(UserProfile.FIELD_EMAIL));
+        assertEquals("u1", profile.toFields().get(UserProfile.FIELD_USER_ID));
+    }
+
+    private static UserProfile profile(String userId, String username, long fetchedAt) {
+        return new UserProfile(userId, username, username + "@example.com", Collections.<String, String>emptyMap(), fetchedAt);
+    }
+
+    private static class FakeClock implements Clock {
+        long now;
+
+        FakeClock(long now) {
+            this.now = now;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    private static class MemoryProfileStore implements ProfileStore {
+        UserProfile stored;
+        int loads;
+
+        @Override
+        public UserProfile load() {
+            loads++;
+            return stored;
+        }
+
+        @Override
+        public void save(UserProfile profile) {
+            stored = profile;
+        }
+
+        @Override
+        public void clear() {
+            stored = null;
+        }
+    }
+
+    // Keeps every fetch until the test completes it
+    private static class PendingProfileSource implements ProfileSource {
+
+        static class Fetch {
+            final String userId;
+            final OnProfileListener listener;
+
+            Fetch(String userId, OnProfileListener listener) {
+                this.userId = userId;
+                this.listener = listener;
+            }
+        }
+
+        final List<Fetch> pending = new ArrayList<>();
+
+        @Override
+        public void fetch(String userId, OnProfileListener listener) {
+            pending.add(new Fetch(userId, listener));
+        }
+
+        void complete(int index, UserProfile profile) {
+            pending.get(index).listener.onLoaded(profile);
+        }
+
+        void fail(int index) {
+            pending.get(index).listener.onFailure(new IllegalStateException("offline"));
+        }
+    }
+}
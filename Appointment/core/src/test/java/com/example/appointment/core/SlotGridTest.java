@@ -0,0 +1,147 @@
+package com.example.appointment.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class SlotGridTest {
+
+    private Calendar day;
+    private long firstSlot;
+
+    @Before
+    public void setUp() {
+        day = Calendar.getInstance(TimeZone.getTimeZone("Europe/Istanbul"));
+        day.clear();
+        day.set(2024, Calendar.JUNE, 12, 14, 37);
+        firstSlot = SlotGrid.DEFAULT.firstSlotMillis(day);
+    }
+
+    private long at(int hour, int minute) {
+        Calendar calendar = (Calendar) day.clone();
+        calendar.set(Calendar.HOUR_OF_DAY, hour);
+        calendar.set(Calendar.MINUTE, minute);
+        return calendar.getTimeInMillis();
+    }
+
+    @Test
+    public void defaultGrid_matchesBookingScreenSlots() {
+        SlotGrid grid = SlotGrid.DEFAULT;
+        assertEquals(21, grid.getSlotCount());
+        assertEquals("08:00", grid.label(0));
+        assertEquals("08:30", grid.label(1));
+        assertEquals("18:00", grid.label(20));
+        assertEquals(18, grid.hourOf(20));
+        assertEquals(30, grid.minuteOf(1));
+    }
+
+    @Test
+    public void slotIndex_mapsTimestampsIntoSlots() {
+        SlotGrid grid = SlotGrid.DEFAULT;
+        assertEquals(0, grid.slotIndex(firstSlot, at(8, 0)));
+        assertEquals(0, grid.slotIndex(firstSlot, at(8, 0) + 42_000));
+        assertEquals(3, grid.slotIndex(firstSlot, at(9, 30)));
+        assertEquals(20, grid.slotIndex(firstSlot, at(18, 0)));
+        assertEquals(-1, grid.slotIndex(firstSlot, at(7, 59)));
+        assertEquals(-1, grid.slotIndex(firstSlot, at(18, 30)));
+        assertEquals(at(9, 30), grid.slotStartMillis(firstSlot, 3));
+    }
+
+    @Test
+    public void nextFree_skipsBookedSlots() {
+        SlotGrid grid = SlotGrid.DEFAULT;
+        long[] booked = {at(8, 0), at(8, 30), at(10, 0), at(23, 0)};
+        long mask = grid.bookedMask(firstSlot, booked, booked.length);
+
+        List<String> free = new ArrayList<>();
+        for (int i = grid.nextFree(mask, 0); i >= 0; i = grid.nextFree(mask, i + 1)) {
+            free.add(grid.label(i));
+        }
+
+        assertEquals(18, grid.freeCount(mask));
+        assertEquals(18, free.size());
+        assertEquals("09:00", free.get(0));
+        assertFalse(free.contains("10:00"));
+        assertEquals("18:00", free.get(free.size() - 1));
+        assertFalse(grid.isFree(mask, 4));
+        assertTrue(grid.isFree(mask, 5));
+    }
+
+    @Test
+    public void freeSlots_matchTheNestedLoopTheBookingScreenUsedToRun() {
+        SlotGrid grid = SlotGrid.DEFAULT;
+        for (int size : new int[]{10, 1_000}) {
+            Random random = new Random(size);
+            long[] booked = new long[size];
+            for (int i = 0; i < size; i++) {
+                // Within the slot's first minute, which the old HH:mm comparison still matched
+                booked[i] = grid.slotStartMillis(firstSlot, random.nextInt(grid.getSlotCount() - 3)) + random.nextInt(59_000);
+            }
+            long mask = grid.bookedMask(firstSlot, booked, booked.length);
+
+            List<String> free = new ArrayList<>();
+            for (int i = grid.nextFree(mask, 0); i >= 0; i = grid.nextFree(mask, i + 1)) {
+                free.add(grid.label(i));
+            }
+            assertEquals(nestedLoop(booked), free);
+        }
+    }
+
+    @Test
+    public void nextFree_handlesFullAndEmptyDays() {
+        SlotGrid grid = SlotGrid.DEFAULT;
+        assertEquals(-1, grid.nextFree(-1L, 0));
+        assertEquals(0, grid.freeCount(-1L));
+        assertEquals(0, grid.nextFree(0L, 0));
+        assertEquals(-1, grid.nextFree(0L, 21));
+        assertEquals(-1, grid.nextFree(0L, 64));
+    }
+
+    @Test
+    public void fullWidthGrid_usesEveryBit() {
+        SlotGrid grid = new SlotGrid(0, 15, 64);
+        assertEquals(64, grid.freeCount(0L));
+        assertEquals(63, grid.nextFree(~(1L << 63), 0));
+        assertEquals("15:45", grid.label(63));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsTooManySlots() {
+        new SlotGrid(0, 10, 65);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsSlotsPastMidnight() {
+        new SlotGrid(23 * 60, 30, 3);
+    }
+
+    // Every slot label checked against every appointment's HH:mm, as the booking screen did before SlotGrid
+    private List<String> nestedLoop(long[] booked) {
+        List<String> free = new ArrayList<>();
+        for (int hour = 8; hour <= 18; hour++) {
+            for (int minute = 0; minute < (hour < 18 ? 60 : 1); minute += 30) {
+                String slot = String.format("%02d:%02d", hour, minute);
+                boolean taken = false;
+                for (long timestamp : booked) {
+                    Calendar calendar = (Calendar) day.clone();
+                    calendar.setTimeInMillis(timestamp);
+                    if (slot.equals(String.format("%02d:%02d", calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE)))) {
+                        taken = true;
+                        break;
+                    }
+                }
+                if (!taken) {
+                    free.add(slot);
+                }
+            }
+        }
+        return free;
+    }
+}
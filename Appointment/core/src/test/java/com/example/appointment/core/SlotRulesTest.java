@@ -0,0 +1,152 @@
+package com.example.appointment.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class SlotRulesTest {
+
+    private static final TimeZone ISTANBUL = TimeZone.getTimeZone("Europe/Istanbul");
+    // 08:00 to 18:00 in 21 half-hour slots
+    private static final Doctor DOCTOR = new Doctor("dr1", "Dr One", "c1", 8 * 60, 18 * 60 + 30, 30);
+    private static final Doctor OTHER = new Doctor("dr2", "Dr Two", "c1", 8 * 60, 18 * 60 + 30, 30);
+    private static final long ALL = DOCTOR.getSlotGrid().freeMask(0L);
+
+    private static Calendar day(int year, int month, int dayOfMonth) {
+        Calendar day = Calendar.getInstance(ISTANBUL);
+        day.clear();
+        day.set(year, month, dayOfMonth);
+        return day;
+    }
+
+    private static Map<String, Object> entry(Object... keysAndValues) {
+        Map<String, Object> entry = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            entry.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return entry;
+    }
+
+    // Monday to Saturday, lunch for everyone, two holidays and a few exceptions for dr1
+    private static SlotRules clinicRules() {
+        return SlotRules.fromFields(entry(
+                SlotRules.FIELD_OPEN_DAYS, Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L),
+                SlotRules.FIELD_HOLIDAYS, Arrays.asList("2024-06-17", 20240618L),
+                SlotRules.FIELD_BREAKS, Collections.singletonList(entry(SlotRules.FIELD_START, "12:00", SlotRules.FIELD_END, "13:00")),
+                SlotRules.FIELD_EXCEPTIONS, Arrays.asList(
+                        // Closed on Wednesdays
+                        entry(SlotRules.FIELD_DOCTOR_ID, "dr1", SlotRules.FIELD_DAYS, Collections.singletonList(3L)),
+                        // Only the mornings of Wednesday 19 June
+                        entry(SlotRules.FIELD_DOCTOR_ID, "dr1", SlotRules.FIELD_DATE, "2024-06-19",
+                                SlotRules.FIELD_START, "08:00", SlotRules.FIELD_END, 13 * 60L),
+                        // 10:00 to 11:15 holds two whole slots
+                        entry(SlotRules.FIELD_DOCTOR_ID, "dr1", SlotRules.FIELD_DATE, 20240613L,
+                                SlotRules.FIELD_START, "10:00", SlotRules.FIELD_END, "11:15"),
+                        // A holiday wins over an exception
+                        entry(SlotRules.FIELD_DOCTOR_ID, "dr1", SlotRules.FIELD_DATE, "2024-06-17",
+                                SlotRules.FIELD_START, "08:00", SlotRules.FIELD_END, "18:30")),
+                SlotRules.FIELD_MIN_LEAD_MINUTES, 60L));
+    }
+
+    @Test
+    public void defaultRules_openEveryWeekdaySlot() {
+        assertEquals(ALL, SlotRules.DEFAULT.openMask(DOCTOR, 20240612));
+        assertEquals(0L, SlotRules.DEFAULT.openMask(DOCTOR, 20240615));
+        assertEquals(0L, SlotRules.DEFAULT.openMask(DOCTOR, 20240616));
+        assertEquals(0L, SlotRules.DEFAULT.getMinLeadMillis());
+        assertSame(SlotRules.DEFAULT, SlotRules.fromFields(null));
+    }
+
+    @Test
+    public void openMask_appliesHolidaysBreaksAndExceptions() {
+        SlotRules rules = clinicRules();
+        long lunch = 0b11L << 8;
+
+        assertEquals(ALL & ~lunch, rules.openMask(DOCTOR, 20240614));
+        // Saturdays are open, Sundays are not
+        assertEquals(ALL & ~lunch, rules.openMask(DOCTOR, 20240615));
+        assertEquals(0L, rules.openMask(DOCTOR, 20240616));
+        // Holidays close the day for everyone, whatever the exceptions say
+        assertEquals(0L, rules.openMask(DOCTOR, 20240617));
+        assertEquals(0L, rules.openMask(OTHER, 20240618));
+        // dr1's Wednesdays are closed, but not dr2's
+        assertEquals(0L, rules.openMask(DOCTOR, 20240612));
+        assertEquals(ALL & ~lunch, rules.openMask(OTHER, 20240612));
+        // A date beats the weekday; the break still applies
+        assertEquals(0xFFL, rules.openMask(DOCTOR, 20240619));
+        // Only slots completely inside the window
+        assertEquals(0b110000L, rules.openMask(DOCTOR, 20240613));
+        assertEquals(ALL & ~lunch, rules.openMask(OTHER, 20240613));
+    }
+
+    @Test
+    public void openMasks_matchDayByDayMasks() {
+        SlotRules rules = clinicRules();
+        long[] masks = rules.openMasks(DOCTOR, 20240527, 60);
+        Calendar day = day(2024, Calendar.MAY, 27);
+        for (int i = 0; i < masks.length; i++, day.add(Calendar.DAY_OF_MONTH, 1)) {
+            assertEquals("day " + DayKeys.dayKey(day), rules.openMask(DOCTOR, day), masks[i]);
+        }
+
+        long[] february = rules.monthMasks(DOCTOR, 2024, 2);
+        assertEquals(29, february.length);
+        assertEquals(rules.openMask(DOCTOR, 20240229), february[28]);
+        // Across a year end
+        assertArrayEquals(new long[]{rules.openMask(DOCTOR, 20241231), rules.openMask(DOCTOR, 20250101)},
+                rules.openMasks(DOCTOR, 20241231, 2));
+    }
+
+    @Test
+    public void bookableMask_leavesOutSlotsWithinTheLeadTime() {
+        SlotRules rules = clinicRules();
+        Calendar friday = day(2024, Calendar.JUNE, 14);
+        long firstSlot = DOCTOR.getSlotGrid().firstSlotMillis(friday);
+        long open = rules.openMask(DOCTOR, friday);
+
+        assertEquals(open, rules.bookableMask(DOCTOR, friday, firstSlot - 86_400_000L));
+        // At 09:10 the first slot an hour away is 10:30
+        assertEquals(open & (-1L << 5), rules.bookableMask(DOCTOR, friday, firstSlot + 70 * 60_000L));
+        assertEquals(0L, rules.bookableMask(DOCTOR, friday, firstSlot + 10 * 3_600_000L));
+        assertFalse(rules.isOpenSlot(DOCTOR, friday, firstSlot + 4 * 3_600_000L));
+        assertTrue(rules.isOpenSlot(DOCTOR, friday, firstSlot + 5 * 3_600_000L));
+    }
+
+    @Test
+    public void openMask_isCompiledAgainForNewHours() {
+        SlotRules rules = clinicRules();
+        assertEquals(0b110000L, rules.openMask(DOCTOR, 20240613));
+        // Same doctor, now starting at 10:00
+        Doctor later = new Doctor("dr1", "Dr One", "c1", 10 * 60, 18 * 60 + 30, 30);
+        assertEquals(0b11L, rules.openMask(later, 20240613));
+    }
+
+    @Test
+    public void fromFields_rejectsBadEntries() {
+        Object[][] bad = {
+                {SlotRules.FIELD_OPEN_DAYS, Collections.singletonList(8L)},
+                {SlotRules.FIELD_OPEN_DAYS, "weekdays"},
+                {SlotRules.FIELD_HOLIDAYS, Collections.singletonList("2024-02-30")},
+                {SlotRules.FIELD_BREAKS, Collections.singletonList(entry(SlotRules.FIELD_START, "12:00"))},
+                {SlotRules.FIELD_BREAKS, Collections.singletonList(entry(SlotRules.FIELD_START, "13:00", SlotRules.FIELD_END, "12:00"))},
+                {SlotRules.FIELD_BREAKS, Collections.singletonList(entry(SlotRules.FIELD_START, "noon", SlotRules.FIELD_END, "13:00"))},
+                {SlotRules.FIELD_EXCEPTIONS, Collections.singletonList(entry(SlotRules.FIELD_DATE, "2024-06-12"))},
+                {SlotRules.FIELD_EXCEPTIONS, Collections.singletonList(entry(SlotRules.FIELD_DOCTOR_ID, "dr1"))},
+                {SlotRules.FIELD_MIN_LEAD_MINUTES, -5L},
+        };
+        for (Object[] field : bad) {
+            try {
+                SlotRules.fromFields(entry(field));
+                fail("Accepted " + Arrays.toString(field));
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+}
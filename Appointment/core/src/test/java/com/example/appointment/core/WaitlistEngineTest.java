@@ -0,0 +1,375 @@
+package com.example.appointment.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class WaitlistEngineTest {
+
+    private static final TimeZone ISTANBUL = TimeZone.getTimeZone("Europe/Istanbul");
+    private static final long SLOT_MILLIS = SlotGrid.DEFAULT.getSlotMillis();
+    private static final long FIRST_SLOT = 1_718_172_000_000L;
+    private static final int DAY = 20240612;
+    private static final long HOLD_MILLIS = 10 * 60 * 1000L;
+
+    private final AtomicLong now = new AtomicLong(FIRST_SLOT - 24 * 60 * 60 * 1000L);
+    private final InMemoryWaitlistStore store = new InMemoryWaitlistStore();
+    private final WaitlistEngine engine = new WaitlistEngine(store, now::get, HOLD_MILLIS, ISTANBUL);
+
+    @Test
+    public void join_reportsPositionsInJoiningOrder() {
+        assertEquals(1, join("u1"));
+        assertEquals(2, join("u2"));
+        assertEquals(0, join("u1"));
+        assertEquals(2, store.waitlist("dr1", DAY).size());
+    }
+
+    @Test
+    public void cancel_withNobodyWaiting_freesTheSlot() {
+        Appointment booked = book(0, "owner");
+
+        assertNull(cancel(booked, "owner"));
+
+        assertNull(store.slots.get(booked.getId()).booking);
+        assertNull(store.slots.get(booked.getId()).hold);
+    }
+
+    @Test
+    public void cancel_holdsTheSlotForTheFirstWaitingPatient() {
+        join("u1");
+        join("u2");
+        Appointment booked = book(0, "owner");
+
+        Hold hold = cancel(booked, "owner");
+
+        assertEquals("u1", hold.getUserId());
+        assertEquals("u1@example.com", hold.getEmail());
+        assertEquals(booked.getId(), hold.getSlotId());
+        assertEquals(now.get() + HOLD_MILLIS, hold.getExpiresAtMillis());
+        assertSame(hold, store.slots.get(booked.getId()).hold);
+        Waitlist waitlist = store.waitlist("dr1", DAY);
+        assertEquals(0, waitlist.position("u1"));
+        assertEquals(1, waitlist.position("u2"));
+    }
+
+    @Test
+    public void cancel_ofSomeoneElsesBooking_changesNothing() {
+        join("u1");
+        Appointment booked = book(0, "owner");
+
+        AtomicInteger notBooked = new AtomicInteger();
+        engine.cancel(booked, "intruder", new CancelListener() {
+            @Override
+            public void onNotBooked() {
+                notBooked.incrementAndGet();
+            }
+        });
+
+        assertEquals(1, notBooked.get());
+        assertSame(booked, store.slots.get(booked.getId()).booking);
+        assertEquals(1, store.waitlist("dr1", DAY).position("u1"));
+    }
+
+    @Test
+    public void claim_booksTheHeldSlot() {
+        join("u1");
+        Appointment booked = book(0, "owner");
+        Hold hold = cancel(booked, "owner");
+
+        Appointment claimed = claim(hold);
+
+        assertEquals(booked.getId(), claimed.getId());
+        assertEquals("u1", claimed.getUserId());
+        assertEquals(FIRST_SLOT, claimed.getTimestamp());
+        assertEquals(DAY, claimed.getDayKey());
+        assertSame(claimed, store.slots.get(booked.getId()).booking);
+        assertTrue(store.waitlist("dr1", DAY).getHolds().isEmpty());
+        assertNull("a hold can be claimed once", claim(hold));
+    }
+
+    @Test
+    public void expiredHold_isOfferedToTheNextPatient() {
+        join("u1");
+        join("u2");
+        Hold first = cancel(book(0, "owner"), "owner");
+
+        now.addAndGet(HOLD_MILLIS);
+        assertNull("claims after the hold expires are refused", claim(first));
+
+        Hold second = store.slots.get(first.getSlotId()).hold;
+        assertEquals("u2", second.getUserId());
+        assertEquals(now.get() + HOLD_MILLIS, second.getExpiresAtMillis());
+        assertNotNull(claim(second));
+    }
+
+    @Test
+    public void expireHolds_freesTheSlotOnceNobodyIsWaiting() {
+        join("u1");
+        Hold hold = cancel(book(0, "owner"), "owner");
+
+        now.addAndGet(HOLD_MILLIS - 1);
+        engine.expireHolds("dr1", DAY, new DoneListener());
+        assertSame(hold, store.slots.get(hold.getSlotId()).hold);
+
+        now.incrementAndGet();
+        engine.expireHolds("dr1", DAY, new DoneListener());
+        assertNull(store.slots.get(hold.getSlotId()).hold);
+        assertNull(store.slots.get(hold.getSlotId()).booking);
+    }
+
+    @Test
+    public void decline_passesTheSlotOn() {
+        join("u1");
+        join("u2");
+        Hold hold = cancel(book(0, "owner"), "owner");
+
+        engine.decline(hold, "dr1", new DoneListener());
+
+        assertEquals("u2", store.slots.get(hold.getSlotId()).hold.getUserId());
+        assertEquals(0, store.waitlist("dr1", DAY).position("u1"));
+    }
+
+    @Test
+    public void leave_removesThePatientFromTheQueue() {
+        join("u1");
+        join("u2");
+
+        engine.leave("dr1", DAY, "u1", new DoneListener());
+
+        assertEquals("u2", cancel(book(0, "owner"), "owner").getUserId());
+    }
+
+    @Test
+    public void waitlist_survivesStorage() {
+        Waitlist waitlist = new Waitlist();
+        waitlist.join("u1", "u1@example.com");
+        waitlist.join("u2", "u2@example.com");
+        waitlist.join("u3", "u3@example.com");
+        waitlist.offer("s1", FIRST_SLOT, 1000L, HOLD_MILLIS);
+
+        Waitlist restored = Waitlist.fromFields(waitlist.toFields());
+
+        assertEquals(2, restored.size());
+        assertEquals(1, restored.position("u2"));
+        assertEquals(2, restored.position("u3"));
+        Hold hold = restored.holdOf("u1");
+        assertEquals("s1", hold.getSlotId());
+        assertEquals(FIRST_SLOT, hold.getSlotStartMillis());
+        assertEquals("u1@example.com", hold.getEmail());
+        assertEquals(1000L + HOLD_MILLIS, hold.getExpiresAtMillis());
+        assertEquals(0, Waitlist.fromFields(null).size());
+    }
+
+    // Thousands of cancels and racing claims, with holds expiring along the way: every slot ends
+    // up with at most one occupant, and no hold is ever claimed twice.
+    @Test
+    public void concurrentCancelsAndClaims_neverAllocateASlotTwice() throws Exception {
+        int slotCount = 20;
+        int waiting = 2000;
+        List<String> slotIds = new ArrayList<>();
+        for (int i = 0; i < slotCount; i++) {
+            slotIds.add(book(i, "owner" + i).getId());
+        }
+        for (int i = 0; i < waiting; i++) {
+            join("w" + i);
+        }
+
+        Set<String> claimers = ConcurrentHashMap.newKeySet();
+        AtomicInteger doubleClaims = new AtomicInteger();
+        AtomicInteger claims = new AtomicInteger();
+        AtomicInteger cancels = new AtomicInteger();
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            pool.execute(() -> {
+                Random random = new Random(seed);
+                try {
+                    for (int i = 0; i < 1000; i++) {
+                        String slotId = slotIds.get(random.nextInt(slotCount));
+                        InMemoryWaitlistStore.Slot slot = store.slots.get(slotId);
+                        if (random.nextInt(50) == 0) {
+                            now.addAndGet(HOLD_MILLIS / 2);
+                        }
+                        if (slot.booking != null) {
+                            engine.cancel(slot.booking, slot.booking.getUserId(), new CancelListener() {
+                                @Override
+                                public void onCancelled(Hold offeredTo) {
+                                    cancels.incrementAndGet();
+                                }
+                            });
+                        } else if (slot.hold != null) {
+                            engine.claim(slot.hold, "dr1", new ClaimListener() {
+                                @Override
+                                public void onClaimed(Appointment appointment) {
+                                    claims.incrementAndGet();
+                                    if (!claimers.add(appointment.getUserId())) {
+                                        doubleClaims.incrementAndGet();
+                                    }
+                                }
+                            });
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        assertEquals(0, doubleClaims.get());
+        assertTrue("expected thousands of events", cancels.get() + claims.get() > 1000);
+        Waitlist waitlist = store.waitlist("dr1", DAY);
+        Set<String> occupants = ConcurrentHashMap.newKeySet();
+        for (String slotId : slotIds) {
+            InMemoryWaitlistStore.Slot slot = store.slots.get(slotId);
+            assertFalse(slot.booking != null && slot.hold != null);
+            String occupant = slot.booking != null ? slot.booking.getUserId() : slot.hold != null ? slot.hold.getUserId() : null;
+            if (occupant != null) {
+                assertTrue("one slot per patient: " + occupant, occupants.add(occupant));
+                assertEquals(0, waitlist.position(occupant));
+            }
+            if (slot.hold != null) {
+                assertSame(slot.hold, waitlist.holdOf(slot.hold.getUserId()));
+            }
+        }
+        assertEquals(slotIds.size() - countFree(slotIds), occupants.size());
+        // The day summary followed every cancel and claim
+        List<Appointment> booked = new ArrayList<>();
+        for (String slotId : slotIds) {
+            if (store.slots.get(slotId).booking != null) {
+                booked.add(store.slots.get(slotId).booking);
+            }
+        }
+        DaySummaryTest.assertSummarizes(DaySummaryTest.startsOf(booked), store.summaries.fields("dr1", DAY));
+        for (Map.Entry<String, InMemoryWaitlistStore.Slot> entry : store.slots.entrySet()) {
+            Appointment booking = entry.getValue().booking;
+            if (booking != null && booking.getUserId().startsWith("w")) {
+                assertTrue(claimers.contains(booking.getUserId()));
+            }
+        }
+    }
+
+    private int countFree(List<String> slotIds) {
+        int free = 0;
+        for (String slotId : slotIds) {
+            InMemoryWaitlistStore.Slot slot = store.slots.get(slotId);
+            if (slot.booking == null && slot.hold == null) {
+                free++;
+            }
+        }
+        return free;
+    }
+
+    private Appointment book(int slot, String userId) {
+        long start = FIRST_SLOT + slot * SLOT_MILLIS;
+        Appointment appointment = new Appointment(SlotKeys.slotId("dr1", start, SLOT_MILLIS), userId,
+                userId + "@example.com", "dr1", start, DAY);
+        store.put(appointment);
+        return appointment;
+    }
+
+    private int join(String userId) {
+        AtomicInteger position = new AtomicInteger(-1);
+        engine.join("dr1", DAY, userId, userId + "@example.com", new WaitlistEngine.OnJoinListener() {
+            @Override
+            public void onJoined(int joinedAt) {
+                position.set(joinedAt);
+            }
+
+            @Override
+            public void onAlreadyWaiting() {
+                position.set(0);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        return position.get();
+    }
+
+    private Hold cancel(Appointment appointment, String userId) {
+        AtomicReference<Hold> offered = new AtomicReference<>();
+        AtomicInteger cancelled = new AtomicInteger();
+        engine.cancel(appointment, userId, new CancelListener() {
+            @Override
+            public void onCancelled(Hold offeredTo) {
+                cancelled.incrementAndGet();
+                offered.set(offeredTo);
+            }
+        });
+        assertEquals(1, cancelled.get());
+        return offered.get();
+    }
+
+    private Appointment claim(Hold hold) {
+        AtomicReference<Appointment> claimed = new AtomicReference<>();
+        engine.claim(hold, "dr1", new ClaimListener() {
+            @Override
+            public void onClaimed(Appointment appointment) {
+                claimed.set(appointment);
+            }
+        });
+        return claimed.get();
+    }
+
+    private static class CancelListener implements WaitlistEngine.OnCancelListener {
+        @Override
+        public void onCancelled(Hold offeredTo) {
+        }
+
+        @Override
+        public void onNotBooked() {
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static class ClaimListener implements WaitlistEngine.OnClaimListener {
+        @Override
+        public void onClaimed(Appointment appointment) {
+        }
+
+        @Override
+        public void onHoldLost() {
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static class DoneListener implements WaitlistEngine.OnDoneListener {
+        @Override
+        public void onDone() {
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.appointment.loadtest;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+// The Firebase Auth and Firestore emulators through their REST APIs, and conversion between
+// Firestore's typed JSON values and the plain values AppointmentSchema reads.
+// Requests block the calling thread, which is cheap on a virtual thread; at most maxConnections run at once.
+final class EmulatorRest {
+
+    private static final int AUTH_PORT = 9099;
+    private static final int FIRESTORE_PORT = 8080;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient http;
+    private final String host;
+    private final String projectId;
+    private final Semaphore connections;
+
+    EmulatorRest(String host, String projectId, int maxConnections) {
+        // HTTP/1.1, as the emulators do not speak cleartext HTTP/2
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(TIMEOUT)
+                .build();
+        this.host = host;
+        this.projectId = projectId;
+        this.connections = new Semaphore(maxConnections);
+    }
+
+    // Create an email/password account and return its user ID
+    String signUp(String email, String password) throws IOException {
+        JsonObject credentials = new JsonObject();
+        credentials.addProperty("email", email);
+        credentials.addProperty("password", password);
+        credentials.addProperty("returnSecureToken", true);
+        String url = "http://" + host + ":" + AUTH_PORT + "/identitytoolkit.googleapis.com/v1/accounts:signUp?key=loadtest";
+        return call("POST", url, credentials).get("localId").getAsString();
+    }
+
+    // Delete every document of the project
+    void clearDocuments() throws IOException {
+        call("DELETE", "http://" + host + ":" + FIRESTORE_PORT + "/emulator/v1/projects/" + projectId
+                + "/databases/(default)/documents", null);
+    }
+
+    // URL of the document or collection at path, or of the database's documents for an empty path
+    String documentsUrl(String path) {
+        String base = "http://" + host + ":" + FIRESTORE_PORT + "/v1/" + databaseName() + "/documents";
+        return path.isEmpty() ? base : base + "/" + path;
+    }
+
+    String documentName(String path) {
+        return databaseName() + "/documents/" + path;
+    }
+
+    static String query(String name, String value) {
+        return name + "=" + URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    // Send the request and return the response body; the emulator's error is thrown as a RestException
+    JsonObject call(String method, String url, JsonObject body) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(TIMEOUT)
+                // The emulators let the "owner" token bypass security rules
+                .header("Authorization", "Bearer owner");
+        if (body != null) {
+            request.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(body.toString()));
+        } else {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        }
+
+        HttpResponse<String> response;
+        connections.acquireUninterruptibly();
+        try {
+            response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted: " + method + " " + url, e);
+        } finally {
+            connections.release();
+        }
+        if (response.statusCode() >= 400) {
+            throw new RestException(method + " " + url, response.statusCode(), response.body());
+        }
+        String text = response.body();
+        return text.isEmpty() ? new JsonObject() : JsonParser.parseString(text).getAsJsonObject();
+    }
+
+    private String databaseName() {
+        return "projects/" + projectId + "/databases/(default)";
+    }
+
+    // Fields of a Firestore document as the types the Android SDK reads them as
+    static Map<String, Object> fieldsOf(JsonObject document) {
+        JsonObject fields = document.getAsJsonObject("fields");
+        return fields != null ? decodeMap(fields) : new LinkedHashMap<>();
+    }
+
+    // The document ID, i.e. the last segment of its name
+    static String idOf(JsonObject document) {
+        String name = document.get("name").getAsString();
+        return name.substring(name.lastIndexOf('/') + 1);
+    }
+
+    static JsonObject encode(Object value) {
+        JsonObject encoded = new JsonObject();
+        if (value == null) {
+            encoded.add("nullValue", null);
+        } else if (value instanceof String) {
+            encoded.addProperty("stringValue", (String) value);
+        } else if (value instanceof Boolean) {
+            encoded.addProperty("booleanValue", (Boolean) value);
+        } else if (value instanceof Long || value instanceof Integer) {
+            // 64-bit integers are sent as strings
+            encoded.addProperty("integerValue", value.toString());
+        } else if (value instanceof Number) {
+            encoded.addProperty("doubleValue", (Number) value);
+        } else if (value instanceof List) {
+            JsonArray values = new JsonArray();
+            for (Object element : (List<?>) value) {
+                values.add(encode(element));
+            }
+            JsonObject array = new JsonObject();
+            array.add("values", values);
+            encoded.add("arrayValue", array);
+        } else if (value instanceof Map) {
+            JsonObject fields = new JsonObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                fields.add(String.valueOf(entry.getKey()), encode(entry.getValue()));
+            }
+            JsonObject map = new JsonObject();
+            map.add("fields", fields);
+            encoded.add("mapValue", map);
+        } else {
+            throw new IllegalArgumentException("No Firestore value for " + value.getClass().getName());
+        }
+        return encoded;
+    }
+
+    // Fields map of the given values, for a write
+    static JsonObject encodeFields(Map<String, ?> values) {
+        JsonObject fields = new JsonObject();
+        for (Map.Entry<String, ?> entry : values.entrySet()) {
+            fields.add(entry.getKey(), encode(entry.getValue()));
+        }
+        return fields;
+    }
+
+    private static Object decode(JsonObject value) {
+        if (value.has("stringValue")) {
+            return value.get("stringValue").getAsString();
+        }
+        if (value.has("integerValue")) {
+            return Long.parseLong(value.get("integerValue").getAsString());
+        }
+        if (value.has("doubleValue")) {
+            return value.get("doubleValue").getAsDouble();
+        }
+        if (value.has("booleanValue")) {
+            return value.get("booleanValue").getAsBoolean();
+        }
+        if (value.has("timestampValue")) {
+            return Date.from(Instant.parse(value.get("timestampValue").getAsString()));
+        }
+        if (value.has("mapValue")) {
+            JsonObject fields = value.getAsJsonObject("mapValue").getAsJsonObject("fields");
+            return fields != null ? decodeMap(fields) : new LinkedHashMap<>();
+        }
+        if (value.has("arrayValue")) {
+            List<Object> list = new ArrayList<>();
+            JsonArray values = value.getAsJsonObject("arrayValue").getAsJsonArray("values");
+            if (values != null) {
+                for (JsonElement element : values) {
+                    list.add(decode(element.getAsJsonObject()));
+                }
+            }
+            return list;
+        }
+        // nullValue, and types the appointment documents never hold
+        return null;
+    }
+
+    private static Map<String, Object> decodeMap(JsonObject fields) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (Map.Entry<String, JsonElement> entry : fields.entrySet()) {
+            map.put(entry.getKey(), decode(entry.getValue().getAsJsonObject()));
+        }
+        return map;
+    }
+
+    // An error status from an emulator
+    static final class RestException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        RestException(String request, int status, String body) {
+            super(request + " failed with " + status + ": " + body);
+            this.status = status;
+        }
+
+        int getStatus() {
+            return status;
+        }
+
+        boolean isNotFound() {
+            return status == 404;
+        }
+
+        // The transaction lost to a concurrent one and may be retried
+        boolean isAborted() {
+            return status == 409;
+        }
+    }
+}
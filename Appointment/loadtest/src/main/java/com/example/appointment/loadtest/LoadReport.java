@@ -0,0 +1,114 @@
+package com.example.appointment.loadtest;
+
+import com.example.appointment.core.Appointment;
+import com.example.appointment.core.LatencyHistogram;
+import com.example.appointment.core.Metrics;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Outcomes of a load test run. Every confirmed booking is remembered by slot, so a slot confirmed to
+// two patients is a double booking; after the run the stored slots are checked against them, and a
+// confirmed booking that its slot does not hold is a lost one. Either means the create-if-absent
+// transaction let a concurrent booking through.
+final class LoadReport {
+
+    // Operations in the order the table lists them
+    private static final String[] OPERATIONS = {
+            "auth.signUp", "firestore.fetchDay", "firestore.createSlot", "patient.flow"};
+
+    private final Metrics metrics;
+    // doctorId/slotStartMillis -> user the booking was confirmed to
+    private final Map<String, String> confirmed = new ConcurrentHashMap<>();
+    private final AtomicLong booked = new AtomicLong();
+    private final AtomicLong turnedAway = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong doubleBookings = new AtomicLong();
+    private final AtomicLong lostBookings = new AtomicLong();
+    private final AtomicLong verified = new AtomicLong();
+    private volatile Exception firstFailure;
+
+    LoadReport(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    void booked(String doctorId, long slotStartMillis, String userId, int slotConflicts) {
+        booked.incrementAndGet();
+        conflicts.addAndGet(slotConflicts);
+        String earlier = confirmed.putIfAbsent(doctorId + "/" + slotStartMillis, userId);
+        if (earlier != null) {
+            doubleBookings.incrementAndGet();
+        }
+    }
+
+    void turnedAway(int slotConflicts) {
+        turnedAway.incrementAndGet();
+        conflicts.addAndGet(slotConflicts);
+    }
+
+    void failed(Exception e) {
+        if (failed.getAndIncrement() == 0) {
+            firstFailure = e;
+        }
+    }
+
+    // Check the stored appointments of one doctor-day against the bookings confirmed for it
+    void verifyDay(String doctorId, List<Appointment> stored) {
+        for (Appointment appointment : stored) {
+            String userId = confirmed.get(doctorId + "/" + appointment.getTimestamp());
+            if (userId == null) {
+                continue;
+            }
+            if (userId.equals(appointment.getUserId())) {
+                verified.incrementAndGet();
+            } else {
+                lostBookings.incrementAndGet();
+            }
+        }
+    }
+
+    // Confirmed bookings that no stored slot holds, once every doctor-day has been verified
+    private long missingBookings() {
+        return confirmed.size() - verified.get() - lostBookings.get();
+    }
+
+    boolean hasLostOrDoubleBookings() {
+        return doubleBookings.get() > 0 || lostBookings.get() > 0 || missingBookings() > 0;
+    }
+
+    void print(PrintStream out, int patients, long elapsedNanos, long transactionRetries) {
+        double seconds = elapsedNanos / 1e9;
+        out.printf(Locale.ROOT, "Finished in %.1f s: %.1f patients/s, %.1f bookings/s%n%n",
+                seconds, patients / seconds, booked.get() / seconds);
+
+        out.printf(Locale.ROOT, "%-22s %8s %7s %9s %9s %9s %9s%n", "operation", "count", "errors", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (String operation : OPERATIONS) {
+            LatencyHistogram histogram = metrics.histogram(operation);
+            out.printf(Locale.ROOT, "%-22s %8d %7d %9.1f %9.1f %9.1f %9.1f%n", operation, histogram.getCount(), histogram.getErrors(),
+                    histogram.percentileMicros(50) / 1000.0, histogram.percentileMicros(95) / 1000.0,
+                    histogram.percentileMicros(99) / 1000.0, histogram.getMaxMicros() / 1000.0);
+        }
+
+        long attempts = metrics.histogram("firestore.createSlot").getCount();
+        out.println();
+        out.printf(Locale.ROOT, "booked %d (%.1f%% of patients), turned away %d, failed %d%n",
+                booked.get(), percent(booked.get(), patients), turnedAway.get(), failed.get());
+        out.printf(Locale.ROOT, "conflicts %d of %d booking attempts (%.1f%%), transaction retries %d%n",
+                conflicts.get(), attempts, percent(conflicts.get(), attempts), transactionRetries);
+        out.printf(Locale.ROOT, "double bookings %d, lost bookings %d%n", doubleBookings.get(), lostBookings.get() + missingBookings());
+        if (firstFailure != null) {
+            out.println("first failure: " + firstFailure);
+        }
+        out.println();
+        out.println(metrics.toJson());
+    }
+
+    private static double percent(long part, long whole) {
+        return whole == 0 ? 0 : 100.0 * part / whole;
+    }
+}
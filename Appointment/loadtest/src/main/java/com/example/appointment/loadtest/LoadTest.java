@@ -0,0 +1,228 @@
+package com.example.appointment.loadtest;
+
+import com.example.appointment.core.Appointment;
+import com.example.appointment.core.AppointmentRepository;
+import com.example.appointment.core.BookingClient;
+import com.example.appointment.core.Clock;
+import com.example.appointment.core.DayKeys;
+import com.example.appointment.core.Doctor;
+import com.example.appointment.core.Metrics;
+import com.example.appointment.core.SlotRules;
+import com.example.appointment.core.SlotRulesSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Simulates a morning booking storm against the Firebase emulators: every patient, on a virtual thread
+// of their own, signs up, looks at a random doctor's day and books a free slot of it, picking another
+// when one is taken first, all starting at once. Then the stored slots are checked against the
+// confirmed bookings and a report of throughput, latency percentiles and conflicts is printed.
+// Exits with 1 if any slot was double booked, so a scaling regression fails the build that runs it.
+//
+// Start the emulators with `firebase emulators:start --only auth,firestore`, then e.g.
+//   ./gradlew :loadtest:run --args="--project demo-appointment --patients 5000"
+public final class LoadTest {
+
+    private static final String USAGE = "Options: --project <id> [--host localhost] [--patients 1000] [--doctors 10]"
+            + " [--days 3] [--attempts 5] [--connections 256] [--seed 1] [--keep-data]";
+    private static final String PASSWORD = "load-test-password";
+    // How far ahead to look for open days
+    private static final int MAX_DAYS_AHEAD = 60;
+
+    private final EmulatorRest rest;
+    private final Metrics metrics = new Metrics(System::nanoTime);
+    private final RestSlotStore slotStore;
+    private final BookingClient client;
+    private final LoadReport report = new LoadReport(metrics);
+    private final List<Doctor> doctors = new ArrayList<>();
+    private final List<Calendar> days;
+    private final int attempts;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    private LoadTest(EmulatorRest rest, int doctorCount, int dayCount, int attempts) {
+        this.rest = rest;
+        this.slotStore = new RestSlotStore(rest, metrics);
+        TimeZone timeZone = TimeZone.getDefault();
+        // The configured config/slotRules are not read; the emulator starts without them
+        this.client = new BookingClient(new RestAppointmentRepository(rest, timeZone, metrics), slotStore, timeZone,
+                SlotRulesSource.DEFAULT, Clock.SYSTEM);
+        for (int i = 0; i < doctorCount; i++) {
+            doctors.add(new Doctor("loadtest-" + i, "Load test " + i, null, 8 * 60, 18 * 60 + 30, 30));
+        }
+        this.days = openDays(doctors.get(0), dayCount, timeZone);
+        this.attempts = attempts;
+        metrics.setEnabled(true);
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = "localhost";
+        String projectId = null;
+        int patients = 1000;
+        int doctorCount = 10;
+        int dayCount = 3;
+        int attempts = 5;
+        int connections = 256;
+        long seed = 1;
+        boolean keepData = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host": host = value(args, ++i); break;
+                case "--project": projectId = value(args, ++i); break;
+                case "--patients": patients = positive(args, ++i); break;
+                case "--doctors": doctorCount = positive(args, ++i); break;
+                case "--days": dayCount = positive(args, ++i); break;
+                case "--attempts": attempts = positive(args, ++i); break;
+                case "--connections": connections = positive(args, ++i); break;
+                case "--seed": seed = Long.parseLong(value(args, ++i)); break;
+                case "--keep-data": keepData = true; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i] + ". " + USAGE);
+            }
+        }
+        if (projectId == null) {
+            throw new IllegalArgumentException("Pass the emulator's project ID. " + USAGE);
+        }
+
+        EmulatorRest rest = new EmulatorRest(host, projectId, connections);
+        if (!keepData) {
+            // Every run starts with free slots
+            rest.clearDocuments();
+        }
+        LoadTest test = new LoadTest(rest, doctorCount, dayCount, attempts);
+        System.out.printf("%d patients, %d doctors over %d days, %d connections%n", patients, doctorCount,
+                test.days.size(), connections);
+        long elapsedNanos = test.run(patients, seed);
+        test.verify();
+        test.report.print(System.out, patients, elapsedNanos, test.slotStore.getRetries());
+        if (test.report.hasLostOrDoubleBookings()) {
+            System.exit(1);
+        }
+    }
+
+    // Run every patient at once; returns how long it took until the last one finished
+    private long run(int patients, long seed) {
+        CountDownLatch start = new CountDownLatch(1);
+        long startNanos;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < patients; i++) {
+                int index = i;
+                Random random = new Random(seed * 31 + i);
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    patient(index, random);
+                });
+            }
+            startNanos = System.nanoTime();
+            start.countDown();
+            // Closing the executor waits for every patient
+        }
+        return System.nanoTime() - startNanos;
+    }
+
+    // Sign up, then book a free slot of a random doctor and day
+    private void patient(int index, Random random) {
+        Metrics.Span flow = metrics.start("patient.flow");
+        try {
+            String email = "patient" + index + "-" + runId + "@example.com";
+            String userId = signUp(email);
+            Doctor doctor = doctors.get(random.nextInt(doctors.size()));
+            Calendar day = (Calendar) days.get(random.nextInt(days.size())).clone();
+
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            client.bookAnyFree(doctor, day, userId, email, attempts, random, new BookingClient.OnAnyFreeListener() {
+                @Override
+                public void onBooked(String appointmentId, long slotStartMillis, int conflicts) {
+                    report.booked(doctor.getId(), slotStartMillis, userId, conflicts);
+                    done.complete(null);
+                }
+
+                @Override
+                public void onNoFreeSlot(int conflicts) {
+                    report.turnedAway(conflicts);
+                    done.complete(null);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    done.completeExceptionally(e);
+                }
+            });
+            done.join();
+            flow.end();
+        } catch (Exception e) {
+            flow.fail();
+            report.failed(e);
+        }
+    }
+
+    private String signUp(String email) throws IOException {
+        Metrics.Span span = metrics.start("auth.signUp");
+        try {
+            String userId = rest.signUp(email, PASSWORD);
+            span.end();
+            return userId;
+        } catch (IOException e) {
+            span.fail();
+            throw e;
+        }
+    }
+
+    // Check what every doctor-day holds now against the confirmed bookings
+    private void verify() {
+        for (Doctor doctor : doctors) {
+            for (Calendar day : days) {
+                client.listDay(doctor.getId(), DayKeys.dayKey(day), new AppointmentRepository.OnAppointmentsListener() {
+                    @Override
+                    public void onSuccess(List<Appointment> appointments) {
+                        report.verifyDay(doctor.getId(), appointments);
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        report.failed(e);
+                    }
+                });
+            }
+        }
+    }
+
+    // The first dayCount days from tomorrow on which the doctor has bookable slots
+    private static List<Calendar> openDays(Doctor doctor, int dayCount, TimeZone timeZone) {
+        List<Calendar> open = new ArrayList<>(dayCount);
+        Calendar day = Calendar.getInstance(timeZone);
+        long now = day.getTimeInMillis();
+        for (int ahead = 1; ahead <= MAX_DAYS_AHEAD && open.size() < dayCount; ahead++) {
+            day.add(Calendar.DAY_OF_MONTH, 1);
+            if (SlotRules.DEFAULT.bookableMask(doctor, day, now) != 0L) {
+                open.add((Calendar) day.clone());
+            }
+        }
+        return open;
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[i - 1] + ". " + USAGE);
+        }
+        return args[i];
+    }
+
+    private static int positive(String[] args, int i) {
+        int value = Integer.parseInt(value(args, i));
+        if (value <= 0) {
+            throw new IllegalArgumentException(args[i - 1] + " must be positive: " + value);
+        }
+        return value;
+    }
+}
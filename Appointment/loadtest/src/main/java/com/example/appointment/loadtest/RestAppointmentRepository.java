@@ -0,0 +1,61 @@
+package com.example.appointment.loadtest;
+
+import com.example.appointment.core.Appointment;
+import com.example.appointment.core.AppointmentPaths;
+import com.example.appointment.core.AppointmentRepository;
+import com.example.appointment.core.AppointmentSchema;
+import com.example.appointment.core.Metrics;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+// AppointmentRepository over the Firestore emulator's REST API. Like the app's day views, slots held
+// for someone or under an unexpired lease count as taken. Listeners are called on the calling thread.
+final class RestAppointmentRepository implements AppointmentRepository {
+
+    // A day has at most 64 slots, so one page holds every document of it
+    private static final int PAGE_SIZE = 100;
+
+    private final EmulatorRest rest;
+    private final TimeZone timeZone;
+    private final Metrics metrics;
+
+    RestAppointmentRepository(EmulatorRest rest, TimeZone timeZone, Metrics metrics) {
+        this.rest = rest;
+        this.timeZone = timeZone;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void fetchDay(String doctorId, int dayKey, OnAppointmentsListener listener) {
+        Metrics.Span span = metrics.start("firestore.fetchDay");
+        List<Appointment> appointments = new ArrayList<>();
+        try {
+            JsonObject page = rest.call("GET", rest.documentsUrl(AppointmentPaths.dayAppointments(doctorId, dayKey))
+                    + "?pageSize=" + PAGE_SIZE, null);
+            JsonArray documents = page.getAsJsonArray("documents");
+            if (documents != null) {
+                long now = System.currentTimeMillis();
+                for (JsonElement element : documents) {
+                    JsonObject document = element.getAsJsonObject();
+                    Appointment appointment = AppointmentSchema.occupantFromFields(EmulatorRest.idOf(document),
+                            EmulatorRest.fieldsOf(document), timeZone, now);
+                    if (appointment != null) {
+                        appointments.add(appointment);
+                    }
+                }
+            }
+            span.end();
+        } catch (IOException | RuntimeException e) {
+            span.fail();
+            listener.onFailure(e);
+            return;
+        }
+        listener.onSuccess(appointments);
+    }
+}
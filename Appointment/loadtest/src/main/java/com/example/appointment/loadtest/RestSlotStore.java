@@ -0,0 +1,336 @@
+package com.example.appointment.loadtest;
+
+import com.example.appointment.core.Appointment;
+import com.example.appointment.core.AppointmentSchema;
+import com.example.appointment.core.DaySummary;
+import com.example.appointment.core.Metrics;
+import com.example.appointment.core.SlotStore;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// SlotStore over the Firestore emulator's REST API with the same transactions as the app's
+// FirestoreSlotStore: read the slot, write it only if it is free, and mark it in the day summary.
+// A transaction that loses to a concurrent one is retried like the client SDKs do; each retry is
+// counted, as it shows how hot the contended slots and day documents are.
+// Listeners are called on the calling thread before the method returns.
+final class RestSlotStore implements SlotStore {
+
+    // As many attempts as the client SDKs make
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF_MILLIS = 10;
+
+    private final EmulatorRest rest;
+    private final Metrics metrics;
+    private final AtomicLong retries = new AtomicLong();
+
+    RestSlotStore(EmulatorRest rest, Metrics metrics) {
+        this.rest = rest;
+        this.metrics = metrics;
+    }
+
+    // Transactions started again after aborting on contention
+    long getRetries() {
+        return retries.get();
+    }
+
+    @Override
+    public void createIfAbsent(String documentPath, Appointment appointment, String bookingKey, OnCreateListener listener) {
+        Metrics.Span span = metrics.start("firestore.createSlot");
+        boolean created;
+        try {
+            created = runTransaction((transaction, writes) -> {
+                Map<String, Object> slot = get(documentPath, transaction);
+                if (AppointmentSchema.isBookedWith(slot, bookingKey)) {
+                    // An earlier attempt of this booking went through; its result was lost
+                    return true;
+                }
+                if (!AppointmentSchema.isFreeFor(slot, appointment.getUserId(), System.currentTimeMillis())) {
+                    return false;
+                }
+                writes.add(slotWrite(documentPath, appointment, bookingKey, slot));
+                writes.add(summaryWrite(dayPath(documentPath), single(appointment.getTimestamp())));
+                return true;
+            });
+            span.end();
+        } catch (IOException e) {
+            span.fail();
+            listener.onFailure(e);
+            return;
+        }
+        if (created) {
+            listener.onCreated();
+        } else {
+            listener.onAlreadyExists();
+        }
+    }
+
+    @Override
+    public void createAllIfAbsent(Map<String, Appointment> appointments, OnCreateAllListener listener) {
+        Metrics.Span span = metrics.start("firestore.createSeries");
+        Set<String> existingPaths;
+        try {
+            // All reads happen before any write, so the transaction either creates every slot or none
+            existingPaths = runTransaction((transaction, writes) -> {
+                Set<String> taken = new LinkedHashSet<>();
+                Map<String, Map<String, Object>> slots = new HashMap<>();
+                for (Map.Entry<String, Appointment> entry : appointments.entrySet()) {
+                    Map<String, Object> slot = get(entry.getKey(), transaction);
+                    slots.put(entry.getKey(), slot);
+                    if (!AppointmentSchema.isFreeFor(slot, entry.getValue().getUserId(), System.currentTimeMillis())) {
+                        taken.add(entry.getKey());
+                    }
+                }
+                if (!taken.isEmpty()) {
+                    return taken;
+                }
+                Map<String, Map<String, Object>> bookedByDay = new LinkedHashMap<>();
+                for (Map.Entry<String, Appointment> entry : appointments.entrySet()) {
+                    writes.add(slotWrite(entry.getKey(), entry.getValue(), null, slots.get(entry.getKey())));
+                    bookedByDay.computeIfAbsent(dayPath(entry.getKey()), day -> new HashMap<>())
+                            .put(DaySummary.bookedKey(entry.getValue().getTimestamp()), Boolean.TRUE);
+                }
+                for (Map.Entry<String, Map<String, Object>> day : bookedByDay.entrySet()) {
+                    writes.add(summaryWrite(day.getKey(), day.getValue()));
+                }
+                return taken;
+            });
+            span.end();
+        } catch (IOException e) {
+            span.fail();
+            listener.onFailure(e);
+            return;
+        }
+        if (existingPaths.isEmpty()) {
+            listener.onCreated();
+        } else {
+            listener.onAlreadyExist(existingPaths);
+        }
+    }
+
+    @Override
+    public void lease(String documentPath, Appointment slot, long expiresAtMillis, OnCreateListener listener) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put(AppointmentSchema.FIELD_STATUS, AppointmentSchema.STATUS_LEASED);
+        fields.put(AppointmentSchema.FIELD_LEASED_BY, slot.getUserId());
+        fields.put(AppointmentSchema.FIELD_LEASE_EXPIRES_AT, expiresAtMillis);
+        fields.put(AppointmentSchema.FIELD_DOCTOR_ID, slot.getDoctorId());
+        fields.put(AppointmentSchema.FIELD_TIMESTAMP, slot.getTimestamp());
+        fields.put(AppointmentSchema.FIELD_DAY_KEY, slot.getDayKey());
+
+        Metrics.Span span = metrics.start("firestore.leaseSlot");
+        boolean leased;
+        try {
+            // Merged, so a cancelled slot keeps its userId and the participants its cancellation is synced to
+            leased = runTransaction((transaction, writes) -> {
+                if (!AppointmentSchema.isFreeFor(get(documentPath, transaction), slot.getUserId(), System.currentTimeMillis())) {
+                    return false;
+                }
+                JsonObject write = mergeWrite(documentPath, fields, new ArrayList<>(fields.keySet()));
+                write.add("updateTransforms", serverTimestamp(AppointmentSchema.FIELD_UPDATED_AT));
+                writes.add(write);
+                return true;
+            });
+            span.end();
+        } catch (IOException e) {
+            span.fail();
+            listener.onFailure(e);
+            return;
+        }
+        if (leased) {
+            listener.onCreated();
+        } else {
+            listener.onAlreadyExists();
+        }
+    }
+
+    @Override
+    public void release(String documentPath, String userId) {
+        try {
+            runTransaction((transaction, writes) -> {
+                Map<String, Object> slot = get(documentPath, transaction);
+                if (slot == null || !AppointmentSchema.STATUS_LEASED.equals(slot.get(AppointmentSchema.FIELD_STATUS))
+                        || !userId.equals(slot.get(AppointmentSchema.FIELD_LEASED_BY))) {
+                    return null;
+                }
+                if (slot.containsKey(AppointmentSchema.FIELD_USER_ID)) {
+                    // A cancelled slot goes back to being cancelled; masked fields left out are deleted
+                    Map<String, Object> fields = new HashMap<>();
+                    fields.put(AppointmentSchema.FIELD_STATUS, AppointmentSchema.STATUS_CANCELLED);
+                    writes.add(mergeWrite(documentPath, fields, List.of(AppointmentSchema.FIELD_STATUS,
+                            AppointmentSchema.FIELD_LEASED_BY, AppointmentSchema.FIELD_LEASE_EXPIRES_AT)));
+                } else {
+                    JsonObject delete = new JsonObject();
+                    delete.addProperty("delete", rest.documentName(documentPath));
+                    writes.add(delete);
+                }
+                return null;
+            });
+        } catch (IOException e) {
+            // Best effort: leases expire anyway
+        }
+    }
+
+    // Run body in a transaction and commit the writes it adds, or roll back if it adds none.
+    // Started again with backoff when Firestore aborts it for a concurrent one, up to MAX_ATTEMPTS times.
+    private <T> T runTransaction(TransactionBody<T> body) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            String transaction = rest.call("POST", rest.documentsUrl("") + ":beginTransaction", new JsonObject())
+                    .get("transaction").getAsString();
+            JsonObject request = new JsonObject();
+            request.addProperty("transaction", transaction);
+            try {
+                List<JsonObject> writes = new ArrayList<>();
+                T result = body.run(transaction, writes);
+                if (writes.isEmpty()) {
+                    // Releases the emulator's locks on the documents read
+                    rest.call("POST", rest.documentsUrl("") + ":rollback", request);
+                } else {
+                    JsonArray commit = new JsonArray();
+                    writes.forEach(commit::add);
+                    request.add("writes", commit);
+                    rest.call("POST", rest.documentsUrl("") + ":commit", request);
+                }
+                return result;
+            } catch (EmulatorRest.RestException e) {
+                if (!e.isAborted()) {
+                    rollbackQuietly(request);
+                    throw e;
+                }
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                retries.incrementAndGet();
+                sleep(ThreadLocalRandom.current().nextLong(BASE_BACKOFF_MILLIS << attempt));
+            }
+        }
+    }
+
+    // Best effort, so a failed transaction does not hold its locks until they time out
+    private void rollbackQuietly(JsonObject request) {
+        try {
+            rest.call("POST", rest.documentsUrl("") + ":rollback", request);
+        } catch (IOException e) {
+            // Already over, or the emulator is gone
+        }
+    }
+
+    // The document's fields as read in the transaction, or null if it does not exist
+    private Map<String, Object> get(String documentPath, String transaction) throws IOException {
+        try {
+            JsonObject document = rest.call("GET", rest.documentsUrl(documentPath) + "?"
+                    + EmulatorRest.query("transaction", transaction), null);
+            return EmulatorRest.fieldsOf(document);
+        } catch (EmulatorRest.RestException e) {
+            if (e.isNotFound()) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    // Set the slot document to the appointment, as FirestoreSlotStore writes an AppointmentDocument;
+    // stored holds the slot's fields as read in the transaction, or null if there is no document
+    private JsonObject slotWrite(String documentPath, Appointment appointment, String bookingKey, Map<String, Object> stored) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put(AppointmentSchema.FIELD_USER_ID, appointment.getUserId());
+        fields.put(AppointmentSchema.FIELD_EMAIL, appointment.getEmail());
+        fields.put(AppointmentSchema.FIELD_DOCTOR_ID, appointment.getDoctorId());
+        fields.put(AppointmentSchema.FIELD_TIMESTAMP, appointment.getTimestamp());
+        fields.put(AppointmentSchema.FIELD_DAY_KEY, appointment.getDayKey());
+        fields.put(AppointmentSchema.FIELD_SERIES_ID, appointment.getSeriesId());
+        fields.put(AppointmentSchema.FIELD_PARTICIPANTS, AppointmentSchema.participantsAfter(stored, appointment.getUserId()));
+        fields.put(AppointmentSchema.FIELD_BOOKING_KEY, bookingKey);
+
+        JsonObject document = new JsonObject();
+        document.addProperty("name", rest.documentName(documentPath));
+        document.add("fields", EmulatorRest.encodeFields(fields));
+        JsonObject write = new JsonObject();
+        write.add("update", document);
+        write.add("updateTransforms", serverTimestamp(AppointmentSchema.FIELD_UPDATED_AT));
+        return write;
+    }
+
+    // Mark the slots booked in the day's summary without reading it, like DaySummaryWrites
+    private JsonObject summaryWrite(String dayPath, Map<String, Object> booked) {
+        List<String> mask = new ArrayList<>();
+        for (String key : booked.keySet()) {
+            // Keys are digits, which a field path has to quote
+            mask.add(DaySummary.FIELD_BOOKED + ".`" + key + "`");
+        }
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(DaySummary.FIELD_BOOKED, booked);
+        JsonObject write = mergeWrite(dayPath, fields, mask);
+
+        JsonObject increment = new JsonObject();
+        increment.addProperty("fieldPath", DaySummary.FIELD_BOOKED_COUNT);
+        increment.add("increment", EmulatorRest.encode((long) booked.size()));
+        JsonArray transforms = new JsonArray();
+        transforms.add(increment);
+        write.add("updateTransforms", transforms);
+        return write;
+    }
+
+    // Update only the masked fields, creating the document if needed; masked fields not given are deleted
+    private JsonObject mergeWrite(String documentPath, Map<String, Object> fields, List<String> mask) {
+        JsonObject document = new JsonObject();
+        document.addProperty("name", rest.documentName(documentPath));
+        document.add("fields", EmulatorRest.encodeFields(fields));
+        JsonArray fieldPaths = new JsonArray();
+        for (String fieldPath : mask) {
+            fieldPaths.add(fieldPath);
+        }
+        JsonObject updateMask = new JsonObject();
+        updateMask.add("fieldPaths", fieldPaths);
+
+        JsonObject write = new JsonObject();
+        write.add("update", document);
+        write.add("updateMask", updateMask);
+        return write;
+    }
+
+    private static JsonArray serverTimestamp(String fieldPath) {
+        JsonObject transform = new JsonObject();
+        transform.addProperty("fieldPath", fieldPath);
+        transform.addProperty("setToServerValue", "REQUEST_TIME");
+        JsonArray transforms = new JsonArray();
+        transforms.add(transform);
+        return transforms;
+    }
+
+    private static Map<String, Object> single(long slotStartMillis) {
+        Map<String, Object> booked = new HashMap<>();
+        booked.put(DaySummary.bookedKey(slotStartMillis), Boolean.TRUE);
+        return booked;
+    }
+
+    // doctors/{doctorId}/days/{dayKey}/appointments/{slotId} -> doctors/{doctorId}/days/{dayKey}
+    private static String dayPath(String slotPath) {
+        String appointments = slotPath.substring(0, slotPath.lastIndexOf('/'));
+        return appointments.substring(0, appointments.lastIndexOf('/'));
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while backing off", e);
+        }
+    }
+
+    private interface TransactionBody<T> {
+        // Read through the transaction and add the writes to commit; none rolls it back
+        T run(String transaction, List<JsonObject> writes) throws IOException;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.appointment.macrobenchmark;
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.regex.Pattern;
+
+import kotlin.Unit;
+
+// Records the startup path into a Baseline Profile. Copy the generated file over
+// app/src/main/baseline-prof.txt. Sign in on the device first so the profile covers MainActivity.
+// Run with: ./gradlew :macrobenchmark:connectedBenchmarkAndroidTest
+//     -Pandroid.testInstrumentationRunnerArguments.class=com.example.appointment.macrobenchmark.BaselineProfileGenerator
+@RunWith(AndroidJUnit4.class)
+public class BaselineProfileGenerator {
+
+    private static final long TIMEOUT_MILLIS = 5_000;
+    private static final Pattern FIRST_SCREEN = Pattern.compile(StartupBenchmark.PACKAGE_NAME + ":id/(datePickerButton|login_button)");
+
+    @Rule
+    public BaselineProfileRule baselineProfileRule = new BaselineProfileRule();
+
+    @Test
+    public void startup() {
+        baselineProfileRule.collect(StartupBenchmark.PACKAGE_NAME, scope -> {
+            scope.pressHome();
+            scope.startActivityAndWait();
+
+            // Wait for whichever screen the launcher routed to
+            scope.getDevice().wait(Until.hasObject(By.res(FIRST_SCREEN)), TIMEOUT_MILLIS);
+            return Unit.INSTANCE;
+        });
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.appointment.macrobenchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import kotlin.Unit;
+
+// Open app -> pick date -> list slots -> confirm, against the Firebase emulators.
+// Run with: ./gradlew :macrobenchmark:connectedBenchmarkAndroidTest -Pfirebase.emulator.host=10.0.2.2
+//     -Pandroid.testInstrumentationRunnerArguments.firebaseProjectId=<id>
+// Results are written as JSON to macrobenchmark/build/outputs/connected_android_test_additional_output.
+@RunWith(AndroidJUnit4.class)
+public class BookingJourneyBenchmark {
+
+    private static final int ITERATIONS = 5;
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    private EmulatorBackend backend;
+
+    @Before
+    public void setUp() throws Exception {
+        backend = EmulatorBackend.fromArguments();
+        backend.createUser();
+    }
+
+    @Test
+    public void bookSlot() {
+        benchmarkRule.measureRepeated(
+                StartupBenchmark.PACKAGE_NAME,
+                Arrays.asList(new StartupTimingMetric(), new FrameTimingMetric()),
+                new CompilationMode.Partial(BaselineProfileMode.Require, 0),
+                StartupMode.COLD,
+                ITERATIONS,
+                scope -> {
+                    // Every iteration books the same slot, so start from an empty database
+                    try {
+                        backend.clearDocuments();
+                    } catch (Exception e) {
+                        throw new IllegalStateException("Firebase emulator not reachable", e);
+                    }
+                    scope.pressHome();
+                    scope.startActivityAndWait();
+                    Journeys.signInIfNeeded(scope);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    UiDevice device = scope.getDevice();
+                    scope.startActivityAndWait();
+
+                    Journeys.waitFor(device, "datePickerButton").click();
+                    Journeys.pickDateNextMonth(device);
+
+                    Journeys.waitFor(device, "timePickerButton").click();
+                    UiObject2 firstSlot = device.wait(Until.findObject(By.res("android", "text1")), Journeys.TIMEOUT_MILLIS);
+                    firstSlot.click();
+
+                    Journeys.waitFor(device, "confirmButton").click();
+                    device.waitForIdle();
+                    return Unit.INSTANCE;
+                });
+    }
+}
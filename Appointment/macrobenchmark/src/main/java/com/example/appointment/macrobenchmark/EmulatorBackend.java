@@ -0,0 +1,200 @@
+package com.example.appointment.macrobenchmark;
+
+import android.os.Bundle;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.appointment.core.AppointmentPaths;
+import com.example.appointment.core.DayKeys;
+import com.example.appointment.core.Doctor;
+import com.example.appointment.core.SlotGrid;
+import com.example.appointment.core.SlotKeys;
+import com.example.appointment.core.SlotRules;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+
+// Prepares the Firebase emulators the benchmark build talks to, through their REST APIs.
+// Start them with `firebase emulators:start --only auth,firestore` and pass the app's project ID:
+//   -Pandroid.testInstrumentationRunnerArguments.firebaseProjectId=<id>
+// The host defaults to 10.0.2.2, the development machine as seen from an Android emulator.
+final class EmulatorBackend {
+
+    static final String EMAIL = "benchmark@example.com";
+    static final String PASSWORD = "benchmark-password";
+
+    private static final int AUTH_PORT = 9099;
+    private static final int FIRESTORE_PORT = 8080;
+    // Firestore accepts at most 500 writes per commit
+    private static final int WRITES_PER_COMMIT = 500;
+
+    private final String host;
+    private final String projectId;
+
+    private EmulatorBackend(String host, String projectId) {
+        this.host = host;
+        this.projectId = projectId;
+    }
+
+    static EmulatorBackend fromArguments() {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        String projectId = arguments.getString("firebaseProjectId");
+        if (projectId == null) {
+            throw new IllegalStateException("Pass the Firebase project ID as the firebaseProjectId instrumentation argument");
+        }
+        return new EmulatorBackend(arguments.getString("firebaseEmulatorHost", "10.0.2.2"), projectId);
+    }
+
+    // Create the benchmark user, or sign in if it exists already; returns its user ID
+    String createUser() throws IOException, JSONException {
+        JSONObject credentials = new JSONObject()
+                .put("email", EMAIL)
+                .put("password", PASSWORD)
+                .put("returnSecureToken", true);
+        String accounts = "http://" + host + ":" + AUTH_PORT + "/identitytoolkit.googleapis.com/v1/accounts:";
+        try {
+            return new JSONObject(request("POST", accounts + "signUp?key=benchmark", credentials.toString())).getString("localId");
+        } catch (IOException e) {
+            // EMAIL_EXISTS
+            return new JSONObject(request("POST", accounts + "signInWithPassword?key=benchmark", credentials.toString())).getString("localId");
+        }
+    }
+
+    // Delete every document, so each run starts with free slots
+    void clearDocuments() throws IOException {
+        request("DELETE", firestoreUrl("/emulator/v1/projects/" + projectId + "/databases/(default)/documents"), null);
+    }
+
+    // Store count appointments of the default doctor for the user, half of them in the past
+    void seedHistory(String userId, int count) throws IOException, JSONException {
+        SlotGrid slotGrid = Doctor.DEFAULT.getSlotGrid();
+        int perDay = slotGrid.getSlotCount();
+        Calendar day = Calendar.getInstance();
+        day.add(Calendar.DAY_OF_MONTH, -count / perDay / 2);
+
+        JSONArray writes = new JSONArray();
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && i % perDay == 0) {
+                day.add(Calendar.DAY_OF_MONTH, 1);
+            }
+            writes.put(appointmentWrite(userId, day, slotGrid.slotStartMillis(slotGrid.firstSlotMillis(day), i % perDay)));
+            if (writes.length() == WRITES_PER_COMMIT || i == count - 1) {
+                commit(writes);
+                writes = new JSONArray();
+            }
+        }
+    }
+
+    // Book about percent of the default doctor's open slots for the user, from the start of this
+    // month through the given number of months, so the month calendar has every shade to draw
+    void seedBusyMonths(String userId, int months, int percent) throws IOException, JSONException {
+        SlotGrid slotGrid = Doctor.DEFAULT.getSlotGrid();
+        Calendar day = Calendar.getInstance();
+        day.set(Calendar.DAY_OF_MONTH, 1);
+        Calendar end = (Calendar) day.clone();
+        end.add(Calendar.MONTH, months);
+
+        JSONArray writes = new JSONArray();
+        int slot = 0;
+        for (; day.before(end); day.add(Calendar.DAY_OF_MONTH, 1)) {
+            long open = SlotRules.DEFAULT.openMask(Doctor.DEFAULT, day);
+            for (long remaining = open; remaining != 0; remaining &= remaining - 1) {
+                // Spread the bookings so days get different shares of them
+                if (slot++ * 37 % 100 >= percent) {
+                    continue;
+                }
+                int index = Long.numberOfTrailingZeros(remaining);
+                writes.put(appointmentWrite(userId, day, slotGrid.slotStartMillis(slotGrid.firstSlotMillis(day), index)));
+                if (writes.length() == WRITES_PER_COMMIT) {
+                    commit(writes);
+                    writes = new JSONArray();
+                }
+            }
+        }
+        if (writes.length() > 0) {
+            commit(writes);
+        }
+    }
+
+    private JSONObject appointmentWrite(String userId, Calendar day, long timestamp) throws JSONException {
+        SlotGrid slotGrid = Doctor.DEFAULT.getSlotGrid();
+        int dayKey = DayKeys.dayKey(day);
+        String slotId = SlotKeys.slotId(Doctor.DEFAULT.getId(), timestamp, slotGrid.getSlotMillis());
+
+        JSONObject fields = new JSONObject()
+                .put("userId", new JSONObject().put("stringValue", userId))
+                // The app's sync queries appointments by participant
+                .put("participants", new JSONObject().put("arrayValue", new JSONObject()
+                        .put("values", new JSONArray().put(new JSONObject().put("stringValue", userId)))))
+                .put("email", new JSONObject().put("stringValue", EMAIL))
+                .put("doctorId", new JSONObject().put("stringValue", Doctor.DEFAULT.getId()))
+                .put("timestamp", new JSONObject().put("integerValue", String.valueOf(timestamp)))
+                .put("dayKey", new JSONObject().put("integerValue", String.valueOf(dayKey)));
+        return new JSONObject()
+                .put("update", new JSONObject()
+                        .put("name", documentName(AppointmentPaths.appointment(Doctor.DEFAULT.getId(), dayKey, slotId)))
+                        .put("fields", fields))
+                .put("updateTransforms", new JSONArray().put(new JSONObject()
+                        .put("fieldPath", "updatedAt")
+                        .put("setToServerValue", "REQUEST_TIME")));
+    }
+
+    private void commit(JSONArray writes) throws IOException, JSONException {
+        String commit = firestoreUrl("/v1/projects/" + projectId + "/databases/(default)/documents:commit");
+        request("POST", commit, new JSONObject().put("writes", writes).toString());
+    }
+
+    private String documentName(String path) {
+        return "projects/" + projectId + "/databases/(default)/documents/" + path;
+    }
+
+    private String firestoreUrl(String path) {
+        return "http://" + host + ":" + FIRESTORE_PORT + path;
+    }
+
+    private static String request(String method, String url, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setRequestMethod(method);
+            // The emulator lets the "owner" token bypass security rules
+            connection.setRequestProperty("Authorization", "Bearer owner");
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream output = connection.getOutputStream()) {
+                    output.write(body.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            int status = connection.getResponseCode();
+            InputStream input = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            String response = input != null ? readFully(input) : "";
+            if (status >= 400) {
+                throw new IOException(method + " " + url + " failed with " + status + ": " + response);
+            }
+            return response;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static String readFully(InputStream input) throws IOException {
+        try (InputStream in = input) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                output.write(buffer, 0, read);
+            }
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.appointment.macrobenchmark;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import java.util.Calendar;
+
+// UI steps shared by the macrobenchmark journeys
+final class Journeys {
+
+    static final long TIMEOUT_MILLIS = 10_000;
+
+    private Journeys() {
+    }
+
+    // Sign in with the benchmark user if the app opened the login screen
+    static void signInIfNeeded(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        if (!device.wait(Until.hasObject(By.res(StartupBenchmark.PACKAGE_NAME, "login_button")), 2_000)) {
+            return;
+        }
+        device.findObject(By.res(StartupBenchmark.PACKAGE_NAME, "login_username")).setText(EmulatorBackend.EMAIL);
+        device.findObject(By.res(StartupBenchmark.PACKAGE_NAME, "login_password")).setText(EmulatorBackend.PASSWORD);
+        device.findObject(By.res(StartupBenchmark.PACKAGE_NAME, "login_button")).click();
+        waitFor(device, "datePickerButton");
+    }
+
+    static UiObject2 waitFor(UiDevice device, String id) {
+        UiObject2 view = device.wait(Until.findObject(By.res(StartupBenchmark.PACKAGE_NAME, id)), TIMEOUT_MILLIS);
+        if (view == null) {
+            throw new AssertionError("View " + id + " did not appear");
+        }
+        return view;
+    }
+
+    // Pick the first weekday from the 10th of next month in the open DatePickerDialog
+    static void pickDateNextMonth(UiDevice device) {
+        Calendar date = Calendar.getInstance();
+        date.add(Calendar.MONTH, 1);
+        date.set(Calendar.DAY_OF_MONTH, 10);
+        while (date.get(Calendar.DAY_OF_WEEK) == Calendar.SATURDAY || date.get(Calendar.DAY_OF_WEEK) == Calendar.SUNDAY) {
+            date.add(Calendar.DAY_OF_MONTH, 1);
+        }
+
+        device.wait(Until.findObject(By.res("android", "next")), TIMEOUT_MILLIS).click();
+        device.waitForIdle();
+        device.wait(Until.findObject(By.text(String.valueOf(date.get(Calendar.DAY_OF_MONTH)))), TIMEOUT_MILLIS).click();
+        device.findObject(By.res("android", "button1")).click();
+    }
+}
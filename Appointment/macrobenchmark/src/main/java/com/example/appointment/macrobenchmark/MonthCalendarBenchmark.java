@@ -0,0 +1,71 @@
+package com.example.appointment.macrobenchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.uiautomator.Direction;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import kotlin.Unit;
+
+// Open the month calendar with three busy months booked and fling through the months, against the
+// Firebase emulators. Run like BookingJourneyBenchmark.
+@RunWith(AndroidJUnit4.class)
+public class MonthCalendarBenchmark {
+
+    private static final int BUSY_MONTHS = 3;
+    private static final int BUSY_PERCENT = 70;
+    private static final int ITERATIONS = 5;
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    @Before
+    public void setUp() throws Exception {
+        EmulatorBackend backend = EmulatorBackend.fromArguments();
+        String userId = backend.createUser();
+        backend.clearDocuments();
+        backend.seedBusyMonths(userId, BUSY_MONTHS, BUSY_PERCENT);
+    }
+
+    @Test
+    public void openAndScroll() {
+        benchmarkRule.measureRepeated(
+                StartupBenchmark.PACKAGE_NAME,
+                Collections.singletonList(new FrameTimingMetric()),
+                new CompilationMode.Partial(BaselineProfileMode.Require, 0),
+                StartupMode.WARM,
+                ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    scope.startActivityAndWait();
+                    Journeys.signInIfNeeded(scope);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    UiDevice device = scope.getDevice();
+                    Journeys.waitFor(device, "monthViewButton").click();
+                    UiObject2 months = Journeys.waitFor(device, "monthRecyclerView");
+                    device.waitForIdle();
+
+                    // Leave some margin so the fling does not open the notification shade
+                    months.setGestureMargin(device.getDisplayWidth() / 5);
+                    for (int i = 0; i < 3; i++) {
+                        months.fling(Direction.DOWN);
+                    }
+                    device.waitForIdle();
+                    return Unit.INSTANCE;
+                });
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.appointment.macrobenchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.uiautomator.Direction;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import kotlin.Unit;
+
+// Open My Appointments with a 5k appointment history and scroll it, against the Firebase emulators.
+// Run like BookingJourneyBenchmark.
+@RunWith(AndroidJUnit4.class)
+public class MyAppointmentsBenchmark {
+
+    private static final int HISTORY_SIZE = 5_000;
+    private static final int ITERATIONS = 5;
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    private boolean synced;
+
+    @Before
+    public void setUp() throws Exception {
+        EmulatorBackend backend = EmulatorBackend.fromArguments();
+        String userId = backend.createUser();
+        backend.clearDocuments();
+        backend.seedHistory(userId, HISTORY_SIZE);
+    }
+
+    @Test
+    public void openAndScroll() {
+        benchmarkRule.measureRepeated(
+                StartupBenchmark.PACKAGE_NAME,
+                Collections.singletonList(new FrameTimingMetric()),
+                new CompilationMode.Partial(BaselineProfileMode.Require, 0),
+                StartupMode.WARM,
+                ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    scope.startActivityAndWait();
+                    Journeys.signInIfNeeded(scope);
+                    if (!synced) {
+                        // The first visit downloads the whole history; measure the visits after it
+                        Journeys.waitFor(scope.getDevice(), "btnAppointment").click();
+                        Journeys.waitFor(scope.getDevice(), "appointmentsRecyclerView");
+                        scope.getDevice().waitForIdle(Journeys.TIMEOUT_MILLIS);
+                        scope.getDevice().pressBack();
+                        synced = true;
+                    }
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    UiDevice device = scope.getDevice();
+                    Journeys.waitFor(device, "btnAppointment").click();
+                    UiObject2 list = Journeys.waitFor(device, "appointmentsRecyclerView");
+                    device.waitForIdle();
+
+                    // Leave some margin so the fling does not open the notification shade
+                    list.setGestureMargin(device.getDisplayWidth() / 5);
+                    for (int i = 0; i < 3; i++) {
+                        list.fling(Direction.DOWN);
+                    }
+                    device.waitForIdle();
+                    return Unit.INSTANCE;
+                });
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.appointment.macrobenchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import kotlin.Unit;
+
+// Cold and warm start of the launcher activity, without ahead-of-time compilation (as after a
+// fresh install without profiles) and with the shipped Baseline Profile.
+// Run with: ./gradlew :macrobenchmark:connectedBenchmarkAndroidTest
+// The device decides the route: signed in it opens MainActivity, otherwise LoginActivity.
+@RunWith(Parameterized.class)
+public class StartupBenchmark {
+
+    static final String PACKAGE_NAME = "com.example.appointment";
+    private static final int ITERATIONS = 10;
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    private final StartupMode startupMode;
+    private final CompilationMode compilationMode;
+
+    public StartupBenchmark(String name, StartupMode startupMode, CompilationMode compilationMode) {
+        this.startupMode = startupMode;
+        this.compilationMode = compilationMode;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static List<Object[]> parameters() {
+        List<Object[]> parameters = new ArrayList<>();
+        for (StartupMode startupMode : new StartupMode[]{StartupMode.COLD, StartupMode.WARM}) {
+            parameters.add(new Object[]{startupMode + " without profile", startupMode, new CompilationMode.None()});
+            parameters.add(new Object[]{startupMode + " with baseline profile", startupMode, new CompilationMode.Partial(BaselineProfileMode.Require, 0)});
+        }
+        return parameters;
+    }
+
+    @Test
+    public void startup() {
+        benchmarkRule.measureRepeated(
+                PACKAGE_NAME,
+                Collections.singletonList(new StartupTimingMetric()),
+                compilationMode,
+                startupMode,
+                ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait();
+                    return Unit.INSTANCE;
+                });
+    }
+}